@@ -0,0 +1,140 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH regression suite of the Board operations one at a time: construction, placeShip, hit, allShipsSunk,
+ * toString and BoardCell.hit. Objects an operation consumes are rebuilt outside the measurement.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardBenchmark {
+    @Param({"10", "100"})
+    public int size;
+
+    private Board fleetBoard;  // Standard fleet placed, nothing hit.
+    private Board targetBoard; // Standard fleet placed, hit cell by cell and reset once every cell is hit.
+    private Ship[] ships;
+    private int nextShot;
+
+    @Setup
+    public void setUp() {
+        fleetBoard = new Board(size, size, BoardCell.CellState.EMPTY);
+        placeFleet(fleetBoard, newFleet());
+        ships = newFleet();
+        resetTarget();
+    }
+
+    /**
+     * Board and ship rebuilt before every placeShip, only paid by that benchmark.
+     */
+    @State(Scope.Thread)
+    public static class Placement {
+        private Board board;
+        private Ship carrier;
+
+        @Setup(Level.Invocation)
+        public void setUp(BoardBenchmark benchmark) {
+            board = new Board(benchmark.size, benchmark.size, BoardCell.CellState.EMPTY);
+            carrier = new Ship(Ship.ShipType.CARRIER);
+        }
+    }
+
+    /**
+     * Cell rebuilt before every cellHit.
+     */
+    @State(Scope.Thread)
+    public static class Cell {
+        private BoardCell cell;
+
+        @Setup(Level.Invocation)
+        public void setUp() {
+            cell = new BoardCell(BoardCell.CellState.EMPTY);
+        }
+    }
+
+    @Benchmark
+    public Object construct() {
+        return new Board(size, size, BoardCell.CellState.EMPTY);
+    }
+
+    @Benchmark
+    public Object placeShip(Placement placement) {
+        placement.board.placeShip(size / 2, size / 2 - 2, Board.Direction.DOWN, placement.carrier);
+        return placement.board;
+    }
+
+    @Benchmark
+    public BoardCell.CellState hit() {
+        if (nextShot == size * size) {
+            resetTarget(); // Amortized over size * size shots.
+        }
+        int shot = nextShot++;
+        return targetBoard.hit(shot % size, shot / size);
+    }
+
+    @Benchmark
+    public boolean allShipsSunk() {
+        return fleetBoard.allShipsSunk();
+    }
+
+    @Benchmark
+    public String boardToString() {
+        return fleetBoard.toString();
+    }
+
+    @Benchmark
+    public BoardCell.CellState cellHit(Cell cell) {
+        return cell.cell.hit();
+    }
+
+    /**
+     * Helper which replaces the hit board by a fresh one holding the standard fleet.
+     */
+    private void resetTarget() {
+        if (targetBoard == null) {
+            targetBoard = new Board(size, size, BoardCell.CellState.EMPTY);
+        } else {
+            targetBoard.reset(BoardCell.CellState.EMPTY); // Frees the ships to be placed again.
+        }
+        for (Ship ship : ships) {
+            ship.repair();
+        }
+        placeFleet(targetBoard, ships);
+        nextShot = 0;
+    }
+
+    private static Ship[] newFleet() {
+        Ship.ShipType[] types = Ship.ShipType.values();
+        Ship[] fleet = new Ship[types.length];
+        for (int i = 0; i < types.length; i++) {
+            fleet[i] = new Ship(types[i]);
+        }
+        return fleet;
+    }
+
+    /**
+     * Helper which places each ship on its own row.
+     */
+    private static void placeFleet(Board board, Ship[] fleet) {
+        for (int i = 0; i < fleet.length; i++) {
+            board.placeShip(0, i * 2, Board.Direction.RIGHT, fleet[i]);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * JMH comparison of the BoardCell[][] object grid (Board) against the packed bitset layout (BitBoard).
+ * Each invocation builds a board, lays out the standard fleet and fires at every cell until the fleet is sunk.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardLayoutBenchmark {
+    @Param({"10", "100"})
+    public int size;
+
+    @Benchmark
+    public void objectGridGame(Blackhole bh) {
+        Board board = new Board(size, size, BoardCell.CellState.EMPTY);
+        placeFleet(board);
+        playOut(board, bh);
+    }
+
+    @Benchmark
+    public void bitBoardGame(Blackhole bh) {
+        BitBoard board = new BitBoard(size, size, BoardCell.CellState.EMPTY);
+        placeFleet(board);
+        playOut(board, bh);
+    }
+
+    @Benchmark
+    public Object objectGridConstruction() {
+        return new Board(size, size, BoardCell.CellState.EMPTY);
+    }
+
+    @Benchmark
+    public Object bitBoardConstruction() {
+        return new BitBoard(size, size, BoardCell.CellState.EMPTY);
+    }
+
+    @Benchmark
+    public String objectGridToString() {
+        return new Board(size, size, BoardCell.CellState.UNKNOWN).toString();
+    }
+
+    @Benchmark
+    public String bitBoardToString() {
+        return new BitBoard(size, size, BoardCell.CellState.UNKNOWN).toString();
+    }
+
+    /**
+     * Helper which places one ship of every type on its own row.
+     */
+    private static void placeFleet(GameBoard board) {
+        Ship.ShipType[] types = Ship.ShipType.values();
+        for (int i = 0; i < types.length; i++) {
+            board.placeShip(0, i * 2, Board.Direction.RIGHT, new Ship(types[i]));
+        }
+    }
+
+    /**
+     * Helper which fires at cells in row order until every ship is sunk.
+     */
+    private static void playOut(GameBoard board, Blackhole bh) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                bh.consume(board.hit(x, y));
+                if (board.allShipsSunk()) return;
+            }
+        }
+    }
+}
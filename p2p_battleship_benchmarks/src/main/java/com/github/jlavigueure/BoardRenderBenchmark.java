@@ -0,0 +1,85 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH redraw of a Board after one more shot: the old cell by cell toString, a full BoardRenderer render into
+ * a reused char[], and an incremental BoardRenderer update which re-emits only the shot cell.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardRenderBenchmark {
+    @Param({"10", "1000"})
+    public int size;
+
+    private Board board;
+    private BoardRenderer renderer;
+    private char[] text;
+    private int nextShot;
+
+    @Setup
+    public void setUp() {
+        board = new Board(size, size, BoardCell.CellState.EMPTY);
+        Ship.ShipType[] types = Ship.ShipType.values();
+        for (int i = 0; i < types.length; i++) {
+            board.placeShip(0, i * 2, Board.Direction.RIGHT, new Ship(types[i]));
+        }
+        renderer = new BoardRenderer(board);
+        renderer.update();
+        text = new char[BoardRenderer.getTextLength(size, size)];
+    }
+
+    @Benchmark
+    public String cellByCellToString() {
+        shoot();
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                sb.append('[' + board.getCell(x, y).toString() + ']');
+            }
+            sb.append("\n");
+        }
+        return sb.toString();
+    }
+
+    @Benchmark
+    public char[] renderIntoArray() {
+        shoot();
+        BoardRenderer.render(board, text, 0);
+        return text;
+    }
+
+    @Benchmark
+    public int incrementalUpdate() {
+        shoot();
+        return renderer.update();
+    }
+
+    /**
+     * Helper firing at the next cell, restarting on an empty row band once the board is full so every
+     * benchmark pays the same shot. The 1000x1000 board is never filled within a measurement.
+     */
+    private void shoot() {
+        if (nextShot == size * size) {
+            setUp();
+            nextShot = 0;
+        }
+        int shot = nextShot++;
+        board.hit(shot % size, shot / size);
+    }
+}
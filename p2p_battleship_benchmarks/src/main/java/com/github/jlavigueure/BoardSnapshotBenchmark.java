@@ -0,0 +1,68 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH throughput of writing and restoring a binary BoardSnapshot of a game in progress,
+ * with the text grid of toString as the baseline. The buffer and the restored board are reused.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BoardSnapshotBenchmark {
+    @Param({"10", "100"})
+    public int size;
+
+    private BitBoard board;
+    private BitBoard restored;
+    private ByteBuffer buffer;
+
+    @Setup
+    public void setUp() {
+        board = new BitBoard(size, size, BoardCell.CellState.EMPTY);
+        new FleetPlacer(size, size).place(board, new SplittableRandom(1));
+        for (int i = 0; i < size * size; i += 3) {
+            board.hit(i % size, i / size);
+        }
+        restored = new BitBoard(size, size, BoardCell.CellState.EMPTY);
+        buffer = ByteBuffer.allocate(BoardSnapshot.size(board));
+    }
+
+    @Benchmark
+    public ByteBuffer write() {
+        buffer.clear();
+        BoardSnapshot.write(board, buffer);
+        return buffer;
+    }
+
+    @Benchmark
+    public BitBoard writeAndRead() throws IOException {
+        buffer.clear();
+        BoardSnapshot.write(board, buffer);
+        buffer.flip();
+        BoardSnapshot.read(buffer, restored);
+        return restored;
+    }
+
+    @Benchmark
+    public String textGrid() {
+        return board.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH throughput of one game thread shooting at a 10x10 board while three spectator threads copy it,
+ * comparing ConcurrentBoard's lock-free snapshots with a BitBoard guarded by one lock for writer and readers.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConcurrentBoardBenchmark {
+    private static final int SIZE = 10;
+
+    /**
+     * Board shared by the writer and the readers of one group.
+     */
+    @State(Scope.Group)
+    public static class Shared {
+        private ConcurrentBoard concurrent;
+        private BitBoard locked;
+        private int nextShot;
+
+        @Setup
+        public void setUp() {
+            concurrent = new ConcurrentBoard(SIZE, SIZE, BoardCell.CellState.EMPTY);
+            locked = new BitBoard(SIZE, SIZE, BoardCell.CellState.EMPTY);
+        }
+
+        /**
+         * Helper returning the next cell to shoot, restarting the game on the board once every cell is shot.
+         */
+        private int nextShot(GameBoard board) {
+            if (nextShot == SIZE * SIZE) {
+                board.reset(BoardCell.CellState.EMPTY);
+                Ship.ShipType[] types = Ship.ShipType.values();
+                for (int i = 0; i < types.length; i++) {
+                    board.placeShip(0, i * 2, Board.Direction.RIGHT, new Ship(types[i]));
+                }
+                nextShot = 0;
+            }
+            return nextShot++;
+        }
+    }
+
+    /**
+     * Copy owned by one reader thread.
+     */
+    @State(Scope.Thread)
+    public static class Reader {
+        private ConcurrentBoard.Snapshot snapshot;
+        private final BoardCell.CellState[] cells = new BoardCell.CellState[SIZE * SIZE];
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(1)
+    public BoardCell.CellState seqlockWriter(Shared shared) {
+        int shot = shared.nextShot(shared.concurrent);
+        return shared.concurrent.hit(shot % SIZE, shot / SIZE);
+    }
+
+    @Benchmark
+    @Group("seqlock")
+    @GroupThreads(3)
+    public Object seqlockReader(Shared shared, Reader reader) {
+        reader.snapshot = shared.concurrent.snapshot(reader.snapshot);
+        return reader.snapshot;
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public BoardCell.CellState lockedWriter(Shared shared) {
+        synchronized (shared) {
+            int shot = shared.nextShot(shared.locked);
+            return shared.locked.hit(shot % SIZE, shot / SIZE);
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(3)
+    public Object lockedReader(Shared shared, Reader reader) {
+        synchronized (shared) {
+            for (int i = 0; i < reader.cells.length; i++) {
+                reader.cells[i] = shared.locked.getState(i % SIZE, i / SIZE);
+            }
+        }
+        return reader.cells;
+    }
+}
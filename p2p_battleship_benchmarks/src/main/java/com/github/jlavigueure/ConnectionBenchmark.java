@@ -0,0 +1,82 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH loopback round trip of one shot and its result, comparing newline terminated strings with binary frames.
+ * Reports throughput and average latency per round trip.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConnectionBenchmark {
+    private static final int MIN_PORT = 5070;
+    private static final int MAX_PORT = 5089;
+
+    @Param({"string", "frame"})
+    public String protocol;
+
+    private Client client;
+    private Thread echoThread;
+    private int shot;
+
+    @Setup
+    public void setup() throws Exception {
+        final Server server = new Server(MIN_PORT, MAX_PORT);
+        int port = server.bind();
+        final boolean framed = protocol.equals("frame");
+        echoThread = new Thread(() -> {
+            try {
+                server.connect();
+                while (true) {
+                    if (framed) {
+                        Message message = server.receiveFrame();
+                        server.sendFrame(Message.result(message.getX(), message.getY(), BoardCell.CellState.MISS));
+                    } else {
+                        server.receiveMessage();
+                        server.sendMessage("MISS");
+                    }
+                }
+            } catch (IOException e) {
+                // Client closed the connection, benchmark trial is over.
+            }
+        });
+        echoThread.setDaemon(true);
+        echoThread.start();
+        client = new Client("localhost", port);
+        client.connect(); // The port is bound, so the connection waits in the backlog until accepted.
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        echoThread.join(2000);
+    }
+
+    @Benchmark
+    public Object roundTrip() throws IOException {
+        int x = shot++ & 7;
+        if (protocol.equals("frame")) {
+            client.sendFrame(Message.shot(x, 3));
+            return client.receiveFrame();
+        }
+        client.sendMessage("SHOT " + x + " 3");
+        return client.receiveMessage();
+    }
+}
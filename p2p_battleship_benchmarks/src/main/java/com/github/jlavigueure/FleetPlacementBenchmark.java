@@ -0,0 +1,72 @@
+package com.github.jlavigueure;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH comparison of random fleet layout with FleetPlacer against calling placeShip at random spots
+ * and retrying when it throws. Both reuse one board and one set of ships.
+ * Small boards are crowded, so the retry loop throws far more often there.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FleetPlacementBenchmark {
+    @Param({"6", "10", "32"})
+    public int size;
+
+    private BitBoard board;
+    private Ship[] ships;
+    private FleetPlacer placer;
+    private SplittableRandom random;
+
+    @Setup
+    public void setUp() {
+        board = new BitBoard(size, size, BoardCell.CellState.EMPTY);
+        Ship.ShipType[] types = Ship.ShipType.values();
+        ships = new Ship[types.length];
+        for (int i = 0; i < types.length; i++) {
+            ships[i] = new Ship(types[i]);
+        }
+        placer = new FleetPlacer(size, size);
+        random = new SplittableRandom(42);
+    }
+
+    @Benchmark
+    public BitBoard retryOnException() {
+        board.reset(BoardCell.CellState.EMPTY);
+        Board.Direction[] directions = Board.Direction.values();
+        for (Ship ship : ships) {
+            while (true) {
+                try {
+                    board.placeShip(random.nextInt(size), random.nextInt(size), directions[random.nextInt(4)], ship);
+                    break;
+                } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                    // Collision or off the board, try another spot.
+                }
+            }
+        }
+        return board;
+    }
+
+    @Benchmark
+    public BitBoard placementMasks() {
+        board.reset(BoardCell.CellState.EMPTY);
+        placer.place(board, ships, random);
+        return board;
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.jlavigueure;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH throughput of the GameJournal write path on local disk: plain appends forced by the flusher in the
+ * background, and appends each waiting to be durable where concurrent writers share forces (group commit).
+ * Every iteration writes a fresh journal in a temporary directory.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(1)
+public class GameJournalBenchmark {
+    private Path dir;
+    private GameJournal journal;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("journal-bench");
+        journal = new GameJournal(dir);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        journal.close();
+        File[] files = dir.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.toFile().delete();
+    }
+
+    @Benchmark
+    public long append() throws IOException {
+        return journal.recordHit(1, 3, 4);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public void appendAndSyncGroupCommit() throws IOException {
+        journal.sync(journal.recordHit(1, 3, 4));
+    }
+}
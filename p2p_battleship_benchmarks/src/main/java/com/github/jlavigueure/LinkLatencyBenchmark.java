@@ -0,0 +1,270 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH game between a client and a host over a loopback link with simulated latency. A relay between them holds
+ * every chunk it reads for delayMillis before passing it on, in each direction, and counts the chunks as packets.
+ * A game is a snapshot of a 64x64 board, TURNS turns of shot, result, the odd sunk notice and the host's shot
+ * back, then GAME_OVER. Compares writing every frame at once (plain) with Connection.setCoalescing (coalesced)
+ * and with compressing the snapshot on top (compressed). Reports time per game, packets and bytes through the
+ * relay are aux counters, divide them by games.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class LinkLatencyBenchmark {
+    private static final int MIN_PORT = 5090;
+    private static final int MAX_PORT = 5099;
+    private static final int SIZE = 64;
+    private static final int TURNS = 20;
+
+    @Param({"plain", "coalesced", "compressed"})
+    public String transport;
+
+    @Param({"10"})
+    public int delayMillis;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Traffic {
+        public long packets;
+        public long bytes;
+        public long games;
+    }
+
+    private Relay relay;
+    private Client client;
+    private Thread hostThread;
+    private ScheduledExecutorService flusher;
+    private int shot;
+
+    @Setup
+    public void setup() throws Exception {
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        final Server host = new Server(MIN_PORT, MAX_PORT);
+        int port = host.bind();
+        final byte[] snapshot = snapshot();
+        hostThread = new Thread(() -> {
+            try {
+                host.connect();
+                configure(host, true);
+                while (true) {
+                    host(host, snapshot);
+                }
+            } catch (IOException e) {
+                // Client closed the connection, benchmark trial is over.
+            }
+        });
+        hostThread.setDaemon(true);
+        hostThread.start();
+        relay = new Relay(port, delayMillis);
+        client = new Client("localhost", relay.getPort());
+        client.connect();
+        configure(client, false);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        client.close();
+        hostThread.join(2000);
+        relay.close();
+        flusher.shutdown();
+    }
+
+    @Benchmark
+    public Message playGame(Traffic traffic) throws IOException {
+        client.sendFrame(Message.syncRequest(0));
+        client.receiveFrame();
+        for (int turn = 0; turn < TURNS; turn++) {
+            int cell = shot++ % (SIZE * SIZE);
+            client.sendFrame(Message.shot(cell % SIZE, cell / SIZE));
+            client.receiveFrame(); // RESULT
+            if (turn % 4 == 3) {
+                client.receiveFrame(); // SUNK
+            }
+            Message incoming = client.receiveFrame();
+            client.sendFrame(Message.result(incoming.getX(), incoming.getY(), BoardCell.CellState.MISS));
+        }
+        Message gameOver = client.receiveFrame();
+        traffic.packets += relay.packets.getAndSet(0);
+        traffic.bytes += relay.bytes.getAndSet(0);
+        traffic.games++;
+        return gameOver;
+    }
+
+    /**
+     * Helper playing the host's side of one game.
+     */
+    private static void host(Server host, byte[] snapshot) throws IOException {
+        host.receiveFrame(); // SYNC_REQUEST
+        host.sendFrame(Message.sync(snapshot));
+        for (int turn = 0; turn < TURNS; turn++) {
+            Message shot = host.receiveFrame();
+            host.sendFrame(Message.result(shot.getX(), shot.getY(), BoardCell.CellState.HIT));
+            if (turn % 4 == 3) {
+                host.sendFrame(Message.sunk(shot.getX(), shot.getY(), Ship.ShipType.DESTROYER));
+            }
+            host.sendFrame(Message.shot(turn % SIZE, turn / SIZE));
+            host.receiveFrame(); // RESULT of the host's shot
+        }
+        host.sendFrame(Message.gameOver(new byte[32]));
+    }
+
+    /**
+     * Helper applying the transport under test to one end.
+     */
+    private void configure(Connection connection, boolean host) throws IOException {
+        if (!transport.equals("plain")) {
+            connection.setCoalescing(flusher, 5, 1400);
+        }
+        if (host && transport.equals("compressed")) {
+            connection.setCompression(FrameCompressor.DEFAULT_THRESHOLD);
+        }
+    }
+
+    /**
+     * Helper building the snapshot sent at the start of a game: a third of a 64x64 board revealed.
+     */
+    private static byte[] snapshot() {
+        BitBoard board = new BitBoard(SIZE, SIZE, BoardCell.CellState.UNKNOWN);
+        for (int cell = 0; cell < SIZE * SIZE; cell += 3) {
+            board.reveal(cell % SIZE, cell / SIZE, cell % 7 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS);
+        }
+        return BoardDelta.encode(board, 0);
+    }
+
+    /**
+     * Relay accepting one connection and forwarding it to a port, each chunk delivered delayMillis after it was read.
+     */
+    private static final class Relay {
+        private final ServerSocket listener;
+        private final AtomicLong packets = new AtomicLong();
+        private final AtomicLong bytes = new AtomicLong();
+        private final int target;
+        private final long delayNanos;
+        private Socket inside;
+        private Socket outside;
+
+        private Relay(int target, int delayMillis) throws IOException {
+            this.listener = new ServerSocket(0);
+            this.target = target;
+            this.delayNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+            Thread acceptor = new Thread(this::accept, "relay-accept");
+            acceptor.setDaemon(true);
+            acceptor.start();
+        }
+
+        private int getPort() {
+            return listener.getLocalPort();
+        }
+
+        private void accept() {
+            try {
+                outside = listener.accept();
+                inside = new Socket("localhost", target);
+                pipe(outside, inside);
+                pipe(inside, outside);
+            } catch (IOException e) {
+                // Relay closed before a client came.
+            }
+        }
+
+        /**
+         * Starts the pair of threads carrying one direction: a reader queueing chunks with their due time and a
+         * writer delivering them once due.
+         */
+        private void pipe(Socket from, Socket to) throws IOException {
+            final InputStream in = from.getInputStream();
+            final OutputStream out = to.getOutputStream();
+            final LinkedBlockingQueue<Chunk> chunks = new LinkedBlockingQueue<>();
+            Thread reader = new Thread(() -> {
+                byte[] buffer = new byte[64 * 1024];
+                try {
+                    int read;
+                    while ((read = in.read(buffer)) != -1) {
+                        packets.incrementAndGet();
+                        bytes.addAndGet(read);
+                        chunks.add(new Chunk(System.nanoTime() + delayNanos, Arrays.copyOf(buffer, read)));
+                    }
+                } catch (IOException e) {
+                    // Closed.
+                }
+                chunks.add(new Chunk(0, null)); // End of stream.
+            }, "relay-read");
+            Thread writer = new Thread(() -> {
+                try {
+                    while (true) {
+                        Chunk chunk = chunks.take();
+                        if (chunk.data == null) {
+                            to.shutdownOutput();
+                            return;
+                        }
+                        long wait = chunk.due - System.nanoTime();
+                        if (wait > 0) {
+                            TimeUnit.NANOSECONDS.sleep(wait);
+                        }
+                        out.write(chunk.data);
+                    }
+                } catch (IOException | InterruptedException e) {
+                    // Closed.
+                }
+            }, "relay-write");
+            reader.setDaemon(true);
+            writer.setDaemon(true);
+            reader.start();
+            writer.start();
+        }
+
+        private void close() throws IOException {
+            listener.close();
+            if (inside != null) {
+                inside.close();
+                outside.close();
+            }
+        }
+    }
+
+    /**
+     * Bytes read by the relay in one go and the time they are due on the other side.
+     */
+    private static final class Chunk {
+        private final long due;
+        private final byte[] data;
+
+        private Chunk(long due, byte[] data) {
+            this.due = due;
+            this.data = data;
+        }
+    }
+}
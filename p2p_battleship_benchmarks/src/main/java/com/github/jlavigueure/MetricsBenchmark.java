@@ -0,0 +1,77 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH cost of recording metrics: one counter increment, one histogram record, and a full BitBoard game
+ * with metrics off, the default, and in its own fork with -Dbattleship.metrics=true.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsBenchmark {
+    private BitBoard board;
+    private Ship[] ships;
+    private long value;
+
+    @Setup
+    public void setUp() {
+        board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        Ship.ShipType[] types = Ship.ShipType.values();
+        ships = new Ship[types.length];
+        for (int i = 0; i < types.length; i++) {
+            ships[i] = new Ship(types[i]);
+        }
+    }
+
+    @Benchmark
+    public void counterIncrement() {
+        Metrics.SHOTS.increment();
+    }
+
+    @Benchmark
+    public void histogramRecord() {
+        Metrics.SEND_NANOS.record(value++ & 0xFFFFF);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dbattleship.metrics=true")
+    public boolean gameMetricsOn() {
+        return playOut();
+    }
+
+    @Benchmark
+    public boolean gameMetricsOff() {
+        return playOut();
+    }
+
+    /**
+     * Helper which places the fleet on its own rows and fires at every cell in row order.
+     */
+    private boolean playOut() {
+        board.reset(BoardCell.CellState.EMPTY);
+        for (int i = 0; i < ships.length; i++) {
+            ships[i].repair();
+            board.placeShip(0, i * 2, Board.Direction.RIGHT, ships[i]);
+        }
+        for (int y = 0; y < 10 && !board.allShipsSunk(); y++) {
+            for (int x = 0; x < 10; x++) {
+                board.hit(x, y);
+            }
+        }
+        return board.allShipsSunk();
+    }
+}
@@ -0,0 +1,94 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH comparison of synchronous round trips against pipelined requests for a salvo of shots.
+ * The responder delays every answer by latencyMicros to simulate a slow link, without limiting throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PipelineBenchmark {
+    @Param({"0", "2000"})
+    public int latencyMicros;
+
+    @Param({"5"})
+    public int salvo;
+
+    private ScheduledExecutorService link;
+    private PeerListener listener;
+    private Client syncClient;
+    private RequestPipeline pipeline;
+
+    @Setup
+    public void setup() throws IOException {
+        link = Executors.newSingleThreadScheduledExecutor();
+        listener = new PeerListener(0, ThreadMode.PLATFORM, connection -> {
+            while (true) {
+                Message shot = connection.receiveFrame();
+                Message result = Message.result(shot.getX(), shot.getY(), BoardCell.CellState.MISS).withSeq(shot.getSeq());
+                link.schedule(() -> {
+                    try {
+                        connection.sendFrame(result);
+                    } catch (IOException e) {
+                        // Benchmark client went away.
+                    }
+                }, latencyMicros, TimeUnit.MICROSECONDS);
+            }
+        });
+        listener.start();
+        syncClient = new Client("localhost", listener.getPort());
+        syncClient.connect();
+        Client pipelined = new Client("localhost", listener.getPort());
+        pipelined.connect();
+        pipeline = new RequestPipeline(pipelined, ThreadMode.PLATFORM, null);
+        pipeline.start();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        syncClient.close();
+        pipeline.close();
+        listener.close();
+        link.shutdownNow();
+    }
+
+    @Benchmark
+    public Message synchronousSalvo() throws IOException {
+        Message last = null;
+        for (int x = 0; x < salvo; x++) {
+            syncClient.sendFrame(Message.shot(x, 0));
+            last = syncClient.receiveFrame();
+        }
+        return last;
+    }
+
+    @Benchmark
+    public Object pipelinedSalvo() throws Exception {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[salvo];
+        for (int x = 0; x < salvo; x++) {
+            futures[x] = pipeline.request(Message.shot(x, 0));
+        }
+        return CompletableFuture.allOf(futures).get();
+    }
+}
@@ -0,0 +1,65 @@
+package com.github.jlavigueure;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH memory cost of a mega-ocean game, the dense BitBoard against the tiled SparseBoard.
+ * Each invocation builds a board, lays out the standard fleet and fires a fixed number of random shots,
+ * so the bytes the board holds are the bytes allocated per operation. Run with the GC profiler and read
+ * gc.alloc.rate.norm: -prof gc
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class SparseBoardMemoryBenchmark {
+    private static final int SHOTS = 1000;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Benchmark
+    public Object bitBoard() {
+        return playShots(new BitBoard(size, size, BoardCell.CellState.EMPTY));
+    }
+
+    @Benchmark
+    public Object sparseBoard() {
+        return playShots(new SparseBoard(size, size, BoardCell.CellState.EMPTY));
+    }
+
+    /**
+     * Helper which places one ship of every type on its own row and fires SHOTS shots at random cells.
+     * FleetPlacer is not used, its placement masks grow with the area.
+     */
+    private GameBoard playShots(GameBoard board) {
+        SplittableRandom random = new SplittableRandom(1);
+        Ship.ShipType[] types = Ship.ShipType.values();
+        for (int i = 0; i < types.length; i++) {
+            int x = random.nextInt(size - types[i].getSize() + 1);
+            board.placeShip(x, i * size / types.length, Board.Direction.RIGHT, new Ship(types[i]));
+        }
+        for (int shot = 0; shot < SHOTS; shot++) {
+            int x = random.nextInt(size);
+            int y = random.nextInt(size);
+            BoardCell.CellState state = board.getState(x, y);
+            if (state == BoardCell.CellState.EMPTY || state == BoardCell.CellState.OCCUPIED) {
+                board.hit(x, y);
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,132 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH loopback fan-out of a SpectatorHub: one operation publishes a batch of frames and waits until every
+ * spectator received all of them. Spectators are drained by one selector thread, as a relay would.
+ * Frames delivered per second are BATCH * spectators * ops/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpectatorFanOutBenchmark {
+    private static final int BATCH = 256;
+
+    @Param({"1", "100", "500"})
+    public int spectators;
+
+    private SpectatorHub hub;
+    private Message[] batch;
+    private int frameSize;
+    private Selector selector;
+    private Thread reader;
+    private final AtomicLong received = new AtomicLong();
+    private long expected;
+    private volatile boolean running;
+
+    @Setup
+    public void setUp() throws Exception {
+        hub = new SpectatorHub(0, 10, 10);
+        hub.start();
+        // SUNK frames are fanned out like results but leave the hub's view alone, so a batch can repeat forever.
+        batch = new Message[BATCH];
+        for (int i = 0; i < BATCH; i++) {
+            batch[i] = Message.sunk(i % 10, i / 10 % 10, Ship.ShipType.values()[i % Ship.ShipType.values().length]);
+        }
+        frameSize = MessageCodec.frameSize(batch[0]);
+        selector = Selector.open();
+        for (int i = 0; i < spectators; i++) {
+            SocketChannel channel = SocketChannel.open(new InetSocketAddress("localhost", hub.getPort()));
+            channel.configureBlocking(false);
+            channel.register(selector, SelectionKey.OP_READ);
+        }
+        while (hub.getSpectatorCount() < spectators) {
+            Thread.sleep(10);
+        }
+        running = true;
+        reader = new Thread(this::drain, "spectators");
+        reader.setDaemon(true);
+        reader.start();
+        // Every spectator is first sent a snapshot of the empty game.
+        long snapshot = MessageCodec.frameSize(new SpectatorHub.View(10, 10).snapshot());
+        expected = snapshot * spectators;
+        awaitDelivery();
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        System.out.println("Resyncs: " + hub.getResyncCount());
+        running = false;
+        selector.wakeup();
+        reader.join();
+        for (SelectionKey key : selector.keys()) {
+            key.channel().close();
+        }
+        selector.close();
+        hub.close();
+    }
+
+    @Benchmark
+    public long publishAndDeliver() {
+        for (Message message : batch) {
+            hub.publish(message);
+        }
+        expected += (long) BATCH * frameSize * spectators;
+        awaitDelivery();
+        return expected;
+    }
+
+    private void awaitDelivery() {
+        while (received.get() < expected) {
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Helper loop reading and counting every byte the spectators receive.
+     */
+    private void drain() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+        try {
+            while (running) {
+                selector.select();
+                for (SelectionKey key : selector.selectedKeys()) {
+                    int read;
+                    do {
+                        buffer.clear();
+                        read = ((SocketChannel) key.channel()).read(buffer);
+                        if (read > 0) {
+                            received.addAndGet(read);
+                        }
+                    } while (read == buffer.capacity());
+                }
+                selector.selectedKeys().clear();
+            }
+        } catch (IOException e) {
+            // Hub closed, trial is over.
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.github.jlavigueure;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of ProbabilityTargeter. decide reports decisions/sec on a mid-game board,
+ * playCorpusGame plays games from a seeded corpus and reports shots/game through aux counters.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TargeterBenchmark {
+    private static final int CORPUS_SIZE = 256;
+
+    @State(Scope.Thread)
+    public static class MidGame {
+        @Param({"10", "100"})
+        public int size;
+
+        @Param({"false", "true"})
+        public boolean parallel;
+
+        ProbabilityTargeter targeter;
+
+        @Setup
+        public void setup() {
+            BitBoard fog = new BitBoard(size, size, BoardCell.CellState.UNKNOWN);
+            Random random = new Random(42);
+            for (int i = 0; i < size * size / 4; i++) {
+                int x = random.nextInt(size);
+                int y = random.nextInt(size);
+                if (fog.getState(x, y) == BoardCell.CellState.UNKNOWN) {
+                    fog.reveal(x, y, random.nextInt(10) == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS);
+                }
+            }
+            ForkJoinPool pool = parallel ? ForkJoinPool.commonPool() : null;
+            targeter = new ProbabilityTargeter(fog, Ship.ShipType.values(), pool, 0, 1);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Corpus {
+        public long shots;
+        public long games;
+        private int next;
+
+        @Setup(Level.Iteration)
+        public void setup() {
+            next = 0;
+        }
+
+        BitBoard nextFleet() {
+            int seed = next++ % CORPUS_SIZE;
+            return randomFleet(10, 10, new Random(seed));
+        }
+    }
+
+    @Benchmark
+    public int decide(MidGame state) {
+        return state.targeter.nextShot();
+    }
+
+    @Benchmark
+    public int playCorpusGame(Corpus corpus) {
+        int seed = corpus.next % CORPUS_SIZE;
+        BitBoard fleet = corpus.nextFleet();
+        int shots = play(fleet, new ProbabilityTargeter(new BitBoard(10, 10, BoardCell.CellState.UNKNOWN), seed));
+        corpus.shots += shots;
+        corpus.games++;
+        return shots;
+    }
+
+    /**
+     * Helper which fires the targeter's shots at the fleet until it is sunk, the same game ProbabilityTargeterTest plays.
+     * @return number of shots fired.
+     */
+    private static int play(BitBoard fleet, Targeter targeter) {
+        int shots = 0;
+        while (!fleet.allShipsSunk()) {
+            int shot = targeter.nextShot();
+            int x = shot % fleet.getWidth();
+            int y = shot / fleet.getWidth();
+            targeter.reveal(x, y, fleet.hit(x, y));
+            if (fleet.getLastSunk() != null) {
+                targeter.shipSunk(x, y, fleet.getLastSunk().getType());
+            }
+            shots++;
+        }
+        return shots;
+    }
+
+    /**
+     * Helper which places the standard fleet at random by retrying rejected placements.
+     */
+    private static BitBoard randomFleet(int width, int height, Random random) {
+        BitBoard board = new BitBoard(width, height, BoardCell.CellState.EMPTY);
+        Board.Direction[] directions = Board.Direction.values();
+        for (Ship.ShipType type : Ship.ShipType.values()) {
+            Ship ship = new Ship(type);
+            while (true) {
+                try {
+                    board.placeShip(random.nextInt(width), random.nextInt(height), directions[random.nextInt(4)], ship);
+                    break;
+                } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                    // Collision or off the board, try another spot.
+                }
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,394 @@
+package com.github.jlavigueure;
+
+import java.util.Arrays;
+
+/**
+ * BitBoard class representing the game board without per cell objects.
+ * Occupied, hit, miss and unknown cells are each kept in a packed long[] bitset
+ * and the ship occupying a cell is kept as a byte index into the fleet.
+ * Behaves exactly like Board, including the exceptions thrown.
+ */
+public class BitBoard implements GameBoard {
+    private static final int MAX_SHIPS = Byte.MAX_VALUE;
+
+    private final int width;
+    private final int height;
+    private final long[] occupied;
+    private final long[] hits;
+    private final long[] misses;
+    private final long[] unknown;
+    private final byte[] owner; // fleet index + 1 of the ship in each cell, 0 when no ship.
+    private Ship[] fleet;
+    private int shipCount;
+    private final FleetTracker tracker;
+    private final ChangeLog changes;
+    private long[] salvoMarks; // Scratch bitset marking the cells of the salvo being validated.
+    private TargetIndex targets; // Built on first use by getTargetIndex.
+
+    /**
+     * Constructor for the BitBoard class. Initializes the board with the specified width and height.
+     * @param width of board.
+     * @param height of board.
+     * @param boardState is the inital starting state of the board. Can not be OCCUPIED.
+     * @throws IllegalArgumentException if a dimension is not positive, the board is too large or boardState is OCCUPIED.
+     */
+    public BitBoard(int width, int height, BoardCell.CellState boardState) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Board dimensions must be positive and hold at most " + Integer.MAX_VALUE + " cells.");
+        } else if (boardState == BoardCell.CellState.OCCUPIED) {
+            throw new IllegalArgumentException("Board can not start OCCUPIED without ships.");
+        }
+        this.width = width;
+        this.height = height;
+        int cells = width * height;
+        int words = (cells + 63) >>> 6;
+        occupied = new long[words];
+        hits = new long[words];
+        misses = new long[words];
+        unknown = new long[words];
+        owner = new byte[cells];
+        fleet = new Ship[8];
+        shipCount = 0;
+        tracker = new FleetTracker();
+        changes = new ChangeLog();
+        reset(boardState);
+    }
+
+    @Override
+    public void reset(BoardCell.CellState boardState) {
+        if (boardState == BoardCell.CellState.OCCUPIED) {
+            throw new IllegalArgumentException("Board can not start OCCUPIED without ships.");
+        }
+        Arrays.fill(occupied, 0);
+        Arrays.fill(hits, 0);
+        Arrays.fill(misses, 0);
+        Arrays.fill(unknown, 0);
+        if (shipCount > 0) {
+            Arrays.fill(owner, (byte) 0);
+        }
+        for (int i = 0; i < shipCount; i++) {
+            fleet[i].setHitListener(null);
+            fleet[i] = null;
+        }
+        shipCount = 0;
+        tracker.reset();
+        changes.reset();
+        if (targets != null) {
+            targets.reset(boardState != BoardCell.CellState.HIT && boardState != BoardCell.CellState.MISS);
+        }
+        switch (boardState) {
+            case HIT:
+                fill(hits, owner.length);
+                break;
+            case MISS:
+                fill(misses, owner.length);
+                break;
+            case UNKNOWN:
+                fill(unknown, owner.length);
+                break;
+            default:
+                break;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public BoardCell.CellState getState(int x, int y) {
+        return stateAt(index(x, y));
+    }
+
+    @Override
+    public void getRowStates(int y, BoardCell.CellState[] dst) {
+        if (y < 0 || y >= height || dst.length < width) {
+            throw new IndexOutOfBoundsException("Invalid row " + y + " for " + dst.length + " states.");
+        }
+        int index = y * width;
+        for (int x = 0; x < width; x++) {
+            dst[x] = stateAt(index++);
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return changes.getVersion();
+    }
+
+    @Override
+    public long getOldestVersion() {
+        return changes.getOldestVersion();
+    }
+
+    @Override
+    public int getChangedCell(long version) {
+        return changes.getChangedCell(version);
+    }
+
+    @Override
+    public int getShipCount() {
+        return shipCount;
+    }
+
+    @Override
+    public Ship getPlacedShip(int index) {
+        if (index < 0 || index >= shipCount) {
+            throw new IndexOutOfBoundsException("Invalid ship index: " + index);
+        }
+        return fleet[index];
+    }
+
+    /**
+     * Function to get the ship occupying the specified cell.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return the ship in the cell or null if the cell holds no ship.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     */
+    public Ship getShip(int x, int y) {
+        int id = owner[index(x, y)];
+        return id == 0 ? null : fleet[id - 1];
+    }
+
+    @Override
+    public void placeShip(int x, int y, Board.Direction direction, Ship ship) {
+        if (Metrics.ENABLED) {
+            Metrics.PLACEMENTS.increment();
+        }
+        if (ship == null) {
+            throw new IllegalArgumentException("Ship cannot be null.");
+        }
+        for (int i = 0; i < shipCount; i++) {
+            if (fleet[i] == ship) {
+                throw new IllegalArgumentException("Ship already placed on board");
+            }
+        }
+        if (ship.isPlaced()) {
+            throw new IllegalArgumentException("Ship already placed on another board");
+        }
+        if (shipCount == MAX_SHIPS) {
+            throw new IllegalArgumentException("Board can not hold more than " + MAX_SHIPS + " ships.");
+        }
+        int size = ship.getSize();
+        int dx = direction.getDx();
+        int dy = direction.getDy();
+        for (int i = 0; i < size; i++) {
+            int newX = x + dx * i;
+            int newY = y + dy * i;
+            if (stateAt(index(newX, newY)) != BoardCell.CellState.EMPTY) {
+                throw new IllegalArgumentException("Cell (" + newX + ", " + newY + ") is not empty.");
+            }
+        }
+        if (shipCount == fleet.length) {
+            fleet = Arrays.copyOf(fleet, Math.min(fleet.length * 2, MAX_SHIPS));
+        }
+        fleet[shipCount++] = ship;
+        byte id = (byte) shipCount;
+        for (int i = 0; i < size; i++) {
+            int index = (y + dy * i) * width + x + dx * i;
+            occupied[index >>> 6] |= 1L << index;
+            owner[index] = id;
+        }
+        ship.setPlacement(x, y, direction);
+        tracker.add(ship);
+    }
+
+    @Override
+    public BoardCell.CellState hit(int x, int y) {
+        int index = index(x, y);
+        int word = index >>> 6;
+        long mask = 1L << index;
+        if (((hits[word] | misses[word]) & mask) != 0) {
+            throw new IllegalStateException("Cell already attacked.");
+        } else if ((unknown[word] & mask) != 0) {
+            throw new IllegalStateException("Can not hit unknown cell. Must use reveal methods.");
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SHOTS.increment();
+        }
+        changes.record(index);
+        tracker.beginShot();
+        if ((occupied[word] & mask) != 0) {
+            hits[word] |= mask;
+            fleet[owner[index] - 1].hit();
+            if (targets != null) {
+                targets.markShot(index, true);
+                if (tracker.getLastSunk() != null) {
+                    targets.resolveShip(tracker.getLastSunk());
+                }
+            }
+            return BoardCell.CellState.HIT;
+        }
+        misses[word] |= mask;
+        if (targets != null) {
+            targets.markShot(index, false);
+        }
+        return BoardCell.CellState.MISS;
+    }
+
+    @Override
+    public long[] hitAll(int[] xs, int[] ys) {
+        if (xs == null || ys == null || xs.length != ys.length) {
+            throw new IllegalArgumentException("Salvo coordinates must be two arrays of equal length.");
+        }
+        if (salvoMarks == null) {
+            salvoMarks = new long[occupied.length];
+        }
+        int validated = 0;
+        try {
+            for (; validated < xs.length; validated++) {
+                int index = index(xs[validated], ys[validated]);
+                int word = index >>> 6;
+                long mask = 1L << index;
+                if (((hits[word] | misses[word]) & mask) != 0) {
+                    throw new IllegalStateException("Cell already attacked.");
+                } else if ((unknown[word] & mask) != 0) {
+                    throw new IllegalStateException("Can not hit unknown cell. Must use reveal methods.");
+                } else if ((salvoMarks[word] & mask) != 0) {
+                    throw new IllegalArgumentException("Cell (" + xs[validated] + ", " + ys[validated] + ") is targeted twice.");
+                }
+                salvoMarks[word] |= mask;
+            }
+        } finally {
+            for (int i = 0; i < validated; i++) {
+                int index = ys[i] * width + xs[i];
+                salvoMarks[index >>> 6] &= ~(1L << index);
+            }
+        }
+        long[] result = new long[(xs.length + 63) >>> 6];
+        tracker.beginShot();
+        for (int i = 0; i < xs.length; i++) {
+            int index = ys[i] * width + xs[i];
+            int word = index >>> 6;
+            long mask = 1L << index;
+            boolean hit = (occupied[word] & mask) != 0;
+            if (hit) {
+                hits[word] |= mask;
+                fleet[owner[index] - 1].hit();
+                result[i >>> 6] |= 1L << i;
+            } else {
+                misses[word] |= mask;
+            }
+            changes.record(index);
+            if (targets != null) {
+                targets.markShot(index, hit);
+            }
+        }
+        if (targets != null) {
+            resolveSunkShips();
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SHOTS.add(xs.length);
+        }
+        return result;
+    }
+
+    @Override
+    public void reveal(int x, int y, BoardCell.CellState newState) {
+        int index = index(x, y);
+        int word = index >>> 6;
+        long mask = 1L << index;
+        if ((unknown[word] & mask) == 0) {
+            throw new IllegalStateException("Can not reveal cell with known state.");
+        } else if (newState != BoardCell.CellState.HIT && newState != BoardCell.CellState.MISS) {
+            throw new IllegalArgumentException("Can only reveal opponent board as HIT or MISS.");
+        }
+        unknown[word] &= ~mask;
+        if (newState == BoardCell.CellState.HIT) {
+            hits[word] |= mask;
+        } else {
+            misses[word] |= mask;
+        }
+        changes.record(index);
+        if (targets != null) {
+            targets.markShot(index, newState == BoardCell.CellState.HIT);
+        }
+    }
+
+    @Override
+    public boolean allShipsSunk() {
+        return tracker.allSunk();
+    }
+
+    @Override
+    public Ship getLastSunk() {
+        return tracker.getLastSunk();
+    }
+
+    @Override
+    public void setSunkListener(SunkListener listener) {
+        tracker.setSunkListener(listener);
+    }
+
+    @Override
+    public TargetIndex getTargetIndex() {
+        if (targets == null) {
+            targets = TargetIndex.of(this);
+            resolveSunkShips();
+        }
+        return targets;
+    }
+
+    /**
+     * Function to print the current state of the board in the same format as Board.
+     */
+    @Override
+    public String toString() {
+        char[] text = new char[BoardRenderer.getTextLength(width, height)];
+        BoardRenderer.render(this, text, 0);
+        return new String(text);
+    }
+
+    /**
+     * Helper method resolving the cells of every sunk ship which are still open hits in the index.
+     */
+    private void resolveSunkShips() {
+        for (int i = 0; i < shipCount; i++) {
+            if (fleet[i].isSunk()) {
+                targets.resolveShip(fleet[i]);
+            }
+        }
+    }
+
+    /**
+     * Helper method which converts coordinates to a cell index.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     */
+    private int index(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Invalid cell coordinates: (" + x + ", " + y + ")");
+        }
+        return y * width + x;
+    }
+
+    /**
+     * Helper method which decodes the state of the cell at the given index from the bitsets.
+     */
+    private BoardCell.CellState stateAt(int index) {
+        int word = index >>> 6;
+        long mask = 1L << index;
+        if ((unknown[word] & mask) != 0) return BoardCell.CellState.UNKNOWN;
+        if ((hits[word] & mask) != 0) return BoardCell.CellState.HIT;
+        if ((misses[word] & mask) != 0) return BoardCell.CellState.MISS;
+        if ((occupied[word] & mask) != 0) return BoardCell.CellState.OCCUPIED;
+        return BoardCell.CellState.EMPTY;
+    }
+
+    /**
+     * Helper method which sets the first count bits of the given bitset.
+     */
+    private static void fill(long[] bits, int count) {
+        Arrays.fill(bits, -1L);
+        int tail = count & 63;
+        if (tail != 0) {
+            bits[bits.length - 1] = (1L << tail) - 1;
+        }
+    }
+}
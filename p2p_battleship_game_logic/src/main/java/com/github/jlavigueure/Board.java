@@ -1,24 +1,51 @@
 package com.github.jlavigueure;
 import com.github.jlavigueure.BoardCell;
 import java.util.ArrayList;
+import java.util.BitSet;
 
 /**
  * Board class representing the game board.
  * The board is a 2D array of BoardCell objects.
  */
-public class Board { 
+public class Board implements GameBoard { 
     /**
      * Enum representing the four possible directions for ship placement.
      */
     public static enum Direction {
-        UP, 
-        RIGHT,
-        DOWN,
-        LEFT;
+        UP(0, -1), 
+        RIGHT(1, 0),
+        DOWN(0, 1),
+        LEFT(-1, 0);
+
+        private final int dx;
+        private final int dy;
+        Direction(int dx, int dy) {
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        /**
+         * Function to get the x-offset of one step in this direction.
+         * @return -1, 0 or 1.
+         */
+        public int getDx() {
+            return dx;
+        }
+
+        /**
+         * Function to get the y-offset of one step in this direction.
+         * @return -1, 0 or 1.
+         */
+        public int getDy() {
+            return dy;
+        }
     }
 
     private final BoardCell[][] board;
     private final ArrayList<Ship> ships;
+    private final FleetTracker fleet;
+    private final ChangeLog changes;
+    private TargetIndex targets; // Built on first use by getTargetIndex.
 
     /**
      * Constructor for the Board class. Initializes the board with the specified width and height. All cells are initially empty.
@@ -27,13 +54,46 @@ public class Board {
      * @param boardState is the inital starting state of the board.
      */
     public Board(int width, int height, BoardCell.CellState boardState) {
-        this.board = new BoardCell[width][height];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
+        this.board = new BoardCell[height][width];
+        for (int i = 0; i < height; i++) {
+            for (int j = 0; j < width; j++) {
                 board[i][j] = new BoardCell(boardState);
             }
         }
         ships = new ArrayList<>();
+        fleet = new FleetTracker();
+        changes = new ChangeLog();
+    }
+
+    @Override
+    public void reset(BoardCell.CellState boardState) {
+        if (boardState == BoardCell.CellState.OCCUPIED) {
+            throw new IllegalArgumentException("Board can not start OCCUPIED without ships.");
+        }
+        for (int i = 0; i < board.length; i++) {
+            for (int j = 0; j < board[i].length; j++) {
+                board[i][j] = new BoardCell(boardState);
+            }
+        }
+        for (Ship ship : ships) {
+            ship.setHitListener(null);
+        }
+        ships.clear();
+        fleet.reset();
+        changes.reset();
+        if (targets != null) {
+            targets.reset(boardState != BoardCell.CellState.HIT && boardState != BoardCell.CellState.MISS);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return board[0].length;
+    }
+
+    @Override
+    public int getHeight() {
+        return board.length;
     }
 
     /**
@@ -50,6 +110,47 @@ public class Board {
         return board[y][x];
     }
 
+    @Override
+    public BoardCell.CellState getState(int x, int y) {
+        return getCell(x, y).getState();
+    }
+
+    @Override
+    public void getRowStates(int y, BoardCell.CellState[] dst) {
+        if (y < 0 || y >= board.length || dst.length < board[0].length) {
+            throw new IndexOutOfBoundsException("Invalid row " + y + " for " + dst.length + " states.");
+        }
+        BoardCell[] row = board[y];
+        for (int x = 0; x < row.length; x++) {
+            dst[x] = row[x].getState();
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return changes.getVersion();
+    }
+
+    @Override
+    public long getOldestVersion() {
+        return changes.getOldestVersion();
+    }
+
+    @Override
+    public int getChangedCell(long version) {
+        return changes.getChangedCell(version);
+    }
+
+    @Override
+    public int getShipCount() {
+        return ships.size();
+    }
+
+    @Override
+    public Ship getPlacedShip(int index) {
+        return ships.get(index);
+    }
+
     /**
      * Function to place a ship on the board at the specified coordinates and direction. 
      * If the ship placement is invalid, an exception is thrown and no changes are made to the board.
@@ -58,11 +159,16 @@ public class Board {
      * @param direction The direction in which to place the ship (UP, RIGHT, DOWN, LEFT).
      * @param ship The Ship object to place on the board.
      * @throws IndexOutOfBoundsException if the ship placement goes out of bounds.
-     * @throws IllegalArgumentException if invalid cells or a cell is not empty or ship is null or same ship object already on board.
+     * @throws IllegalArgumentException if invalid cells or a cell is not empty or ship is null or same ship object already on this or another board.
      */
     public void placeShip(int x, int y, Direction direction, Ship ship) {
+        if (Metrics.ENABLED) {
+            Metrics.PLACEMENTS.increment();
+        }
         if (ships.contains(ship)){
             throw new IllegalArgumentException("Ship already placed on board");
+        } else if (ship.isPlaced()) {
+            throw new IllegalArgumentException("Ship already placed on another board");
         }
         int size = ship.getSize();
         BoardCell[] cellsToOccupy = new BoardCell[size];
@@ -92,7 +198,9 @@ public class Board {
         for (BoardCell cell : cellsToOccupy) {
             cell.setOccupied(ship);
         }
+        ship.setPlacement(x, y, direction);
         ships.add(ship);
+        fleet.add(ship);
     }
 
     /**
@@ -104,7 +212,63 @@ public class Board {
      * @throws IllegalStateException if cell already attacked or cell state is unknown.
      */
     public BoardCell.CellState hit(int x, int y) {
-        return getCell(x, y).hit();
+        BoardCell cell = getCell(x, y);
+        fleet.beginShot();
+        BoardCell.CellState state = cell.hit();
+        changes.record(y * getWidth() + x);
+        if (targets != null) {
+            targets.markShot(y * getWidth() + x, state == BoardCell.CellState.HIT);
+            if (fleet.getLastSunk() != null) {
+                targets.resolveShip(fleet.getLastSunk());
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SHOTS.increment();
+        }
+        return state;
+    }
+
+    @Override
+    public long[] hitAll(int[] xs, int[] ys) {
+        if (xs == null || ys == null || xs.length != ys.length) {
+            throw new IllegalArgumentException("Salvo coordinates must be two arrays of equal length.");
+        }
+        BoardCell[] cells = new BoardCell[xs.length];
+        BitSet targeted = new BitSet();
+        for (int i = 0; i < xs.length; i++) {
+            BoardCell cell = getCell(xs[i], ys[i]);
+            BoardCell.CellState state = cell.getState();
+            if (state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS) {
+                throw new IllegalStateException("Cell already attacked.");
+            } else if (state == BoardCell.CellState.UNKNOWN) {
+                throw new IllegalStateException("Can not hit unknown cell. Must use reveal methods.");
+            }
+            int index = ys[i] * getWidth() + xs[i];
+            if (targeted.get(index)) {
+                throw new IllegalArgumentException("Cell (" + xs[i] + ", " + ys[i] + ") is targeted twice.");
+            }
+            targeted.set(index);
+            cells[i] = cell;
+        }
+        long[] result = new long[(xs.length + 63) >>> 6];
+        fleet.beginShot();
+        for (int i = 0; i < cells.length; i++) {
+            boolean hit = cells[i].hit() == BoardCell.CellState.HIT;
+            if (hit) {
+                result[i >>> 6] |= 1L << i;
+            }
+            changes.record(ys[i] * getWidth() + xs[i]);
+            if (targets != null) {
+                targets.markShot(ys[i] * getWidth() + xs[i], hit);
+            }
+        }
+        if (targets != null) {
+            resolveSunkShips();
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SHOTS.add(xs.length);
+        }
+        return result;
     }
 
     /**
@@ -117,17 +281,48 @@ public class Board {
      */
     public void reveal(int x, int y, BoardCell.CellState newState) {
         getCell(x, y).reveal(newState);
+        changes.record(y * getWidth() + x);
+        if (targets != null) {
+            targets.markShot(y * getWidth() + x, newState == BoardCell.CellState.HIT);
+        }
     }
 
     /**
-     * Function which returns true if all ships are sunk.
+     * Function which returns true if all ships are sunk. Runs in constant time using the fleet health counter.
      * @return true if all ships sunk else false.
      */
     public boolean allShipsSunk() {
-        for (Ship ship : ships){
-            if (!ship.isSunk()) return false;
+        return fleet.allSunk();
+    }
+
+    @Override
+    public Ship getLastSunk() {
+        return fleet.getLastSunk();
+    }
+
+    @Override
+    public void setSunkListener(SunkListener listener) {
+        fleet.setSunkListener(listener);
+    }
+
+    @Override
+    public TargetIndex getTargetIndex() {
+        if (targets == null) {
+            targets = TargetIndex.of(this);
+            resolveSunkShips();
+        }
+        return targets;
+    }
+
+    /**
+     * Helper method resolving the cells of every sunk ship which are still open hits in the index.
+     */
+    private void resolveSunkShips() {
+        for (Ship ship : ships) {
+            if (ship.isSunk()) {
+                targets.resolveShip(ship);
+            }
         }
-        return true;
     }
 
     /**
@@ -135,13 +330,8 @@ public class Board {
      */
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        for (int y = 0; y < board[0].length; y++) {
-            for (int x = 0; x < board.length; x++) {
-                sb.append('[' + getCell(x, y).toString() + ']');
-            }
-            sb.append("\n");
-        }
-        return sb.toString();
+        char[] text = new char[BoardRenderer.getTextLength(getWidth(), getHeight())];
+        BoardRenderer.render(this, text, 0);
+        return new String(text);
     }
 }
@@ -17,6 +17,14 @@ public class BoardCell {
         UNKNOWN; // Unknown is used to represent opponent's board in fog-of-war. Can only be revealed as HIT or MISS. 
     }
 
+    private static final String[] TEXT = new String[CellState.values().length]; // toString of each state.
+
+    static {
+        for (CellState state : CellState.values()) {
+            TEXT[state.ordinal()] = String.valueOf(BoardRenderer.glyph(state));
+        }
+    }
+
     private Ship occupyingShip;
     private CellState state;
 
@@ -106,23 +114,6 @@ public class BoardCell {
     */
     @Override
     public String toString(){
-        String out = "";
-        switch (state){
-            case EMPTY: 
-                out = " ";
-                break;
-            case OCCUPIED:
-                out = "S";
-                break;
-            case HIT:
-                out = "X";
-                break;
-            case MISS:
-                out = "O";
-                break;
-            case UNKNOWN:
-                out = "?";
-        }
-        return out;
+        return TEXT[state.ordinal()];
     }
 }
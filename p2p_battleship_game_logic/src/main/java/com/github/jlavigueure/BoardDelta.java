@@ -0,0 +1,222 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * BoardDelta class encoding what a peer can see of a board, its HIT and MISS cells, as the changes since a
+ * version the peer already has. A reconnecting peer sends SYNC_REQUEST with the last version it synced and
+ * gets a SYNC carrying a delta, so reconnecting costs bytes in proportion to the shots it missed rather
+ * than to the board size. When the version is unknown to the board, for example from before a reset,
+ * the delta holds every HIT and MISS cell and the replica is cleared first.
+ * <p>
+ * Format, varints as in BoardSnapshot:
+ * <ul>
+ *   <li>byte format version, currently 1</li>
+ *   <li>byte flags, bit 0 set for a full sync</li>
+ *   <li>varint width, varint height, varint from version, varint to version</li>
+ *   <li>varint chunk count, then per chunk: varint cells skipped since the end of the previous chunk,
+ *       varint length * 2 + 1 followed by one state byte for a run of equal cells, or varint length * 2
+ *       followed by 2 bits per cell, four per byte from the low bits. States are 0 UNKNOWN, 1 HIT, 2 MISS.</li>
+ * </ul>
+ * Changed cells close to each other share a chunk, so scattered shots cost about one byte each.
+ */
+public final class BoardDelta {
+    /** Format version written in the first byte of every delta. */
+    public static final byte FORMAT_VERSION = 1;
+
+    private static final int FULL = 1;
+    private static final int MAX_GAP = 8; // Unchanged cells bridged inside a chunk rather than starting a new one.
+    private static final int UNKNOWN = 0;
+    private static final int HIT = 1;
+    private static final int MISS = 2;
+
+    private BoardDelta() {
+    }
+
+    /**
+     * Function to encode the HIT and MISS cells of a board which changed since a version.
+     * @param source board whose changes are sent, typically the receiver's opponent board.
+     * @param since last version of the source the receiver synced, 0 if none.
+     * @return the encoded delta, to send with Message.sync.
+     */
+    public static byte[] encode(GameBoard source, long since) {
+        int width = source.getWidth();
+        int area = width * source.getHeight();
+        long version = source.getVersion();
+        boolean full = since < source.getOldestVersion() || since > version;
+        int[] cells;
+        int count;
+        if (full) {
+            count = 0;
+            cells = new int[16];
+            for (int cell = 0; cell < area; cell++) {
+                if (code(source, cell, width) != UNKNOWN) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count * 2);
+                    }
+                    cells[count++] = cell;
+                }
+            }
+        } else {
+            count = (int) (version - since);
+            cells = new int[count];
+            for (int i = 0; i < count; i++) {
+                cells[i] = source.getChangedCell(since + i);
+            }
+            Arrays.sort(cells);
+        }
+        // Group the changed cells into chunks: starts[c] and ends[c] (exclusive), runs[c] the state of a run or -1.
+        int[] starts = new int[count];
+        int[] ends = new int[count];
+        int[] runs = new int[count];
+        int chunks = 0;
+        for (int i = 0; i < count; i++) {
+            int cell = cells[i];
+            if (chunks > 0 && cell < ends[chunks - 1] + MAX_GAP) {
+                ends[chunks - 1] = Math.max(ends[chunks - 1], cell + 1);
+            } else {
+                starts[chunks] = cell;
+                ends[chunks] = cell + 1;
+                chunks++;
+            }
+        }
+        int size = 2 + Varint.size(width) + Varint.size(source.getHeight()) + Varint.size(full ? 0 : since)
+                + Varint.size(version) + Varint.size(chunks);
+        int previousEnd = 0;
+        for (int c = 0; c < chunks; c++) {
+            int length = ends[c] - starts[c];
+            runs[c] = code(source, starts[c], width);
+            for (int cell = starts[c] + 1; cell < ends[c] && runs[c] >= 0; cell++) {
+                if (code(source, cell, width) != runs[c]) {
+                    runs[c] = -1;
+                }
+            }
+            size += Varint.size(starts[c] - previousEnd) + Varint.size(length * 2L + 1)
+                    + (runs[c] >= 0 ? 1 : (length + 3) / 4);
+            previousEnd = ends[c];
+        }
+        ByteBuffer out = ByteBuffer.allocate(size);
+        out.put(FORMAT_VERSION);
+        out.put((byte) (full ? FULL : 0));
+        Varint.put(out, width);
+        Varint.put(out, source.getHeight());
+        Varint.put(out, full ? 0 : since);
+        Varint.put(out, version);
+        Varint.put(out, chunks);
+        previousEnd = 0;
+        for (int c = 0; c < chunks; c++) {
+            int length = ends[c] - starts[c];
+            Varint.put(out, starts[c] - previousEnd);
+            if (runs[c] >= 0) {
+                Varint.put(out, length * 2L + 1);
+                out.put((byte) runs[c]);
+            } else {
+                Varint.put(out, length * 2L);
+                int packed = 0;
+                for (int i = 0; i < length; i++) {
+                    packed |= code(source, starts[c] + i, width) << ((i & 3) * 2);
+                    if ((i & 3) == 3 || i == length - 1) {
+                        out.put((byte) packed);
+                        packed = 0;
+                    }
+                }
+            }
+            previousEnd = ends[c];
+        }
+        return out.array();
+    }
+
+    /**
+     * Function to apply a delta to a fog-of-war replica of the source board.
+     * @param in buffer holding the delta. Its position is moved past the delta.
+     * @param replica fog-of-war board of the source's size, holding only UNKNOWN, HIT and MISS cells.
+     * @param replicaVersion version of the source the replica was last synced to, 0 if never.
+     * @return version of the source the replica is now synced to.
+     * @throws IOException if the delta is malformed, was encoded from another version than replicaVersion,
+     *                     or contradicts a cell of the replica. The replica is then partially updated.
+     */
+    public static long apply(ByteBuffer in, GameBoard replica, long replicaVersion) throws IOException {
+        try {
+            byte format = in.get();
+            if (format != FORMAT_VERSION) {
+                throw new IOException("Unsupported delta format: " + format);
+            }
+            boolean full = (in.get() & FULL) != 0;
+            int width = Varint.getInt(in);
+            int height = Varint.getInt(in);
+            if (width != replica.getWidth() || height != replica.getHeight()) {
+                throw new IOException("Delta is for a " + width + "x" + height + " board.");
+            }
+            long since = Varint.getLong(in);
+            long version = Varint.getLong(in);
+            if (!full && since != replicaVersion) {
+                throw new IOException("Delta is from version " + since + " but replica is at " + replicaVersion + ".");
+            }
+            int chunks = Varint.getInt(in);
+            if (full) {
+                replica.reset(BoardCell.CellState.UNKNOWN);
+            }
+            long area = (long) width * height;
+            long cell = 0;
+            for (int c = 0; c < chunks; c++) {
+                cell += Varint.getInt(in);
+                long header = Varint.getLong(in);
+                long length = header >>> 1;
+                if (cell + length > area) {
+                    throw new IOException("Delta chunk runs off the board.");
+                }
+                if ((header & 1) != 0) {
+                    int code = in.get();
+                    for (long i = 0; i < length; i++) {
+                        set(replica, (int) (cell + i), width, code);
+                    }
+                } else {
+                    int packed = 0;
+                    for (long i = 0; i < length; i++) {
+                        if ((i & 3) == 0) {
+                            packed = in.get();
+                        }
+                        set(replica, (int) (cell + i), width, (packed >>> ((i & 3) * 2)) & 3);
+                    }
+                }
+                cell += length;
+            }
+            return version;
+        } catch (BufferUnderflowException | IllegalArgumentException | IllegalStateException e) {
+            throw new IOException("Malformed delta: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method bringing one replica cell to the state of the delta.
+     */
+    private static void set(GameBoard replica, int cell, int width, int code) throws IOException {
+        int x = cell % width;
+        int y = cell / width;
+        int current = code(replica, cell, width);
+        if (current == code) {
+            return;
+        }
+        if (current != UNKNOWN || (code != HIT && code != MISS)) {
+            throw new IOException("Delta contradicts cell (" + x + ", " + y + ").");
+        }
+        replica.reveal(x, y, code == HIT ? BoardCell.CellState.HIT : BoardCell.CellState.MISS);
+    }
+
+    /**
+     * Helper method returning what a peer sees of a cell: HIT, MISS, or UNKNOWN for anything else.
+     */
+    private static int code(GameBoard board, int cell, int width) {
+        switch (board.getState(cell % width, cell / width)) {
+            case HIT:
+                return HIT;
+            case MISS:
+                return MISS;
+            default:
+                return UNKNOWN;
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+
+/**
+ * BoardRenderer class draws boards as text in the format of Board.toString: a "[c]" square per cell,
+ * c being ' ' EMPTY, 'S' OCCUPIED, 'X' HIT, 'O' MISS or '?' UNKNOWN, and a newline after each row.
+ * <p>
+ * The static render functions read a row of states at a time through GameBoard.getRowStates and look glyphs up
+ * in a table, writing into a caller's char[] or Appendable without building strings.
+ * <p>
+ * An instance keeps the text of one board and redraws it incrementally: update re-emits only the cells which
+ * turned HIT or MISS since the previous update, found through the board's version history, and only redraws
+ * everything after a reset or a ship placement. A CellListener is told each re-emitted cell, so a client can
+ * repaint just those squares. An instance is not thread safe.
+ */
+public class BoardRenderer {
+    /**
+     * Interface for callers repainting the cells an update re-emitted.
+     */
+    public static interface CellListener {
+        void cellChanged(int x, int y, char glyph);
+    }
+
+    private static final char[] GLYPHS = new char[BoardCell.CellState.values().length];
+
+    static {
+        GLYPHS[BoardCell.CellState.EMPTY.ordinal()] = ' ';
+        GLYPHS[BoardCell.CellState.OCCUPIED.ordinal()] = 'S';
+        GLYPHS[BoardCell.CellState.HIT.ordinal()] = 'X';
+        GLYPHS[BoardCell.CellState.MISS.ordinal()] = 'O';
+        GLYPHS[BoardCell.CellState.UNKNOWN.ordinal()] = '?';
+    }
+
+    private final GameBoard board;
+    private final char[] text;
+    private final int rowLength;
+    private final BoardCell.CellState[] row;
+    private boolean rendered;
+    private long renderedVersion;
+    private long renderedOldestVersion;
+    private int renderedShips;
+
+    /**
+     * Constructor for BoardRenderer. Nothing is drawn until the first update.
+     * @param board to draw.
+     * @throws IllegalArgumentException if the board's text is too large for a char array.
+     */
+    public BoardRenderer(GameBoard board) {
+        this.board = board;
+        this.text = new char[getTextLength(board.getWidth(), board.getHeight())];
+        this.rowLength = board.getWidth() * 3 + 1;
+        this.row = new BoardCell.CellState[board.getWidth()];
+    }
+
+    /**
+     * Function to get the character drawn for a state.
+     * @param state of a cell.
+     * @return its glyph.
+     */
+    public static char glyph(BoardCell.CellState state) {
+        return GLYPHS[state.ordinal()];
+    }
+
+    /**
+     * Function to get the number of characters of a board's text.
+     * @param width of the board.
+     * @param height of the board.
+     * @return height * (width * 3 + 1).
+     * @throws IllegalArgumentException if the text is too large for a char array.
+     */
+    public static int getTextLength(int width, int height) {
+        long length = (long) height * (width * 3L + 1);
+        if (length > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Text of a " + width + "x" + height + " board does not fit in an array.");
+        }
+        return (int) length;
+    }
+
+    /**
+     * Function to draw a board into a char array.
+     * @param board to draw.
+     * @param dst receiving the text.
+     * @param offset in dst of the first character.
+     * @return number of characters written, getTextLength of the board.
+     * @throws IndexOutOfBoundsException if the text does not fit in dst from offset.
+     */
+    public static int render(GameBoard board, char[] dst, int offset) {
+        int length = getTextLength(board.getWidth(), board.getHeight());
+        if (offset < 0 || offset > dst.length - length) {
+            throw new IndexOutOfBoundsException("Text of " + length + " characters does not fit at " + offset + ".");
+        }
+        BoardCell.CellState[] row = new BoardCell.CellState[board.getWidth()];
+        int rowLength = board.getWidth() * 3 + 1;
+        for (int y = 0; y < board.getHeight(); y++) {
+            drawRow(board, y, row, dst, offset + y * rowLength);
+        }
+        return length;
+    }
+
+    /**
+     * Function to draw a board into an Appendable, one row at a time so a large board never needs its whole
+     * text in memory. Writers and StringBuilders are given the row's characters directly.
+     * @param board to draw.
+     * @param out destination of the text.
+     * @throws IOException if the destination fails.
+     */
+    public static void render(GameBoard board, Appendable out) throws IOException {
+        BoardCell.CellState[] row = new BoardCell.CellState[board.getWidth()];
+        char[] line = new char[board.getWidth() * 3 + 1];
+        CharBuffer wrapped = CharBuffer.wrap(line);
+        for (int y = 0; y < board.getHeight(); y++) {
+            drawRow(board, y, row, line, 0);
+            if (out instanceof StringBuilder) {
+                ((StringBuilder) out).append(line);
+            } else if (out instanceof Writer) {
+                ((Writer) out).write(line);
+            } else {
+                wrapped.clear();
+                out.append(wrapped);
+            }
+        }
+    }
+
+    /**
+     * Function to bring the text up to date with the board.
+     * @return number of cells re-emitted.
+     */
+    public int update() {
+        return update(null);
+    }
+
+    /**
+     * Function to bring the text up to date with the board, re-emitting only the cells which changed since
+     * the last update. The first update, and any after a reset or a ship placement, redraws every cell.
+     * @param listener told each re-emitted cell, may be null.
+     * @return number of cells re-emitted.
+     */
+    public int update(CellListener listener) {
+        long version = board.getVersion();
+        long oldestVersion = board.getOldestVersion();
+        int ships = board.getShipCount();
+        int width = board.getWidth();
+        int emitted;
+        if (!rendered || oldestVersion != renderedOldestVersion || ships != renderedShips || version < renderedVersion) {
+            for (int y = 0; y < board.getHeight(); y++) {
+                drawRow(board, y, row, text, y * rowLength);
+                if (listener != null) {
+                    for (int x = 0; x < width; x++) {
+                        listener.cellChanged(x, y, GLYPHS[row[x].ordinal()]);
+                    }
+                }
+            }
+            emitted = width * board.getHeight();
+        } else {
+            for (long v = renderedVersion; v < version; v++) {
+                int cell = board.getChangedCell(v);
+                int x = cell % width;
+                int y = cell / width;
+                char glyph = GLYPHS[board.getState(x, y).ordinal()];
+                text[y * rowLength + x * 3 + 1] = glyph;
+                if (listener != null) {
+                    listener.cellChanged(x, y, glyph);
+                }
+            }
+            emitted = (int) (version - renderedVersion);
+        }
+        rendered = true;
+        renderedVersion = version;
+        renderedOldestVersion = oldestVersion;
+        renderedShips = ships;
+        return emitted;
+    }
+
+    /**
+     * Function to get the text as of the last update. The array is not copied and changes with every update.
+     * @return text of getTextLength characters.
+     */
+    public char[] getText() {
+        return text;
+    }
+
+    /**
+     * Function to get the board's text as of the last update.
+     */
+    @Override
+    public String toString() {
+        return new String(text);
+    }
+
+    /**
+     * Helper method drawing one row of a board at an offset.
+     */
+    private static void drawRow(GameBoard board, int y, BoardCell.CellState[] row, char[] dst, int offset) {
+        board.getRowStates(y, row);
+        int width = board.getWidth();
+        for (int x = 0; x < width; x++) {
+            dst[offset++] = '[';
+            dst[offset++] = GLYPHS[row[x].ordinal()];
+            dst[offset++] = ']';
+        }
+        dst[offset] = '\n';
+    }
+}
@@ -0,0 +1,247 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * BoardSnapshot class converting a board to and from a compact binary snapshot, used to persist games in
+ * progress or move a match between hosts. Varints are unsigned LEB128, 7 bits per byte, low bits first.
+ * <ul>
+ *   <li>byte version, currently 1</li>
+ *   <li>byte flags, bit 0 set for a fog-of-war board: one with UNKNOWN cells, or with hits but no ships</li>
+ *   <li>varint width, varint height</li>
+ *   <li>cells in row order, 2 bits each, four per byte starting at the low bits:
+ *       0 EMPTY (UNKNOWN on a fog-of-war board), 1 OCCUPIED, 2 HIT, 3 MISS</li>
+ *   <li>varint ship count, then per ship in placement order: byte ship type ordinal in the low 4 bits
+ *       and direction ordinal in the high 4 bits, varint x, varint y, byte hits</li>
+ * </ul>
+ * A 10x10 board with the standard fleet takes 50 bytes. Writing and reading go straight between the
+ * board and the caller's buffer, nothing is allocated per cell.
+ */
+public final class BoardSnapshot {
+    /** Version written in the first byte of every snapshot. */
+    public static final byte VERSION = 1;
+
+    private static final int FOG = 1;
+    private static final int EMPTY = 0;
+    private static final int OCCUPIED = 1;
+    private static final int HIT = 2;
+    private static final int MISS = 3;
+    private static final Ship.ShipType[] SHIP_TYPES = Ship.ShipType.values();
+    private static final Board.Direction[] DIRECTIONS = Board.Direction.values();
+
+    private BoardSnapshot() {
+    }
+
+    /**
+     * Function to get the number of bytes the snapshot of a board occupies.
+     * @param board to measure.
+     * @return snapshot size in bytes.
+     */
+    public static int size(GameBoard board) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        int size = 2 + Varint.size(width) + Varint.size(height) + (int) (((long) width * height + 3) / 4);
+        size += Varint.size(board.getShipCount());
+        for (int i = 0; i < board.getShipCount(); i++) {
+            Ship ship = board.getPlacedShip(i);
+            size += 2 + Varint.size(ship.getX()) + Varint.size(ship.getY());
+        }
+        return size;
+    }
+
+    /**
+     * Function to write the snapshot of a board at the buffer's position.
+     * @param board to snapshot.
+     * @param out buffer with at least size(board) bytes remaining.
+     * @throws java.nio.BufferOverflowException if the buffer is too small.
+     * @throws IllegalArgumentException if the board mixes EMPTY and UNKNOWN cells, which the format can not tell apart.
+     */
+    public static void write(GameBoard board, ByteBuffer out) {
+        int width = board.getWidth();
+        int height = board.getHeight();
+        out.put(VERSION);
+        int flagsAt = out.position();
+        out.put((byte) 0);
+        Varint.put(out, width);
+        Varint.put(out, height);
+        boolean sawEmpty = false;
+        boolean sawUnknown = false;
+        boolean sawHit = false;
+        int packed = 0;
+        int filled = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int code;
+                switch (board.getState(x, y)) {
+                    case OCCUPIED:
+                        code = OCCUPIED;
+                        break;
+                    case HIT:
+                        sawHit = true;
+                        code = HIT;
+                        break;
+                    case MISS:
+                        code = MISS;
+                        break;
+                    case UNKNOWN:
+                        sawUnknown = true;
+                        code = EMPTY;
+                        break;
+                    default:
+                        sawEmpty = true;
+                        code = EMPTY;
+                        break;
+                }
+                packed |= code << (filled * 2);
+                if (++filled == 4) {
+                    out.put((byte) packed);
+                    packed = 0;
+                    filled = 0;
+                }
+            }
+        }
+        if (filled > 0) {
+            out.put((byte) packed);
+        }
+        if (sawEmpty && sawUnknown) {
+            throw new IllegalArgumentException("Board mixes EMPTY and UNKNOWN cells.");
+        }
+        // A fog-of-war board may have every cell revealed, but only there can hits exist without ships.
+        boolean fog = sawUnknown || sawHit && board.getShipCount() == 0;
+        out.put(flagsAt, (byte) (fog ? FOG : 0));
+        Varint.put(out, board.getShipCount());
+        for (int i = 0; i < board.getShipCount(); i++) {
+            Ship ship = board.getPlacedShip(i);
+            out.put((byte) (ship.getType().ordinal() | ship.getDirection().ordinal() << 4));
+            Varint.put(out, ship.getX());
+            Varint.put(out, ship.getY());
+            out.put((byte) ship.getHits());
+        }
+    }
+
+    /**
+     * Function to read a snapshot at the buffer's position into a new BitBoard.
+     * @param in buffer holding the snapshot. Its position is moved past the snapshot.
+     * @return the restored board.
+     * @throws IOException if the snapshot is truncated, malformed or of an unsupported version.
+     */
+    public static BitBoard read(ByteBuffer in) throws IOException {
+        int start = in.position();
+        try {
+            readVersion(in);
+            in.get();
+            int width = Varint.getInt(in);
+            int height = Varint.getInt(in);
+            if (width <= 0 || height <= 0) {
+                throw new IOException("Invalid snapshot board size: " + width + "x" + height);
+            }
+            if (((long) width * height + 3) / 4 > in.remaining()) {
+                throw new IOException("Truncated snapshot.");
+            }
+            in.position(start);
+            BitBoard board = new BitBoard(width, height, BoardCell.CellState.EMPTY);
+            read(in, board);
+            return board;
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated snapshot.");
+        }
+    }
+
+    /**
+     * Function to read a snapshot at the buffer's position into an existing board, replacing its content.
+     * Hits are replayed through GameBoard.hit, so a sunk listener set on the board is notified.
+     * @param in buffer holding the snapshot. Its position is moved past the snapshot.
+     * @param board to restore into, of the snapshot's size. Its content is undefined if an exception is thrown.
+     * @throws IOException if the snapshot is truncated, malformed, of an unsupported version or of another size.
+     */
+    public static void read(ByteBuffer in, GameBoard board) throws IOException {
+        try {
+            readVersion(in);
+            boolean fog = (in.get() & FOG) != 0;
+            int width = Varint.getInt(in);
+            int height = Varint.getInt(in);
+            if (width != board.getWidth() || height != board.getHeight()) {
+                throw new IOException("Snapshot is " + width + "x" + height + " but board is "
+                        + board.getWidth() + "x" + board.getHeight() + ".");
+            }
+            int cellsAt = in.position();
+            in.position(cellsAt + (int) (((long) width * height + 3) / 4));
+            int shipCount = Varint.getInt(in);
+            int tableAt = in.position();
+            if (fog) {
+                if (shipCount != 0) {
+                    throw new IOException("Fog-of-war snapshot holds ships.");
+                }
+                board.reset(BoardCell.CellState.UNKNOWN);
+            } else {
+                board.reset(BoardCell.CellState.EMPTY);
+                placeShips(in, board, shipCount);
+            }
+            for (int y = 0, cell = 0; y < height; y++) {
+                for (int x = 0; x < width; x++, cell++) {
+                    int code = (in.get(cellsAt + (cell >>> 2)) >>> ((cell & 3) * 2)) & 3;
+                    restoreCell(board, x, y, code, fog);
+                }
+            }
+            in.position(tableAt);
+            for (int i = 0; i < shipCount; i++) {
+                in.get();
+                Varint.getInt(in);
+                Varint.getInt(in);
+                if (in.get() != board.getPlacedShip(i).getHits()) {
+                    throw new IOException("Hits of ship " + i + " do not match its cells.");
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException e) {
+            throw new IOException("Malformed snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method placing the ships of the ship table, leaving the buffer past the table.
+     */
+    private static void placeShips(ByteBuffer in, GameBoard board, int shipCount) throws IOException {
+        for (int i = 0; i < shipCount; i++) {
+            int kind = in.get() & 0xFF;
+            int type = kind & 0x0F;
+            int direction = kind >>> 4;
+            if (type >= SHIP_TYPES.length || direction >= DIRECTIONS.length) {
+                throw new IOException("Invalid ship entry: " + kind);
+            }
+            int x = Varint.getInt(in);
+            int y = Varint.getInt(in);
+            in.get(); // Hits are checked against the restored cells.
+            board.placeShip(x, y, DIRECTIONS[direction], new Ship(SHIP_TYPES[type]));
+        }
+    }
+
+    /**
+     * Helper method giving one cell its snapshot state, after the ships are placed.
+     */
+    private static void restoreCell(GameBoard board, int x, int y, int code, boolean fog) throws IOException {
+        if (fog) {
+            if (code == HIT || code == MISS) {
+                board.reveal(x, y, code == HIT ? BoardCell.CellState.HIT : BoardCell.CellState.MISS);
+            } else if (code == OCCUPIED) {
+                throw new IOException("Fog-of-war snapshot has an OCCUPIED cell at (" + x + ", " + y + ").");
+            }
+            return;
+        }
+        boolean shipCell = board.getState(x, y) == BoardCell.CellState.OCCUPIED;
+        if (shipCell != (code == OCCUPIED || code == HIT)) {
+            throw new IOException("Cell (" + x + ", " + y + ") does not match the ship table.");
+        }
+        if (code == HIT || code == MISS) {
+            board.hit(x, y);
+        }
+    }
+
+    private static void readVersion(ByteBuffer in) throws IOException {
+        byte version = in.get();
+        if (version != VERSION) {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+    }
+}
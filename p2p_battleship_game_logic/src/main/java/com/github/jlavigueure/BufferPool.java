@@ -0,0 +1,79 @@
+package com.github.jlavigueure;
+
+import java.nio.ByteBuffer;
+
+/**
+ * BufferPool class keeps released direct ByteBuffers of one size for reuse. Direct buffers are slow to allocate
+ * and are only freed by the garbage collector, so connections take one from a pool while they have bytes to
+ * send or read and give it back once it drained, instead of allocating per connection. Thread safe.
+ */
+public class BufferPool {
+    /** Pool of the connections' frame buffers. */
+    public static final BufferPool SHARED = new BufferPool(8 * 1024, 1024);
+
+    private final int bufferSize;
+    private final ByteBuffer[] free; // Stack of pooled buffers, array backed so acquire and release never allocate.
+    private int count;
+
+    /**
+     * Constructor for BufferPool.
+     * @param bufferSize capacity of the pooled buffers in bytes.
+     * @param maxPooled most released buffers kept, the rest are left to the garbage collector.
+     * @throws IllegalArgumentException if bufferSize is not positive or maxPooled is negative.
+     */
+    public BufferPool(int bufferSize, int maxPooled) {
+        if (bufferSize < 1 || maxPooled < 0) {
+            throw new IllegalArgumentException("Invalid buffer pool of " + maxPooled + " buffers of " + bufferSize + " bytes.");
+        }
+        this.bufferSize = bufferSize;
+        this.free = new ByteBuffer[maxPooled];
+    }
+
+    /**
+     * Function to get the capacity of the pooled buffers.
+     * @return size in bytes.
+     */
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Function to get the number of buffers waiting to be reused.
+     * @return pooled buffers.
+     */
+    public synchronized int getPooledCount() {
+        return count;
+    }
+
+    /**
+     * Function to take a cleared buffer from the pool, allocating one if the pool is empty.
+     * @return direct buffer of getBufferSize() bytes.
+     */
+    public ByteBuffer acquire() {
+        synchronized (this) {
+            if (count > 0) {
+                ByteBuffer buffer = free[--count];
+                free[count] = null;
+                buffer.clear();
+                return buffer;
+            }
+        }
+        return ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Function to give a buffer back to the pool. Buffers of another size or kind are ignored, so a caller
+     * may release whatever buffer it ended up with. The caller must not use the buffer afterwards.
+     * @param buffer to reuse, may be null.
+     */
+    public void release(ByteBuffer buffer) {
+        if (buffer == null || !buffer.isDirect() || buffer.capacity() != bufferSize || buffer.isReadOnly()) {
+            return;
+        }
+        synchronized (this) {
+            if (count < free.length) {
+                free[count++] = buffer;
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.github.jlavigueure;
+
+import java.util.Arrays;
+
+/**
+ * ChangeLog keeps the cells of a board which turned HIT or MISS, in order, so a peer knowing an earlier
+ * version of the board can be sent only the cells that changed since. Every change and every reset
+ * moves the version forward, a reset also forgets the changes before it.
+ */
+class ChangeLog {
+    private int[] cells;
+    private int size;
+    private long base; // Version at the last reset, the oldest version changes can be listed from.
+
+    ChangeLog() {
+        this.cells = new int[16];
+        this.size = 0;
+        this.base = 1; // Version 0 never matches a board, a peer asking for it always gets a full sync.
+    }
+
+    /**
+     * Function to record a cell which turned HIT or MISS.
+     * @param cell index y * width + x.
+     */
+    void record(int cell) {
+        if (size == cells.length) {
+            cells = Arrays.copyOf(cells, size * 2);
+        }
+        cells[size++] = cell;
+    }
+
+    /**
+     * Function to forget every change when the board is cleared.
+     */
+    void reset() {
+        base += size + 1;
+        size = 0;
+    }
+
+    long getVersion() {
+        return base + size;
+    }
+
+    long getOldestVersion() {
+        return base;
+    }
+
+    /**
+     * Function to get the cell changed by the change from version to version + 1.
+     * @throws IndexOutOfBoundsException if the change is not in the log.
+     */
+    int getChangedCell(long version) {
+        if (version < base || version >= base + size) {
+            throw new IndexOutOfBoundsException("No change recorded at version " + version);
+        }
+        return cells[(int) (version - base)];
+    }
+}
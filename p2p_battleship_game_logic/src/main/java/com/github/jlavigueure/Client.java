@@ -2,9 +2,8 @@
 package com.github.jlavigueure;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
 
 /**
  * Client class inherits from Connection and gives a way for
@@ -13,6 +12,7 @@ import java.net.Socket;
 public class Client extends Connection{
     private String host;
     private int port;
+    private int connectTimeoutMillis;
 
     /**
      * Constructor for client.
@@ -26,11 +26,32 @@ public class Client extends Connection{
     }
 
     /**
-     * Connect to remote connection on host and port given in constructor. 
+     * Function to limit how long connect waits for a host which does not answer.
+     * @param millis longest wait, 0 to leave it to the operating system.
+     * @throws IllegalArgumentException if millis is negative.
+     */
+    public void setConnectTimeout(int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Connect timeout can not be negative.");
+        }
+        connectTimeoutMillis = millis;
+    }
+
+    /**
+     * Connect to remote connection on host and port given in constructor.
+     * The socket is opened through a SocketChannel so frames are read and written without copies.
+     * @throws java.net.SocketTimeoutException if the connect timeout passed first.
      * @throws IOException if fails to connect.
      */
     public void connect() throws IOException {
-        socket = new Socket(host, port);
+        SocketChannel channel = SocketChannel.open();
+        try {
+            channel.socket().connect(new InetSocketAddress(host, port), connectTimeoutMillis);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        socket = channel.socket();
         out = socket.getOutputStream();
         in = socket.getInputStream();
     }
@@ -0,0 +1,35 @@
+package com.github.jlavigueure;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.SelectionKey;
+
+/**
+ * Closer holds the helpers the selector based servers use to release a connection whose failure
+ * has already been handled, where a second error while closing is of no interest.
+ */
+final class Closer {
+    private Closer() {
+    }
+
+    /**
+     * Function to cancel a selection key and close its channel.
+     * @param key to cancel.
+     */
+    static void closeQuietly(SelectionKey key) {
+        key.cancel();
+        closeQuietly(key.channel());
+    }
+
+    /**
+     * Function to close a resource, ignoring any error.
+     * @param closeable to close.
+     */
+    static void closeQuietly(Closeable closeable) {
+        try {
+            closeable.close();
+        } catch (IOException e) {
+            // Nothing left to release.
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ConcurrentBoard class is a board written by one game thread and read by any number of spectator threads.
+ * <p>
+ * Writes go to a private BitBoard, serialized by the board's monitor, then every cell they changed is
+ * published to an AtomicLongArray of 4-bit state codes under a sequence lock: the sequence is odd while a
+ * write is being published and moves to the next even value once it is done. Readers never block the writer.
+ * getState reads one published word, and snapshot copies the whole board, retrying until it read the same
+ * even sequence before and after the copy, so a snapshot never shows half of a shot, salvo, placement or reset.
+ * <p>
+ * Ships are the writer's objects and are not safe to read from other threads, use snapshots instead.
+ */
+public class ConcurrentBoard implements GameBoard {
+    private static final int CELL_BITS = 4;
+    private static final int CELLS_PER_WORD = 64 / CELL_BITS;
+    private static final long CELL_MASK = (1L << CELL_BITS) - 1;
+    private static final BoardCell.CellState[] STATES = BoardCell.CellState.values();
+
+    private final int width;
+    private final int height;
+    private final BitBoard board; // Writer side, only touched while holding this board's monitor.
+    private final AtomicLongArray cells; // Published state ordinals, CELLS_PER_WORD cells per word.
+    private final AtomicLong sequence;
+    private volatile long version;
+    private volatile long oldestVersion;
+    private volatile boolean allSunk;
+
+    /**
+     * Constructor for the ConcurrentBoard class.
+     * @param width of board.
+     * @param height of board.
+     * @param boardState is the inital starting state of the board. Can not be OCCUPIED.
+     * @throws IllegalArgumentException if a dimension is not positive, the board is too large or boardState is OCCUPIED.
+     */
+    public ConcurrentBoard(int width, int height, BoardCell.CellState boardState) {
+        this.board = new BitBoard(width, height, boardState);
+        this.width = width;
+        this.height = height;
+        this.cells = new AtomicLongArray((width * height + CELLS_PER_WORD - 1) / CELLS_PER_WORD);
+        this.sequence = new AtomicLong();
+        publishAll(boardState);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public synchronized void reset(BoardCell.CellState boardState) {
+        board.reset(boardState);
+        publishAll(boardState);
+    }
+
+    /**
+     * Function to get the state of the cell at the specified coordinates, lock free.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return The last published state of the cell.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     */
+    @Override
+    public BoardCell.CellState getState(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Invalid cell coordinates: (" + x + ", " + y + ")");
+        }
+        int cell = y * width + x;
+        return decode(cells.get(cell / CELLS_PER_WORD), cell);
+    }
+
+    /**
+     * Function to get the last published states of a row, lock free. Cells are read one word at a time,
+     * take a snapshot to see the row as one write left it.
+     */
+    @Override
+    public void getRowStates(int y, BoardCell.CellState[] dst) {
+        if (y < 0 || y >= height || dst.length < width) {
+            throw new IndexOutOfBoundsException("Invalid row " + y + " for " + dst.length + " states.");
+        }
+        int cell = y * width;
+        long word = cells.get(cell / CELLS_PER_WORD);
+        for (int x = 0; x < width; x++, cell++) {
+            if (cell % CELLS_PER_WORD == 0) {
+                word = cells.get(cell / CELLS_PER_WORD);
+            }
+            dst[x] = decode(word, cell);
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public long getOldestVersion() {
+        return oldestVersion;
+    }
+
+    @Override
+    public synchronized int getChangedCell(long version) {
+        return board.getChangedCell(version);
+    }
+
+    @Override
+    public synchronized int getShipCount() {
+        return board.getShipCount();
+    }
+
+    @Override
+    public synchronized Ship getPlacedShip(int index) {
+        return board.getPlacedShip(index);
+    }
+
+    @Override
+    public synchronized void placeShip(int x, int y, Board.Direction direction, Ship ship) {
+        board.placeShip(x, y, direction, ship);
+        long start = begin();
+        for (int i = 0; i < ship.getSize(); i++) {
+            publish((y + direction.getDy() * i) * width + x + direction.getDx() * i, BoardCell.CellState.OCCUPIED);
+        }
+        end(start);
+    }
+
+    @Override
+    public synchronized BoardCell.CellState hit(int x, int y) {
+        BoardCell.CellState result = board.hit(x, y);
+        long start = begin();
+        publish(y * width + x, result);
+        end(start);
+        return result;
+    }
+
+    @Override
+    public synchronized long[] hitAll(int[] xs, int[] ys) {
+        long[] result = board.hitAll(xs, ys);
+        long start = begin();
+        for (int i = 0; i < xs.length; i++) {
+            publish(ys[i] * width + xs[i], board.getState(xs[i], ys[i]));
+        }
+        end(start);
+        return result;
+    }
+
+    @Override
+    public synchronized void reveal(int x, int y, BoardCell.CellState newState) {
+        board.reveal(x, y, newState);
+        long start = begin();
+        publish(y * width + x, newState);
+        end(start);
+    }
+
+    @Override
+    public boolean allShipsSunk() {
+        return allSunk;
+    }
+
+    @Override
+    public synchronized Ship getLastSunk() {
+        return board.getLastSunk();
+    }
+
+    @Override
+    public synchronized void setSunkListener(SunkListener listener) {
+        board.setSunkListener(listener);
+    }
+
+    /**
+     * Function to get the index of the writer's board, kept up to date under the board's monitor.
+     * Like ships it is the writer's object, read it from the writing thread.
+     */
+    @Override
+    public synchronized TargetIndex getTargetIndex() {
+        return board.getTargetIndex();
+    }
+
+    /**
+     * Function to take a consistent copy of the board without blocking the writer.
+     * @return a new snapshot.
+     */
+    public Snapshot snapshot() {
+        return snapshot(null);
+    }
+
+    /**
+     * Function to take a consistent copy of the board without blocking the writer, reusing an earlier snapshot
+     * so a reader polling the board allocates nothing.
+     * @param reuse snapshot of this board to overwrite, or null to allocate a new one.
+     * @return reuse if it was given, else a new snapshot.
+     */
+    public Snapshot snapshot(Snapshot reuse) {
+        Snapshot snapshot = reuse != null && reuse.words.length == cells.length() && reuse.width == width
+                ? reuse : new Snapshot(width, height, cells.length());
+        while (true) {
+            long before = sequence.get();
+            if ((before & 1) == 0) {
+                for (int i = 0; i < snapshot.words.length; i++) {
+                    snapshot.words[i] = cells.get(i);
+                }
+                snapshot.version = version;
+                snapshot.oldestVersion = oldestVersion;
+                snapshot.allSunk = allSunk;
+                if (sequence.get() == before) {
+                    return snapshot;
+                }
+            }
+            Thread.yield(); // A write is being published, let the writer finish it.
+        }
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+
+    /**
+     * Helper method starting the publication of a write, readers retry until end is called.
+     * @return the sequence before the write.
+     */
+    private long begin() {
+        long start = sequence.get();
+        sequence.set(start + 1);
+        return start;
+    }
+
+    /**
+     * Helper method publishing the board-wide values and ending the publication of a write.
+     */
+    private void end(long start) {
+        version = board.getVersion();
+        oldestVersion = board.getOldestVersion();
+        allSunk = board.allShipsSunk();
+        sequence.set(start + 2);
+    }
+
+    /**
+     * Helper method publishing one cell. Only called by the writer between begin and end.
+     */
+    private void publish(int cell, BoardCell.CellState state) {
+        int word = cell / CELLS_PER_WORD;
+        int shift = (cell % CELLS_PER_WORD) * CELL_BITS;
+        long value = (cells.get(word) & ~(CELL_MASK << shift)) | (long) state.ordinal() << shift;
+        // An ordered store is enough: it can not become visible before the odd sequence written by begin.
+        cells.lazySet(word, value);
+    }
+
+    /**
+     * Helper method publishing every cell in the same state.
+     */
+    private void publishAll(BoardCell.CellState state) {
+        long pattern = 0;
+        for (int i = 0; i < CELLS_PER_WORD; i++) {
+            pattern |= (long) state.ordinal() << (i * CELL_BITS);
+        }
+        long start = begin();
+        for (int i = 0; i < cells.length(); i++) {
+            cells.lazySet(i, pattern);
+        }
+        end(start);
+    }
+
+    private static BoardCell.CellState decode(long word, int cell) {
+        return STATES[(int) (word >>> ((cell % CELLS_PER_WORD) * CELL_BITS) & CELL_MASK)];
+    }
+
+    /**
+     * Snapshot class holding a consistent copy of a ConcurrentBoard's cells and version. Owned by one reader.
+     */
+    public static final class Snapshot {
+        private final int width;
+        private final int height;
+        private final long[] words;
+        private long version;
+        private long oldestVersion;
+        private boolean allSunk;
+
+        private Snapshot(int width, int height, int words) {
+            this.width = width;
+            this.height = height;
+            this.words = new long[words];
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        /**
+         * Function to get the state of a cell when the snapshot was taken.
+         * @param x The x-coordinate of the cell.
+         * @param y The y-coordinate of the cell.
+         * @return The cell state.
+         * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+         */
+        public BoardCell.CellState getState(int x, int y) {
+            if (x < 0 || x >= width || y < 0 || y >= height) {
+                throw new IndexOutOfBoundsException("Invalid cell coordinates: (" + x + ", " + y + ")");
+            }
+            int cell = y * width + x;
+            return decode(words[cell / CELLS_PER_WORD], cell);
+        }
+
+        /**
+         * @return version of the board when the snapshot was taken.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * @return version of the board's last reset when the snapshot was taken.
+         */
+        public long getOldestVersion() {
+            return oldestVersion;
+        }
+
+        /**
+         * @return true if every ship was sunk when the snapshot was taken.
+         */
+        public boolean allShipsSunk() {
+            return allSunk;
+        }
+
+        /**
+         * Function to print the snapshot in the same format as Board.
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(height * (width * 3 + 1));
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    sb.append('[').append(BoardRenderer.glyph(getState(x, y))).append(']');
+                }
+                sb.append('\n');
+            }
+            return sb.toString();
+        }
+    }
+}
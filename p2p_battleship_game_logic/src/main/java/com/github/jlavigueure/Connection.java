@@ -3,16 +3,67 @@ package com.github.jlavigueure;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.Socket;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * Abstract Connection class represents a remote connection and gives basic
  * data members and methods to send and receive messages.
+ * <p>
+ * A vanished peer is noticed in one of two ways. A read timeout makes a blocked receive give up with a
+ * SocketTimeoutException. A LivenessTracker watching the connection closes it once the peer was silent for
+ * the tracker's timeout, failing any blocked receive. Either way a peer sending heartbeats, see
+ * startHeartbeats, counts as alive while it has nothing else to say.
+ * <p>
+ * Over a high-latency link two opt-in modes cut packets and bytes. setCoalescing batches the frames sent within
+ * a short window into one write, setCompression deflates large frames such as snapshots. Any connection inflates
+ * the COMPRESSED frames it receives, so only the sender opts in.
  */
 public abstract class Connection {
+    /**
+     * Interface for the code serving a connection on its own thread, see start.
+     */
+    public static interface Handler {
+        void serve(Connection connection) throws IOException;
+    }
+
+    /** Size of the buffer a connection waits for frames in, enough for a shot, a result or a heartbeat. */
+    static final int IDLE_BUFFER_SIZE = 64;
+
     protected Socket socket;
     protected OutputStream out;
     protected InputStream in;
+    private ByteBuffer frameIn;  // Receive buffer, idleIn or a pooled one, kept in read mode between calls.
+    private ByteBuffer idleIn;   // Small receive buffer used while no pooled one is needed.
+    private ByteBuffer frameOut; // Pooled send buffer, held only while frames wait in it.
+    private MessageView frameView;
+    private ReadableByteChannel reader;
+    private WritableByteChannel writer;
+    private byte[] textIn;
+    private volatile boolean sending;   // Set while sendFrame may use frameOut, so close does not pool it.
+    private volatile boolean receiving; // Set while receiveFrame may use frameIn.
+    private final ReentrantLock sendLock; // Serializes sendFrame with the heartbeat and flush tasks.
+    private final Runnable flushTask;
+    private int readTimeoutMillis;
+    private Socket timedSocket;         // Socket readTimeoutMillis was last applied to.
+    private LivenessTracker.Watch watch;
+    private ScheduledFuture<?> heartbeats;
+    private volatile boolean sentSinceBeat;
+    private volatile ScheduledExecutorService flusher; // Runs the coalescing window's flush, null when not coalescing.
+    private long coalesceMillis;
+    private int coalesceBytes;
+    private ScheduledFuture<?> pendingFlush;
+    private FrameCompressor compressor;   // Deflates large frames sent, null unless setCompression.
+    private FrameCompressor decompressor; // Inflates COMPRESSED frames received, created on the first one.
+    private ByteBuffer inflated;          // Original frame of the last COMPRESSED frame received.
 
     /**
      * Constructor for the Connection class. Initialize all data members to null.
@@ -21,6 +72,15 @@ public abstract class Connection {
         socket = null;
         out = null;
         in = null;
+        frameIn = null;
+        idleIn = null;
+        frameOut = null;
+        frameView = null;
+        reader = null;
+        writer = null;
+        textIn = null;
+        sendLock = new ReentrantLock();
+        flushTask = this::flushWindow;
     }
 
     /**
@@ -31,6 +91,143 @@ public abstract class Connection {
      */
     public abstract void connect() throws IOException;
 
+    /**
+     * Function to limit how long a receive waits for the peer. Takes effect from the next receive.
+     * With a timeout frames are read through the socket's stream, which honors it, instead of straight from its channel.
+     * @param millis longest wait, 0 to wait forever.
+     * @throws IllegalArgumentException if millis is negative.
+     */
+    public void setReadTimeout(int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Read timeout can not be negative.");
+        }
+        readTimeoutMillis = millis;
+        timedSocket = null;
+        reader = null;
+    }
+
+    /**
+     * Function to have a tracker close this connection once the peer was silent for the tracker's timeout.
+     * Every frame received, heartbeats included, counts as hearing from the peer.
+     * @param tracker watching the connection.
+     * @throws IOException if no current connection.
+     */
+    public void watch(LivenessTracker tracker) throws IOException {
+        if (socket == null || socket.isClosed()){
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        if (watch != null) {
+            watch.cancel();
+        }
+        Socket watched = socket;
+        watch = tracker.watch(() -> {
+            try {
+                watched.close(); // Fails a receive blocked on the socket, whose thread then cleans up.
+            } catch (IOException e) {
+                // Already closed.
+            }
+        });
+    }
+
+    /**
+     * Function to send a heartbeat every interval in which nothing else was sent, so a peer with a read timeout
+     * or a LivenessTracker keeps hearing from this side while it has nothing to say. Stops on close or when a
+     * heartbeat fails. The peer hears something at least every two intervals, pick an interval a third of its timeout.
+     * @param scheduler running the heartbeats, one scheduler serves any number of connections.
+     * @param intervalMillis time between two checks.
+     * @throws IOException if no current connection.
+     */
+    public void startHeartbeats(ScheduledExecutorService scheduler, long intervalMillis) throws IOException {
+        if (socket == null || socket.isClosed()){
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        if (heartbeats != null) {
+            heartbeats.cancel(false);
+        }
+        heartbeats = scheduler.scheduleAtFixedRate(() -> {
+            if (sentSinceBeat) {
+                sentSinceBeat = false;
+                return;
+            }
+            try {
+                sendFrame(Message.heartbeat());
+            } catch (IOException e) {
+                throw new UncheckedIOException(e); // Cancels the periodic task.
+            }
+            sentSinceBeat = false;
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Function to batch the frames sent within a short window into one write, instead of writing each frame at once.
+     * A batch is written once it holds maxBytes, once windowMillis passed since its first frame, on flush, close
+     * and before this connection blocks in a receive, so a request never waits on its own unsent batch.
+     * The frames of a turn then leave as one packet, which on a high-latency link also avoids Nagle's algorithm
+     * holding a frame back until the previous one is acknowledged. TCP_NODELAY is turned on, as the connection
+     * now batches itself. A batch never outgrows the pooled send buffer unless a single frame does.
+     * @param scheduler running the window's flush, one scheduler serves any number of connections.
+     * @param windowMillis longest a frame waits for more frames, 0 to write every frame at once again.
+     * @param maxBytes batch size written at once.
+     * @throws IllegalArgumentException if windowMillis is negative or maxBytes is not positive.
+     * @throws IOException if no current connection, or writing the batch pending when turned off failed.
+     */
+    public void setCoalescing(ScheduledExecutorService scheduler, int windowMillis, int maxBytes) throws IOException {
+        if (windowMillis < 0 || maxBytes < 1) {
+            throw new IllegalArgumentException("Coalescing needs a non negative window and a positive batch size.");
+        }
+        if (socket == null || socket.isClosed()){
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        sendLock.lock();
+        try {
+            coalesceMillis = windowMillis;
+            coalesceBytes = maxBytes;
+            if (windowMillis == 0) {
+                flusher = null;
+                flushOut();
+            } else {
+                socket.setTcpNoDelay(true);
+                flusher = scheduler;
+            }
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Function to deflate the frames sent whose body is at least thresholdBytes, when that makes them smaller,
+     * see FrameCompressor. Worth it for snapshots and other large payloads on a slow link, shots and results
+     * are never compressed. The peer must be a Connection or open the frames with FrameCompressor.
+     * @param thresholdBytes smallest frame body compressed, 0 to stop compressing.
+     * @throws IllegalArgumentException if thresholdBytes is negative.
+     */
+    public void setCompression(int thresholdBytes) {
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("Compression threshold can not be negative.");
+        }
+        sendLock.lock();
+        try {
+            compressor = thresholdBytes == 0 ? null : new FrameCompressor(thresholdBytes);
+        } finally {
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Function to write the frames batched so far, see setCoalescing. Does nothing when no frame is pending.
+     * @throws IOException if the write failed.
+     */
+    public void flush() throws IOException {
+        sendLock.lock();
+        sending = true;
+        try {
+            flushOut();
+        } finally {
+            sending = false;
+            sendLock.unlock();
+        }
+    }
+
     /**
      * Send a message through current connected socket.
      * @param message to send through socket.
@@ -40,8 +237,17 @@ public abstract class Connection {
         if (socket == null || socket.isClosed()){
             throw new IOException("Socket is not connected or is closed.");
         }
-        out.write((message + "\n").getBytes());
+        if (flusher != null) {
+            flush();
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        byte[] bytes = (message + "\n").getBytes();
+        out.write(bytes);
         out.flush();
+        if (Metrics.ENABLED) {
+            Metrics.SEND_NANOS.recordSince(start);
+            Metrics.BYTES_SENT.add(bytes.length);
+        }
     }
 
     /**
@@ -53,14 +259,293 @@ public abstract class Connection {
         if (socket == null || socket.isClosed()){
             throw new IOException("Socket is not connected or is closed.");
         }
-        byte[] buffer = new byte[1024];
+        applyReadTimeout();
+        if (flusher != null) {
+            flush();
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (textIn == null) {
+            textIn = new byte[1024];
+        }
+        byte[] buffer = textIn;
         int bytesRead = in.read(buffer);
         if (bytesRead == -1) {
             throw new IOException("End of stream reached, client may have disconnected.");
         }
+        if (watch != null) {
+            watch.touch();
+        }
+        if (Metrics.ENABLED) {
+            Metrics.RECEIVE_NANOS.recordSince(start);
+            Metrics.BYTES_RECEIVED.add(bytesRead);
+        }
         return new String(buffer, 0, bytesRead).trim();
     }
 
+    /**
+     * Send a typed message as a single length-prefixed binary frame.
+     * A connection should use either frames or string messages, not both.
+     * Encodes into a pooled direct buffer, given back once written, so sending a message allocates nothing.
+     * With setCoalescing the frame may wait for more frames, with setCompression a large frame is deflated.
+     * @param message to send through socket.
+     * @throws IOException if no current connection.
+     * @throws IllegalArgumentException if the message's body is larger than MessageCodec.MAX_BODY_SIZE, nothing is sent.
+     */
+    public void sendFrame(Message message) throws IOException {
+        sendLock.lock();
+        sending = true;
+        try {
+            send(message);
+            sentSinceBeat = true;
+        } finally {
+            sending = false;
+            sendLock.unlock();
+        }
+    }
+
+    private void send(Message message) throws IOException {
+        if (socket == null || socket.isClosed()){
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        int size = MessageCodec.frameSize(message);
+        if (frameOut != null && frameOut.remaining() < size) {
+            flushOut();
+        }
+        if (frameOut == null) {
+            frameOut = size <= BufferPool.SHARED.getBufferSize()
+                    ? BufferPool.SHARED.acquire() : ByteBuffer.allocateDirect(size);
+        }
+        int frameStart = frameOut.position();
+        MessageCodec.encode(message, frameOut);
+        if (compressor != null) {
+            compressor.compress(frameOut, frameStart);
+        }
+        if (flusher == null || frameOut.position() >= coalesceBytes) {
+            flushOut();
+        } else if (pendingFlush == null) {
+            pendingFlush = flusher.schedule(flushTask, coalesceMillis, TimeUnit.MILLISECONDS);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SEND_NANOS.recordSince(start);
+        }
+    }
+
+    /**
+     * Helper method writing the frames pending in frameOut, kept in write mode between sends, then giving the
+     * buffer back to the pool. Holds sendLock.
+     */
+    private void flushOut() throws IOException {
+        if (pendingFlush != null) {
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+        }
+        if (frameOut == null || frameOut.position() == 0) {
+            return;
+        }
+        frameOut.flip();
+        int bytes = frameOut.remaining();
+        try {
+            WritableByteChannel channel = writeChannel();
+            while (frameOut.hasRemaining()) {
+                channel.write(frameOut);
+            }
+        } finally {
+            BufferPool.SHARED.release(frameOut); // A batch which failed half way is dropped with the broken connection.
+            frameOut = null;
+        }
+        if (Metrics.ENABLED) {
+            Metrics.BYTES_SENT.add(bytes);
+        }
+    }
+
+    /**
+     * Helper method run by the flusher once a batch's window passed. A failed write surfaces on the next
+     * send or receive, which find the connection broken.
+     */
+    private void flushWindow() {
+        sendLock.lock();
+        sending = true;
+        try {
+            pendingFlush = null;
+            if (socket != null && !socket.isClosed()) {
+                flushOut();
+            }
+        } catch (IOException e) {
+            // Reported by the next call on the connection.
+        } finally {
+            sending = false;
+            sendLock.unlock();
+        }
+    }
+
+    /**
+     * Receive the next typed message frame, blocking until it has fully arrived.
+     * Frames split across several reads or several frames arriving in one read are both handled,
+     * bytes past the returned frame are kept for the next call. Heartbeats are skipped, COMPRESSED frames opened.
+     * @return the message received.
+     * @throws java.net.SocketTimeoutException if the read timeout passed first, a later receive continues the frame.
+     * @throws IOException if no current connection, the stream ends mid frame or the frame is malformed.
+     */
+    public Message receiveFrame() throws IOException {
+        if (frameView == null) {
+            frameView = new MessageView();
+        }
+        return receiveFrame(frameView).toMessage();
+    }
+
+    /**
+     * Receive the next typed message frame into a view, blocking until it has fully arrived.
+     * The connection waits in a buffer of IDLE_BUFFER_SIZE bytes and only takes a pooled one for a larger frame or
+     * a burst of frames, given back once read, so an idle connection holds no pooled buffer. Nothing is allocated
+     * for frames up to the pool's buffer size, so a receiver reading coordinates and results straight from the view
+     * creates no garbage. Heartbeats are skipped, COMPRESSED frames are opened into a buffer kept for the next ones.
+     * @param view to point at the frame, valid until the next receive on this connection.
+     * @return view.
+     * @throws java.net.SocketTimeoutException if the read timeout passed first, a later receive continues the frame.
+     * @throws IOException if no current connection, the stream ends mid frame or the frame is malformed.
+     */
+    public MessageView receiveFrame(MessageView view) throws IOException {
+        receiving = true;
+        try {
+            return receive(view);
+        } finally {
+            receiving = false;
+        }
+    }
+
+    private MessageView receive(MessageView view) throws IOException {
+        if (socket == null || socket.isClosed()){
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        if (frameIn == null || frameIn != idleIn && !frameIn.hasRemaining()) {
+            // Read to the end, and the view of the last frame in it is no longer valid, so it goes back to the pool.
+            BufferPool.SHARED.release(frameIn);
+            if (idleIn == null) {
+                idleIn = ByteBuffer.allocateDirect(IDLE_BUFFER_SIZE);
+            }
+            frameIn = idleIn;
+            frameIn.clear();
+            frameIn.flip();
+        }
+        applyReadTimeout();
+        if (flusher != null) {
+            flush();
+        }
+        ReadableByteChannel channel = readChannel();
+        do {
+            while (!view.wrap(frameIn)) {
+                int bodySize = MessageCodec.peekBodySize(frameIn);
+                int needed = bodySize < 0 ? MessageCodec.HEADER_SIZE : MessageCodec.HEADER_SIZE + bodySize;
+                // The idle buffer is swapped for a pooled one when the frame does not fit or the last read filled it.
+                if (needed > frameIn.capacity() || frameIn == idleIn && frameIn.limit() == frameIn.capacity()) {
+                    ByteBuffer larger = needed <= BufferPool.SHARED.getBufferSize()
+                            ? BufferPool.SHARED.acquire() : ByteBuffer.allocateDirect(needed);
+                    larger.put(frameIn);
+                    if (frameIn != idleIn) {
+                        BufferPool.SHARED.release(frameIn);
+                    }
+                    frameIn = larger;
+                } else {
+                    frameIn.compact();
+                }
+                int bytesRead;
+                try {
+                    bytesRead = channel.read(frameIn);
+                } finally {
+                    frameIn.flip(); // Back in read mode, also when the read timed out, so the next receive resumes.
+                }
+                if (bytesRead == -1) {
+                    throw new IOException("End of stream reached, client may have disconnected.");
+                }
+                if (Metrics.ENABLED) {
+                    Metrics.BYTES_RECEIVED.add(bytesRead);
+                }
+            }
+            if (watch != null) {
+                watch.touch();
+            }
+        } while (view.getType() == Message.Type.HEARTBEAT);
+        if (view.getType() == Message.Type.COMPRESSED) {
+            if (decompressor == null) {
+                decompressor = new FrameCompressor();
+            }
+            inflated = decompressor.inflate(view, inflated);
+            if (!view.wrap(inflated) || view.getType() == Message.Type.COMPRESSED) {
+                throw new IOException("Compressed frame does not hold one frame.");
+            }
+        }
+        if (Metrics.ENABLED) {
+            Metrics.RECEIVE_NANOS.recordSince(start);
+        }
+        return view;
+    }
+
+    /**
+     * Helper method returning the channel frames are read from: the socket's own channel when it has one,
+     * so bytes land straight in the direct buffer, else a channel over the input stream. A channel read ignores
+     * the socket's timeout, so with a read timeout the stream is used in any case.
+     */
+    private ReadableByteChannel readChannel() {
+        if (reader == null) {
+            reader = socket.getChannel() != null && readTimeoutMillis == 0 ? socket.getChannel() : Channels.newChannel(in);
+        }
+        return reader;
+    }
+
+    /**
+     * Helper method applying the read timeout to the current socket once.
+     */
+    private void applyReadTimeout() throws IOException {
+        if (timedSocket != socket) {
+            socket.setSoTimeout(readTimeoutMillis);
+            timedSocket = socket;
+        }
+    }
+
+    /**
+     * Helper method returning the channel frames are written to, see readChannel.
+     */
+    private WritableByteChannel writeChannel() {
+        if (writer == null) {
+            writer = socket.getChannel() != null ? socket.getChannel() : Channels.newChannel(out);
+        }
+        return writer;
+    }
+
+    /**
+     * Serve this connection on a new thread of the given mode. The handler typically loops on receiveFrame;
+     * once it returns or throws, the connection is closed.
+     * @param mode of the serving thread, VIRTUAL lets one JVM hold many idle connections cheaply.
+     * @param handler serving the connection.
+     * @return the started thread.
+     * @throws IOException if no current connection.
+     * @throws UnsupportedOperationException if the mode is not available on the running JVM.
+     */
+    public Thread start(ThreadMode mode, Handler handler) throws IOException {
+        if (socket == null || socket.isClosed()){
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        Thread thread = mode.newThread("connection-" + socket.getLocalPort() + "-" + socket.getPort(), () -> {
+            try {
+                handler.serve(this);
+            } catch (IOException e) {
+                // Peer disconnected or the connection was closed locally.
+            } finally {
+                if (!socket.isClosed()) {
+                    try {
+                        close();
+                    } catch (IOException e) {
+                        // Already closed.
+                    }
+                }
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
     /**
      * Close current connected socket.
      * @throws IOException if no current connection or connection already closed.
@@ -69,8 +554,38 @@ public abstract class Connection {
         if (socket == null || socket.isClosed()){
             throw new IOException("Socket is not connected or is closed.");
         }
+        if (heartbeats != null) {
+            heartbeats.cancel(false);
+            heartbeats = null;
+        }
+        // Frames still batched are written first, unless another thread is stuck sending.
+        if (flusher != null && sendLock.tryLock()) {
+            try {
+                flushOut();
+            } catch (IOException e) {
+                // The peer is gone, nothing left to deliver.
+            } finally {
+                sendLock.unlock();
+            }
+        }
+        if (watch != null) {
+            watch.cancel();
+            watch = null;
+        }
         out.close();
         in.close();
         socket.close();
+        reader = null;
+        writer = null;
+        // A send or receive still running on another thread fails on the closed socket, its buffer is left to it.
+        // A view may still show a frame in frameIn, so it is left to the garbage collector rather than pooled.
+        if (!receiving) {
+            frameIn = null;
+            idleIn = null;
+        }
+        if (!sending) {
+            BufferPool.SHARED.release(frameOut);
+            frameOut = null;
+        }
     }
 }
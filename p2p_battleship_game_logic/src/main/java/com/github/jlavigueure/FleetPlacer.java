@@ -0,0 +1,256 @@
+package com.github.jlavigueure;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * FleetPlacer class lays out a fleet at random without trial-and-error calls to placeShip.
+ * Every legal (x, y, Direction) placement of every ship size is precomputed once for the board size
+ * as a bit mask over the board's cells. A fleet is chosen by testing candidate masks against the
+ * cells already taken with bit operations, so placing a fleet never throws for a collision.
+ * <p>
+ * Each ship gets a placement drawn uniformly among those not overlapping the ships chosen before it,
+ * largest ships first. The same seed always gives the same layout.
+ * A placer keeps scratch state and is not thread safe, use one per thread.
+ */
+public class FleetPlacer {
+    private static final Board.Direction[] DIRECTIONS = Board.Direction.values();
+    private static final int SAMPLE_TRIES = 16; // Random picks tried before enumerating the free placements.
+    private static final int MAX_RESTARTS = 1000;
+
+    private final int width;
+    private final int height;
+    private final Ship.ShipType[] fleet;
+    private final Placements[] bySlot; // Placements of the ship in each fleet slot.
+    private final int[] order;         // Fleet slots, largest ship first.
+    private final long[] taken;
+    private final int[] candidates;
+    private final int[] chosen;
+
+    /**
+     * Constructor for a FleetPlacer of the standard fleet, one ship of every ShipType.
+     * @param width of the boards.
+     * @param height of the boards.
+     * @throws IllegalArgumentException if a ship does not fit on the board.
+     */
+    public FleetPlacer(int width, int height) {
+        this(width, height, Ship.ShipType.values());
+    }
+
+    /**
+     * Constructor for FleetPlacer.
+     * @param width of the boards.
+     * @param height of the boards.
+     * @param fleet ship types to place, one entry per ship.
+     * @throws IllegalArgumentException if the board size is not positive, or a ship does not fit on the board.
+     */
+    public FleetPlacer(int width, int height, Ship.ShipType[] fleet) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Board size must be positive.");
+        }
+        this.width = width;
+        this.height = height;
+        this.fleet = fleet.clone();
+        this.bySlot = new Placements[fleet.length];
+        Placements[] bySize = new Placements[Math.max(width, height) + 1];
+        int most = 0;
+        for (int i = 0; i < fleet.length; i++) {
+            int size = fleet[i].getSize();
+            if (size > Math.max(width, height)) {
+                throw new IllegalArgumentException(fleet[i] + " does not fit on a " + width + "x" + height + " board.");
+            }
+            if (bySize[size] == null) {
+                bySize[size] = new Placements(size);
+            }
+            bySlot[i] = bySize[size];
+            most = Math.max(most, bySlot[i].count);
+        }
+        Integer[] slots = new Integer[fleet.length];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = i;
+        }
+        Arrays.sort(slots, (a, b) -> fleet[b].getSize() - fleet[a].getSize());
+        this.order = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            order[i] = slots[i];
+        }
+        this.taken = new long[(width * height + 63) >>> 6];
+        this.candidates = new int[most];
+        this.chosen = new int[fleet.length];
+    }
+
+    /**
+     * Function to get the number of legal placements of a ship size on an empty board.
+     * @param type of the ship.
+     * @return placements, counting each (x, y, Direction) once.
+     */
+    public int getPlacementCount(Ship.ShipType type) {
+        for (int i = 0; i < fleet.length; i++) {
+            if (fleet[i].getSize() == type.getSize()) {
+                return bySlot[i].count;
+            }
+        }
+        return new Placements(type.getSize()).count;
+    }
+
+    /**
+     * Function to place a new fleet on a board.
+     * @param board to place the fleet on. It must have the placer's size and no ships.
+     * @param random source of the layout.
+     * @return the placed ships, in the order of the fleet given to the constructor.
+     */
+    public Ship[] place(GameBoard board, SplittableRandom random) {
+        Ship[] ships = new Ship[fleet.length];
+        for (int i = 0; i < ships.length; i++) {
+            ships[i] = new Ship(fleet[i]);
+        }
+        place(board, ships, random);
+        return ships;
+    }
+
+    /**
+     * Function to place existing ships on a board, for example ships reused from an earlier game.
+     * @param board to place the fleet on. It must have the placer's size and no ships.
+     * @param ships one ship per fleet entry, in the order of the fleet given to the constructor.
+     * @param random source of the layout.
+     * @throws IllegalArgumentException if the board size or the ships do not match the placer.
+     * @throws IllegalStateException if no layout was found, only possible when the fleet barely fits.
+     */
+    public void place(GameBoard board, Ship[] ships, SplittableRandom random) {
+        if (board.getWidth() != width || board.getHeight() != height) {
+            throw new IllegalArgumentException("Board must be " + width + "x" + height + ".");
+        }
+        if (ships.length != fleet.length) {
+            throw new IllegalArgumentException("Expected " + fleet.length + " ships.");
+        }
+        for (int i = 0; i < ships.length; i++) {
+            if (ships[i] == null || ships[i].getType() != fleet[i]) {
+                throw new IllegalArgumentException("Ship " + i + " must be a " + fleet[i] + ".");
+            }
+        }
+        int restarts = 0;
+        while (!choose(random)) {
+            if (++restarts == MAX_RESTARTS) {
+                throw new IllegalStateException("No layout found for the fleet on a " + width + "x" + height + " board.");
+            }
+        }
+        for (int slot = 0; slot < ships.length; slot++) {
+            Placements placements = bySlot[slot];
+            int pick = chosen[slot];
+            int origin = placements.origins[pick];
+            board.placeShip(origin % width, origin / width, DIRECTIONS[placements.directions[pick]], ships[slot]);
+        }
+    }
+
+    /**
+     * Helper method choosing a placement for every fleet slot into chosen.
+     * @return false if a ship found no free placement and the layout has to start over.
+     */
+    private boolean choose(SplittableRandom random) {
+        Arrays.fill(taken, 0);
+        for (int slot : order) {
+            Placements placements = bySlot[slot];
+            int pick = -1;
+            for (int t = 0; t < SAMPLE_TRIES && pick < 0; t++) {
+                int candidate = random.nextInt(placements.count);
+                if (placements.isFree(candidate, taken)) {
+                    pick = candidate;
+                }
+            }
+            if (pick < 0) {
+                // Crowded board: draw among the free placements directly.
+                int free = 0;
+                for (int candidate = 0; candidate < placements.count; candidate++) {
+                    if (placements.isFree(candidate, taken)) {
+                        candidates[free++] = candidate;
+                    }
+                }
+                if (free == 0) {
+                    return false;
+                }
+                pick = candidates[random.nextInt(free)];
+            }
+            placements.take(pick, taken);
+            chosen[slot] = pick;
+        }
+        return true;
+    }
+
+    /**
+     * Every legal placement of one ship size. A placement's mask is stored as up to size (word, bits)
+     * pairs over the board's cell bitset, cells falling into the same 64-cell word share a pair.
+     */
+    private final class Placements {
+        private final int size;
+        private final int count;
+        private final int[] origins;
+        private final byte[] directions;
+        private final byte[] pairs;
+        private final int[] words;
+        private final long[] bits;
+
+        private Placements(int size) {
+            this.size = size;
+            int total = 0;
+            for (Board.Direction direction : DIRECTIONS) {
+                int spanX = direction.getDx() == 0 ? width : width - size + 1;
+                int spanY = direction.getDy() == 0 ? height : height - size + 1;
+                total += Math.max(0, spanX) * Math.max(0, spanY);
+            }
+            this.count = total;
+            this.origins = new int[total];
+            this.directions = new byte[total];
+            this.pairs = new byte[total];
+            this.words = new int[total * size];
+            this.bits = new long[total * size];
+            int p = 0;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int dx = DIRECTIONS[d].getDx();
+                int dy = DIRECTIONS[d].getDy();
+                for (int y = 0; y < height; y++) {
+                    for (int x = 0; x < width; x++) {
+                        int endX = x + dx * (size - 1);
+                        int endY = y + dy * (size - 1);
+                        if (endX < 0 || endX >= width || endY < 0 || endY >= height) continue;
+                        origins[p] = y * width + x;
+                        directions[p] = (byte) d;
+                        for (int i = 0; i < size; i++) {
+                            add(p, (y + dy * i) * width + x + dx * i);
+                        }
+                        p++;
+                    }
+                }
+            }
+        }
+
+        /**
+         * Helper method adding a cell to the mask of placement p.
+         */
+        private void add(int p, int cell) {
+            int base = p * size;
+            int word = cell >>> 6;
+            for (int i = 0; i < pairs[p]; i++) {
+                if (words[base + i] == word) {
+                    bits[base + i] |= 1L << cell;
+                    return;
+                }
+            }
+            words[base + pairs[p]] = word;
+            bits[base + pairs[p]] = 1L << cell;
+            pairs[p]++;
+        }
+
+        private boolean isFree(int p, long[] taken) {
+            for (int i = p * size, end = i + pairs[p]; i < end; i++) {
+                if ((taken[words[i]] & bits[i]) != 0) return false;
+            }
+            return true;
+        }
+
+        private void take(int p, long[] taken) {
+            for (int i = p * size, end = i + pairs[p]; i < end; i++) {
+                taken[words[i]] |= bits[i];
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.github.jlavigueure;
+
+/**
+ * FleetTracker keeps a running count of the unsunk cells of every ship placed on a board,
+ * so the win check is constant time and the ship sunk by a shot is known without scanning the fleet.
+ */
+class FleetTracker implements Ship.HitListener {
+    private int health;
+    private Ship lastSunk;
+    private GameBoard.SunkListener sunkListener;
+
+    /**
+     * Function to start tracking a ship which was just placed on the board.
+     * @param ship placed on the board.
+     */
+    void add(Ship ship) {
+        health += ship.getSize() - ship.getHits();
+        ship.setHitListener(this);
+    }
+
+    /**
+     * Function to forget every tracked ship when the board is cleared.
+     */
+    void reset() {
+        health = 0;
+        lastSunk = null;
+    }
+
+    /**
+     * Function to call before every shot so lastSunk only reflects the most recent one.
+     */
+    void beginShot() {
+        lastSunk = null;
+    }
+
+    @Override
+    public void shipHit(Ship ship, boolean sunk) {
+        health--;
+        if (sunk) {
+            lastSunk = ship;
+            if (sunkListener != null) sunkListener.shipSunk(ship);
+        }
+    }
+
+    /**
+     * Function to get the number of cells across the fleet which have not been hit.
+     * @return remaining fleet health.
+     */
+    int getHealth() {
+        return health;
+    }
+
+    /**
+     * Function which returns true if all tracked ships are sunk.
+     * @return true when no health remains.
+     */
+    boolean allSunk() {
+        return health == 0;
+    }
+
+    /**
+     * Function to get the ship sunk by the most recent shot.
+     * @return the ship or null if the last shot sank nothing.
+     */
+    Ship getLastSunk() {
+        return lastSunk;
+    }
+
+    /**
+     * Function to set the listener notified each time a ship is sunk.
+     * @param sunkListener the listener or null to remove it.
+     */
+    void setSunkListener(GameBoard.SunkListener sunkListener) {
+        this.sunkListener = sunkListener;
+    }
+}
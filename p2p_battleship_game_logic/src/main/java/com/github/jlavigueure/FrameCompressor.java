@@ -0,0 +1,209 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * FrameCompressor class deflates large frames into COMPRESSED frames and inflates them back.
+ * <p>
+ * The payload of a COMPRESSED frame is the body size of the original frame as a varint, then the original body
+ * deflated. The receiver so knows the room the frame needs before inflating it and refuses bodies larger than
+ * MessageCodec.MAX_BODY_SIZE, however small the compressed frame. Frames with a body under the threshold, or which
+ * would not shrink, are left as they are: shots and results are a few bytes and would only grow, snapshots and
+ * board deltas of mostly unknown cells shrink several times.
+ * <p>
+ * The Deflater, Inflater and scratch arrays are reused from frame to frame. Not thread safe, keep one per
+ * sending and one per receiving thread.
+ */
+public final class FrameCompressor {
+    /** Default smallest frame body, in bytes, worth compressing. */
+    public static final int DEFAULT_THRESHOLD = 256;
+
+    private final int threshold;
+    private final Deflater deflater;
+    private final Inflater inflater;
+    private byte[] plain;  // Uncompressed body.
+    private byte[] packed; // COMPRESSED payload.
+
+    /**
+     * Constructor for FrameCompressor compressing bodies of at least DEFAULT_THRESHOLD bytes.
+     */
+    public FrameCompressor() {
+        this(DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * Constructor for FrameCompressor. Deflates at the fastest level, frames are sent as soon as they are built.
+     * @param threshold smallest frame body, in bytes, to compress.
+     * @throws IllegalArgumentException if threshold is not positive.
+     */
+    public FrameCompressor(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("Compression threshold must be positive.");
+        }
+        this.threshold = threshold;
+        this.deflater = new Deflater(Deflater.BEST_SPEED);
+        this.inflater = new Inflater();
+        this.plain = new byte[DEFAULT_THRESHOLD];
+        this.packed = new byte[DEFAULT_THRESHOLD];
+    }
+
+    /**
+     * Function to get the smallest frame body compressed.
+     * @return threshold in bytes.
+     */
+    public int getThreshold() {
+        return threshold;
+    }
+
+    /**
+     * Function to compress a message, typically a snapshot encoded once and sent to many peers.
+     * @param message to compress.
+     * @return a COMPRESSED message, or message itself if it is under the threshold or would not shrink.
+     * @throws IllegalArgumentException if the message's body is larger than MessageCodec.MAX_BODY_SIZE.
+     */
+    public Message compress(Message message) {
+        int bodySize = MessageCodec.frameSize(message) - MessageCodec.HEADER_SIZE;
+        if (bodySize < threshold) {
+            return message;
+        }
+        ByteBuffer frame = ByteBuffer.allocate(MessageCodec.HEADER_SIZE + bodySize);
+        MessageCodec.encode(message, frame);
+        int payloadSize = deflate(frame.array(), MessageCodec.HEADER_SIZE, bodySize);
+        return payloadSize < 0 ? message : Message.compressed(Arrays.copyOf(packed, payloadSize));
+    }
+
+    /**
+     * Function to open a COMPRESSED message.
+     * @param message received.
+     * @return the original message, or message itself if it is not COMPRESSED.
+     * @throws IOException if the payload is corrupt, too large or holds another COMPRESSED frame.
+     */
+    public Message decompress(Message message) throws IOException {
+        if (message.getType() != Message.Type.COMPRESSED) {
+            return message;
+        }
+        byte[] payload = message.getPayload();
+        int bodySize = inflate(payload, payload.length);
+        ByteBuffer frame = ByteBuffer.allocate(MessageCodec.HEADER_SIZE + bodySize);
+        frame.putInt(bodySize).put(plain, 0, bodySize);
+        frame.flip();
+        Message original = MessageCodec.decode(frame);
+        if (original.getType() == Message.Type.COMPRESSED) {
+            throw new IOException("Compressed frame holds another compressed frame.");
+        }
+        return original;
+    }
+
+    /**
+     * Function to compress the last frame of a send buffer in place, when it is large enough and shrinks.
+     * @param out buffer in write mode, the frame runs from frameStart to its position.
+     * @param frameStart index of the frame's length prefix.
+     */
+    void compress(ByteBuffer out, int frameStart) {
+        int bodySize = out.position() - frameStart - MessageCodec.HEADER_SIZE;
+        if (bodySize < threshold) {
+            return;
+        }
+        if (plain.length < bodySize) {
+            plain = new byte[bodySize];
+        }
+        ByteBuffer body = out.duplicate();
+        body.limit(out.position()).position(frameStart + MessageCodec.HEADER_SIZE);
+        body.get(plain, 0, bodySize);
+        int payloadSize = deflate(plain, 0, bodySize);
+        if (payloadSize < 0) {
+            return;
+        }
+        out.position(frameStart);
+        out.putInt(1 + payloadSize).put(Message.Type.COMPRESSED.getCode()).put(packed, 0, payloadSize);
+    }
+
+    /**
+     * Function to inflate the COMPRESSED frame a view shows into a buffer holding the original frame.
+     * @param view showing a COMPRESSED frame.
+     * @param frame buffer to reuse, may be null or too small.
+     * @return buffer in read mode holding the original frame, frame itself if it was large enough.
+     * @throws IOException if the payload is corrupt or too large.
+     */
+    ByteBuffer inflate(MessageView view, ByteBuffer frame) throws IOException {
+        int length = view.getPayloadLength();
+        if (packed.length < length) {
+            packed = new byte[length];
+        }
+        view.getPayload(packed, 0);
+        int bodySize = inflate(packed, length);
+        if (frame == null || frame.capacity() < MessageCodec.HEADER_SIZE + bodySize) {
+            frame = ByteBuffer.allocate(MessageCodec.HEADER_SIZE + bodySize);
+        }
+        frame.clear();
+        frame.putInt(bodySize).put(plain, 0, bodySize);
+        frame.flip();
+        return frame;
+    }
+
+    /**
+     * Helper method deflating a body into packed behind its varint size.
+     * @return payload size, or -1 if the COMPRESSED body would not be smaller than the original one.
+     */
+    private int deflate(byte[] src, int offset, int length) {
+        int limit = length - 2; // Room left for the type code, and one byte saved at least.
+        if (packed.length < length) {
+            packed = new byte[length];
+        }
+        ByteBuffer prefix = ByteBuffer.wrap(packed);
+        Varint.put(prefix, length);
+        int size = prefix.position();
+        deflater.reset();
+        deflater.setInput(src, offset, length);
+        deflater.finish();
+        while (!deflater.finished()) {
+            if (size >= limit) {
+                return -1;
+            }
+            size += deflater.deflate(packed, size, limit - size);
+        }
+        return size;
+    }
+
+    /**
+     * Helper method inflating a COMPRESSED payload into plain.
+     * @return body size of the original frame.
+     */
+    private int inflate(byte[] payload, int length) throws IOException {
+        ByteBuffer in = ByteBuffer.wrap(payload, 0, length);
+        int bodySize;
+        try {
+            bodySize = Varint.getInt(in);
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IOException("Truncated compressed frame.", e);
+        }
+        if (bodySize < 1 || bodySize > MessageCodec.MAX_BODY_SIZE) {
+            throw new IOException("Invalid compressed frame length: " + bodySize);
+        }
+        if (plain.length <= bodySize) {
+            plain = new byte[bodySize + 1]; // One byte more, to notice a stream longer than announced.
+        }
+        inflater.reset();
+        inflater.setInput(payload, in.position(), length - in.position());
+        int inflated = 0;
+        try {
+            while (!inflater.finished()) {
+                if (inflated > bodySize || inflater.needsInput() || inflater.needsDictionary()) {
+                    throw new IOException("Compressed frame does not hold a " + bodySize + " byte body.");
+                }
+                inflated += inflater.inflate(plain, inflated, bodySize + 1 - inflated);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt compressed frame.", e);
+        }
+        if (inflated != bodySize || inflater.getRemaining() > 0) {
+            throw new IOException("Compressed frame does not hold a " + bodySize + " byte body.");
+        }
+        return bodySize;
+    }
+}
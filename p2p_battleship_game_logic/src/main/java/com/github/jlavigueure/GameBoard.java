@@ -0,0 +1,167 @@
+package com.github.jlavigueure;
+
+/**
+ * GameBoard interface describing the operations every board implementation supports.
+ * Coordinates are zero based with x in [0, width) and y in [0, height).
+ */
+public interface GameBoard {
+    /**
+     * Interface for callers interested in ships being sunk, so they do not need to re-scan the fleet.
+     */
+    public static interface SunkListener {
+        void shipSunk(Ship ship);
+    }
+
+    /**
+     * Function to get the width of the board.
+     * @return number of columns.
+     */
+    int getWidth();
+
+    /**
+     * Function to get the height of the board.
+     * @return number of rows.
+     */
+    int getHeight();
+
+    /**
+     * Function to clear the board for a new game, removing every ship and setting every cell to the given state.
+     * Lets simulations reuse one board for many games instead of allocating a new one each time.
+     * @param boardState is the new state of every cell. Can not be OCCUPIED.
+     * @throws IllegalArgumentException if boardState is OCCUPIED.
+     */
+    void reset(BoardCell.CellState boardState);
+
+    /**
+     * Function to get the state of the cell at the specified coordinates.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return The state of the cell.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     */
+    BoardCell.CellState getState(int x, int y);
+
+    /**
+     * Function to get the states of a whole row of cells at once, checking bounds once for the row.
+     * Implementations read their cells directly, this default falls back to getState.
+     * @param y The y-coordinate of the row.
+     * @param dst receives the state of cell (x, y) at index x, at least getWidth() long.
+     * @throws IndexOutOfBoundsException if the row is out of bounds or dst is too short.
+     */
+    default void getRowStates(int y, BoardCell.CellState[] dst) {
+        int width = getWidth();
+        if (y < 0 || y >= getHeight() || dst.length < width) {
+            throw new IndexOutOfBoundsException("Invalid row " + y + " for " + dst.length + " states.");
+        }
+        for (int x = 0; x < width; x++) {
+            dst[x] = getState(x, y);
+        }
+    }
+
+    /**
+     * Function to get the version of the board. Every cell turning HIT or MISS and every reset increases it,
+     * so two equal versions of one board show the same HIT and MISS cells.
+     * @return current version.
+     */
+    long getVersion();
+
+    /**
+     * Function to get the oldest version from which getChangedCell can list changes, the version of the last reset.
+     * @return oldest listed version.
+     */
+    long getOldestVersion();
+
+    /**
+     * Function to get the cell which turned HIT or MISS in the change from version to version + 1.
+     * @param version in [getOldestVersion(), getVersion()).
+     * @return cell index y * width + x.
+     * @throws IndexOutOfBoundsException if the version is out of range.
+     */
+    int getChangedCell(long version);
+
+    /**
+     * Function to get the number of ships placed on the board.
+     * @return number of ships.
+     */
+    int getShipCount();
+
+    /**
+     * Function to get a placed ship, in placement order. Use Ship.getX, getY and getDirection for its position.
+     * @param index of the ship, in [0, getShipCount()).
+     * @return the ship.
+     * @throws IndexOutOfBoundsException if the index is out of range.
+     */
+    Ship getPlacedShip(int index);
+
+    /**
+     * Function to place a ship on the board at the specified coordinates and direction.
+     * If the ship placement is invalid, an exception is thrown and no changes are made to the board.
+     * @param x The x-coordinate of the starting cell.
+     * @param y The y-coordinate of the starting cell.
+     * @param direction The direction in which to place the ship.
+     * @param ship The Ship object to place on the board.
+     * @throws IndexOutOfBoundsException if the ship placement goes out of bounds.
+     * @throws IllegalArgumentException if a cell is not empty or the same ship object is already on this or another
+     *         board. A ship is tracked by one board, reset that board before placing the ship on another one.
+     */
+    void placeShip(int x, int y, Board.Direction direction, Ship ship);
+
+    /**
+     * Function to attack the given cell.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return the state of the cell after attacking.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     * @throws IllegalStateException if cell already attacked or cell state is unknown.
+     */
+    BoardCell.CellState hit(int x, int y);
+
+    /**
+     * Function to fire a salvo of shots at once. The whole batch is validated before any cell changes,
+     * so if any shot is invalid an exception is thrown and the board is left untouched.
+     * After the salvo getLastSunk returns the last ship it sank.
+     * @param xs x-coordinates of the shots.
+     * @param ys y-coordinates of the shots, same length as xs.
+     * @return packed results, bit i of result[i / 64] is set when shot i was a HIT.
+     * @throws IndexOutOfBoundsException if any coordinates are out of bounds.
+     * @throws IllegalStateException if any cell was already attacked or is unknown.
+     * @throws IllegalArgumentException if the arrays differ in length or a cell is targeted twice.
+     */
+    long[] hitAll(int[] xs, int[] ys);
+
+    /**
+     * Function to reveal the given cell as a new state.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @param newState of the cell. Must be HIT or MISS.
+     * @throws IllegalStateException if cell is not UNKNOWN.
+     * @throws IllegalArgumentException if newState is not HIT or MISS.
+     */
+    void reveal(int x, int y, BoardCell.CellState newState);
+
+    /**
+     * Function to get the untried cells and open hits of the board, kept up to date by hit, hitAll, reveal
+     * and reset so targeting costs the size of the frontier instead of the board. Built on first use.
+     * The board resolves the hits of its own ships as they sink, on a fog-of-war board the player does.
+     * @return the board's index.
+     */
+    TargetIndex getTargetIndex();
+
+    /**
+     * Function which returns true if all ships are sunk. Runs in constant time.
+     * @return true if all ships sunk else false.
+     */
+    boolean allShipsSunk();
+
+    /**
+     * Function to get the ship sunk by the most recent call to hit.
+     * @return the sunk ship or null if the last hit sank nothing.
+     */
+    Ship getLastSunk();
+
+    /**
+     * Function to set the listener notified each time a ship on this board is sunk.
+     * @param listener the listener or null to remove it.
+     */
+    void setSunkListener(SunkListener listener);
+}
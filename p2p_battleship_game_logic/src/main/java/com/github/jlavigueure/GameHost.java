@@ -0,0 +1,539 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * GameHost class is a non-blocking server mode hosting many concurrent games on a single port.
+ * One selector thread accepts clients, pairs them in arrival order and drives a GameSession per pair,
+ * so no thread is needed per connection. Clients speak the binary frame protocol described in GameSession.
+ * <p>
+ * A host can also be given pairs which were matched elsewhere, see hostGame, which is how a Lobby spreads
+ * its games over a fixed number of hosts. Such a host need not listen on a port at all.
+ * <p>
+ * Heartbeats are answered with one, so a client with a read timeout keeps hearing from the host while its
+ * opponent thinks. With an idle timeout a LivenessTracker disconnects players not heard from for that long,
+ * which forfeits their game, instead of keeping a vanished peer's game open until TCP gives up.
+ * <p>
+ * Once a game is over each player is disconnected as soon as its last frame, GAME_OVER, has been written,
+ * so a finished game holds no buffers or channels while its clients linger.
+ */
+public class GameHost {
+    private static final int BUFFER_SIZE = 512;
+    /** Port given to the constructor for a host which only plays games handed over through hostGame. */
+    public static final int NO_PORT = -1;
+
+    private final int requestedPort;
+    private final int width;
+    private final int height;
+    private final AtomicLong gamesStarted;
+    private final AtomicLong gamesCompleted;
+    private final ConcurrentLinkedQueue<Handoff> handoffs;
+    private final AtomicInteger pendingHandoffs;
+    private final ConcurrentLinkedQueue<Player> dead;
+    private int idleTimeoutMillis;
+    private LivenessTracker liveness;
+    private Selector selector;
+    private ServerSocketChannel listener;
+    private Thread loop;
+    private volatile boolean running;
+    private Player waiting;
+
+    /**
+     * Constructor for GameHost.
+     * @param port to listen on, 0 to pick any free port or NO_PORT to not listen.
+     * @param width of the boards of every hosted game.
+     * @param height of the boards of every hosted game.
+     */
+    public GameHost(int port, int width, int height) {
+        this.requestedPort = port;
+        this.width = width;
+        this.height = height;
+        this.gamesStarted = new AtomicLong();
+        this.gamesCompleted = new AtomicLong();
+        this.handoffs = new ConcurrentLinkedQueue<>();
+        this.pendingHandoffs = new AtomicInteger();
+        this.dead = new ConcurrentLinkedQueue<>();
+    }
+
+    /**
+     * Function to disconnect players not heard from for a while. Clients keep a quiet connection alive
+     * with Connection.startHeartbeats.
+     * @param millis silence after which a player is disconnected, 0 to never disconnect.
+     * @throws IllegalArgumentException if millis is negative.
+     * @throws IllegalStateException if the host was already started.
+     */
+    public void setIdleTimeout(int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Idle timeout can not be negative.");
+        }
+        if (loop != null) {
+            throw new IllegalStateException("Idle timeout must be set before the host starts.");
+        }
+        idleTimeoutMillis = millis;
+    }
+
+    /**
+     * Opens the listening port and starts the selector thread.
+     * @throws IOException if the port could not be bound.
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        if (requestedPort != NO_PORT) {
+            listener = ServerSocketChannel.open();
+            listener.configureBlocking(false);
+            listener.bind(new InetSocketAddress(requestedPort), 1024);
+            listener.register(selector, SelectionKey.OP_ACCEPT);
+        }
+        if (idleTimeoutMillis > 0) {
+            liveness = new LivenessTracker(idleTimeoutMillis);
+            liveness.start();
+        }
+        running = true;
+        loop = new Thread(this::run, listener == null ? "game-host" : "game-host-" + getPort());
+        loop.start();
+        if (listener != null) {
+            System.out.println("Game host running on port " + getPort());
+        }
+    }
+
+    /**
+     * Function to get the port the host is listening on.
+     * @return bound port, or NO_PORT if the host does not listen.
+     */
+    public int getPort() {
+        return listener == null ? NO_PORT : listener.socket().getLocalPort();
+    }
+
+    /**
+     * Function to hand the host two connected players to play one game against each other.
+     * Both are sent MATCHED with their seat, then play the protocol described in GameSession. Thread safe.
+     * @param first connected channel of seat 0. Bytes already read from it are lost.
+     * @param second connected channel of seat 1.
+     * @param width of both boards of the game.
+     * @param height of both boards of the game.
+     * @throws IllegalStateException if the host is not running.
+     */
+    public void hostGame(SocketChannel first, SocketChannel second, int width, int height) {
+        if (!running) {
+            throw new IllegalStateException("Game host is not running.");
+        }
+        pendingHandoffs.incrementAndGet();
+        handoffs.add(new Handoff(first, second, width, height));
+        selector.wakeup();
+    }
+
+    /**
+     * Function to get the number of games handed over or started and not finished yet.
+     * @return games in play.
+     */
+    public long getActiveGames() {
+        return pendingHandoffs.get() + gamesStarted.get() - gamesCompleted.get();
+    }
+
+    /**
+     * Function to get the number of games which have been paired.
+     * @return games started.
+     */
+    public long getGamesStarted() {
+        return gamesStarted.get();
+    }
+
+    /**
+     * Function to get the number of games which have finished with a winner.
+     * @return games completed.
+     */
+    public long getGamesCompleted() {
+        return gamesCompleted.get();
+    }
+
+    /**
+     * Stops the selector thread and closes the listening port and every client connection.
+     * @throws IOException if the host was not started.
+     */
+    public void close() throws IOException {
+        if (loop == null) {
+            throw new IOException("Game host is not running.");
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Selector loop dispatching accept, read and write readiness.
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                adoptHandoffs();
+                disconnectDead();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Player player = (Player) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            read(player);
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            flush(player);
+                        }
+                    } catch (IOException e) {
+                        disconnect(player);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Game host stopped: " + e.getMessage());
+        } finally {
+            running = false;
+            if (liveness != null) {
+                liveness.close();
+            }
+            for (SelectionKey key : selector.keys()) {
+                Closer.closeQuietly(key);
+            }
+            Closer.closeQuietly(selector);
+            Handoff handoff;
+            while ((handoff = handoffs.poll()) != null) {
+                Closer.closeQuietly(handoff.first);
+                Closer.closeQuietly(handoff.second);
+            }
+        }
+    }
+
+    /**
+     * Helper method starting the game of every pair handed over through hostGame.
+     */
+    private void adoptHandoffs() {
+        Handoff handoff;
+        while ((handoff = handoffs.poll()) != null) {
+            pendingHandoffs.decrementAndGet();
+            Player first = register(handoff.first);
+            Player second = register(handoff.second);
+            if (first == null || second == null) {
+                // One player is already gone, the other is dropped rather than left without an opponent.
+                for (Player player : new Player[] {first, second}) {
+                    if (player != null) {
+                        Closer.closeQuietly(player.key);
+                    }
+                }
+                continue;
+            }
+            first.enqueue(Message.matched(0));
+            second.enqueue(Message.matched(1));
+            startGame(first, second, handoff.width, handoff.height);
+        }
+    }
+
+    /**
+     * Helper method disconnecting every player the liveness tracker declared dead.
+     */
+    private void disconnectDead() {
+        Player player;
+        while ((player = dead.poll()) != null) {
+            if (player.key.isValid()) {
+                disconnect(player);
+            }
+        }
+    }
+
+    /**
+     * Helper method registering a connected channel with the selector, watched if there is an idle timeout.
+     * @return the player, or null if the channel could not be registered and was closed.
+     */
+    private Player register(SocketChannel channel) {
+        Player player = new Player(channel);
+        try {
+            channel.configureBlocking(false);
+            channel.socket().setTcpNoDelay(true);
+            player.key = channel.register(selector, SelectionKey.OP_READ, player);
+        } catch (IOException e) {
+            Closer.closeQuietly(channel);
+            return null;
+        }
+        if (liveness != null) {
+            // Runs on the tracker's thread, the selector thread does the disconnect.
+            player.watch = liveness.watch(() -> {
+                dead.add(player);
+                selector.wakeup();
+            });
+        }
+        return player;
+    }
+
+    /**
+     * Helper method which accepts every pending client and pairs it with the waiting player if there is one.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = listener.accept()) != null) {
+            if (Metrics.ENABLED) {
+                Metrics.ACCEPTS.increment();
+            }
+            Player player = register(channel);
+            if (player == null) {
+                continue;
+            }
+            if (waiting == null) {
+                waiting = player;
+            } else {
+                startGame(waiting, player, width, height);
+                waiting = null;
+            }
+        }
+    }
+
+    /**
+     * Helper method which creates the session shared by two paired players and applies anything they already sent.
+     */
+    private void startGame(Player first, Player second, int width, int height) {
+        Match match = new Match(first, second, width, height);
+        first.join(match, 0);
+        second.join(match, 1);
+        gamesStarted.incrementAndGet();
+        for (Player player : match.seats) {
+            try {
+                process(player);
+            } catch (IOException e) {
+                disconnect(player);
+            }
+        }
+    }
+
+    /**
+     * Helper method which reads available bytes from the player's socket.
+     */
+    private void read(Player player) throws IOException {
+        int bytesRead = player.channel.read(player.in);
+        if (bytesRead == -1) {
+            throw new IOException("Client disconnected.");
+        }
+        if (Metrics.ENABLED) {
+            Metrics.BYTES_RECEIVED.add(bytesRead);
+        }
+        if (player.watch != null) {
+            player.watch.touch();
+        }
+        process(player);
+    }
+
+    /**
+     * Helper method applying every complete buffered frame to the player's session.
+     * Frames from a player still waiting for an opponent stay buffered until the game starts, but for heartbeats.
+     */
+    private void process(Player player) throws IOException {
+        if (player.match == null) {
+            answerHeartbeats(player);
+            if (!player.in.hasRemaining()) {
+                throw new IOException("Too much data sent before game start.");
+            }
+            return;
+        }
+        GameSession session = player.match.session;
+        player.in.flip();
+        Message message;
+        while ((message = MessageCodec.decode(player.in)) != null) {
+            if (message.getType() == Message.Type.HEARTBEAT) {
+                player.enqueue(message);
+                continue;
+            }
+            if (!session.handle(player.seat, message)) {
+                throw new IOException("Protocol violation: " + message);
+            }
+        }
+        int bodySize = MessageCodec.peekBodySize(player.in);
+        if (bodySize > 0 && MessageCodec.HEADER_SIZE + bodySize > player.in.capacity()) {
+            throw new IOException("Frame too large: " + bodySize);
+        }
+        player.in.compact();
+        flush(player);
+        flush(player.opponent());
+        countIfOver(player.match);
+    }
+
+    /**
+     * Helper method answering and removing the complete heartbeat frames buffered from a player still waiting
+     * for an opponent, keeping its other frames in order for the game.
+     */
+    private void answerHeartbeats(Player player) {
+        ByteBuffer in = player.in;
+        byte[] bytes = in.array();
+        int end = in.position();
+        int read = 0;
+        int kept = 0;
+        boolean answered = false;
+        while (end - read >= MessageCodec.HEADER_SIZE) {
+            int bodySize = in.getInt(read);
+            if (bodySize < 1 || bodySize > end - read - MessageCodec.HEADER_SIZE) {
+                break; // Incomplete, or malformed and rejected once the game decodes it.
+            }
+            int frameSize = MessageCodec.HEADER_SIZE + bodySize;
+            if (bodySize == 1 && bytes[read + MessageCodec.HEADER_SIZE] == Message.Type.HEARTBEAT.getCode()) {
+                player.enqueue(Message.heartbeat());
+                answered = true;
+            } else {
+                System.arraycopy(bytes, read, bytes, kept, frameSize);
+                kept += frameSize;
+            }
+            read += frameSize;
+        }
+        System.arraycopy(bytes, read, bytes, kept, end - read);
+        in.position(kept + end - read);
+        if (answered) {
+            flush(player);
+        }
+    }
+
+    /**
+     * Helper method writing as much queued output as the socket accepts, waiting for OP_WRITE otherwise.
+     * A player of a finished game is disconnected once everything queued for it is written.
+     */
+    private void flush(Player player) {
+        if (!player.key.isValid()) {
+            return;
+        }
+        player.out.flip();
+        try {
+            int written = player.channel.write(player.out);
+            if (Metrics.ENABLED) {
+                Metrics.BYTES_SENT.add(written);
+            }
+        } catch (IOException e) {
+            player.out.compact();
+            disconnect(player);
+            return;
+        }
+        player.out.compact();
+        if (player.out.position() == 0 && player.match != null && player.match.session.isOver()) {
+            disconnect(player);
+            return;
+        }
+        int ops = player.out.position() > 0 ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+        if (player.key.interestOps() != ops) {
+            player.key.interestOps(ops);
+        }
+    }
+
+    /**
+     * Helper method closing a player's connection and awarding the game to the opponent if it was still running.
+     */
+    private void disconnect(Player player) {
+        Closer.closeQuietly(player.key);
+        if (player.watch != null) {
+            player.watch.cancel();
+        }
+        if (waiting == player) {
+            waiting = null;
+        }
+        if (player.match != null && !player.match.session.isOver()) {
+            player.match.session.forfeit(player.seat);
+            countIfOver(player.match);
+            flush(player.opponent());
+        }
+    }
+
+    /**
+     * Helper method counting a finished match exactly once.
+     */
+    private void countIfOver(Match match) {
+        if (match.session.isOver() && !match.counted) {
+            match.counted = true;
+            gamesCompleted.incrementAndGet();
+        }
+    }
+
+    /**
+     * Pair handed over through hostGame, waiting for the selector thread.
+     */
+    private static final class Handoff {
+        private final SocketChannel first;
+        private final SocketChannel second;
+        private final int width;
+        private final int height;
+
+        private Handoff(SocketChannel first, SocketChannel second, int width, int height) {
+            this.first = first;
+            this.second = second;
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    /**
+     * Session and both seats of one hosted game.
+     */
+    private static final class Match {
+        private final Player[] seats;
+        private final GameSession session;
+        private boolean counted;
+
+        private Match(Player first, Player second, int width, int height) {
+            this.seats = new Player[] {first, second};
+            this.session = new GameSession(width, height, (seat, message) -> seats[seat].enqueue(message));
+            this.counted = false;
+        }
+    }
+
+    /**
+     * Per connection state owned by the selector thread.
+     */
+    private static final class Player {
+        private final SocketChannel channel;
+        private final ByteBuffer in;
+        private ByteBuffer out;
+        private SelectionKey key;
+        private LivenessTracker.Watch watch;
+        private Match match;
+        private int seat;
+
+        private Player(SocketChannel channel) {
+            this.channel = channel;
+            this.in = ByteBuffer.allocate(BUFFER_SIZE);
+            this.out = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+
+        private void join(Match match, int seat) {
+            this.match = match;
+            this.seat = seat;
+        }
+
+        private Player opponent() {
+            return match.seats[1 - seat];
+        }
+
+        private void enqueue(Message message) {
+            int size = MessageCodec.frameSize(message);
+            if (out.remaining() < size) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(out.capacity() * 2, out.position() + size));
+                out.flip();
+                larger.put(out);
+                out = larger;
+            }
+            MessageCodec.encode(message, out);
+        }
+    }
+}
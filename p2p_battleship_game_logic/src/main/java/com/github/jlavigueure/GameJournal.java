@@ -0,0 +1,548 @@
+package com.github.jlavigueure;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * GameJournal class is an append-only event log of board changes, kept so in-flight games survive a host crash.
+ * Every placeShip, hit, reveal and reset is written as one fixed-size record into a memory-mapped segment
+ * file, so appending is a few memory writes and no system call. Records are made durable by a flusher
+ * thread forcing the segment to disk: sync waits for it, and every caller waiting at the same time shares
+ * one force (group commit). Without a sync the flusher still forces written records every sync interval.
+ * <p>
+ * A record is 16 bytes: int board ID, int x, int y, byte kind, byte argument, short checksum.
+ * A zero kind marks the end of the journal, a bad checksum a torn tail which is dropped on recovery.
+ * Segments are named journal-00000000.seg, journal-00000001.seg and so on in the journal's directory.
+ * <p>
+ * Wrap a board with journaled to record its changes, and rebuild boards after a restart with replay.
+ */
+public class GameJournal implements Closeable {
+    /** Size of one record in bytes. */
+    public static final int RECORD_SIZE = 16;
+    /** Default segment file size, 4M records. */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+    /** Default longest time written records wait before the flusher forces them without a sync. */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 10;
+
+    private static final byte PLACE = 1;
+    private static final byte HIT = 2;
+    private static final byte REVEAL = 3;
+    private static final byte RESET = 4;
+    private static final Ship.ShipType[] SHIP_TYPES = Ship.ShipType.values();
+    private static final Board.Direction[] DIRECTIONS = Board.Direction.values();
+    private static final BoardCell.CellState[] STATES = BoardCell.CellState.values();
+
+    private final Path directory;
+    private final int segmentSize;
+    private final int recordsPerSegment;
+    private final long syncIntervalMillis;
+    private final Object lock;
+    private final Thread flusher;
+    private RandomAccessFile file;
+    private MappedByteBuffer segment;
+    private int segmentIndex;
+    private long written;
+    private long durable;
+    private boolean syncRequested;
+    private boolean running;
+    private boolean closed;
+    private IOException failure;
+
+    /**
+     * Constructor for a GameJournal with the default segment size and sync interval.
+     * @param directory holding the segment files, created if missing.
+     * @throws IOException if the journal could not be opened.
+     */
+    public GameJournal(Path directory) throws IOException {
+        this(directory, DEFAULT_SEGMENT_SIZE, DEFAULT_SYNC_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Constructor for GameJournal. Opens the journal in the directory, continuing after its last valid record.
+     * @param directory holding the segment files, created if missing.
+     * @param segmentSize size of each segment file in bytes, a multiple of RECORD_SIZE.
+     * @param syncIntervalMillis longest time written records wait before being forced without a sync, 0 to only force on sync.
+     * @throws IOException if the journal could not be opened.
+     * @throws IllegalArgumentException if segmentSize is not a positive multiple of RECORD_SIZE or the interval is negative.
+     */
+    public GameJournal(Path directory, int segmentSize, long syncIntervalMillis) throws IOException {
+        if (segmentSize <= 0 || segmentSize % RECORD_SIZE != 0) {
+            throw new IllegalArgumentException("Segment size must be a positive multiple of " + RECORD_SIZE + ".");
+        }
+        if (syncIntervalMillis < 0) {
+            throw new IllegalArgumentException("Sync interval can not be negative.");
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.recordsPerSegment = segmentSize / RECORD_SIZE;
+        this.syncIntervalMillis = syncIntervalMillis;
+        this.lock = new Object();
+        Files.createDirectories(directory);
+        List<Path> segments = segments();
+        this.segmentIndex = segments.isEmpty() ? 0 : segments.size() - 1;
+        map(segmentIndex);
+        int records = 0;
+        while (records < recordsPerSegment && valid(segment, records * RECORD_SIZE)) {
+            records++;
+        }
+        // Drop a torn tail so it is overwritten by the next record.
+        for (int i = records * RECORD_SIZE; i < segmentSize && segment.get(i + 12) != 0; i += RECORD_SIZE) {
+            segment.put(i + 12, (byte) 0);
+        }
+        segment.position(records * RECORD_SIZE);
+        this.written = (long) segmentIndex * recordsPerSegment + records;
+        this.durable = written;
+        this.running = true;
+        this.flusher = new Thread(this::flushLoop, "game-journal-flusher");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * Function to wrap a board so every successful change to it is recorded under the given board ID.
+     * Calls which throw are not recorded.
+     * @param boardId ID identifying the board in the journal, for example game number * 2 + seat.
+     * @param board to wrap.
+     * @return the journaled board.
+     */
+    public GameBoard journaled(int boardId, GameBoard board) {
+        return new JournaledBoard(boardId, board);
+    }
+
+    /**
+     * Function to record a ship placement.
+     * @param boardId ID of the board.
+     * @param x The x-coordinate of the starting cell.
+     * @param y The y-coordinate of the starting cell.
+     * @param direction in which the ship extends.
+     * @param type of the ship.
+     * @return number of records written once this one is, the value to pass to sync.
+     * @throws IOException if the journal is closed or failed.
+     */
+    public long recordPlace(int boardId, int x, int y, Board.Direction direction, Ship.ShipType type) throws IOException {
+        return append(boardId, x, y, PLACE, type.ordinal() | direction.ordinal() << 4);
+    }
+
+    /**
+     * Function to record a hit.
+     * @return number of records written once this one is, the value to pass to sync.
+     * @throws IOException if the journal is closed or failed.
+     */
+    public long recordHit(int boardId, int x, int y) throws IOException {
+        return append(boardId, x, y, HIT, 0);
+    }
+
+    /**
+     * Function to record a reveal.
+     * @return number of records written once this one is, the value to pass to sync.
+     * @throws IOException if the journal is closed or failed.
+     */
+    public long recordReveal(int boardId, int x, int y, BoardCell.CellState state) throws IOException {
+        return append(boardId, x, y, REVEAL, state.ordinal());
+    }
+
+    /**
+     * Function to record a board reset.
+     * @return number of records written once this one is, the value to pass to sync.
+     * @throws IOException if the journal is closed or failed.
+     */
+    public long recordReset(int boardId, BoardCell.CellState state) throws IOException {
+        return append(boardId, 0, 0, RESET, state.ordinal());
+    }
+
+    /**
+     * Function to wait until the first records of the journal are on disk. Callers waiting at the same time
+     * are served by a single force.
+     * @param records number of records which must be durable, as returned by the record methods.
+     * @throws IOException if the journal is closed or forcing it failed.
+     */
+    public void sync(long records) throws IOException {
+        synchronized (lock) {
+            while (durable < records) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (closed) {
+                    throw new IOException("Journal is closed.");
+                }
+                if (!syncRequested) {
+                    syncRequested = true;
+                    lock.notifyAll();
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted waiting for sync.");
+                }
+            }
+        }
+    }
+
+    /**
+     * Function to get the number of records written, durable or not.
+     * @return records written.
+     */
+    public long getWritten() {
+        synchronized (lock) {
+            return written;
+        }
+    }
+
+    /**
+     * Function to get the number of records known to be on disk.
+     * @return durable records.
+     */
+    public long getDurable() {
+        synchronized (lock) {
+            return durable;
+        }
+    }
+
+    /**
+     * Function to rebuild boards by applying every record of the journal in order. Call it after opening
+     * the journal and before recording anything new.
+     * @param boards returns the board to apply the records of a board ID to, or null to skip that board.
+     *               Boards must be created in the state they were in when journaling started.
+     * @return number of records read.
+     * @throws IOException if the journal could not be read or a record does not apply to its board.
+     */
+    public long replay(IntFunction<GameBoard> boards) throws IOException {
+        long total;
+        synchronized (lock) {
+            total = written;
+        }
+        long count = 0;
+        for (int index = 0; count < total; index++) {
+            MappedByteBuffer in;
+            try (RandomAccessFile raf = new RandomAccessFile(segmentPath(index).toFile(), "r")) {
+                in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, segmentSize);
+            }
+            for (int offset = 0; offset < segmentSize && count < total; offset += RECORD_SIZE, count++) {
+                apply(in, offset, boards, count);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Forces every written record to disk, stops the flusher and closes the journal.
+     * @throws IOException if the last force failed.
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (lock) {
+            try {
+                if (failure == null) {
+                    segment.force();
+                    durable = written;
+                }
+                file.close();
+            } finally {
+                closed = true;
+                lock.notifyAll();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    /**
+     * Helper method writing one record at the end of the journal, moving to a new segment when full.
+     */
+    private long append(int boardId, int x, int y, byte kind, int argument) throws IOException {
+        synchronized (lock) {
+            if (!running) {
+                throw new IOException("Journal is closed.");
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            if (!segment.hasRemaining()) {
+                // The flusher only forces the current segment, so the full one is forced here.
+                segment.force();
+                file.close();
+                map(segmentIndex + 1);
+            }
+            segment.putInt(boardId).putInt(x).putInt(y);
+            segment.put(kind).put((byte) argument).putShort(checksum(boardId, x, y, kind, (byte) argument));
+            return ++written;
+        }
+    }
+
+    /**
+     * Helper method applying the record at offset to its board.
+     */
+    private static void apply(MappedByteBuffer in, int offset, IntFunction<GameBoard> boards, long number) throws IOException {
+        int boardId = in.getInt(offset);
+        int x = in.getInt(offset + 4);
+        int y = in.getInt(offset + 8);
+        byte kind = in.get(offset + 12);
+        int argument = in.get(offset + 13) & 0xFF;
+        GameBoard board = boards.apply(boardId);
+        if (board == null) {
+            return;
+        }
+        try {
+            switch (kind) {
+                case PLACE:
+                    board.placeShip(x, y, DIRECTIONS[argument >>> 4], new Ship(SHIP_TYPES[argument & 0x0F]));
+                    break;
+                case HIT:
+                    board.hit(x, y);
+                    break;
+                case REVEAL:
+                    board.reveal(x, y, STATES[argument]);
+                    break;
+                case RESET:
+                    board.reset(STATES[argument]);
+                    break;
+                default:
+                    throw new IOException("Unknown journal record kind: " + kind);
+            }
+        } catch (RuntimeException e) {
+            throw new IOException("Journal record " + number + " does not apply to board " + boardId + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Helper method which returns true if a complete record with a matching checksum is stored at offset.
+     */
+    private static boolean valid(MappedByteBuffer in, int offset) {
+        byte kind = in.get(offset + 12);
+        return kind >= PLACE && kind <= RESET && in.getShort(offset + 14)
+                == checksum(in.getInt(offset), in.getInt(offset + 4), in.getInt(offset + 8), kind, in.get(offset + 13));
+    }
+
+    private static short checksum(int boardId, int x, int y, byte kind, byte argument) {
+        int h = boardId * 0x9E3779B1;
+        h = (h ^ x) * 0x85EBCA6B;
+        h = (h ^ y) * 0xC2B2AE35;
+        h = (h ^ (kind << 8 | argument & 0xFF)) * 0x27D4EB2F;
+        return (short) (h ^ h >>> 16);
+    }
+
+    /**
+     * Helper method opening and mapping a segment file, creating it zero filled if it does not exist.
+     */
+    private void map(int index) throws IOException {
+        file = new RandomAccessFile(segmentPath(index).toFile(), "rw");
+        if (file.length() != segmentSize) {
+            file.setLength(segmentSize);
+        }
+        segment = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        segmentIndex = index;
+    }
+
+    private Path segmentPath(int index) {
+        return directory.resolve(String.format("journal-%08d.seg", index));
+    }
+
+    private List<Path> segments() throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "journal-*.seg")) {
+            for (Path path : stream) {
+                segments.add(path);
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Flusher thread loop forcing written records to disk, right away when a sync waits for them
+     * and after the sync interval otherwise.
+     */
+    private void flushLoop() {
+        while (true) {
+            long target;
+            MappedByteBuffer toForce;
+            synchronized (lock) {
+                try {
+                    while (running && !syncRequested && durable == written) {
+                        lock.wait();
+                    }
+                    if (running && !syncRequested && syncIntervalMillis > 0) {
+                        lock.wait(syncIntervalMillis); // Let more records join this force.
+                    }
+                    while (running && !syncRequested && syncIntervalMillis == 0) {
+                        lock.wait();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!running) {
+                    return;
+                }
+                syncRequested = false;
+                target = written;
+                toForce = segment;
+            }
+            try {
+                toForce.force();
+            } catch (RuntimeException e) {
+                synchronized (lock) {
+                    failure = new IOException("Journal force failed: " + e.getMessage());
+                    lock.notifyAll();
+                }
+                return;
+            }
+            synchronized (lock) {
+                durable = Math.max(durable, target);
+                lock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Board wrapper recording every successful change.
+     */
+    private final class JournaledBoard implements GameBoard {
+        private final int id;
+        private final GameBoard board;
+
+        private JournaledBoard(int id, GameBoard board) {
+            this.id = id;
+            this.board = board;
+        }
+
+        @Override
+        public int getWidth() {
+            return board.getWidth();
+        }
+
+        @Override
+        public int getHeight() {
+            return board.getHeight();
+        }
+
+        @Override
+        public void reset(BoardCell.CellState boardState) {
+            board.reset(boardState);
+            record(RESET, 0, 0, boardState.ordinal());
+        }
+
+        @Override
+        public BoardCell.CellState getState(int x, int y) {
+            return board.getState(x, y);
+        }
+
+        @Override
+        public void getRowStates(int y, BoardCell.CellState[] dst) {
+            board.getRowStates(y, dst);
+        }
+
+        @Override
+        public long getVersion() {
+            return board.getVersion();
+        }
+
+        @Override
+        public long getOldestVersion() {
+            return board.getOldestVersion();
+        }
+
+        @Override
+        public int getChangedCell(long version) {
+            return board.getChangedCell(version);
+        }
+
+        @Override
+        public int getShipCount() {
+            return board.getShipCount();
+        }
+
+        @Override
+        public Ship getPlacedShip(int index) {
+            return board.getPlacedShip(index);
+        }
+
+        @Override
+        public void placeShip(int x, int y, Board.Direction direction, Ship ship) {
+            board.placeShip(x, y, direction, ship);
+            record(PLACE, x, y, ship.getType().ordinal() | direction.ordinal() << 4);
+        }
+
+        @Override
+        public BoardCell.CellState hit(int x, int y) {
+            BoardCell.CellState state = board.hit(x, y);
+            record(HIT, x, y, 0);
+            return state;
+        }
+
+        @Override
+        public long[] hitAll(int[] xs, int[] ys) {
+            long[] result = board.hitAll(xs, ys);
+            for (int i = 0; i < xs.length; i++) {
+                record(HIT, xs[i], ys[i], 0);
+            }
+            return result;
+        }
+
+        @Override
+        public void reveal(int x, int y, BoardCell.CellState newState) {
+            board.reveal(x, y, newState);
+            record(REVEAL, x, y, newState.ordinal());
+        }
+
+        @Override
+        public TargetIndex getTargetIndex() {
+            return board.getTargetIndex();
+        }
+
+        @Override
+        public boolean allShipsSunk() {
+            return board.allShipsSunk();
+        }
+
+        @Override
+        public Ship getLastSunk() {
+            return board.getLastSunk();
+        }
+
+        @Override
+        public void setSunkListener(SunkListener listener) {
+            board.setSunkListener(listener);
+        }
+
+        @Override
+        public String toString() {
+            return board.toString();
+        }
+
+        /**
+         * Helper method appending a record. GameBoard methods can not throw IOException,
+         * so a journal failure surfaces as IllegalStateException after the board has changed.
+         */
+        private void record(byte kind, int x, int y, int argument) {
+            try {
+                append(id, x, y, kind, argument);
+            } catch (IOException e) {
+                throw new IllegalStateException("Journal write failed: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package com.github.jlavigueure;
+
+/**
+ * GameSession class holding the authoritative state of one hosted match between two players, seats 0 and 1.
+ * It is transport agnostic: messages come in through handle and replies go out through an Outbox.
+ * <p>
+ * Protocol: each player sends one PLACE per ship type. Once both fleets are complete seat 0 gets TURN.
+ * The player holding the turn sends SHOT, both players receive the RESULT (and SUNK when a ship sinks),
+ * then the other player gets TURN. When a fleet is sunk both players get GAME_OVER with a one byte
+ * payload, 1 for the winner and 0 for the loser.
+ * <p>
+ * At any time before the game is over a player may send SYNC_REQUEST with the last version of its opponent's
+ * board it synced, 0 if none, and gets a SYNC whose payload is a BoardDelta of that board since the version.
+ * <p>
+ * Spectators, when set, are published every RESULT and SUNK, and a GAME_OVER whose one byte payload is the
+ * winning seat.
+ * <p>
+ * A session is not thread safe and must be driven by one thread at a time.
+ */
+public class GameSession {
+    /**
+     * Interface through which the session sends messages to its players.
+     */
+    public static interface Outbox {
+        void send(int seat, Message message);
+    }
+
+    private static final int FULL_FLEET = (1 << Ship.ShipType.values().length) - 1;
+    private static final Message WON = Message.gameOver(new byte[] {1});
+    private static final Message LOST = Message.gameOver(new byte[] {0});
+
+    private final BitBoard[] boards;
+    private final int[] placed; // bitmask of placed ShipType ordinals per seat.
+    private final Outbox outbox;
+    private SpectatorHub spectators;
+    private int turn;
+    private boolean over;
+
+    /**
+     * Constructor for GameSession.
+     * @param width of both boards.
+     * @param height of both boards.
+     * @param outbox receiving every message the session sends.
+     */
+    public GameSession(int width, int height, Outbox outbox) {
+        this.boards = new BitBoard[] {
+            new BitBoard(width, height, BoardCell.CellState.EMPTY),
+            new BitBoard(width, height, BoardCell.CellState.EMPTY)
+        };
+        this.placed = new int[2];
+        this.outbox = outbox;
+        this.turn = -1;
+        this.over = false;
+    }
+
+    /**
+     * Function to apply a message received from a player.
+     * @param seat of the sending player, 0 or 1.
+     * @param message received.
+     * @return false if the message broke the protocol, the caller should then drop the player and call forfeit.
+     */
+    public boolean handle(int seat, Message message) {
+        if (over) {
+            return false;
+        }
+        switch (message.getType()) {
+            case PLACE:
+                return place(seat, message);
+            case SHOT:
+                return shoot(seat, message.getX(), message.getY());
+            case SYNC_REQUEST:
+                outbox.send(seat, Message.sync(BoardDelta.encode(boards[1 - seat], message.getVersion())));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Function to end the game in favor of the opponent of the given seat, for example when the player disconnects.
+     * Does nothing if the game is already over.
+     * @param seat of the player forfeiting.
+     */
+    public void forfeit(int seat) {
+        if (over) {
+            return;
+        }
+        over = true;
+        outbox.send(1 - seat, WON);
+        spectate(Message.gameOver(new byte[] {(byte) (1 - seat)}));
+    }
+
+    /**
+     * Function to broadcast the game to spectators from now on.
+     * @param spectators hub to publish to, or null to stop.
+     */
+    public void setSpectators(SpectatorHub spectators) {
+        this.spectators = spectators;
+    }
+
+    /**
+     * Function which returns true once the game has a winner.
+     * @return true if the game is over.
+     */
+    public boolean isOver() {
+        return over;
+    }
+
+    /**
+     * Function to get the authoritative board of a seat.
+     * @param seat 0 or 1.
+     * @return the player's own board.
+     */
+    public GameBoard getBoard(int seat) {
+        return boards[seat];
+    }
+
+    /**
+     * Helper method applying a PLACE message.
+     */
+    private boolean place(int seat, Message message) {
+        int bit = 1 << message.getShipType().ordinal();
+        if (turn != -1 || (placed[seat] & bit) != 0) {
+            return false;
+        }
+        try {
+            boards[seat].placeShip(message.getX(), message.getY(), message.getDirection(), new Ship(message.getShipType()));
+        } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+            return false;
+        }
+        placed[seat] |= bit;
+        if (placed[0] == FULL_FLEET && placed[1] == FULL_FLEET) {
+            turn = 0;
+            outbox.send(0, Message.turn());
+        }
+        return true;
+    }
+
+    /**
+     * Helper method applying a SHOT message.
+     */
+    private boolean shoot(int seat, int x, int y) {
+        if (turn != seat) {
+            return false;
+        }
+        BitBoard target = boards[1 - seat];
+        BoardCell.CellState state;
+        try {
+            state = target.hit(x, y);
+        } catch (IndexOutOfBoundsException | IllegalStateException e) {
+            return false;
+        }
+        Message result = Message.result(x, y, state);
+        outbox.send(seat, result);
+        outbox.send(1 - seat, result);
+        spectate(result);
+        Ship sunk = target.getLastSunk();
+        if (sunk != null) {
+            Message notice = Message.sunk(x, y, sunk.getType());
+            outbox.send(seat, notice);
+            outbox.send(1 - seat, notice);
+            spectate(notice);
+        }
+        if (target.allShipsSunk()) {
+            over = true;
+            outbox.send(seat, WON);
+            outbox.send(1 - seat, LOST);
+            spectate(Message.gameOver(new byte[] {(byte) seat}));
+        } else {
+            turn = 1 - seat;
+            outbox.send(turn, Message.turn());
+        }
+        return true;
+    }
+
+    /**
+     * Helper method publishing a message to the spectators, if any.
+     */
+    private void spectate(Message message) {
+        if (spectators != null) {
+            spectators.publish(message);
+        }
+    }
+}
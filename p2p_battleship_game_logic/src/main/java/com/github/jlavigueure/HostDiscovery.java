@@ -0,0 +1,250 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * HostDiscovery class lets clients find waiting hosts over UDP instead of scanning ports.
+ * <p>
+ * A host answers probes on the discovery port with its game port and a name. Any number of hosts on one
+ * machine share the discovery port. find broadcasts a probe on the LAN and on loopback and collects the
+ * answers, so hosts on this machine and on the local network are found alike.
+ * <p>
+ * Packets start with the magic number 0x42534850 ("BSHP") and a type byte: a probe is nothing more,
+ * an announcement adds the game port as an int and the name as one length byte followed by UTF-8 bytes.
+ */
+public class HostDiscovery {
+    /** Discovery port used when none is given. */
+    public static final int DEFAULT_PORT = 5059;
+    /** Longest host name in UTF-8 bytes. */
+    public static final int MAX_NAME_BYTES = 255;
+
+    private static final int MAGIC = 0x42534850;
+    private static final byte PROBE = 1;
+    private static final byte ANNOUNCE = 2;
+    private static final int MAX_PACKET = 4 + 1 + 4 + 1 + MAX_NAME_BYTES;
+    private static final int PROBE_INTERVAL_MILLIS = 200;
+    private static final String[] PROBE_ADDRESSES = {"127.255.255.255", "255.255.255.255"};
+
+    private final int discoveryPort;
+    private final byte[] announcement;
+    private DatagramSocket socket;
+    private Thread thread;
+
+    /**
+     * Constructor for HostDiscovery, announcing one host.
+     * @param discoveryPort UDP port clients probe, usually DEFAULT_PORT.
+     * @param gamePort TCP port the host accepts players on.
+     * @param name shown to players choosing a host.
+     * @throws IllegalArgumentException if the name is longer than MAX_NAME_BYTES in UTF-8.
+     */
+    public HostDiscovery(int discoveryPort, int gamePort, String name) {
+        byte[] nameBytes = name.getBytes(StandardCharsets.UTF_8);
+        if (nameBytes.length > MAX_NAME_BYTES) {
+            throw new IllegalArgumentException("Host name is longer than " + MAX_NAME_BYTES + " bytes.");
+        }
+        this.discoveryPort = discoveryPort;
+        this.announcement = ByteBuffer.allocate(4 + 1 + 4 + 1 + nameBytes.length)
+                .putInt(MAGIC).put(ANNOUNCE).putInt(gamePort).put((byte) nameBytes.length).put(nameBytes)
+                .array();
+    }
+
+    /**
+     * Binds the discovery port, shared with other hosts, and starts answering probes in the background.
+     * @throws IOException if the port could not be bound.
+     */
+    public void start() throws IOException {
+        socket = new DatagramSocket(null);
+        socket.setReuseAddress(true);
+        socket.bind(new InetSocketAddress(discoveryPort));
+        thread = new Thread(this::answerLoop, "host-discovery-" + discoveryPort);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops answering probes.
+     * @throws IOException if the host is not being announced.
+     */
+    public void close() throws IOException {
+        if (socket == null || socket.isClosed()) {
+            throw new IOException("Host is not being announced.");
+        }
+        socket.close();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Helper method answering every well formed probe until the socket is closed.
+     */
+    private void answerLoop() {
+        DatagramPacket packet = new DatagramPacket(new byte[MAX_PACKET], MAX_PACKET);
+        while (!socket.isClosed()) {
+            try {
+                packet.setLength(MAX_PACKET);
+                socket.receive(packet);
+                ByteBuffer in = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+                if (packet.getLength() == 5 && in.getInt() == MAGIC && in.get() == PROBE) {
+                    socket.send(new DatagramPacket(announcement, announcement.length, packet.getSocketAddress()));
+                }
+            } catch (IOException e) {
+                // Socket closed, or the prober is unreachable.
+            }
+        }
+    }
+
+    /**
+     * Function to find hosts announced on the discovery port, on this machine or the local network.
+     * Probes are repeated until the timeout, as UDP may drop them.
+     * @param discoveryPort UDP port the hosts answer on.
+     * @param timeoutMillis longest time to wait for answers.
+     * @param maxHosts number of hosts after which to stop waiting.
+     * @return hosts found, in the order they answered.
+     * @throws IOException if no probe could be sent.
+     */
+    public static List<Host> find(int discoveryPort, int timeoutMillis, int maxHosts) throws IOException {
+        Set<Host> hosts = new LinkedHashSet<>();
+        byte[] probe = ByteBuffer.allocate(5).putInt(MAGIC).put(PROBE).array();
+        byte[] buffer = new byte[MAX_PACKET];
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        try (DatagramSocket socket = new DatagramSocket()) {
+            socket.setBroadcast(true);
+            long nextProbe = 0;
+            long now;
+            while (hosts.size() < maxHosts && (now = System.currentTimeMillis()) < deadline) {
+                if (now >= nextProbe) {
+                    sendProbes(socket, probe, discoveryPort);
+                    nextProbe = now + PROBE_INTERVAL_MILLIS;
+                }
+                socket.setSoTimeout((int) Math.max(1, Math.min(nextProbe, deadline) - now));
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                try {
+                    socket.receive(packet);
+                } catch (SocketTimeoutException e) {
+                    continue;
+                }
+                Host host = parse(packet);
+                if (host != null) {
+                    hosts.add(host);
+                }
+            }
+        }
+        return new ArrayList<>(hosts);
+    }
+
+    /**
+     * Helper method broadcasting a probe on loopback and on the LAN.
+     * @throws IOException if neither could be sent.
+     */
+    private static void sendProbes(DatagramSocket socket, byte[] probe, int discoveryPort) throws IOException {
+        IOException failure = null;
+        int sent = 0;
+        for (String address : PROBE_ADDRESSES) {
+            try {
+                socket.send(new DatagramPacket(probe, probe.length, InetAddress.getByName(address), discoveryPort));
+                sent++;
+            } catch (IOException e) {
+                failure = e; // No route for this broadcast, for example without a network.
+            }
+        }
+        if (sent == 0) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Helper method decoding an announcement. Hosts on this machine are given the loopback address,
+     * so a host answering both broadcasts is only listed once.
+     * @return the host, or null if the packet is not an announcement.
+     */
+    private static Host parse(DatagramPacket packet) {
+        try {
+            ByteBuffer in = ByteBuffer.wrap(packet.getData(), 0, packet.getLength());
+            if (in.getInt() != MAGIC || in.get() != ANNOUNCE) {
+                return null;
+            }
+            int port = in.getInt();
+            byte[] name = new byte[in.get() & 0xFF];
+            in.get(name);
+            InetAddress address = packet.getAddress();
+            if (address.isLoopbackAddress() || NetworkInterface.getByInetAddress(address) != null) {
+                address = InetAddress.getLoopbackAddress();
+            }
+            return new Host(address, port, new String(name, StandardCharsets.UTF_8));
+        } catch (BufferUnderflowException | SocketException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Host class describing one announced host.
+     */
+    public static final class Host {
+        private final InetAddress address;
+        private final int port;
+        private final String name;
+
+        private Host(InetAddress address, int port, String name) {
+            this.address = address;
+            this.port = port;
+            this.name = name;
+        }
+
+        /**
+         * @return address to connect to, the loopback address for hosts on this machine.
+         */
+        public InetAddress getAddress() {
+            return address;
+        }
+
+        /**
+         * @return TCP port the host accepts players on.
+         */
+        public int getPort() {
+            return port;
+        }
+
+        /**
+         * @return name the host announced.
+         */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Host)) {
+                return false;
+            }
+            Host host = (Host) other;
+            return address.equals(host.address) && port == host.port && name.equals(host.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return (address.hashCode() * 31 + port) * 31 + name.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return name + " (" + address.getHostAddress() + ":" + port + ")";
+        }
+    }
+}
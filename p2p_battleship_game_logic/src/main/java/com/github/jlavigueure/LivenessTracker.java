@@ -0,0 +1,224 @@
+package com.github.jlavigueure;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * LivenessTracker class notices peers which went silent, cheaply enough to watch tens of thousands of connections.
+ * <p>
+ * Each watched connection calls Watch.touch whenever it hears from its peer, frames and heartbeats alike.
+ * A peer not heard from for the timeout is declared dead: its onDead action runs once, typically closing
+ * the socket so the thread or game slot holding it is freed.
+ * <p>
+ * Watches sit in a hashed timer wheel of timeout / tick slots, filed under the tick their deadline falls in.
+ * touch only stores the current tick, it never moves the watch. When a slot comes due the watches in it are
+ * either dead or were touched since, and are then filed again under their new deadline. A watch is so looked
+ * at about once per timeout however often its peer talks, and each tick only costs the watches in one slot.
+ * Deadlines are kept in whole ticks, so a peer is declared dead between timeout and timeout + tick after it
+ * was last heard.
+ * <p>
+ * watch, touch and cancel are thread safe. The wheel itself is only turned by the tracker's own thread.
+ */
+public class LivenessTracker {
+    /**
+     * Watch class is the liveness record of one peer.
+     */
+    public static final class Watch {
+        private final LivenessTracker tracker;
+        private final Runnable onDead;
+        private volatile long lastSeen; // Tick the peer was last heard from.
+        private volatile boolean cancelled;
+        private volatile boolean dead;
+
+        private Watch(LivenessTracker tracker, Runnable onDead) {
+            this.tracker = tracker;
+            this.onDead = onDead;
+            this.lastSeen = tracker.tick;
+        }
+
+        /**
+         * Function to record that the peer was just heard from. Costs two field accesses, no allocation.
+         */
+        public void touch() {
+            lastSeen = tracker.tick;
+        }
+
+        /**
+         * Function to stop watching, for example once the connection was closed for another reason.
+         * The watch is dropped from the wheel when its slot next comes due.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Function to tell whether the peer was declared dead.
+         * @return true once onDead ran.
+         */
+        public boolean isDead() {
+            return dead;
+        }
+    }
+
+    private final long tickNanos;
+    private final int timeoutTicks;
+    private final ArrayList<Watch>[] wheel; // Slot deadline % length holds the watches due at that tick.
+    private final ConcurrentLinkedQueue<Watch> added;
+    private final AtomicInteger watched;
+    private final AtomicLong reaped;
+    private volatile long tick;
+    private volatile boolean running;
+    private Thread thread;
+
+    /**
+     * Constructor for LivenessTracker.
+     * @param timeoutMillis silence after which a peer is dead.
+     * @param tickMillis resolution of the deadlines, the time between two turns of the wheel.
+     * @throws IllegalArgumentException if tickMillis is not positive or larger than timeoutMillis.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public LivenessTracker(long timeoutMillis, long tickMillis) {
+        if (tickMillis < 1 || tickMillis > timeoutMillis) {
+            throw new IllegalArgumentException("Tick of " + tickMillis + " ms does not fit a timeout of " + timeoutMillis + " ms.");
+        }
+        this.tickNanos = tickMillis * 1000000L;
+        this.timeoutTicks = (int) ((timeoutMillis + tickMillis - 1) / tickMillis);
+        // One slot more than the timeout, so a deadline never falls in the slot being emptied.
+        this.wheel = new ArrayList[timeoutTicks + 1];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ArrayList<>();
+        }
+        this.added = new ConcurrentLinkedQueue<>();
+        this.watched = new AtomicInteger();
+        this.reaped = new AtomicLong();
+    }
+
+    /**
+     * Constructor for LivenessTracker with a tick of a sixteenth of the timeout.
+     * @param timeoutMillis silence after which a peer is dead, at least 1.
+     * @throws IllegalArgumentException if timeoutMillis is not positive.
+     */
+    public LivenessTracker(long timeoutMillis) {
+        this(timeoutMillis, Math.max(1, timeoutMillis / 16));
+    }
+
+    /**
+     * Function to start watching a peer, counted as heard from now.
+     * @param onDead run once on the tracker's thread if the peer goes silent for the timeout. Must not block.
+     * @return the watch to touch whenever the peer is heard from.
+     */
+    public Watch watch(Runnable onDead) {
+        Watch watch = new Watch(this, onDead);
+        watched.incrementAndGet();
+        added.add(watch);
+        return watch;
+    }
+
+    /**
+     * Function to get the number of watches neither dead nor dropped after being cancelled.
+     * @return watched peers.
+     */
+    public int getWatchedCount() {
+        return watched.get();
+    }
+
+    /**
+     * Function to get the number of peers declared dead.
+     * @return reaped peers.
+     */
+    public long getReapedCount() {
+        return reaped.get();
+    }
+
+    /**
+     * Starts turning the wheel on a daemon thread.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread(this::run, "liveness-tracker");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops turning the wheel. Watches are no longer checked, no onDead runs afterwards.
+     */
+    public void close() {
+        running = false;
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Loop turning the wheel once per tick of elapsed time, catching up after a late wake up.
+     */
+    private void run() {
+        long start = System.nanoTime();
+        while (running) {
+            long due = (System.nanoTime() - start) / tickNanos;
+            while (tick < due) {
+                advance();
+            }
+            long sleep = start + (tick + 1) * tickNanos - System.nanoTime();
+            try {
+                Thread.sleep(Math.max(0, sleep / 1000000L), (int) (Math.max(0, sleep) % 1000000L));
+            } catch (InterruptedException e) {
+                // close interrupts to stop at once.
+            }
+        }
+    }
+
+    /**
+     * Function to turn the wheel by one tick: file new watches, then reap or refile the watches due now.
+     * Called by the tracker's thread, tests call it directly to step time.
+     * @return number of peers declared dead.
+     */
+    int advance() {
+        long now = ++tick;
+        Watch watch;
+        while ((watch = added.poll()) != null) {
+            file(watch);
+        }
+        ArrayList<Watch> due = wheel[(int) (now % wheel.length)];
+        int dead = 0;
+        for (int i = 0; i < due.size(); i++) {
+            watch = due.get(i);
+            if (watch.cancelled) {
+                watched.decrementAndGet();
+            } else if (watch.lastSeen + timeoutTicks <= now) {
+                watch.dead = true;
+                watched.decrementAndGet();
+                reaped.incrementAndGet();
+                if (Metrics.ENABLED) {
+                    Metrics.PEERS_REAPED.increment();
+                }
+                dead++;
+                try {
+                    watch.onDead.run();
+                } catch (RuntimeException e) {
+                    // One failing action must not stop the others.
+                }
+            } else {
+                file(watch);
+            }
+        }
+        due.clear();
+        return dead;
+    }
+
+    /**
+     * Helper method filing a watch under the tick of its deadline.
+     */
+    private void file(Watch watch) {
+        long deadline = Math.max(watch.lastSeen + timeoutTicks, tick + 1);
+        wheel[(int) (deadline % wheel.length)].add(watch);
+    }
+}
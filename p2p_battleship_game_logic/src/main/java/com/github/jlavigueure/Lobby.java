@@ -0,0 +1,358 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lobby class is a matchmaking server: players connect, say which game they want with one JOIN frame
+ * and are paired with another player asking for the same board size and ruleset.
+ * <p>
+ * One selector thread accepts connections and reads their JOIN frame, then puts the player in the
+ * concurrent queue of its bucket. A matchmaker thread pairs the players of every bucket in batches, every
+ * few milliseconds, in arrival order. Each pair is handed to the least busy of a fixed number of GameHost
+ * workers, which send both players MATCHED with their seat and run the game. However many players join at
+ * once, the lobby uses the same few threads: acceptor, matchmaker and workers.
+ * <p>
+ * A Client joins by connecting, sending Message.join and waiting for MATCHED, then plays the GameSession
+ * protocol on the same connection. A player leaving while queued is noticed when its game starts, which
+ * the opponent then wins. A player vanishing during a game is noticed after the idle timeout, if one is set.
+ */
+public class Lobby {
+    /** Largest board width or height a player may ask for. */
+    public static final int MAX_BOARD_SIDE = 1024;
+    /** Default time between two matchmaking passes. */
+    public static final int DEFAULT_BATCH_MILLIS = 5;
+
+    private static final int JOIN_FRAME_SIZE = MessageCodec.frameSize(Message.join(1, 1, 0));
+
+    private final int requestedPort;
+    private final int batchMillis;
+    private final GameHost[] workers;
+    private final ConcurrentHashMap<Bucket, Queue> queues;
+    private final AtomicLong joined;
+    private final AtomicLong matched;
+    private Selector selector;
+    private ServerSocketChannel listener;
+    private Thread acceptor;
+    private ScheduledExecutorService matchmaker;
+    private volatile boolean running;
+
+    /**
+     * Constructor for Lobby, matching every DEFAULT_BATCH_MILLIS.
+     * @param port to listen on, 0 to pick any free port.
+     * @param workers number of GameHost threads running the games.
+     * @throws IllegalArgumentException if workers is not positive.
+     */
+    public Lobby(int port, int workers) {
+        this(port, workers, DEFAULT_BATCH_MILLIS);
+    }
+
+    /**
+     * Constructor for Lobby.
+     * @param port to listen on, 0 to pick any free port.
+     * @param workers number of GameHost threads running the games.
+     * @param batchMillis time between two matchmaking passes. Longer batches match more players per pass
+     *                    and cost each of them up to that much waiting.
+     * @throws IllegalArgumentException if workers or batchMillis is not positive.
+     */
+    public Lobby(int port, int workers, int batchMillis) {
+        if (workers < 1 || batchMillis < 1) {
+            throw new IllegalArgumentException("Lobby needs at least one worker and a positive batch time.");
+        }
+        this.requestedPort = port;
+        this.batchMillis = batchMillis;
+        this.workers = new GameHost[workers];
+        for (int i = 0; i < workers; i++) {
+            this.workers[i] = new GameHost(GameHost.NO_PORT, 0, 0);
+        }
+        this.queues = new ConcurrentHashMap<>();
+        this.joined = new AtomicLong();
+        this.matched = new AtomicLong();
+    }
+
+    /**
+     * Function to have every worker disconnect players not heard from for a while, see GameHost.setIdleTimeout.
+     * Queued players are not watched, their silence only counts once their game started.
+     * @param millis silence after which a player is disconnected, 0 to never disconnect.
+     * @throws IllegalArgumentException if millis is negative.
+     * @throws IllegalStateException if the lobby was already started.
+     */
+    public void setIdleTimeout(int millis) {
+        for (GameHost worker : workers) {
+            worker.setIdleTimeout(millis);
+        }
+    }
+
+    /**
+     * Opens the listening port and starts the acceptor, matchmaker and worker threads.
+     * @throws IOException if the port could not be bound.
+     */
+    public void start() throws IOException {
+        for (GameHost worker : workers) {
+            worker.start();
+        }
+        selector = Selector.open();
+        listener = ServerSocketChannel.open();
+        listener.configureBlocking(false);
+        listener.bind(new InetSocketAddress(requestedPort), 1024);
+        listener.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        acceptor = new Thread(this::run, "lobby-" + getPort());
+        acceptor.start();
+        matchmaker = Executors.newSingleThreadScheduledExecutor(task -> new Thread(task, "lobby-matchmaker-" + getPort()));
+        matchmaker.scheduleWithFixedDelay(this::matchAll, batchMillis, batchMillis, TimeUnit.MILLISECONDS);
+        System.out.println("Lobby running on port " + getPort());
+    }
+
+    /**
+     * Function to get the port the lobby is listening on.
+     * @return bound port.
+     */
+    public int getPort() {
+        return listener.socket().getLocalPort();
+    }
+
+    /**
+     * Function to get the number of players which sent a valid JOIN.
+     * @return players joined.
+     */
+    public long getJoinedCount() {
+        return joined.get();
+    }
+
+    /**
+     * Function to get the number of players handed to a game.
+     * @return players matched, twice the games started.
+     */
+    public long getMatchedCount() {
+        return matched.get();
+    }
+
+    /**
+     * Function to get the number of games started and not finished yet, over every worker.
+     * @return games in play.
+     */
+    public long getActiveGames() {
+        long active = 0;
+        for (GameHost worker : workers) {
+            active += worker.getActiveGames();
+        }
+        return active;
+    }
+
+    /**
+     * Stops matching, closes the listening port, every queued player and every game.
+     * @throws IOException if the lobby was not started.
+     */
+    public void close() throws IOException {
+        if (acceptor == null) {
+            throw new IOException("Lobby is not running.");
+        }
+        running = false;
+        matchmaker.shutdown();
+        selector.wakeup();
+        try {
+            matchmaker.awaitTermination(1, TimeUnit.MINUTES);
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Queue queue : queues.values()) {
+            SocketChannel channel;
+            while ((channel = queue.players.poll()) != null) {
+                Closer.closeQuietly(channel);
+            }
+            if (queue.held != null) {
+                Closer.closeQuietly(queue.held);
+            }
+        }
+        for (GameHost worker : workers) {
+            worker.close();
+        }
+    }
+
+    /**
+     * Selector loop accepting players and reading their JOIN frame.
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    try {
+                        readJoin(key);
+                    } catch (IOException e) {
+                        Closer.closeQuietly(key);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Lobby stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                Closer.closeQuietly(key);
+            }
+            Closer.closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Helper method which accepts every pending player and waits for its JOIN frame.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = listener.accept()) != null) {
+            if (Metrics.ENABLED) {
+                Metrics.ACCEPTS.increment();
+            }
+            try {
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, ByteBuffer.allocate(JOIN_FRAME_SIZE));
+            } catch (IOException e) {
+                Closer.closeQuietly(channel);
+            }
+        }
+    }
+
+    /**
+     * Helper method reading the JOIN frame of a player and queueing the player once it is complete.
+     * Exactly the frame's bytes are read, anything sent after it is left to the game.
+     * @throws IOException if the player disconnected or sent anything but a valid JOIN.
+     */
+    private void readJoin(SelectionKey key) throws IOException {
+        SocketChannel channel = (SocketChannel) key.channel();
+        ByteBuffer in = (ByteBuffer) key.attachment();
+        int bytesRead = channel.read(in);
+        if (bytesRead == -1) {
+            throw new IOException("Player disconnected.");
+        }
+        if (Metrics.ENABLED) {
+            Metrics.BYTES_RECEIVED.add(bytesRead);
+        }
+        if (in.position() > MessageCodec.HEADER_SIZE && (in.getInt(0) != JOIN_FRAME_SIZE - MessageCodec.HEADER_SIZE
+                || in.get(MessageCodec.HEADER_SIZE) != Message.Type.JOIN.getCode())) {
+            throw new IOException("Expected a JOIN frame.");
+        }
+        if (in.hasRemaining()) {
+            return;
+        }
+        in.flip();
+        Message join = MessageCodec.decode(in);
+        if (join == null || join.getType() != Message.Type.JOIN || in.hasRemaining()
+                || join.getX() > MAX_BOARD_SIDE || join.getY() > MAX_BOARD_SIDE) {
+            throw new IOException("Expected a JOIN frame, got " + join);
+        }
+        key.cancel(); // The channel moves to a worker's selector once matched.
+        Bucket bucket = new Bucket(join.getX(), join.getY(), join.getRuleset());
+        Queue queue = queues.get(bucket);
+        if (queue == null) {
+            Queue created = new Queue(bucket);
+            queue = queues.putIfAbsent(bucket, created);
+            if (queue == null) {
+                queue = created;
+            }
+        }
+        queue.players.add(channel);
+        joined.incrementAndGet();
+    }
+
+    /**
+     * Helper method run by the matchmaker every batch, pairing the queued players of every bucket.
+     */
+    private void matchAll() {
+        for (Queue queue : queues.values()) {
+            while (running) {
+                SocketChannel first = queue.held != null ? queue.held : queue.players.poll();
+                if (first == null) {
+                    break;
+                }
+                SocketChannel second = queue.players.poll();
+                queue.held = second == null ? first : null;
+                if (second == null) {
+                    break;
+                }
+                matched.addAndGet(2);
+                leastBusy().hostGame(first, second, queue.bucket.width, queue.bucket.height);
+            }
+        }
+    }
+
+    /**
+     * Helper method returning the worker with the fewest games in play.
+     */
+    private GameHost leastBusy() {
+        GameHost best = workers[0];
+        for (int i = 1; i < workers.length; i++) {
+            if (workers[i].getActiveGames() < best.getActiveGames()) {
+                best = workers[i];
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Board size and ruleset players are matched on.
+     */
+    private static final class Bucket {
+        private final int width;
+        private final int height;
+        private final int ruleset;
+
+        private Bucket(int width, int height, int ruleset) {
+            this.width = width;
+            this.height = height;
+            this.ruleset = ruleset;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Bucket)) {
+                return false;
+            }
+            Bucket bucket = (Bucket) other;
+            return width == bucket.width && height == bucket.height && ruleset == bucket.ruleset;
+        }
+
+        @Override
+        public int hashCode() {
+            return (width * 31 + height) * 31 + ruleset;
+        }
+    }
+
+    /**
+     * Players of one bucket waiting for an opponent. The acceptor adds to players, the matchmaker polls them
+     * and holds back the odd player of a pass, which keeps its place at the head for the next one.
+     */
+    private static final class Queue {
+        private final Bucket bucket;
+        private final ConcurrentLinkedQueue<SocketChannel> players;
+        private SocketChannel held; // Only touched by the matchmaker, then by close once it stopped.
+
+        private Queue(Bucket bucket) {
+            this.bucket = bucket;
+            this.players = new ConcurrentLinkedQueue<>();
+        }
+    }
+}
@@ -0,0 +1,485 @@
+package com.github.jlavigueure;
+
+import java.util.Arrays;
+
+/**
+ * Message class representing a single typed game message sent as one binary frame.
+ * Use the static factory methods to build messages, each documents the fields it carries.
+ */
+public final class Message {
+    /**
+     * Enum representing the types of messages. Each type has the byte code written on the wire.
+     */
+    public static enum Type {
+        SHOT(1),
+        RESULT(2),
+        SUNK(3),
+        COMMIT(4),
+        GAME_OVER(5),
+        PLACE(6),
+        TURN(7),
+        SALVO(8),
+        SALVO_RESULT(9),
+        SYNC_REQUEST(10),
+        SYNC(11),
+        JOIN(12),
+        MATCHED(13),
+        HEARTBEAT(14),
+        COMPRESSED(15);
+
+        private static final Type[] BY_CODE = new Type[16];
+        static {
+            for (Type type : values()) {
+                BY_CODE[type.code] = type;
+            }
+        }
+
+        private final byte code;
+        Type(int code) {
+            this.code = (byte) code;
+        }
+        public byte getCode() {
+            return code;
+        }
+
+        /**
+         * Function to look up a type by its wire code.
+         * @param code read from the wire.
+         * @return the type or null if the code is unknown.
+         */
+        public static Type fromCode(int code) {
+            return code > 0 && code < BY_CODE.length ? BY_CODE[code] : null;
+        }
+    }
+
+    private static final byte[] NO_PAYLOAD = new byte[0];
+    private static final int[] NO_COORDINATES = new int[0];
+    private static final long[] NO_HITS = new long[0];
+
+    private static final Message TURN = new Message(Type.TURN, 0, 0);
+    private static final Message HEARTBEAT = new Message(Type.HEARTBEAT, 0, 0);
+
+    // Only the fields a type carries are set by its factory method; a message is never modified afterwards.
+    private final Type type;
+    private final int x;
+    private final int y;
+    private BoardCell.CellState state;
+    private Ship.ShipType shipType;
+    private Board.Direction direction;
+    private byte[] payload;
+    private int[] xs;
+    private int[] ys;
+    private long[] hits;
+    private long version;
+    private int ruleset;
+    private int seq;
+
+    private Message(Type type, int x, int y) {
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.payload = NO_PAYLOAD;
+        this.xs = NO_COORDINATES;
+        this.ys = NO_COORDINATES;
+        this.hits = NO_HITS;
+    }
+
+    /**
+     * Function to build a shot fired at the receiver's board.
+     * @param x The x-coordinate of the target cell.
+     * @param y The y-coordinate of the target cell.
+     * @return the message.
+     */
+    public static Message shot(int x, int y) {
+        return new Message(Type.SHOT, x, y);
+    }
+
+    /**
+     * Function to build the result of a shot.
+     * @param x The x-coordinate of the target cell.
+     * @param y The y-coordinate of the target cell.
+     * @param state of the cell after the shot. Must be HIT or MISS.
+     * @return the message.
+     * @throws IllegalArgumentException if state is not HIT or MISS.
+     */
+    public static Message result(int x, int y, BoardCell.CellState state) {
+        if (state != BoardCell.CellState.HIT && state != BoardCell.CellState.MISS) {
+            throw new IllegalArgumentException("Result must be HIT or MISS.");
+        }
+        Message message = new Message(Type.RESULT, x, y);
+        message.state = state;
+        return message;
+    }
+
+    /**
+     * Function to build the notice that the shot at the given cell sank a ship.
+     * @param x The x-coordinate of the cell that sank the ship.
+     * @param y The y-coordinate of the cell that sank the ship.
+     * @param shipType of the sunk ship.
+     * @return the message.
+     * @throws IllegalArgumentException if shipType is null.
+     */
+    public static Message sunk(int x, int y, Ship.ShipType shipType) {
+        if (shipType == null) {
+            throw new IllegalArgumentException("Ship type cannot be null.");
+        }
+        Message message = new Message(Type.SUNK, x, y);
+        message.shipType = shipType;
+        return message;
+    }
+
+    /**
+     * Function to build a placement commitment, typically a hash of the salted fleet layout,
+     * sent before play so the layout can be verified when the game ends.
+     * @param commitment bytes of the commitment. The array is not copied.
+     * @return the message.
+     */
+    public static Message commit(byte[] commitment) {
+        Message message = new Message(Type.COMMIT, 0, 0);
+        message.payload = commitment == null ? NO_PAYLOAD : commitment;
+        return message;
+    }
+
+    /**
+     * Function to build the notice that the sender's fleet is sunk.
+     * @param reveal optional bytes opening the sender's placement commitment. The array is not copied.
+     * @return the message.
+     */
+    public static Message gameOver(byte[] reveal) {
+        Message message = new Message(Type.GAME_OVER, 0, 0);
+        message.payload = reveal == null ? NO_PAYLOAD : reveal;
+        return message;
+    }
+
+    /**
+     * Function to build a ship placement sent to a hosting server that keeps the authoritative boards.
+     * @param x The x-coordinate of the starting cell.
+     * @param y The y-coordinate of the starting cell.
+     * @param direction in which the ship extends.
+     * @param shipType of the placed ship.
+     * @return the message.
+     * @throws IllegalArgumentException if direction or shipType is null.
+     */
+    public static Message place(int x, int y, Board.Direction direction, Ship.ShipType shipType) {
+        if (direction == null || shipType == null) {
+            throw new IllegalArgumentException("Direction and ship type cannot be null.");
+        }
+        Message message = new Message(Type.PLACE, x, y);
+        message.direction = direction;
+        message.shipType = shipType;
+        return message;
+    }
+
+    /**
+     * Function to build a salvo, a batch of shots fired at the receiver's board in one message.
+     * @param xs x-coordinates of the shots. The array is not copied.
+     * @param ys y-coordinates of the shots, same length as xs. The array is not copied.
+     * @return the message.
+     * @throws IllegalArgumentException if the arrays are null or differ in length.
+     */
+    public static Message salvo(int[] xs, int[] ys) {
+        if (xs == null || ys == null || xs.length != ys.length) {
+            throw new IllegalArgumentException("Salvo coordinates must be two arrays of equal length.");
+        }
+        Message message = new Message(Type.SALVO, 0, 0);
+        message.xs = xs;
+        message.ys = ys;
+        return message;
+    }
+
+    /**
+     * Function to build the results of a salvo as returned by GameBoard.hitAll.
+     * @param count number of shots in the salvo.
+     * @param hits packed results, bit i of hits[i / 64] is set when shot i was a HIT. The array is not copied.
+     * @return the message.
+     * @throws IllegalArgumentException if count is negative or hits does not hold exactly count bits.
+     */
+    public static Message salvoResult(int count, long[] hits) {
+        if (count < 0 || hits == null || hits.length != (count + 63) >>> 6) {
+            throw new IllegalArgumentException("Salvo result must hold one bit per shot.");
+        }
+        Message message = new Message(Type.SALVO_RESULT, count, 0);
+        message.hits = hits;
+        return message;
+    }
+
+    /**
+     * Function to build the request of a reconnecting peer for the HIT and MISS cells of the receiver's board
+     * that changed since the version it last synced.
+     * @param version last synced version of the receiver's board, 0 if none.
+     * @return the message.
+     */
+    public static Message syncRequest(long version) {
+        Message message = new Message(Type.SYNC_REQUEST, 0, 0);
+        message.version = version;
+        return message;
+    }
+
+    /**
+     * Function to build the answer to a SYNC_REQUEST.
+     * @param delta encoded by BoardDelta.encode. The array is not copied.
+     * @return the message.
+     * @throws IllegalArgumentException if delta is null.
+     */
+    public static Message sync(byte[] delta) {
+        if (delta == null) {
+            throw new IllegalArgumentException("Delta cannot be null.");
+        }
+        Message message = new Message(Type.SYNC, 0, 0);
+        message.payload = delta;
+        return message;
+    }
+
+    /**
+     * Function to build the request of a player joining a Lobby, matched with a player asking for the same
+     * board size and ruleset.
+     * @param width of the boards to play on.
+     * @param height of the boards to play on.
+     * @param ruleset code the players agree on, in [0, 255].
+     * @return the message.
+     * @throws IllegalArgumentException if a dimension is not positive or the ruleset is out of range.
+     */
+    public static Message join(int width, int height, int ruleset) {
+        if (width <= 0 || height <= 0 || ruleset < 0 || ruleset > 255) {
+            throw new IllegalArgumentException("Invalid join of a " + width + "x" + height + " board, ruleset " + ruleset + ".");
+        }
+        Message message = new Message(Type.JOIN, width, height);
+        message.ruleset = ruleset;
+        return message;
+    }
+
+    /**
+     * Function to build the notice from a Lobby that the receiver was matched and its game started.
+     * @param seat of the receiver in the game, 0 or 1. Seat 0 shoots first.
+     * @return the message.
+     * @throws IllegalArgumentException if seat is not 0 or 1.
+     */
+    public static Message matched(int seat) {
+        if (seat != 0 && seat != 1) {
+            throw new IllegalArgumentException("Seat must be 0 or 1.");
+        }
+        return new Message(Type.MATCHED, seat, 0);
+    }
+
+    /**
+     * Function to build the notice from a hosting server that it is the receiver's turn to shoot.
+     * @return the message.
+     */
+    public static Message turn() {
+        return TURN;
+    }
+
+    /**
+     * Function to build a heartbeat, sent on an idle connection so the receiver knows the sender is alive.
+     * Connection.receiveFrame skips heartbeats and GameHost answers them with one.
+     * @return the message.
+     */
+    public static Message heartbeat() {
+        return HEARTBEAT;
+    }
+
+    /**
+     * Function to build a frame carrying another frame deflated, see FrameCompressor which builds and opens them.
+     * @param payload varint body size of the original frame followed by its deflated body. The array is not copied.
+     * @return the message.
+     * @throws IllegalArgumentException if payload is null.
+     */
+    public static Message compressed(byte[] payload) {
+        if (payload == null) {
+            throw new IllegalArgumentException("Payload cannot be null.");
+        }
+        Message message = new Message(Type.COMPRESSED, 0, 0);
+        message.payload = payload;
+        return message;
+    }
+
+    /**
+     * Function to get a copy of this message tagged with a sequence ID, used to match a response to its request.
+     * @param seq sequence ID, 0 means untagged.
+     * @return the tagged message.
+     */
+    public Message withSeq(int seq) {
+        if (seq == this.seq) {
+            return this;
+        }
+        Message copy = new Message(type, x, y);
+        copy.state = state;
+        copy.shipType = shipType;
+        copy.direction = direction;
+        copy.payload = payload;
+        copy.xs = xs;
+        copy.ys = ys;
+        copy.hits = hits;
+        copy.version = version;
+        copy.ruleset = ruleset;
+        copy.seq = seq;
+        return copy;
+    }
+
+    /**
+     * @return sequence ID of a pipelined request or its response, 0 for untagged messages.
+     */
+    public int getSeq() {
+        return seq;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return x-coordinate of SHOT, RESULT, SUNK and PLACE messages, board width of JOIN messages.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * @return y-coordinate of SHOT, RESULT, SUNK and PLACE messages, board height of JOIN messages.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * @return HIT or MISS for RESULT messages, null otherwise.
+     */
+    public BoardCell.CellState getState() {
+        return state;
+    }
+
+    /**
+     * @return sunk ship type for SUNK messages or placed ship type for PLACE messages, null otherwise.
+     */
+    public Ship.ShipType getShipType() {
+        return shipType;
+    }
+
+    /**
+     * @return direction of PLACE messages, null otherwise.
+     */
+    public Board.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * @return x-coordinates of SALVO messages, empty otherwise. The array is not copied.
+     */
+    public int[] getXs() {
+        return xs;
+    }
+
+    /**
+     * @return y-coordinates of SALVO messages, empty otherwise. The array is not copied.
+     */
+    public int[] getYs() {
+        return ys;
+    }
+
+    /**
+     * @return number of shots in a SALVO or SALVO_RESULT message, 0 otherwise.
+     */
+    public int getCount() {
+        return type == Type.SALVO ? xs.length : type == Type.SALVO_RESULT ? x : 0;
+    }
+
+    /**
+     * @return packed hit bits of SALVO_RESULT messages, empty otherwise. The array is not copied.
+     */
+    public long[] getHits() {
+        return hits;
+    }
+
+    /**
+     * @return board version of SYNC_REQUEST messages, 0 otherwise.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return ruleset code of JOIN messages, 0 otherwise.
+     */
+    public int getRuleset() {
+        return ruleset;
+    }
+
+    /**
+     * @return seat of MATCHED messages, 0 otherwise.
+     */
+    public int getSeat() {
+        return type == Type.MATCHED ? x : 0;
+    }
+
+    /**
+     * @return payload bytes of COMMIT, GAME_OVER, SYNC and COMPRESSED messages, empty otherwise. The array is not copied.
+     */
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Message)) return false;
+        Message other = (Message) o;
+        return type == other.type && seq == other.seq && x == other.x && y == other.y && version == other.version
+                && ruleset == other.ruleset && state == other.state
+                && shipType == other.shipType && direction == other.direction && Arrays.equals(payload, other.payload)
+                && Arrays.equals(xs, other.xs) && Arrays.equals(ys, other.ys) && Arrays.equals(hits, other.hits);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type.hashCode();
+        result = 31 * result + seq;
+        result = 31 * result + x;
+        result = 31 * result + y;
+        result = 31 * result + Long.hashCode(version);
+        result = 31 * result + ruleset;
+        result = 31 * result + (state == null ? 0 : state.hashCode());
+        result = 31 * result + (shipType == null ? 0 : shipType.hashCode());
+        result = 31 * result + (direction == null ? 0 : direction.hashCode());
+        result = 31 * result + Arrays.hashCode(payload);
+        result = 31 * result + Arrays.hashCode(xs);
+        result = 31 * result + Arrays.hashCode(ys);
+        return 31 * result + Arrays.hashCode(hits);
+    }
+
+    @Override
+    public String toString() {
+        return seq == 0 ? describe() : describe() + "#" + seq;
+    }
+
+    /**
+     * Helper method describing the type and fields of the message.
+     */
+    private String describe() {
+        switch (type) {
+            case SHOT:
+                return "SHOT(" + x + ", " + y + ")";
+            case RESULT:
+                return "RESULT(" + x + ", " + y + ", " + state + ")";
+            case SUNK:
+                return "SUNK(" + x + ", " + y + ", " + shipType + ")";
+            case PLACE:
+                return "PLACE(" + x + ", " + y + ", " + direction + ", " + shipType + ")";
+            case TURN:
+                return "TURN";
+            case HEARTBEAT:
+                return "HEARTBEAT";
+            case SALVO:
+                return "SALVO[" + xs.length + " shots]";
+            case SALVO_RESULT:
+                return "SALVO_RESULT[" + x + " shots]";
+            case SYNC_REQUEST:
+                return "SYNC_REQUEST(" + version + ")";
+            case JOIN:
+                return "JOIN(" + x + "x" + y + ", ruleset " + ruleset + ")";
+            case MATCHED:
+                return "MATCHED(seat " + x + ")";
+            default:
+                return type + "[" + payload.length + " bytes]";
+        }
+    }
+}
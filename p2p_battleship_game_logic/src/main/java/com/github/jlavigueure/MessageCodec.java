@@ -0,0 +1,181 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * MessageCodec class converting messages to and from length-prefixed binary frames.
+ * Every frame is a 4 byte big-endian body length followed by the body: a 1 byte type code and the type's fields.
+ * When the high bit of the type code is set a 4 byte sequence ID follows the code, see Message.withSeq.
+ * <ul>
+ *   <li>SHOT: int x, int y</li>
+ *   <li>RESULT: int x, int y, byte state (0 MISS, 1 HIT)</li>
+ *   <li>SUNK: int x, int y, byte ship type ordinal</li>
+ *   <li>PLACE: int x, int y, byte direction ordinal, byte ship type ordinal</li>
+ *   <li>TURN: no fields</li>
+ *   <li>SALVO: int count, then count pairs of int x, int y</li>
+ *   <li>SALVO_RESULT: int count, then (count + 63) / 64 longs of packed hit bits</li>
+ *   <li>SYNC_REQUEST: long version</li>
+ *   <li>JOIN: int width, int height, byte ruleset</li>
+ *   <li>MATCHED: byte seat</li>
+ *   <li>HEARTBEAT: no fields</li>
+ *   <li>COMMIT, GAME_OVER, SYNC: raw payload bytes, SYNC carrying a BoardDelta</li>
+ *   <li>COMPRESSED: varint body size of another frame, then that body deflated, see FrameCompressor</li>
+ * </ul>
+ */
+public final class MessageCodec {
+    /** Size of the length prefix in bytes. */
+    public static final int HEADER_SIZE = 4;
+    /** Largest frame body. Decoding refuses larger ones, guarding against corrupt or hostile length prefixes, so encoding does too. */
+    public static final int MAX_BODY_SIZE = 1 << 20;
+
+    private static final int SEQ_FLAG = 0x80;
+
+    private MessageCodec() {
+    }
+
+    /**
+     * Function to get the number of bytes the framed message occupies, including the length prefix.
+     * @param message to measure.
+     * @return frame size in bytes.
+     * @throws IllegalArgumentException if the body is larger than MAX_BODY_SIZE.
+     */
+    public static int frameSize(Message message) {
+        return HEADER_SIZE + bodySize(message);
+    }
+
+    /**
+     * Function to write a message as one frame at the buffer's position.
+     * @param message to encode.
+     * @param out buffer with at least frameSize(message) bytes remaining.
+     * @throws java.nio.BufferOverflowException if the buffer is too small.
+     * @throws IllegalArgumentException if the body is larger than MAX_BODY_SIZE, nothing is written then.
+     */
+    public static void encode(Message message, ByteBuffer out) {
+        out.putInt(bodySize(message));
+        if (message.getSeq() != 0) {
+            out.put((byte) (message.getType().getCode() | SEQ_FLAG));
+            out.putInt(message.getSeq());
+        } else {
+            out.put(message.getType().getCode());
+        }
+        switch (message.getType()) {
+            case SHOT:
+                out.putInt(message.getX()).putInt(message.getY());
+                break;
+            case RESULT:
+                out.putInt(message.getX()).putInt(message.getY());
+                out.put((byte) (message.getState() == BoardCell.CellState.HIT ? 1 : 0));
+                break;
+            case SUNK:
+                out.putInt(message.getX()).putInt(message.getY());
+                out.put((byte) message.getShipType().ordinal());
+                break;
+            case PLACE:
+                out.putInt(message.getX()).putInt(message.getY());
+                out.put((byte) message.getDirection().ordinal());
+                out.put((byte) message.getShipType().ordinal());
+                break;
+            case TURN:
+            case HEARTBEAT:
+                break;
+            case SALVO:
+                out.putInt(message.getCount());
+                for (int i = 0; i < message.getCount(); i++) {
+                    out.putInt(message.getXs()[i]).putInt(message.getYs()[i]);
+                }
+                break;
+            case SALVO_RESULT:
+                out.putInt(message.getCount());
+                for (long word : message.getHits()) {
+                    out.putLong(word);
+                }
+                break;
+            case SYNC_REQUEST:
+                out.putLong(message.getVersion());
+                break;
+            case JOIN:
+                out.putInt(message.getX()).putInt(message.getY());
+                out.put((byte) message.getRuleset());
+                break;
+            case MATCHED:
+                out.put((byte) message.getSeat());
+                break;
+            default:
+                out.put(message.getPayload());
+                break;
+        }
+    }
+
+    /**
+     * Function to decode one frame from the buffer's position.
+     * When the buffer holds only part of a frame nothing is consumed and null is returned,
+     * so the caller can read more bytes and try again. Receivers that must not allocate use MessageView instead.
+     * @param in buffer in read mode.
+     * @return the decoded message or null if the frame is incomplete.
+     * @throws IOException if the frame is malformed.
+     */
+    public static Message decode(ByteBuffer in) throws IOException {
+        MessageView view = new MessageView();
+        return view.wrap(in) ? view.toMessage() : null;
+    }
+
+    /**
+     * Function to read the body length of the frame at the buffer's position without consuming it.
+     * @param in buffer in read mode.
+     * @return the body length or -1 if the length prefix is incomplete.
+     * @throws IOException if the length is negative, empty or larger than MAX_BODY_SIZE.
+     */
+    public static int peekBodySize(ByteBuffer in) throws IOException {
+        if (in.remaining() < HEADER_SIZE) {
+            return -1;
+        }
+        int bodySize = in.getInt(in.position());
+        if (bodySize < 1 || bodySize > MAX_BODY_SIZE) {
+            throw new IOException("Invalid frame length: " + bodySize);
+        }
+        return bodySize;
+    }
+
+    /**
+     * Helper method returning the size of the frame body, excluding the length prefix.
+     * A body the peer would refuse is refused here, before a byte of it is sent.
+     */
+    private static int bodySize(Message message) {
+        int size = (message.getSeq() != 0 ? 4 : 0) + fieldsSize(message);
+        if (size > MAX_BODY_SIZE) {
+            throw new IllegalArgumentException(message.getType() + " body of " + size + " bytes is larger than " + MAX_BODY_SIZE + ".");
+        }
+        return size;
+    }
+
+    /**
+     * Helper method returning the size of the type code and fields of a message.
+     */
+    private static int fieldsSize(Message message) {
+        switch (message.getType()) {
+            case SHOT:
+                return 9;
+            case RESULT:
+            case SUNK:
+                return 10;
+            case PLACE:
+                return 11;
+            case TURN:
+            case HEARTBEAT:
+                return 1;
+            case SALVO:
+                return 5 + message.getCount() * 8;
+            case SALVO_RESULT:
+                return 5 + message.getHits().length * 8;
+            case SYNC_REQUEST:
+                return 9;
+            case JOIN:
+                return 10;
+            case MATCHED:
+                return 2;
+            default:
+                return 1 + message.getPayload().length;
+        }
+    }
+}
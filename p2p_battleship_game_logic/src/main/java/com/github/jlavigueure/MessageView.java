@@ -0,0 +1,374 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * MessageView class is a reusable, read-only view of one frame in a ByteBuffer, see MessageCodec for the format.
+ * Fields are read straight from the buffer into primitives and enums, so a receiver which keeps one view
+ * decodes any number of frames without allocating. A view is only valid until the bytes under it change,
+ * for Connection.receiveFrame(MessageView) until the next receive on that connection.
+ * <p>
+ * Getters return the same defaults as Message for fields the frame's type does not carry.
+ */
+public final class MessageView {
+    private static final int SEQ_FLAG = 0x80;
+    private static final Ship.ShipType[] SHIP_TYPES = Ship.ShipType.values();
+    private static final Board.Direction[] DIRECTIONS = Board.Direction.values();
+
+    private ByteBuffer buffer;
+    private Message.Type type;
+    private boolean tagged; // Whether the frame carries a sequence ID, which may be 0.
+    private int seq;
+    private int fields; // Absolute index of the first field after the type code and sequence ID.
+    private int end;    // Absolute index just past the frame.
+
+    /**
+     * Function to point the view at the frame at the buffer's position and move the position past it.
+     * When the buffer holds only part of a frame nothing is consumed and false is returned,
+     * so the caller can read more bytes and try again.
+     * @param in buffer in read mode.
+     * @return true if the view now shows a complete frame.
+     * @throws IOException if the frame is malformed.
+     */
+    public boolean wrap(ByteBuffer in) throws IOException {
+        int bodySize = MessageCodec.peekBodySize(in);
+        if (bodySize < 0 || in.remaining() < MessageCodec.HEADER_SIZE + bodySize) {
+            return false;
+        }
+        int start = in.position() + MessageCodec.HEADER_SIZE;
+        int code = in.get(start) & 0xFF;
+        Message.Type type = Message.Type.fromCode(code & ~SEQ_FLAG);
+        if (type == null) {
+            throw new IOException("Unknown message type: " + code);
+        }
+        boolean tagged = (code & SEQ_FLAG) != 0;
+        int seq = 0;
+        int pos = start + 1;
+        if (tagged) {
+            if (bodySize < 5) {
+                throw new IOException("Invalid " + type + " frame length: " + bodySize);
+            }
+            seq = in.getInt(pos);
+            pos += 4;
+            bodySize -= 4;
+        }
+        switch (type) {
+            case SHOT:
+                requireBody(bodySize, 9, type);
+                break;
+            case RESULT:
+                requireBody(bodySize, 10, type);
+                break;
+            case SUNK:
+                requireBody(bodySize, 10, type);
+                shipType(in.get(pos + 8));
+                break;
+            case PLACE:
+                requireBody(bodySize, 11, type);
+                int direction = in.get(pos + 8);
+                if (direction < 0 || direction >= DIRECTIONS.length) {
+                    throw new IOException("Unknown direction: " + direction);
+                }
+                shipType(in.get(pos + 9));
+                break;
+            case TURN:
+            case HEARTBEAT:
+                requireBody(bodySize, 1, type);
+                break;
+            case SALVO:
+                requireBody(bodySize, 5 + readCount(in, pos, bodySize, type) * 8, type);
+                break;
+            case SALVO_RESULT:
+                requireBody(bodySize, 5 + ((readCount(in, pos, bodySize, type) + 63) >>> 6) * 8, type);
+                break;
+            case SYNC_REQUEST:
+                requireBody(bodySize, 9, type);
+                break;
+            case JOIN:
+                requireBody(bodySize, 10, type);
+                if (in.getInt(pos) <= 0 || in.getInt(pos + 4) <= 0) {
+                    throw new IOException("Invalid board size: " + in.getInt(pos) + "x" + in.getInt(pos + 4));
+                }
+                break;
+            case MATCHED:
+                requireBody(bodySize, 2, type);
+                if ((in.get(pos) & ~1) != 0) {
+                    throw new IOException("Invalid seat: " + in.get(pos));
+                }
+                break;
+            default:
+                break;
+        }
+        this.buffer = in;
+        this.type = type;
+        this.tagged = tagged;
+        this.seq = seq;
+        this.fields = pos;
+        this.end = start + (tagged ? bodySize + 4 : bodySize);
+        in.position(end);
+        return true;
+    }
+
+    public Message.Type getType() {
+        return type;
+    }
+
+    /**
+     * @return sequence ID of a pipelined request or its response, 0 for untagged frames.
+     */
+    public int getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return x-coordinate of SHOT, RESULT, SUNK and PLACE frames, board width of JOIN frames, 0 otherwise.
+     */
+    public int getX() {
+        return hasCell() ? buffer.getInt(fields) : 0;
+    }
+
+    /**
+     * @return y-coordinate of SHOT, RESULT, SUNK and PLACE frames, board height of JOIN frames, 0 otherwise.
+     */
+    public int getY() {
+        return hasCell() ? buffer.getInt(fields + 4) : 0;
+    }
+
+    /**
+     * @return HIT or MISS for RESULT frames, null otherwise.
+     */
+    public BoardCell.CellState getState() {
+        if (type != Message.Type.RESULT) {
+            return null;
+        }
+        return buffer.get(fields + 8) == 1 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS;
+    }
+
+    /**
+     * @return sunk ship type for SUNK frames or placed ship type for PLACE frames, null otherwise.
+     */
+    public Ship.ShipType getShipType() {
+        if (type == Message.Type.SUNK) {
+            return SHIP_TYPES[buffer.get(fields + 8)];
+        }
+        return type == Message.Type.PLACE ? SHIP_TYPES[buffer.get(fields + 9)] : null;
+    }
+
+    /**
+     * @return direction of PLACE frames, null otherwise.
+     */
+    public Board.Direction getDirection() {
+        return type == Message.Type.PLACE ? DIRECTIONS[buffer.get(fields + 8)] : null;
+    }
+
+    /**
+     * @return number of shots in a SALVO or SALVO_RESULT frame, 0 otherwise.
+     */
+    public int getCount() {
+        return type == Message.Type.SALVO || type == Message.Type.SALVO_RESULT ? buffer.getInt(fields) : 0;
+    }
+
+    /**
+     * Function to get the x-coordinate of one shot of a SALVO frame.
+     * @param index of the shot.
+     * @return x-coordinate.
+     * @throws IndexOutOfBoundsException if the frame is not a SALVO or has no such shot.
+     */
+    public int getX(int index) {
+        return buffer.getInt(salvoShot(index));
+    }
+
+    /**
+     * Function to get the y-coordinate of one shot of a SALVO frame.
+     * @param index of the shot.
+     * @return y-coordinate.
+     * @throws IndexOutOfBoundsException if the frame is not a SALVO or has no such shot.
+     */
+    public int getY(int index) {
+        return buffer.getInt(salvoShot(index) + 4);
+    }
+
+    /**
+     * Function to tell whether one shot of a SALVO_RESULT frame hit.
+     * @param index of the shot.
+     * @return true if the shot hit.
+     * @throws IndexOutOfBoundsException if the frame is not a SALVO_RESULT or has no such shot.
+     */
+    public boolean isHit(int index) {
+        if (type != Message.Type.SALVO_RESULT || index < 0 || index >= getCount()) {
+            throw new IndexOutOfBoundsException("No salvo result " + index + " in " + type + " frame.");
+        }
+        return (buffer.getLong(fields + 4 + (index >>> 6) * 8) & (1L << index)) != 0;
+    }
+
+    /**
+     * @return board version of SYNC_REQUEST frames, 0 otherwise.
+     */
+    public long getVersion() {
+        return type == Message.Type.SYNC_REQUEST ? buffer.getLong(fields) : 0;
+    }
+
+    /**
+     * @return ruleset code of JOIN frames, 0 otherwise.
+     */
+    public int getRuleset() {
+        return type == Message.Type.JOIN ? buffer.get(fields + 8) & 0xFF : 0;
+    }
+
+    /**
+     * @return seat of MATCHED frames, 0 otherwise.
+     */
+    public int getSeat() {
+        return type == Message.Type.MATCHED ? buffer.get(fields) : 0;
+    }
+
+    /**
+     * @return number of payload bytes of COMMIT, GAME_OVER, SYNC and COMPRESSED frames, 0 otherwise.
+     */
+    public int getPayloadLength() {
+        return hasPayload() ? end - fields : 0;
+    }
+
+    /**
+     * Function to copy the payload of a COMMIT, GAME_OVER, SYNC or COMPRESSED frame.
+     * @param dst array receiving getPayloadLength() bytes.
+     * @param offset in dst of the first byte.
+     * @throws IndexOutOfBoundsException if dst is too small.
+     */
+    public void getPayload(byte[] dst, int offset) {
+        int length = getPayloadLength();
+        if (offset < 0 || offset + length > dst.length) {
+            throw new IndexOutOfBoundsException("Payload of " + length + " bytes does not fit at " + offset + ".");
+        }
+        for (int i = 0; i < length; i++) {
+            dst[offset + i] = buffer.get(fields + i);
+        }
+    }
+
+    /**
+     * Function to copy the frame into a standalone Message, which stays valid after the view moves on.
+     * @return the message.
+     */
+    public Message toMessage() {
+        Message message;
+        switch (type) {
+            case SHOT:
+                message = Message.shot(getX(), getY());
+                break;
+            case RESULT:
+                message = Message.result(getX(), getY(), getState());
+                break;
+            case SUNK:
+                message = Message.sunk(getX(), getY(), getShipType());
+                break;
+            case PLACE:
+                message = Message.place(getX(), getY(), getDirection(), getShipType());
+                break;
+            case TURN:
+                message = Message.turn();
+                break;
+            case HEARTBEAT:
+                message = Message.heartbeat();
+                break;
+            case SALVO: {
+                int[] xs = new int[getCount()];
+                int[] ys = new int[xs.length];
+                for (int i = 0; i < xs.length; i++) {
+                    xs[i] = getX(i);
+                    ys[i] = getY(i);
+                }
+                message = Message.salvo(xs, ys);
+                break;
+            }
+            case SALVO_RESULT: {
+                long[] hits = new long[(getCount() + 63) >>> 6];
+                for (int i = 0; i < hits.length; i++) {
+                    hits[i] = buffer.getLong(fields + 4 + i * 8);
+                }
+                message = Message.salvoResult(getCount(), hits);
+                break;
+            }
+            case SYNC_REQUEST:
+                message = Message.syncRequest(getVersion());
+                break;
+            case JOIN:
+                message = Message.join(getX(), getY(), getRuleset());
+                break;
+            case MATCHED:
+                message = Message.matched(getSeat());
+                break;
+            default:
+                byte[] payload = new byte[getPayloadLength()];
+                getPayload(payload, 0);
+                if (type == Message.Type.COMMIT) {
+                    message = Message.commit(payload);
+                } else if (type == Message.Type.SYNC) {
+                    message = Message.sync(payload);
+                } else if (type == Message.Type.COMPRESSED) {
+                    message = Message.compressed(payload);
+                } else {
+                    message = Message.gameOver(payload);
+                }
+                break;
+        }
+        return tagged ? message.withSeq(seq) : message;
+    }
+
+    @Override
+    public String toString() {
+        return type == null ? "MessageView[empty]" : toMessage().toString();
+    }
+
+    private boolean hasCell() {
+        return type == Message.Type.SHOT || type == Message.Type.RESULT
+                || type == Message.Type.SUNK || type == Message.Type.PLACE || type == Message.Type.JOIN;
+    }
+
+    private boolean hasPayload() {
+        return type == Message.Type.COMMIT || type == Message.Type.GAME_OVER || type == Message.Type.SYNC
+                || type == Message.Type.COMPRESSED;
+    }
+
+    /**
+     * Helper method returning the index of a salvo shot's x-coordinate.
+     */
+    private int salvoShot(int index) {
+        if (type != Message.Type.SALVO || index < 0 || index >= getCount()) {
+            throw new IndexOutOfBoundsException("No salvo shot " + index + " in " + type + " frame.");
+        }
+        return fields + 4 + index * 8;
+    }
+
+    /**
+     * Helper method which checks a ship type ordinal.
+     */
+    private static void shipType(int ordinal) throws IOException {
+        if (ordinal < 0 || ordinal >= SHIP_TYPES.length) {
+            throw new IOException("Unknown ship type: " + ordinal);
+        }
+    }
+
+    /**
+     * Helper method which reads the shot count of a salvo frame.
+     */
+    private static int readCount(ByteBuffer in, int pos, int bodySize, Message.Type type) throws IOException {
+        if (bodySize < 5) {
+            throw new IOException("Invalid " + type + " frame length: " + bodySize);
+        }
+        int count = in.getInt(pos);
+        if (count < 0 || count > MessageCodec.MAX_BODY_SIZE / 8) {
+            throw new IOException("Invalid " + type + " shot count: " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Helper method which checks a fixed size frame has the expected length.
+     */
+    private static void requireBody(int bodySize, int expected, Message.Type type) throws IOException {
+        if (bodySize != expected) {
+            throw new IOException("Invalid " + type + " frame length: " + bodySize);
+        }
+    }
+}
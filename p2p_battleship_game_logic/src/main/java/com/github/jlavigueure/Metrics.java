@@ -0,0 +1,300 @@
+package com.github.jlavigueure;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Metrics class is the registry of the counters and latency histograms recorded by the game and network code.
+ * Recording is lock free, a counter is a LongAdder and a histogram a fixed array of log-linear buckets,
+ * so hot paths only pay a few atomic adds.
+ * <p>
+ * Metrics are off unless the JVM is started with -Dbattleship.metrics=true: recording on every shot doubles
+ * the cost of a BitBoard game. ENABLED is a constant, so when it is false the JIT removes the guarded recording
+ * code entirely. Callers guard every recording with
+ * {@code if (Metrics.ENABLED)}, including the System.nanoTime calls around a timed operation.
+ * <p>
+ * Use snapshot for a text dump or serve to expose it on a local HTTP endpoint.
+ */
+public final class Metrics {
+    /** True if the JVM was started with -Dbattleship.metrics=true. */
+    public static final boolean ENABLED = Boolean.getBoolean("battleship.metrics");
+
+    private static final Map<String, Object> REGISTRY = new ConcurrentSkipListMap<>();
+
+    /** Shots fired at any board, salvo shots included. */
+    public static final Counter SHOTS = counter("board.shots");
+    /** Ship placements validated by any board, whether accepted or rejected. */
+    public static final Counter PLACEMENTS = counter("board.placements");
+    /** Bytes written to peers by Connection and GameHost. */
+    public static final Counter BYTES_SENT = counter("net.bytes.sent");
+    /** Bytes read from peers by Connection and GameHost. */
+    public static final Counter BYTES_RECEIVED = counter("net.bytes.received");
+    /** Connections accepted by Server and GameHost. */
+    public static final Counter ACCEPTS = counter("net.accepts");
+    /** Connections closed by a LivenessTracker because their peer went silent. */
+    public static final Counter PEERS_REAPED = counter("net.peers.reaped");
+    /** Nanoseconds to write and flush one message in Connection. */
+    public static final Histogram SEND_NANOS = histogram("net.send.nanos");
+    /** Nanoseconds a Connection caller blocked in receiveMessage or receiveFrame, waiting for the peer included. */
+    public static final Histogram RECEIVE_NANOS = histogram("net.receive.nanos");
+    /** Nanoseconds from the server socket listening to a client being accepted by Server. */
+    public static final Histogram ACCEPT_NANOS = histogram("net.accept.nanos");
+
+    private Metrics() {
+    }
+
+    /**
+     * Function to get or create the counter of a name.
+     * @param name of the counter, dot separated.
+     * @return the counter registered under the name.
+     * @throws IllegalArgumentException if the name is registered to a histogram.
+     */
+    public static Counter counter(String name) {
+        Object metric = REGISTRY.computeIfAbsent(name, key -> new Counter());
+        if (!(metric instanceof Counter)) {
+            throw new IllegalArgumentException(name + " is not a counter.");
+        }
+        return (Counter) metric;
+    }
+
+    /**
+     * Function to get or create the histogram of a name.
+     * @param name of the histogram, dot separated.
+     * @return the histogram registered under the name.
+     * @throws IllegalArgumentException if the name is registered to a counter.
+     */
+    public static Histogram histogram(String name) {
+        Object metric = REGISTRY.computeIfAbsent(name, key -> new Histogram());
+        if (!(metric instanceof Histogram)) {
+            throw new IllegalArgumentException(name + " is not a histogram.");
+        }
+        return (Histogram) metric;
+    }
+
+    /**
+     * Function to write every metric as text, one per line in name order:
+     * "name value" for a counter and "name count=.. mean=.. p50=.. p90=.. p99=.. max=.." for a histogram.
+     * Values are read while other threads record, so the lines are not one atomic snapshot.
+     * @param out destination of the text.
+     * @throws IOException if the destination fails.
+     */
+    public static void writeTo(Appendable out) throws IOException {
+        for (Map.Entry<String, Object> entry : REGISTRY.entrySet()) {
+            out.append(entry.getKey()).append(' ');
+            if (entry.getValue() instanceof Counter) {
+                out.append(Long.toString(((Counter) entry.getValue()).get()));
+            } else {
+                Histogram histogram = (Histogram) entry.getValue();
+                out.append("count=").append(Long.toString(histogram.getCount()))
+                        .append(" mean=").append(Long.toString(Math.round(histogram.getMean())))
+                        .append(" p50=").append(Long.toString(histogram.getPercentile(50)))
+                        .append(" p90=").append(Long.toString(histogram.getPercentile(90)))
+                        .append(" p99=").append(Long.toString(histogram.getPercentile(99)))
+                        .append(" max=").append(Long.toString(histogram.getMax()));
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Function to get every metric as text, in the format of writeTo.
+     * @return the text snapshot.
+     */
+    public static String snapshot() {
+        StringBuilder sb = new StringBuilder();
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Function to zero every metric, for tests and benchmarks measuring one run.
+     */
+    public static void reset() {
+        for (Object metric : REGISTRY.values()) {
+            if (metric instanceof Counter) {
+                ((Counter) metric).reset();
+            } else {
+                ((Histogram) metric).reset();
+            }
+        }
+    }
+
+    /**
+     * Function to serve the text snapshot at http://127.0.0.1:port/metrics on a background thread.
+     * Only the loopback interface is bound, the endpoint is meant for local tools.
+     * @param port to listen on, 0 for any free port.
+     * @return the started server, call stop(0) on it to shut it down.
+     * @throws IOException if the port can not be bound.
+     */
+    public static HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            byte[] body = snapshot().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    /**
+     * Counter class holding a monotonically increasing count, striped across threads.
+     */
+    public static final class Counter {
+        private final LongAdder count = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void increment() {
+            count.increment();
+        }
+
+        public void add(long amount) {
+            count.add(amount);
+        }
+
+        /**
+         * @return sum of everything added since creation or the last reset.
+         */
+        public long get() {
+            return count.sum();
+        }
+
+        private void reset() {
+            count.reset();
+        }
+    }
+
+    /**
+     * Histogram class recording non-negative values, typically nanoseconds, into log-linear buckets in the
+     * manner of HdrHistogram: values below 16 get a bucket each, larger values fall into 8 buckets per power
+     * of two, so a reported percentile is within 12.5% of the recorded value. Recording never allocates.
+     */
+    public static final class Histogram {
+        private static final int SUB_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BITS;
+        private static final int BUCKETS = (63 - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder sum = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        private Histogram() {
+        }
+
+        /**
+         * Function to record one value.
+         * @param value to record, negative values are recorded as 0.
+         */
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            buckets.getAndIncrement(bucket(value));
+            sum.add(value);
+            max.accumulate(value);
+        }
+
+        /**
+         * Function to record the time elapsed since a System.nanoTime reading.
+         * @param startNanos earlier value of System.nanoTime.
+         */
+        public void recordSince(long startNanos) {
+            record(System.nanoTime() - startNanos);
+        }
+
+        /**
+         * @return number of recorded values.
+         */
+        public long getCount() {
+            long count = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                count += buckets.get(i);
+            }
+            return count;
+        }
+
+        /**
+         * @return exact mean of the recorded values, 0 if none.
+         */
+        public double getMean() {
+            long count = getCount();
+            return count == 0 ? 0 : (double) sum.sum() / count;
+        }
+
+        /**
+         * @return largest recorded value, 0 if none.
+         */
+        public long getMax() {
+            return max.get();
+        }
+
+        /**
+         * Function to get a percentile of the recorded values.
+         * @param percentile between 0 and 100.
+         * @return highest value of the bucket holding the percentile, at most getMax(). 0 if nothing was recorded.
+         */
+        public long getPercentile(double percentile) {
+            long count = getCount();
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS && count > 0; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) {
+                    return Math.min(highest(i), getMax());
+                }
+            }
+            return 0;
+        }
+
+        private void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            sum.reset();
+            max.reset();
+        }
+
+        /**
+         * Helper method returning the bucket of a value: the value itself below 2 * SUB_BUCKETS, otherwise
+         * the power of two above SUB_BITS followed by the SUB_BITS bits after the leading one.
+         */
+        static int bucket(long value) {
+            if (value < 2 * SUB_BUCKETS) {
+                return (int) value;
+            }
+            int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift << SUB_BITS) + (int) (value >>> shift);
+        }
+
+        /**
+         * Helper method returning the highest value falling into a bucket.
+         */
+        static long highest(int bucket) {
+            if (bucket < 2 * SUB_BUCKETS) {
+                return bucket;
+            }
+            int shift = (bucket >>> SUB_BITS) - 1;
+            long top = SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1));
+            return ((top + 1) << shift) - 1;
+        }
+    }
+}
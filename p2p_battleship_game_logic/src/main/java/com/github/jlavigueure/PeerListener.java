@@ -0,0 +1,138 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * PeerListener class accepts any number of peers on one port and serves each accepted Connection
+ * on its own thread of the configured ThreadMode. With ThreadMode.VIRTUAL a single JVM can hold
+ * tens of thousands of idle-but-connected peers, each blocked cheaply in receiveMessage or receiveFrame.
+ */
+public class PeerListener {
+    private final int requestedPort;
+    private final ThreadMode mode;
+    private final Connection.Handler handler;
+    private final AtomicInteger active;
+    private ServerSocket serverSocket;
+    private Thread acceptThread;
+
+    /**
+     * Constructor for PeerListener.
+     * @param port to listen on, 0 to pick any free port.
+     * @param mode of the threads serving accepted peers.
+     * @param handler run once per accepted peer. The connection is closed when it returns.
+     * @throws UnsupportedOperationException if the mode is not available on the running JVM.
+     */
+    public PeerListener(int port, ThreadMode mode, Connection.Handler handler) {
+        if (!mode.isAvailable()) {
+            throw new UnsupportedOperationException(mode + " threads are not available on this JVM.");
+        }
+        this.requestedPort = port;
+        this.mode = mode;
+        this.handler = handler;
+        this.active = new AtomicInteger();
+    }
+
+    /**
+     * Binds the port and starts accepting peers in the background.
+     * @throws IOException if the port could not be bound.
+     */
+    public void start() throws IOException {
+        serverSocket = new ServerSocket(requestedPort, 1024);
+        acceptThread = mode.newThread("peer-listener-" + getPort(), this::acceptLoop);
+        acceptThread.start();
+    }
+
+    /**
+     * Function to get the port the listener is bound to.
+     * @return bound port.
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Function to get the number of peers currently being served.
+     * @return active connections.
+     */
+    public int getActiveConnections() {
+        return active.get();
+    }
+
+    /**
+     * Stops accepting peers. Connections already accepted keep running until their handler returns.
+     * @throws IOException if the listener is not running.
+     */
+    public void close() throws IOException {
+        if (serverSocket == null || serverSocket.isClosed()) {
+            throw new IOException("Listener is not running.");
+        }
+        serverSocket.close();
+    }
+
+    /**
+     * Helper method accepting peers until the server socket is closed.
+     */
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            try {
+                socket.setTcpNoDelay(true);
+                serve(new AcceptedConnection(socket));
+            } catch (IOException | RuntimeException | OutOfMemoryError e) {
+                // One peer whose thread could not be started must not stop the listener from accepting the next.
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Peer is already gone.
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method starting the thread serving one accepted peer, counted as active until its handler returns.
+     * @param peer accepted connection.
+     * @throws IOException if the connection is already closed.
+     */
+    private void serve(Connection peer) throws IOException {
+        // Counted before the thread starts, so a handler returning at once never takes the count below zero.
+        active.incrementAndGet();
+        try {
+            peer.start(mode, connection -> {
+                try {
+                    handler.serve(connection);
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (IOException | RuntimeException | OutOfMemoryError e) {
+            active.decrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * Connection wrapping a socket which has already been accepted.
+     */
+    private static final class AcceptedConnection extends Connection {
+        private AcceptedConnection(Socket socket) throws IOException {
+            super();
+            this.socket = socket;
+            this.out = socket.getOutputStream();
+            this.in = socket.getInputStream();
+        }
+
+        @Override
+        public void connect() throws IOException {
+            throw new IOException("Accepted connection is already connected.");
+        }
+    }
+}
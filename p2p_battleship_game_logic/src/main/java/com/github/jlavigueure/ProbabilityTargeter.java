@@ -0,0 +1,351 @@
+package com.github.jlavigueure;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * ProbabilityTargeter class is an opponent AI shooting at the cell most likely to hold a ship.
+ * For every ship type still afloat it counts each placement consistent with the revealed HIT and MISS
+ * cells into a heat map, weighting placements that cover unresolved hits much higher so a found ship
+ * gets finished off. Hits belonging to sunk ships are resolved and stop attracting shots.
+ * <p>
+ * While the fog board's TargetIndex holds open hits the targeter only scores the placements covering them,
+ * walking out from each open hit, so finishing a ship costs time in the size of the frontier and not of the
+ * board. The whole board is only scored to hunt for the next ship.
+ * <p>
+ * The heat map is split into row bands summed by fork-join tasks across cores once the board is large
+ * enough to pay for it. Tasks and heat buffers are allocated once, so deciding a shot allocates nothing.
+ * Ties are broken with a seeded random generator, the same seed always plays the same game.
+ */
+public class ProbabilityTargeter implements Targeter {
+    /** Board area from which the heat map is computed in parallel by default. */
+    public static final int DEFAULT_PARALLEL_THRESHOLD = 4096;
+
+    private static final int HIT_WEIGHT = 40;
+    private static final byte UNKNOWN = 0;
+    private static final byte OPEN_HIT = 1;
+    private static final byte BLOCKED = 2; // MISS, or a HIT resolved to a sunk ship.
+    private static final Ship.ShipType[] TYPES = Ship.ShipType.values();
+
+    private final GameBoard board;
+    private final TargetIndex targets;
+    private final int width;
+    private final int height;
+    private final byte[] cells;
+    private final int[] fleetCounts; // Ships placed per ShipType ordinal.
+    private final int[] remaining; // Ships afloat per ShipType ordinal.
+    private final int[] heat;
+    private final int[] touched; // Cells given heat by the last target mode shot.
+    private int touchedCount;
+    private boolean heatSparse; // True when only the touched cells of heat are non zero.
+    private SplittableRandom random;
+    private final ForkJoinPool pool;
+    private final Slice[] slices;
+    private final HeatMap heatMap;
+    private final boolean parallel;
+
+    /**
+     * Constructor for a sequential ProbabilityTargeter against the standard fleet.
+     * @param fogBoard opponent board created with CellState.UNKNOWN. Revealed cells are taken into account.
+     * @param seed for tie breaking.
+     */
+    public ProbabilityTargeter(GameBoard fogBoard, long seed) {
+        this(fogBoard, TYPES, null, DEFAULT_PARALLEL_THRESHOLD, seed);
+    }
+
+    /**
+     * Constructor for ProbabilityTargeter.
+     * @param fogBoard opponent board created with CellState.UNKNOWN. Revealed cells are taken into account.
+     * @param fleet ship types the opponent placed, one entry per ship.
+     * @param pool used to compute the heat map in parallel, or null to always compute it on the calling thread.
+     * @param parallelThreshold board area from which the pool is used.
+     * @param seed for tie breaking.
+     */
+    public ProbabilityTargeter(GameBoard fogBoard, Ship.ShipType[] fleet, ForkJoinPool pool, int parallelThreshold, long seed) {
+        this.board = fogBoard;
+        this.targets = fogBoard.getTargetIndex();
+        this.width = fogBoard.getWidth();
+        this.height = fogBoard.getHeight();
+        this.cells = new byte[width * height];
+        this.fleetCounts = new int[TYPES.length];
+        for (Ship.ShipType type : fleet) {
+            fleetCounts[type.ordinal()]++;
+        }
+        this.remaining = fleetCounts.clone();
+        this.heat = new int[cells.length];
+        this.touched = new int[cells.length];
+        this.random = new SplittableRandom(seed);
+        this.pool = pool;
+        this.parallel = pool != null && pool.getParallelism() > 1 && height > 1 && cells.length >= parallelThreshold;
+        int longest = 1;
+        for (Ship.ShipType type : fleet) {
+            longest = Math.max(longest, type.getSize());
+        }
+        int bands = parallel ? Math.min(pool.getParallelism(), height) : 1;
+        this.slices = new Slice[bands];
+        for (int i = 0; i < bands; i++) {
+            int rowFrom = height * i / bands;
+            int rowTo = height * (i + 1) / bands;
+            // Placements starting in the band reach at most longest - 1 rows past it.
+            int rows = Math.min(height, rowTo + longest - 1) - rowFrom;
+            slices[i] = new Slice(rowFrom, rowTo, i == 0 ? heat : new int[rows * width]);
+        }
+        this.heatMap = new HeatMap();
+        for (int cell = 0; cell < cells.length; cell++) {
+            if (!targets.isUntried(cell)) {
+                cells[cell] = targets.isOpenHit(cell) ? OPEN_HIT : BLOCKED;
+            }
+        }
+    }
+
+    @Override
+    public int nextShot() {
+        if (targets.getUntriedCount() == 0) {
+            throw new IllegalStateException("No unknown cell left to shoot at.");
+        }
+        if (targets.getOpenHitCount() > 0) {
+            int shot = targetShot();
+            if (shot >= 0) {
+                return shot;
+            }
+        }
+        heatSparse = false;
+        if (parallel) {
+            heatMap.reinitialize();
+            pool.invoke(heatMap);
+            for (int s = 1; s < slices.length; s++) {
+                int[] part = slices[s].heat;
+                int offset = slices[s].offset;
+                for (int i = 0; i < part.length; i++) {
+                    heat[offset + i] += part[i];
+                }
+            }
+        } else {
+            Arrays.fill(heat, 0);
+            accumulate(0, height, heat, 0);
+        }
+        int best = -1;
+        int bestHeat = -1;
+        int ties = 0;
+        for (int i = 0; i < cells.length; i++) {
+            if (cells[i] != UNKNOWN) continue;
+            int value = heat[i];
+            if (value > bestHeat) {
+                best = i;
+                bestHeat = value;
+                ties = 1;
+            } else if (value == bestHeat && random.nextInt(++ties) == 0) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void reveal(int x, int y, BoardCell.CellState result) {
+        board.reveal(x, y, result);
+        cells[y * width + x] = result == BoardCell.CellState.HIT ? OPEN_HIT : BLOCKED;
+    }
+
+    @Override
+    public void shipSunk(int x, int y, Ship.ShipType type) {
+        if (remaining[type.ordinal()] > 0) {
+            remaining[type.ordinal()]--;
+        }
+        int length = type.getSize();
+        // Resolve the first straight run of open hits of the ship's length through the sinking shot.
+        for (int start = Math.max(0, x - length + 1); start <= x && start + length <= width; start++) {
+            if (resolve(y * width + start, 1, length)) return;
+        }
+        for (int start = Math.max(0, y - length + 1); start <= y && start + length <= height; start++) {
+            if (resolve(start * width + x, width, length)) return;
+        }
+        cells[y * width + x] = BLOCKED;
+        targets.resolveHit(y * width + x);
+    }
+
+    @Override
+    public void reset(long seed) {
+        board.reset(BoardCell.CellState.UNKNOWN);
+        Arrays.fill(cells, UNKNOWN);
+        System.arraycopy(fleetCounts, 0, remaining, 0, remaining.length);
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Function to get the heat computed by the last call to nextShot. While ships are being finished off
+     * only the placements covering open hits are counted.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return weighted number of placements covering the cell.
+     */
+    public int getHeat(int x, int y) {
+        return heat[y * width + x];
+    }
+
+    /**
+     * Helper method marking a run of open hits as belonging to a sunk ship, if every cell of the run is an open hit.
+     */
+    private boolean resolve(int start, int step, int length) {
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            if (cells[cell] != OPEN_HIT) return false;
+        }
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            cells[cell] = BLOCKED;
+            targets.resolveHit(cell);
+        }
+        return true;
+    }
+
+    /**
+     * Helper method choosing a shot from the placements covering open hits only.
+     * @return the hottest unknown cell, or -1 if no legal placement covers an open hit.
+     */
+    private int targetShot() {
+        if (heatSparse) {
+            for (int i = 0; i < touchedCount; i++) {
+                heat[touched[i]] = 0;
+            }
+        } else {
+            Arrays.fill(heat, 0);
+            heatSparse = true;
+        }
+        touchedCount = 0;
+        for (int h = 0; h < targets.getOpenHitCount(); h++) {
+            int hit = targets.getOpenHit(h);
+            int hx = hit % width;
+            int hy = hit / width;
+            for (int t = 0; t < TYPES.length; t++) {
+                int count = remaining[t];
+                if (count == 0) continue;
+                int length = TYPES[t].getSize();
+                for (int x = Math.max(0, hx - length + 1); x <= hx && x + length <= width; x++) {
+                    addCovering(hy * width + x, 1, length, count, hit);
+                }
+                if (length == 1) continue;
+                for (int y = Math.max(0, hy - length + 1); y <= hy && y + length <= height; y++) {
+                    addCovering(y * width + hx, width, length, count, hit);
+                }
+            }
+        }
+        int best = -1;
+        int bestHeat = 0;
+        int ties = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            int cell = touched[i];
+            if (cells[cell] != UNKNOWN) continue;
+            int value = heat[cell];
+            if (value > bestHeat) {
+                best = cell;
+                bestHeat = value;
+                ties = 1;
+            } else if (value == bestHeat && random.nextInt(++ties) == 0) {
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Helper method adding one placement covering an open hit to the heat map unless it crosses a blocked cell.
+     * A placement covering several open hits is only counted from the first of them.
+     */
+    private void addCovering(int start, int step, int length, int count, int hit) {
+        int covered = 0;
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            byte state = cells[cell];
+            if (state == BLOCKED) return;
+            if (state == OPEN_HIT) {
+                if (cell < hit) return;
+                covered++;
+            }
+        }
+        int weight = count * (1 + HIT_WEIGHT * covered);
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            if (heat[cell] == 0) {
+                touched[touchedCount++] = cell;
+            }
+            heat[cell] += weight;
+        }
+    }
+
+    /**
+     * Helper method adding the weight of every legal placement starting in rows [rowFrom, rowTo) to target,
+     * whose index 0 is the cell offset of the board.
+     */
+    private void accumulate(int rowFrom, int rowTo, int[] target, int offset) {
+        for (int t = 0; t < TYPES.length; t++) {
+            int count = remaining[t];
+            if (count == 0) continue;
+            int length = TYPES[t].getSize();
+            for (int y = rowFrom; y < rowTo; y++) {
+                for (int x = 0; x < width; x++) {
+                    int start = y * width + x;
+                    if (x + length <= width) {
+                        addPlacement(start, 1, length, count, target, offset);
+                    }
+                    if (length > 1 && y + length <= height) {
+                        addPlacement(start, width, length, count, target, offset);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Helper method adding one placement to the heat map unless it crosses a blocked cell.
+     */
+    private void addPlacement(int start, int step, int length, int count, int[] target, int offset) {
+        int covered = 0;
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            byte state = cells[cell];
+            if (state == BLOCKED) return;
+            if (state == OPEN_HIT) covered++;
+        }
+        int weight = count * (1 + HIT_WEIGHT * covered);
+        for (int i = 0, cell = start; i < length; i++, cell += step) {
+            target[cell - offset] += weight;
+        }
+    }
+
+    /**
+     * Root task forking one Slice per row band.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private final class HeatMap extends RecursiveAction {
+        @Override
+        protected void compute() {
+            for (Slice slice : slices) {
+                slice.reinitialize();
+            }
+            invokeAll(slices);
+        }
+    }
+
+    /**
+     * Task summing the placements starting in one band of rows into its own heat buffer, which only spans the rows
+     * those placements reach. The first band sums straight into the targeter's heat map, clearing all of it.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private final class Slice extends RecursiveAction {
+        private final int rowFrom;
+        private final int rowTo;
+        private final int offset; // Board cell of heat[0].
+        private final int[] heat;
+
+        private Slice(int rowFrom, int rowTo, int[] heat) {
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            this.offset = rowFrom * width;
+            this.heat = heat;
+        }
+
+        @Override
+        protected void compute() {
+            Arrays.fill(heat, 0);
+            accumulate(rowFrom, rowTo, heat, offset);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.github.jlavigueure;
+
+import java.util.SplittableRandom;
+
+/**
+ * RandomTargeter class is the baseline opponent AI which shoots at a uniformly random UNKNOWN cell.
+ * Cells are sampled from the fog board's TargetIndex, so picking a shot is O(1) whatever the board size.
+ */
+public class RandomTargeter implements Targeter {
+    private final GameBoard board;
+    private final TargetIndex targets;
+    private SplittableRandom random;
+
+    /**
+     * Constructor for RandomTargeter.
+     * @param fogBoard opponent board created with CellState.UNKNOWN. Revealed cells are skipped.
+     * @param seed for the random generator.
+     */
+    public RandomTargeter(GameBoard fogBoard, long seed) {
+        this.board = fogBoard;
+        this.targets = fogBoard.getTargetIndex();
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public int nextShot() {
+        return targets.sampleUntried(random);
+    }
+
+    @Override
+    public void reveal(int x, int y, BoardCell.CellState result) {
+        board.reveal(x, y, result);
+    }
+
+    @Override
+    public void shipSunk(int x, int y, Ship.ShipType type) {
+        // Random fire learns nothing from a sunk ship.
+    }
+
+    @Override
+    public void reset(long seed) {
+        board.reset(BoardCell.CellState.UNKNOWN);
+        random = new SplittableRandom(seed);
+    }
+}
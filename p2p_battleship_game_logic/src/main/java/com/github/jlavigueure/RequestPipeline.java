@@ -0,0 +1,145 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * RequestPipeline class gives a Connection an asynchronous request API. Every request is tagged with a
+ * sequence ID and many requests may be outstanding at once, so a salvo of shots, reveal acknowledgements
+ * or heartbeats cost one link latency in total instead of one each.
+ * <p>
+ * The peer answers a request by sending its response tagged with the request's ID,
+ * for example {@code connection.sendFrame(result.withSeq(shot.getSeq()))}.
+ * Untagged frames received from the peer are passed to the unsolicited consumer.
+ */
+public class RequestPipeline {
+    private final Connection connection;
+    private final ThreadMode mode;
+    private final Consumer<Message> unsolicited;
+    private final Map<Integer, CompletableFuture<Message>> pending;
+    private final AtomicInteger nextSeq;
+    private volatile IOException failure;
+
+    /**
+     * Constructor for RequestPipeline.
+     * @param connection already connected. The pipeline takes over receiving on it.
+     * @param mode of the thread reading responses.
+     * @param unsolicited consumer of untagged messages, called on the reader thread.
+     */
+    public RequestPipeline(Connection connection, ThreadMode mode, Consumer<Message> unsolicited) {
+        this.connection = connection;
+        this.mode = mode;
+        this.unsolicited = unsolicited;
+        this.pending = new ConcurrentHashMap<>();
+        this.nextSeq = new AtomicInteger();
+        this.failure = null;
+    }
+
+    /**
+     * Starts the reader thread dispatching responses to their requests.
+     * Disables Nagle's algorithm, otherwise back to back requests wait on the peer's delayed ACK.
+     * @throws IOException if the connection is not connected.
+     */
+    public void start() throws IOException {
+        if (connection.socket == null || connection.socket.isClosed()) {
+            throw new IOException("Socket is not connected or is closed.");
+        }
+        connection.socket.setTcpNoDelay(true);
+        connection.start(mode, this::readLoop);
+    }
+
+    /**
+     * Send a request without waiting for its response.
+     * @param message to send. Any sequence ID it carries is replaced.
+     * @return future completed with the response, or completed exceptionally if the connection fails first.
+     * @throws IOException if the request could not be sent.
+     */
+    public CompletableFuture<Message> request(Message message) throws IOException {
+        if (failure != null) {
+            throw failure;
+        }
+        int seq = nextSeq();
+        CompletableFuture<Message> future = new CompletableFuture<>();
+        pending.put(seq, future);
+        try {
+            synchronized (connection) {
+                connection.sendFrame(message.withSeq(seq));
+            }
+        } catch (IOException e) {
+            pending.remove(seq);
+            throw e;
+        }
+        if (failure != null && pending.remove(seq) != null) {
+            future.completeExceptionally(failure);
+        }
+        return future;
+    }
+
+    /**
+     * Send a message which expects no response, serialized with concurrent requests.
+     * @param message to send.
+     * @throws IOException if the message could not be sent.
+     */
+    public void send(Message message) throws IOException {
+        synchronized (connection) {
+            connection.sendFrame(message);
+        }
+    }
+
+    /**
+     * Function to get the number of requests still waiting for a response.
+     * @return outstanding requests.
+     */
+    public int getOutstanding() {
+        return pending.size();
+    }
+
+    /**
+     * Close the connection. Outstanding requests complete exceptionally.
+     * @throws IOException if the connection is already closed.
+     */
+    public void close() throws IOException {
+        connection.close();
+    }
+
+    /**
+     * Helper method reading frames until the connection fails, then failing every outstanding request.
+     */
+    private void readLoop(Connection connection) throws IOException {
+        try {
+            while (true) {
+                Message message = connection.receiveFrame();
+                CompletableFuture<Message> future = message.getSeq() == 0 ? null : pending.remove(message.getSeq());
+                if (future != null) {
+                    future.complete(message);
+                } else if (unsolicited != null) {
+                    unsolicited.accept(message);
+                }
+            }
+        } catch (IOException e) {
+            failure = e;
+            for (Integer seq : pending.keySet()) {
+                CompletableFuture<Message> future = pending.remove(seq);
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Helper method returning the next non-zero sequence ID.
+     */
+    private int nextSeq() {
+        int seq;
+        do {
+            seq = nextSeq.incrementAndGet();
+        } while (seq == 0);
+        return seq;
+    }
+}
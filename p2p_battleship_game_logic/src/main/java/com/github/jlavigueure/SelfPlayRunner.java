@@ -0,0 +1,363 @@
+package com.github.jlavigueure;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Function;
+
+/**
+ * SelfPlayRunner class is a headless simulation engine playing two targeting bots against each other,
+ * used to tune bots over millions of games.
+ * <p>
+ * Games are split into ranges run as work-stealing fork-join tasks. Every worker thread keeps its own
+ * boards, ships, fleet placer and targeters and resets them between games, so a game allocates next to nothing.
+ * Game i is played with a seed derived from the run seed and i, so results do not depend on the number
+ * of threads. The bots shoot in turns, the bot shooting first alternates from one game to the next.
+ */
+public class SelfPlayRunner {
+    private static final int LEAF_GAMES = 64;
+    private static final Ship.ShipType[] FLEET = Ship.ShipType.values();
+
+    private final int width;
+    private final int height;
+    private final Function<GameBoard, Targeter> first;
+    private final Function<GameBoard, Targeter> second;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Table> tables;
+
+    /**
+     * Constructor for SelfPlayRunner.
+     * @param width of the boards.
+     * @param height of the boards.
+     * @param first creates the first bot from the fog-of-war board it fills in. Called once per worker thread.
+     * @param second creates the second bot from the fog-of-war board it fills in. Called once per worker thread.
+     * @param pool running the games.
+     * @throws IllegalArgumentException if a side is too short to give every ship of the standard fleet its own row.
+     */
+    public SelfPlayRunner(int width, int height, Function<GameBoard, Targeter> first,
+            Function<GameBoard, Targeter> second, ForkJoinPool pool) {
+        if (Math.min(width, height) < FLEET.length || Math.min(width, height) < FLEET[0].getSize()) {
+            throw new IllegalArgumentException("Board " + width + "x" + height + " is too small for the fleet.");
+        }
+        this.width = width;
+        this.height = height;
+        this.first = first;
+        this.second = second;
+        this.pool = pool;
+        this.tables = ThreadLocal.withInitial(() -> new Table());
+    }
+
+    /**
+     * Function to play a number of games to completion.
+     * @param games number of games to play.
+     * @param seed of the run. The same seed plays the same games.
+     * @return statistics of the run.
+     */
+    public Stats run(long games, long seed) {
+        long gcCount = gcCount();
+        long gcMillis = gcMillis();
+        long start = System.nanoTime();
+        Stats stats = pool.invoke(new Games(0, games, seed));
+        stats.elapsedNanos = System.nanoTime() - start;
+        stats.gcCount = gcCount() - gcCount;
+        stats.gcMillis = gcMillis() - gcMillis;
+        stats.threads = pool.getParallelism();
+        return stats;
+    }
+
+    /**
+     * Runs a tournament from the command line and prints its statistics.
+     * Arguments, all optional: games (1000000), board size (10), threads (all cores),
+     * first bot and second bot, each "density" or "random" (density, random).
+     * @param args command line arguments.
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+        int size = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        String firstBot = args.length > 3 ? args[3] : "density";
+        String secondBot = args.length > 4 ? args[4] : "random";
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            SelfPlayRunner runner = new SelfPlayRunner(size, size, bot(firstBot), bot(secondBot), pool);
+            System.out.println("Playing " + games + " games of " + firstBot + " vs " + secondBot
+                    + " on " + size + "x" + size + " boards");
+            System.out.println(runner.run(games, System.nanoTime()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Helper method resolving a bot name given on the command line.
+     */
+    private static Function<GameBoard, Targeter> bot(String name) {
+        switch (name) {
+            case "density":
+                return fog -> new ProbabilityTargeter(fog, 0);
+            case "random":
+                return fog -> new RandomTargeter(fog, 0);
+            default:
+                throw new IllegalArgumentException("Unknown bot: " + name);
+        }
+    }
+
+    /**
+     * Helper method playing one game on the calling thread's table and recording it.
+     */
+    private void play(Table table, long index, long seed, Stats stats) {
+        long gameSeed = mix(seed + index);
+        SplittableRandom random = new SplittableRandom(gameSeed);
+        for (int seat = 0; seat < 2; seat++) {
+            table.boards[seat].reset(BoardCell.CellState.EMPTY);
+            for (Ship ship : table.ships[seat]) {
+                ship.repair();
+            }
+            table.placer.place(table.boards[seat], table.ships[seat], random);
+        }
+        table.targeters[0].reset(random.nextLong());
+        table.targeters[1].reset(random.nextLong());
+        int shooter = (int) (index & 1);
+        int[] shots = table.shots;
+        shots[0] = 0;
+        shots[1] = 0;
+        while (true) {
+            Targeter targeter = table.targeters[shooter];
+            BitBoard target = table.boards[1 - shooter];
+            int cell = targeter.nextShot();
+            int x = cell % width;
+            int y = cell / width;
+            targeter.reveal(x, y, target.hit(x, y));
+            Ship sunk = target.getLastSunk();
+            if (sunk != null) {
+                targeter.shipSunk(x, y, sunk.getType());
+            }
+            shots[shooter]++;
+            if (target.allShipsSunk()) {
+                break;
+            }
+            shooter = 1 - shooter;
+        }
+        stats.record(shooter, shots[shooter], shots[0] + shots[1]);
+    }
+
+    /**
+     * Helper method spreading consecutive game indexes into unrelated seeds (SplitMix64 finalizer).
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionCount());
+        }
+        return total;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, gc.getCollectionTime());
+        }
+        return total;
+    }
+
+    /**
+     * Boards, ships and bots reused by every game a worker thread plays.
+     */
+    private final class Table {
+        private final BitBoard[] boards;
+        private final Ship[][] ships;
+        private final FleetPlacer placer;
+        private final Targeter[] targeters;
+        private final int[] shots;
+
+        private Table() {
+            boards = new BitBoard[] {
+                new BitBoard(width, height, BoardCell.CellState.EMPTY),
+                new BitBoard(width, height, BoardCell.CellState.EMPTY)
+            };
+            ships = new Ship[2][FLEET.length];
+            for (int i = 0; i < FLEET.length; i++) {
+                ships[0][i] = new Ship(FLEET[i]);
+                ships[1][i] = new Ship(FLEET[i]);
+            }
+            placer = new FleetPlacer(width, height, FLEET);
+            targeters = new Targeter[] {
+                first.apply(new BitBoard(width, height, BoardCell.CellState.UNKNOWN)),
+                second.apply(new BitBoard(width, height, BoardCell.CellState.UNKNOWN))
+            };
+            shots = new int[2];
+        }
+    }
+
+    /**
+     * Task playing the games [from, to), split in halves until a range is small enough.
+     */
+    @SuppressWarnings("serial") // Tasks are never serialized.
+    private final class Games extends RecursiveTask<Stats> {
+        private final long from;
+        private final long to;
+        private final long seed;
+
+        private Games(long from, long to, long seed) {
+            this.from = from;
+            this.to = to;
+            this.seed = seed;
+        }
+
+        @Override
+        protected Stats compute() {
+            if (to - from <= LEAF_GAMES) {
+                Stats stats = new Stats(width * height);
+                Table table = tables.get();
+                for (long i = from; i < to; i++) {
+                    play(table, i, seed, stats);
+                }
+                return stats;
+            }
+            long middle = from + (to - from) / 2;
+            Games left = new Games(from, middle, seed);
+            left.fork();
+            Stats stats = new Games(middle, to, seed).compute();
+            stats.merge(left.join());
+            return stats;
+        }
+    }
+
+    /**
+     * Stats class holding the outcome of a run: wins per bot and the distribution of shots the winner needed.
+     */
+    public static final class Stats {
+        private final long[] shotsToWin; // games per number of winning shots.
+        private final long[] wins;
+        private long games;
+        private long totalShots;
+        private long elapsedNanos;
+        private long gcCount;
+        private long gcMillis;
+        private int threads;
+
+        private Stats(int cells) {
+            this.shotsToWin = new long[cells + 1];
+            this.wins = new long[2];
+        }
+
+        private void record(int winner, int winnerShots, int shots) {
+            games++;
+            wins[winner]++;
+            shotsToWin[winnerShots]++;
+            totalShots += shots;
+        }
+
+        private void merge(Stats other) {
+            games += other.games;
+            totalShots += other.totalShots;
+            wins[0] += other.wins[0];
+            wins[1] += other.wins[1];
+            for (int i = 0; i < shotsToWin.length; i++) {
+                shotsToWin[i] += other.shotsToWin[i];
+            }
+        }
+
+        /**
+         * @return number of games played.
+         */
+        public long getGames() {
+            return games;
+        }
+
+        /**
+         * Function to get the number of games a bot won.
+         * @param bot 0 for the first bot, 1 for the second.
+         * @return games won.
+         */
+        public long getWins(int bot) {
+            return wins[bot];
+        }
+
+        /**
+         * @return shots fired by both bots over the whole run.
+         */
+        public long getTotalShots() {
+            return totalShots;
+        }
+
+        /**
+         * Function to get the number of games won with exactly the given number of shots.
+         * @param shots fired by the winner.
+         * @return games.
+         */
+        public long getGamesWonIn(int shots) {
+            return shots >= 0 && shots < shotsToWin.length ? shotsToWin[shots] : 0;
+        }
+
+        /**
+         * @return average number of shots the winner fired.
+         */
+        public double getMeanShotsToWin() {
+            long sum = 0;
+            for (int i = 0; i < shotsToWin.length; i++) {
+                sum += i * shotsToWin[i];
+            }
+            return games == 0 ? 0 : (double) sum / games;
+        }
+
+        /**
+         * Function to get a percentile of the number of shots the winner fired.
+         * @param percentile between 0 and 100.
+         * @return smallest shot count such that at least the given percentage of games were won within it.
+         */
+        public int getShotsToWinPercentile(double percentile) {
+            long rank = (long) Math.ceil(percentile / 100 * games);
+            long seen = 0;
+            for (int i = 0; i < shotsToWin.length; i++) {
+                seen += shotsToWin[i];
+                if (seen >= rank && seen > 0) {
+                    return i;
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @return games played per second of wall clock time.
+         */
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * @return garbage collections which ran during the run, in any thread.
+         */
+        public long getGcCount() {
+            return gcCount;
+        }
+
+        /**
+         * @return milliseconds spent in garbage collection during the run.
+         */
+        public long getGcMillis() {
+            return gcMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Games: %d in %.2f s on %d threads, %.0f games/sec%n"
+                    + "Shots to win: mean %.2f, p50 %d, p90 %d, p99 %d, max %d%n"
+                    + "Wins: first %.2f%%, second %.2f%%%n"
+                    + "GC: %d collections, %d ms",
+                    games, elapsedNanos / 1e9, threads, getGamesPerSecond(),
+                    getMeanShotsToWin(), getShotsToWinPercentile(50), getShotsToWinPercentile(90),
+                    getShotsToWinPercentile(99), getShotsToWinPercentile(100),
+                    games == 0 ? 0 : 100.0 * wins[0] / games, games == 0 ? 0 : 100.0 * wins[1] / games,
+                    gcCount, gcMillis);
+        }
+    }
+}
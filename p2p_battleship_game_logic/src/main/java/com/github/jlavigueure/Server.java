@@ -1,17 +1,24 @@
 package com.github.jlavigueure;
 
-import java.net.ServerSocket;
+import java.net.InetSocketAddress;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.ServerSocketChannel;
 
 /**
  * Server class inherits from Connection and gives a way to start a server
  * on a predefined range of ports, and wait for a single connection.
+ * bind, advertise and accept split connect up so a host can be found through HostDiscovery before it waits.
  */
 public class Server extends Connection{
+    // Connections the OS queues until accept, the ServerSocket default. A host accepts one player, but an early
+    // probe or a reconnect must not have the player's connection refused while it waits in the queue.
+    private static final int BACKLOG = 50;
+
     private int[] ports;
+    private ServerSocketChannel serverSocket;
+    private HostDiscovery discovery;
+    private int acceptTimeoutMillis;
 
     /**
      * Constructor for Server class. Defines range of ports to use. 
@@ -28,37 +35,131 @@ public class Server extends Connection{
 
     /**
      * Starts a server on first available port in range and waits for single connection.
+     * Calls bind first unless it was already called.
      * @throws IOException if failed to start server on all defined ports.
      */
     public void connect() throws IOException{
+        if (serverSocket == null) {
+            bind();
+        }
+        accept();
+    }
+
+    /**
+     * Binds the first free port in range without waiting for a connection, so the port can be
+     * advertised before accept is called. A port in use fails its bind at once and the next one is tried.
+     * @return the bound port.
+     * @throws IOException if already bound or every port in range is in use.
+     */
+    public int bind() throws IOException {
+        if (serverSocket != null) {
+            throw new IOException("Server is already bound to port " + getPort() + ".");
+        }
         for(int i = 0; i < ports.length; i++){
-            socket = connect(ports[i]);
-            if (socket != null) {
-                out = socket.getOutputStream();
-                in = socket.getInputStream();
-                return;
+            ServerSocketChannel candidate = ServerSocketChannel.open();
+            try {
+                candidate.bind(new InetSocketAddress(ports[i]), BACKLOG);
+            } catch (IOException e) {
+                candidate.close();
+                continue;
             }
+            serverSocket = candidate;
+            System.out.println("Server running on IP: " + serverSocket.socket().getInetAddress().getHostAddress() + ", Port: " + getPort());
+            return ports[i];
         }
         throw new IOException("Failed to start server.");
     }
 
     /**
-     * Helper method for connect which atttmempts to start server on a single given port
-     * and waits for a single connection.
-     * @param port number to start server on.
-     * @return socket with connection to client or null if unable to start server.
+     * Function to get the port the server is bound to.
+     * @return bound port, or -1 if not bound.
+     */
+    public int getPort() {
+        return serverSocket == null ? -1 : serverSocket.socket().getLocalPort();
+    }
+
+    /**
+     * Answers discovery probes with the bound port until a client connects or the server is closed.
+     * @param discoveryPort UDP port clients probe, usually HostDiscovery.DEFAULT_PORT.
+     * @param name shown to players choosing a host.
+     * @throws IOException if not bound, already advertised or the discovery port could not be bound.
+     */
+    public void advertise(int discoveryPort, String name) throws IOException {
+        if (serverSocket == null || discovery != null) {
+            throw new IOException("Server must be bound and not already advertised.");
+        }
+        HostDiscovery candidate = new HostDiscovery(discoveryPort, getPort(), name);
+        candidate.start();
+        discovery = candidate;
+    }
+
+    /**
+     * Function to limit how long accept waits for a client.
+     * @param millis longest wait, 0 to wait forever.
+     * @throws IllegalArgumentException if millis is negative.
+     */
+    public void setAcceptTimeout(int millis) {
+        if (millis < 0) {
+            throw new IllegalArgumentException("Accept timeout can not be negative.");
+        }
+        acceptTimeoutMillis = millis;
+    }
+
+    /**
+     * Waits for a single connection on the bound port, then stops listening and advertising.
+     * @throws SocketTimeoutException if the accept timeout passed first. The server keeps listening,
+     *                                so accept may be called again, or close to give up.
+     * @throws IOException if not bound or the accept failed.
      */
-    private Socket connect(int port) {
-        try{
-            ServerSocket serverSocket = new ServerSocket(port);
-            System.out.println("Server running on IP: " + serverSocket.getInetAddress().getHostAddress() + ", Port: " + serverSocket.getLocalPort());
+    public void accept() throws IOException {
+        if (serverSocket == null || !serverSocket.isOpen()) {
+            throw new IOException("Server is not bound.");
+        }
+        boolean timedOut = false;
+        try {
             System.out.println("Server started. Waiting for a connection...");
-            socket = serverSocket.accept();
+            long start = Metrics.ENABLED ? System.nanoTime() : 0;
+            // The socket adaptor's accept honors the timeout, the channel's own accept does not.
+            serverSocket.socket().setSoTimeout(acceptTimeoutMillis);
+            socket = serverSocket.socket().accept();
+            if (Metrics.ENABLED) {
+                Metrics.ACCEPT_NANOS.recordSince(start);
+                Metrics.ACCEPTS.increment();
+            }
             System.out.println("Client connected: " + socket.getInetAddress());
-            serverSocket.close();
-        }catch(IOException e){
-            return null;
+            out = socket.getOutputStream();
+            in = socket.getInputStream();
+        } catch (SocketTimeoutException e) {
+            timedOut = true;
+            throw e;
+        } finally {
+            if (!timedOut) {
+                stopListening();
+            }
+        }
+    }
+
+    /**
+     * Close current connected socket, or stop listening if no client connected yet.
+     * @throws IOException if neither connected nor listening.
+     */
+    @Override
+    public void close() throws IOException {
+        if (socket == null && serverSocket != null && serverSocket.isOpen()) {
+            stopListening();
+            return;
+        }
+        super.close();
+    }
+
+    /**
+     * Helper method closing the listening port and the discovery announcement.
+     */
+    private void stopListening() throws IOException {
+        if (discovery != null) {
+            discovery.close();
+            discovery = null;
         }
-        return socket;
+        serverSocket.close();
     }
 }
@@ -25,9 +25,21 @@ public class Ship {
         }
     }
 
+    /**
+     * Interface for the board tracking this ship, notified every time the ship takes a hit.
+     */
+    interface HitListener {
+        void shipHit(Ship ship, boolean sunk);
+    }
+
     private String name;
+    private final ShipType type;
     private final int size;
     private int hits;
+    private HitListener listener;
+    private int x;
+    private int y;
+    private Board.Direction direction;
 
     /**
      * Constructor for the Ship class.
@@ -35,8 +47,12 @@ public class Ship {
      */
     public Ship(ShipType type) {
         this.name = type.name();
+        this.type = type;
         this.size = type.getSize();
         this.hits = 0;
+        this.x = -1;
+        this.y = -1;
+        this.direction = null;
     }
 
     /**
@@ -47,6 +63,14 @@ public class Ship {
         return name;
     }
 
+    /**
+     * Function to get the type of the ship.
+     * @return The type of the ship.
+     */
+    public ShipType getType() {
+        return type;
+    }
+
     /**
      * function to get the size of the ship.
      * @return The size of the ship.
@@ -70,11 +94,68 @@ public class Ship {
     public boolean hit() {
         if (!this.isSunk()) {
             hits++;
+            if (listener != null) listener.shipHit(this, isSunk());
             return true;
         }
         return false;
     }
 
+    /**
+     * Function to get the x-coordinate of the cell the ship was placed from.
+     * @return The x-coordinate, or -1 if the ship was never placed.
+     */
+    public int getX() {
+        return x;
+    }
+
+    /**
+     * Function to get the y-coordinate of the cell the ship was placed from.
+     * @return The y-coordinate, or -1 if the ship was never placed.
+     */
+    public int getY() {
+        return y;
+    }
+
+    /**
+     * Function to get the direction in which the ship extends from its starting cell.
+     * @return The direction, or null if the ship was never placed.
+     */
+    public Board.Direction getDirection() {
+        return direction;
+    }
+
+    /**
+     * Function to record where a board placed the ship.
+     */
+    void setPlacement(int x, int y, Board.Direction direction) {
+        this.x = x;
+        this.y = y;
+        this.direction = direction;
+    }
+
+    /**
+     * Function to clear every hit taken, so simulations can place the same ship again in a new game.
+     */
+    void repair() {
+        hits = 0;
+    }
+
+    /**
+     * Function to register the board that tracks this ship. A ship is on one board at a time, see GameBoard.placeShip.
+     * @param listener notified on every counted hit, null once the board is reset.
+     */
+    void setHitListener(HitListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Function to tell whether the ship is placed on a board which was not reset since.
+     * @return true if a board tracks the ship.
+     */
+    boolean isPlaced() {
+        return listener != null;
+    }
+
     /**
      * Function to check if the ship is sunk.
      * @return true if the ship is sunk, false otherwise.
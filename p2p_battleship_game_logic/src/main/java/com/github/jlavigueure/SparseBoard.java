@@ -0,0 +1,457 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * SparseBoard class representing very large boards, where almost every cell keeps the state the board
+ * was reset to. Cells are grouped into square tiles of TILE x TILE cells and a tile is only allocated
+ * the first time one of its cells changes, so memory grows with the ships and shots rather than the area.
+ * Untouched cells report the board state given to the constructor or to reset.
+ * Behaves exactly like Board and BitBoard, including the exceptions thrown.
+ */
+public class SparseBoard implements GameBoard {
+    /** Side of a tile in cells. */
+    public static final int TILE = 16;
+
+    private static final int TILE_SHIFT = 4;
+    private static final int TILE_MASK = TILE - 1;
+    private static final int MAX_SHIPS = Short.MAX_VALUE;
+    private static final BoardCell.CellState[] STATES = BoardCell.CellState.values();
+
+    private final int width;
+    private final int height;
+    private final int tileColumns;
+    private final Tile[][] tileRows; // Rows of tiles, each allocated with the first tile touched in it.
+    private BoardCell.CellState background;
+    private int tileCount;
+    private Ship[] fleet;
+    private int shipCount;
+    private final FleetTracker tracker;
+    private final ChangeLog changes;
+    private TargetIndex targets; // Built on first use by getTargetIndex, as large as a dense board.
+
+    /**
+     * Constructor for the SparseBoard class. Allocates no tile until a cell changes.
+     * @param width of board.
+     * @param height of board.
+     * @param boardState is the inital starting state of the board. Can not be OCCUPIED.
+     * @throws IllegalArgumentException if a dimension is not positive, the board is too large or boardState is OCCUPIED.
+     */
+    public SparseBoard(int width, int height, BoardCell.CellState boardState) {
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Board dimensions must be positive and hold at most " + Integer.MAX_VALUE + " cells.");
+        } else if (boardState == BoardCell.CellState.OCCUPIED) {
+            throw new IllegalArgumentException("Board can not start OCCUPIED without ships.");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileColumns = (width + TILE_MASK) >>> TILE_SHIFT;
+        this.tileRows = new Tile[(height + TILE_MASK) >>> TILE_SHIFT][];
+        this.fleet = new Ship[8];
+        this.tracker = new FleetTracker();
+        this.changes = new ChangeLog();
+        reset(boardState);
+    }
+
+    @Override
+    public void reset(BoardCell.CellState boardState) {
+        if (boardState == BoardCell.CellState.OCCUPIED) {
+            throw new IllegalArgumentException("Board can not start OCCUPIED without ships.");
+        }
+        Arrays.fill(tileRows, null);
+        tileCount = 0;
+        background = boardState;
+        for (int i = 0; i < shipCount; i++) {
+            fleet[i].setHitListener(null);
+            fleet[i] = null;
+        }
+        shipCount = 0;
+        tracker.reset();
+        changes.reset();
+        if (targets != null) {
+            targets.reset(boardState != BoardCell.CellState.HIT && boardState != BoardCell.CellState.MISS);
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Function to get the number of tiles allocated, a measure of the memory the board holds.
+     * @return allocated tiles.
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    @Override
+    public BoardCell.CellState getState(int x, int y) {
+        check(x, y);
+        Tile tile = tile(x, y);
+        return tile == null ? background : STATES[tile.states[offset(x, y)]];
+    }
+
+    @Override
+    public void getRowStates(int y, BoardCell.CellState[] dst) {
+        if (y < 0 || y >= height || dst.length < width) {
+            throw new IndexOutOfBoundsException("Invalid row " + y + " for " + dst.length + " states.");
+        }
+        Tile[] row = tileRows[y >>> TILE_SHIFT];
+        int offset = (y & TILE_MASK) << TILE_SHIFT;
+        for (int x = 0; x < width; x += TILE) {
+            int cells = Math.min(TILE, width - x);
+            Tile tile = row == null ? null : row[x >>> TILE_SHIFT];
+            for (int i = 0; i < cells; i++) {
+                dst[x + i] = tile == null ? background : STATES[tile.states[offset + i]];
+            }
+        }
+    }
+
+    @Override
+    public long getVersion() {
+        return changes.getVersion();
+    }
+
+    @Override
+    public long getOldestVersion() {
+        return changes.getOldestVersion();
+    }
+
+    @Override
+    public int getChangedCell(long version) {
+        return changes.getChangedCell(version);
+    }
+
+    @Override
+    public int getShipCount() {
+        return shipCount;
+    }
+
+    @Override
+    public Ship getPlacedShip(int index) {
+        if (index < 0 || index >= shipCount) {
+            throw new IndexOutOfBoundsException("Invalid ship index: " + index);
+        }
+        return fleet[index];
+    }
+
+    /**
+     * Function to get the ship occupying the specified cell.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @return the ship in the cell or null if the cell holds no ship.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     */
+    public Ship getShip(int x, int y) {
+        check(x, y);
+        Tile tile = tile(x, y);
+        if (tile == null || tile.owners == null) {
+            return null;
+        }
+        int id = tile.owners[offset(x, y)];
+        return id == 0 ? null : fleet[id - 1];
+    }
+
+    @Override
+    public void placeShip(int x, int y, Board.Direction direction, Ship ship) {
+        if (Metrics.ENABLED) {
+            Metrics.PLACEMENTS.increment();
+        }
+        if (ship == null) {
+            throw new IllegalArgumentException("Ship cannot be null.");
+        }
+        for (int i = 0; i < shipCount; i++) {
+            if (fleet[i] == ship) {
+                throw new IllegalArgumentException("Ship already placed on board");
+            }
+        }
+        if (ship.isPlaced()) {
+            throw new IllegalArgumentException("Ship already placed on another board");
+        }
+        if (shipCount == MAX_SHIPS) {
+            throw new IllegalArgumentException("Board can not hold more than " + MAX_SHIPS + " ships.");
+        }
+        int size = ship.getSize();
+        int dx = direction.getDx();
+        int dy = direction.getDy();
+        for (int i = 0; i < size; i++) {
+            int newX = x + dx * i;
+            int newY = y + dy * i;
+            if (getState(newX, newY) != BoardCell.CellState.EMPTY) {
+                throw new IllegalArgumentException("Cell (" + newX + ", " + newY + ") is not empty.");
+            }
+        }
+        if (shipCount == fleet.length) {
+            fleet = Arrays.copyOf(fleet, Math.min(fleet.length * 2, MAX_SHIPS));
+        }
+        fleet[shipCount++] = ship;
+        short id = (short) shipCount;
+        for (int i = 0; i < size; i++) {
+            int cellX = x + dx * i;
+            int cellY = y + dy * i;
+            Tile tile = touch(cellX, cellY);
+            if (tile.owners == null) {
+                tile.owners = new short[TILE * TILE];
+            }
+            int offset = offset(cellX, cellY);
+            tile.states[offset] = (byte) BoardCell.CellState.OCCUPIED.ordinal();
+            tile.owners[offset] = id;
+        }
+        ship.setPlacement(x, y, direction);
+        tracker.add(ship);
+    }
+
+    @Override
+    public BoardCell.CellState hit(int x, int y) {
+        checkTarget(x, y);
+        tracker.beginShot();
+        BoardCell.CellState result = fire(x, y);
+        if (targets != null && tracker.getLastSunk() != null) {
+            targets.resolveShip(tracker.getLastSunk());
+        }
+        return result;
+    }
+
+    @Override
+    public long[] hitAll(int[] xs, int[] ys) {
+        if (xs == null || ys == null || xs.length != ys.length) {
+            throw new IllegalArgumentException("Salvo coordinates must be two arrays of equal length.");
+        }
+        // Sorting (cell, shot) pairs finds the first shot at an already targeted cell without a mark per board cell.
+        long[] targeted = new long[xs.length];
+        for (int i = 0; i < xs.length; i++) {
+            int cell = ys[i] >= 0 && ys[i] < height && xs[i] >= 0 && xs[i] < width ? ys[i] * width + xs[i] : -1;
+            targeted[i] = (long) cell << 32 | i;
+        }
+        Arrays.sort(targeted);
+        int duplicate = xs.length;
+        for (int i = 1; i < targeted.length; i++) {
+            if (targeted[i] >> 32 == targeted[i - 1] >> 32 && targeted[i] >= 0) {
+                duplicate = Math.min(duplicate, (int) targeted[i]);
+            }
+        }
+        for (int i = 0; i < xs.length; i++) {
+            checkTarget(xs[i], ys[i]);
+            if (i == duplicate) {
+                throw new IllegalArgumentException("Cell (" + xs[i] + ", " + ys[i] + ") is targeted twice.");
+            }
+        }
+        long[] result = new long[(xs.length + 63) >>> 6];
+        tracker.beginShot();
+        for (int i = 0; i < xs.length; i++) {
+            if (fire(xs[i], ys[i]) == BoardCell.CellState.HIT) {
+                result[i >>> 6] |= 1L << i;
+            }
+        }
+        if (targets != null) {
+            resolveSunkShips();
+        }
+        return result;
+    }
+
+    @Override
+    public void reveal(int x, int y, BoardCell.CellState newState) {
+        if (getState(x, y) != BoardCell.CellState.UNKNOWN) {
+            throw new IllegalStateException("Can not reveal cell with known state.");
+        } else if (newState != BoardCell.CellState.HIT && newState != BoardCell.CellState.MISS) {
+            throw new IllegalArgumentException("Can only reveal opponent board as HIT or MISS.");
+        }
+        touch(x, y).states[offset(x, y)] = (byte) newState.ordinal();
+        changes.record(y * width + x);
+        if (targets != null) {
+            targets.markShot(y * width + x, newState == BoardCell.CellState.HIT);
+        }
+    }
+
+    @Override
+    public boolean allShipsSunk() {
+        return tracker.allSunk();
+    }
+
+    @Override
+    public Ship getLastSunk() {
+        return tracker.getLastSunk();
+    }
+
+    @Override
+    public void setSunkListener(SunkListener listener) {
+        tracker.setSunkListener(listener);
+    }
+
+    /**
+     * Function to get the board's TargetIndex. Unlike the tiles the index takes memory for every cell of the board.
+     */
+    @Override
+    public TargetIndex getTargetIndex() {
+        if (targets == null) {
+            targets = TargetIndex.of(this);
+            resolveSunkShips();
+        }
+        return targets;
+    }
+
+    /**
+     * Function to write the board in the same format as Board.toString, one row at a time, so a large board
+     * can be sent to a file or socket without building the whole text in memory.
+     * Runs of untouched tiles are written a tile row at a time.
+     * @param out destination of the text.
+     * @throws IOException if the destination fails.
+     */
+    public void writeTo(Appendable out) throws IOException {
+        String untouched = repeat(BoardRenderer.glyph(background), TILE);
+        for (int y = 0; y < height; y++) {
+            Tile[] row = tileRows[y >>> TILE_SHIFT];
+            for (int column = 0; column < tileColumns; column++) {
+                int cells = Math.min(TILE, width - (column << TILE_SHIFT));
+                Tile tile = row == null ? null : row[column];
+                if (tile == null) {
+                    out.append(untouched, 0, cells * 3);
+                    continue;
+                }
+                int offset = (y & TILE_MASK) << TILE_SHIFT;
+                for (int i = 0; i < cells; i++) {
+                    out.append('[').append(BoardRenderer.glyph(STATES[tile.states[offset + i]])).append(']');
+                }
+            }
+            out.append('\n');
+        }
+    }
+
+    /**
+     * Function to print the current state of the board in the same format as Board.
+     * Use writeTo for large boards, whose text does not fit in a String.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder((int) Math.min(Integer.MAX_VALUE - 8, (long) height * (width * 3L + 1)));
+        try {
+            writeTo(sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e); // StringBuilder never throws.
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Helper method which checks a shot is allowed at the given cell, in the order Board checks it.
+     */
+    private void checkTarget(int x, int y) {
+        BoardCell.CellState state = getState(x, y);
+        if (state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS) {
+            throw new IllegalStateException("Cell already attacked.");
+        } else if (state == BoardCell.CellState.UNKNOWN) {
+            throw new IllegalStateException("Can not hit unknown cell. Must use reveal methods.");
+        }
+    }
+
+    /**
+     * Helper method firing at a cell already checked by checkTarget.
+     */
+    private BoardCell.CellState fire(int x, int y) {
+        Tile tile = touch(x, y);
+        int offset = offset(x, y);
+        BoardCell.CellState result;
+        if (tile.states[offset] == BoardCell.CellState.OCCUPIED.ordinal()) {
+            result = BoardCell.CellState.HIT;
+        } else {
+            result = BoardCell.CellState.MISS;
+        }
+        tile.states[offset] = (byte) result.ordinal();
+        changes.record(y * width + x);
+        if (targets != null) {
+            targets.markShot(y * width + x, result == BoardCell.CellState.HIT);
+        }
+        if (Metrics.ENABLED) {
+            Metrics.SHOTS.increment();
+        }
+        if (result == BoardCell.CellState.HIT) {
+            fleet[tile.owners[offset] - 1].hit();
+        }
+        return result;
+    }
+
+    /**
+     * Helper method resolving the cells of every sunk ship which are still open hits in the index.
+     */
+    private void resolveSunkShips() {
+        for (int i = 0; i < shipCount; i++) {
+            if (fleet[i].isSunk()) {
+                targets.resolveShip(fleet[i]);
+            }
+        }
+    }
+
+    /**
+     * Helper method returning the tile holding a cell, or null if it was never touched.
+     */
+    private Tile tile(int x, int y) {
+        Tile[] row = tileRows[y >>> TILE_SHIFT];
+        return row == null ? null : row[x >>> TILE_SHIFT];
+    }
+
+    /**
+     * Helper method returning the tile holding a cell, allocating it filled with the board state if needed.
+     */
+    private Tile touch(int x, int y) {
+        Tile[] row = tileRows[y >>> TILE_SHIFT];
+        if (row == null) {
+            row = new Tile[tileColumns];
+            tileRows[y >>> TILE_SHIFT] = row;
+        }
+        Tile tile = row[x >>> TILE_SHIFT];
+        if (tile == null) {
+            tile = new Tile((byte) background.ordinal());
+            row[x >>> TILE_SHIFT] = tile;
+            tileCount++;
+        }
+        return tile;
+    }
+
+    /**
+     * Helper method which checks coordinates are on the board.
+     * @throws IndexOutOfBoundsException if the coordinates are out of bounds.
+     */
+    private void check(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IndexOutOfBoundsException("Invalid cell coordinates: (" + x + ", " + y + ")");
+        }
+    }
+
+    /**
+     * Helper method returning the position of a cell inside its tile.
+     */
+    private static int offset(int x, int y) {
+        return (y & TILE_MASK) << TILE_SHIFT | (x & TILE_MASK);
+    }
+
+    private static String repeat(char glyph, int cells) {
+        StringBuilder sb = new StringBuilder(cells * 3);
+        for (int i = 0; i < cells; i++) {
+            sb.append('[').append(glyph).append(']');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * TILE x TILE cells in row order, the state ordinal of each and the fleet index + 1 of the ship in it.
+     * The owner array is only allocated in tiles a ship crosses.
+     */
+    private static final class Tile {
+        private final byte[] states;
+        private short[] owners;
+
+        private Tile(byte state) {
+            states = new byte[TILE * TILE];
+            Arrays.fill(states, state);
+        }
+    }
+}
@@ -0,0 +1,547 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SpectatorHub class streams one running game to any number of spectators connected to its port.
+ * <p>
+ * The game calls publish once per message, from any thread, and never waits on a spectator. A selector thread
+ * encodes each message once into a shared ring of frames and every spectator socket is written straight from
+ * that ring through its own view of it, so a frame is neither re-encoded nor copied per spectator.
+ * <p>
+ * A spectator first gets a snapshot, a SYNC frame whose payload is a full BoardDelta of the board seat 0 shoots
+ * at followed by one of the board seat 1 shoots at, then every published frame. A spectator too slow to keep
+ * up is dropped to a snapshot instead of holding the ring back: once it falls a ring behind, the frames it
+ * missed are skipped and, as soon as its socket drained what it was already sent, it gets a fresh snapshot.
+ * A spectator thus costs the game at most one snapshot of memory however long it stalls. A frame larger than
+ * the ring is never put in it, every spectator gets a snapshot holding it instead.
+ * With setCompression snapshots are sent as COMPRESSED frames, deflated once for every spectator resynced.
+ * View applies this stream on the spectator side.
+ * <p>
+ * RESULT frames alternate between the seats, seat 0 first, as the turns of GameSession do.
+ */
+public class SpectatorHub {
+    /** Default size in bytes of the ring of frames, and so of the lag after which a spectator is resynced. */
+    public static final int DEFAULT_RING_SIZE = 1 << 16;
+    /** Largest ring, the smallest power of two holding a frame of MessageCodec.MAX_BODY_SIZE bytes. */
+    public static final int MAX_RING_SIZE = 2 * MessageCodec.MAX_BODY_SIZE;
+
+    private final int requestedPort;
+    private final View view; // The game as spectators see it, used for snapshots. Selector thread only.
+    private final ByteBuffer ring;
+    private final int ringMask;
+    private final long[] frameEnds; // End offset of recent frames, by frame number modulo the array length.
+    private final int frameMask;
+    private final ConcurrentLinkedQueue<Message> published;
+    private final AtomicBoolean wakeupPending;
+    private final AtomicLong resyncs;
+    private final AtomicLong dropped;
+    private final List<Spectator> spectators;
+    private final ByteBuffer scratch;
+    private FrameCompressor compressor; // Deflates snapshots, null unless setCompression.
+    private ByteBuffer snapshot;   // Last snapshot frame, valid while no frame was appended since.
+    private long snapshotFrames;
+    private long head;   // Bytes ever written to the ring.
+    private long frames; // Frames ever written to the ring.
+    private Selector selector;
+    private ServerSocketChannel listener;
+    private Thread loop;
+    private volatile boolean running;
+    private volatile int spectatorCount;
+
+    /**
+     * Constructor for SpectatorHub with a ring of DEFAULT_RING_SIZE bytes.
+     * @param port to listen on for spectators, 0 to pick any free port.
+     * @param width of the game's boards.
+     * @param height of the game's boards.
+     */
+    public SpectatorHub(int port, int width, int height) {
+        this(port, width, height, DEFAULT_RING_SIZE);
+    }
+
+    /**
+     * Constructor for SpectatorHub.
+     * @param port to listen on for spectators, 0 to pick any free port.
+     * @param width of the game's boards.
+     * @param height of the game's boards.
+     * @param ringSize bytes of frames kept for spectators, a power of two. A spectator falling further behind is resynced.
+     * @throws IllegalArgumentException if ringSize is not a power of two between 256 bytes and MAX_RING_SIZE.
+     */
+    public SpectatorHub(int port, int width, int height, int ringSize) {
+        if (ringSize < 256 || ringSize > MAX_RING_SIZE || Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two between 256 and " + MAX_RING_SIZE + " bytes.");
+        }
+        this.requestedPort = port;
+        this.view = new View(width, height);
+        this.ring = ByteBuffer.allocateDirect(ringSize);
+        this.ringMask = ringSize - 1;
+        // Frames are at least HEADER_SIZE bytes, so this outlives every frame still in the ring.
+        this.frameEnds = new long[ringSize / 2];
+        this.frameMask = frameEnds.length - 1;
+        this.published = new ConcurrentLinkedQueue<>();
+        this.wakeupPending = new AtomicBoolean();
+        this.resyncs = new AtomicLong();
+        this.dropped = new AtomicLong();
+        this.spectators = new ArrayList<>();
+        this.scratch = ByteBuffer.allocate(256);
+    }
+
+    /**
+     * Function to send snapshots deflated, worth it for large boards or slow spectators.
+     * The frames of the game are a few bytes each and are sent as they are.
+     * @param thresholdBytes smallest snapshot body compressed, 0 to send snapshots as they are.
+     * @throws IllegalArgumentException if thresholdBytes is negative.
+     * @throws IllegalStateException if the hub was already started.
+     */
+    public void setCompression(int thresholdBytes) {
+        if (thresholdBytes < 0) {
+            throw new IllegalArgumentException("Compression threshold can not be negative.");
+        }
+        if (loop != null) {
+            throw new IllegalStateException("Compression must be set before the hub starts.");
+        }
+        compressor = thresholdBytes == 0 ? null : new FrameCompressor(thresholdBytes);
+    }
+
+    /**
+     * Opens the spectator port and starts the selector thread.
+     * @throws IOException if the port could not be bound.
+     */
+    public void start() throws IOException {
+        selector = Selector.open();
+        listener = ServerSocketChannel.open();
+        listener.configureBlocking(false);
+        listener.bind(new InetSocketAddress(requestedPort), 1024);
+        listener.register(selector, SelectionKey.OP_ACCEPT);
+        running = true;
+        loop = new Thread(this::run, "spectator-hub-" + getPort());
+        loop.setDaemon(true);
+        loop.start();
+    }
+
+    /**
+     * Function to get the port spectators connect to.
+     * @return bound port.
+     */
+    public int getPort() {
+        return listener.socket().getLocalPort();
+    }
+
+    /**
+     * Function to get the number of connected spectators.
+     * @return spectators.
+     */
+    public int getSpectatorCount() {
+        return spectatorCount;
+    }
+
+    /**
+     * Function to get the number of times a spectator fell a ring behind and was sent a snapshot instead.
+     * @return resyncs so far.
+     */
+    public long getResyncCount() {
+        return resyncs.get();
+    }
+
+    /**
+     * Function to get the number of published messages which were not sent, as they did not fit the game seen so
+     * far or had a body larger than MessageCodec.MAX_BODY_SIZE.
+     * @return dropped messages so far.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    /**
+     * Function to send a message of the game to every spectator. Returns at once, never blocks on spectators.
+     * @param message to broadcast, typically RESULT, SUNK or GAME_OVER.
+     */
+    public void publish(Message message) {
+        published.add(message);
+        if (wakeupPending.compareAndSet(false, true)) {
+            selector.wakeup();
+        }
+    }
+
+    /**
+     * Stops the selector thread and closes the spectator port and every spectator connection.
+     * @throws IOException if the hub was not started.
+     */
+    public void close() throws IOException {
+        if (loop == null) {
+            throw new IOException("Spectator hub is not running.");
+        }
+        running = false;
+        selector.wakeup();
+        try {
+            loop.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Selector loop accepting spectators, appending published frames to the ring and writing them out.
+     */
+    private void run() {
+        try {
+            while (running) {
+                selector.select();
+                wakeupPending.set(false);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    Spectator spectator = (Spectator) key.attachment();
+                    if (key.isReadable()) {
+                        discardInput(spectator);
+                    }
+                    if (key.isValid() && key.isWritable()) {
+                        flush(spectator);
+                    }
+                }
+                drainPublished();
+            }
+        } catch (IOException e) {
+            System.out.println("Spectator hub stopped: " + e.getMessage());
+        } finally {
+            for (SelectionKey key : selector.keys()) {
+                Closer.closeQuietly(key);
+            }
+            Closer.closeQuietly(selector);
+        }
+    }
+
+    /**
+     * Helper method accepting every pending spectator and queueing its first snapshot.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel;
+        while ((channel = listener.accept()) != null) {
+            Spectator spectator = new Spectator(channel, ring.duplicate());
+            try {
+                channel.configureBlocking(false);
+                channel.socket().setTcpNoDelay(true);
+                spectator.key = channel.register(selector, SelectionKey.OP_READ, spectator);
+            } catch (IOException e) {
+                Closer.closeQuietly(channel);
+                continue;
+            }
+            spectators.add(spectator);
+            spectatorCount = spectators.size();
+            flush(spectator); // Not yet attached, so it starts with a snapshot.
+        }
+    }
+
+    /**
+     * Helper method reading and ignoring anything a spectator sends, to notice when it disconnects.
+     */
+    private void discardInput(Spectator spectator) {
+        try {
+            scratch.clear();
+            if (spectator.channel.read(scratch) == -1) {
+                disconnect(spectator);
+            }
+        } catch (IOException e) {
+            disconnect(spectator);
+        }
+    }
+
+    /**
+     * Helper method moving every published message into the ring, then writing to every spectator.
+     * Spectators which would lose unsent frames to the ring wrapping around are detached first, and every
+     * spectator is detached by a frame the ring can not hold at all.
+     */
+    private void drainPublished() {
+        if (published.isEmpty()) {
+            return;
+        }
+        Message message;
+        while ((message = published.poll()) != null) {
+            int size;
+            try {
+                size = MessageCodec.frameSize(message);
+                view.apply(message);
+            } catch (IOException | IllegalArgumentException e) {
+                dropped.incrementAndGet();
+                continue;
+            }
+            for (int i = 0; i < spectators.size(); i++) {
+                Spectator spectator = spectators.get(i);
+                if (spectator.attached && head + size - spectator.cursor > ring.capacity()) {
+                    detach(spectator);
+                    resyncs.incrementAndGet();
+                }
+            }
+            if (size <= ring.capacity()) {
+                append(message, size);
+            } else {
+                snapshot = null; // Now out of date, the view holds the frame but the ring does not.
+            }
+        }
+        for (int i = spectators.size() - 1; i >= 0; i--) {
+            flush(spectators.get(i));
+        }
+    }
+
+    /**
+     * Helper method encoding a message once and copying its frame into the ring, wrapping around if needed.
+     */
+    private void append(Message message, int size) {
+        ByteBuffer frame = scratch;
+        if (size > frame.capacity()) {
+            frame = ByteBuffer.allocate(size);
+        }
+        frame.clear();
+        MessageCodec.encode(message, frame);
+        frame.flip();
+        int offset = (int) (head & ringMask);
+        int first = Math.min(size, ring.capacity() - offset);
+        ring.limit(offset + first).position(offset);
+        frame.limit(first);
+        ring.put(frame);
+        if (first < size) {
+            ring.clear();
+            frame.limit(size);
+            ring.put(frame);
+        }
+        head += size;
+        frameEnds[(int) (frames++ & frameMask)] = head;
+    }
+
+    /**
+     * Helper method returning the current game as one SYNC frame, encoded once and shared by every spectator
+     * resynced before the next frame is appended.
+     */
+    private ByteBuffer snapshot() {
+        if (snapshotFrames != frames || snapshot == null) {
+            Message sync = compressor == null ? view.snapshot() : compressor.compress(view.snapshot());
+            ByteBuffer frame = ByteBuffer.allocate(MessageCodec.frameSize(sync));
+            MessageCodec.encode(sync, frame);
+            frame.flip();
+            snapshot = frame.asReadOnlyBuffer();
+            snapshotFrames = frames;
+        }
+        return snapshot.duplicate();
+    }
+
+    /**
+     * Helper method detaching a spectator which fell a ring behind. The rest of a frame it is half way through
+     * is kept so its stream stays well formed, the frames after it are skipped.
+     */
+    private void detach(Spectator spectator) {
+        spectator.attached = false;
+        long frameEnd = frameEnd(spectator);
+        if (frameEnd > spectator.cursor) {
+            ByteBuffer rest = ByteBuffer.allocate((int) (frameEnd - spectator.cursor));
+            ring.clear();
+            while (rest.hasRemaining()) {
+                rest.put(ring.get((int) (spectator.cursor++ & ringMask)));
+            }
+            rest.flip();
+            spectator.pending = rest;
+        }
+    }
+
+    /**
+     * Helper method returning the end of the ring frame a spectator's cursor is in, or the cursor between frames.
+     */
+    private long frameEnd(Spectator spectator) {
+        spectator.frame = Math.max(spectator.frame, frames - frameEnds.length);
+        while (spectator.frame < frames && frameEnds[(int) (spectator.frame & frameMask)] <= spectator.cursor) {
+            spectator.frame++;
+        }
+        return spectator.frame < frames ? frameEnds[(int) (spectator.frame & frameMask)] : spectator.cursor;
+    }
+
+    /**
+     * Helper method writing as much as a spectator's socket accepts: first its pending bytes, then, once a
+     * detached spectator has sent them all, a snapshot after which it follows the ring again.
+     */
+    private void flush(Spectator spectator) {
+        if (!spectator.key.isValid()) {
+            return;
+        }
+        try {
+            boolean blocked = false;
+            while (!blocked) {
+                if (spectator.pending != null && spectator.pending.hasRemaining()) {
+                    blocked = write(spectator, spectator.pending);
+                } else if (!spectator.attached) {
+                    spectator.pending = snapshot();
+                    spectator.cursor = head;
+                    spectator.frame = frames;
+                    spectator.attached = true;
+                } else if (spectator.cursor < head) {
+                    int offset = (int) (spectator.cursor & ringMask);
+                    int length = (int) Math.min(head - spectator.cursor, ring.capacity() - offset);
+                    spectator.view.limit(offset + length).position(offset);
+                    int written = spectator.channel.write(spectator.view);
+                    spectator.cursor += written;
+                    recordSent(written);
+                    blocked = written < length;
+                } else {
+                    break;
+                }
+            }
+            int ops = blocked ? SelectionKey.OP_READ | SelectionKey.OP_WRITE : SelectionKey.OP_READ;
+            if (spectator.key.interestOps() != ops) {
+                spectator.key.interestOps(ops);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            disconnect(spectator); // Gone, or the game's snapshot is larger than a frame can hold.
+        }
+    }
+
+    /**
+     * Helper method writing a buffer private to a spectator.
+     * @return true if the socket could not take all of it.
+     */
+    private boolean write(Spectator spectator, ByteBuffer buffer) throws IOException {
+        recordSent(spectator.channel.write(buffer));
+        return buffer.hasRemaining();
+    }
+
+    private static void recordSent(int bytes) {
+        if (Metrics.ENABLED) {
+            Metrics.BYTES_SENT.add(bytes);
+        }
+    }
+
+    private void disconnect(Spectator spectator) {
+        Closer.closeQuietly(spectator.key);
+        spectators.remove(spectator);
+        spectatorCount = spectators.size();
+    }
+
+    /**
+     * Per spectator state owned by the selector thread.
+     */
+    private static final class Spectator {
+        private final SocketChannel channel;
+        private final ByteBuffer view; // This spectator's window on the shared ring.
+        private SelectionKey key;
+        private ByteBuffer pending;    // Snapshot or rest of a skipped frame, sent before the ring.
+        private long cursor;           // Next ring byte to send.
+        private long frame;            // Number of the first ring frame not fully sent.
+        private boolean attached;
+
+        private Spectator(SocketChannel channel, ByteBuffer view) {
+            this.channel = channel;
+            this.view = view;
+        }
+    }
+
+    /**
+     * View class holding a game as its spectators see it: for each seat, the fog-of-war board it shoots at.
+     * The hub keeps one to take snapshots, and a spectator client applies the frames it receives to one.
+     */
+    public static final class View {
+        private final BitBoard[] boards;
+        private int shooter;
+        private FrameCompressor decompressor; // Opens compressed snapshots, created on the first one.
+
+        /**
+         * Constructor for View.
+         * @param width of the game's boards.
+         * @param height of the game's boards.
+         */
+        public View(int width, int height) {
+            this.boards = new BitBoard[] {
+                new BitBoard(width, height, BoardCell.CellState.UNKNOWN),
+                new BitBoard(width, height, BoardCell.CellState.UNKNOWN)
+            };
+        }
+
+        /**
+         * Function to apply a frame of the spectator stream. Frames other than SYNC, RESULT and COMPRESSED
+         * change nothing.
+         * @param message received from the hub.
+         * @throws IOException if the message does not fit the game seen so far.
+         */
+        public void apply(Message message) throws IOException {
+            switch (message.getType()) {
+                case COMPRESSED:
+                    if (decompressor == null) {
+                        decompressor = new FrameCompressor();
+                    }
+                    apply(decompressor.decompress(message));
+                    break;
+                case SYNC:
+                    ByteBuffer in = ByteBuffer.wrap(message.getPayload());
+                    BoardDelta.apply(in, boards[0], 0);
+                    BoardDelta.apply(in, boards[1], 0);
+                    shooter = getShots(0) > getShots(1) ? 1 : 0;
+                    break;
+                case RESULT:
+                    try {
+                        boards[shooter].reveal(message.getX(), message.getY(), message.getState());
+                    } catch (IndexOutOfBoundsException | IllegalStateException | IllegalArgumentException e) {
+                        throw new IOException("Result does not fit the game: " + message, e);
+                    }
+                    shooter = 1 - shooter;
+                    break;
+                default:
+                    break;
+            }
+        }
+
+        /**
+         * Function to get the fog-of-war board a seat shoots at.
+         * @param seat 0 or 1.
+         * @return board holding the HIT and MISS cells of the seat's shots.
+         */
+        public GameBoard getBoard(int seat) {
+            return boards[seat];
+        }
+
+        /**
+         * Function to get the number of shots a seat fired.
+         * @param seat 0 or 1.
+         * @return shots.
+         */
+        public int getShots(int seat) {
+            return (int) (boards[seat].getVersion() - boards[seat].getOldestVersion());
+        }
+
+        /**
+         * Function to get the seat whose shot the next RESULT frame is.
+         * @return 0 or 1.
+         */
+        public int getNextShooter() {
+            return shooter;
+        }
+
+        /**
+         * Function to get the whole view as one SYNC message.
+         * @return the snapshot.
+         */
+        public Message snapshot() {
+            byte[] first = BoardDelta.encode(boards[0], 0);
+            byte[] second = BoardDelta.encode(boards[1], 0);
+            byte[] payload = new byte[first.length + second.length];
+            System.arraycopy(first, 0, payload, 0, first.length);
+            System.arraycopy(second, 0, payload, first.length, second.length);
+            return Message.sync(payload);
+        }
+    }
+}
@@ -0,0 +1,198 @@
+package com.github.jlavigueure;
+
+import java.util.SplittableRandom;
+
+/**
+ * TargetIndex class keeps the shot-legality and targeting sets of one board, maintained by the board's
+ * hit, hitAll, reveal and reset so targeting never scans the whole board:
+ * <ul>
+ * <li>untried cells, neither HIT nor MISS yet, which can be sampled uniformly in constant time;</li>
+ * <li>open hits, HIT cells whose ship is not known to be sunk, the frontier a targeter finishes ships from.</li>
+ * </ul>
+ * Both sets are dense arrays of cell indexes y * width + x with a position per cell, so membership, adding
+ * and removing are O(1) and iterating costs the size of the set, not of the board. Removing a cell moves the
+ * last cell of the set into its slot.
+ * <p>
+ * A board resolves the hits of its own ships once they sink. On a fog-of-war board only the player knows
+ * which hits belong to a sunk ship and calls resolveHit for them. Not thread safe, like the boards.
+ */
+public class TargetIndex {
+    private final int width;
+    private final int[] untried;        // Untried cells, the first untriedCount entries are valid.
+    private final int[] untriedPosition; // Position of each cell in untried, -1 once shot.
+    private int untriedCount;
+    private final int[] openHits;       // Open hits, the first openHitCount entries are valid.
+    private final int[] openHitPosition; // Position of each cell in openHits, -1 when not an open hit.
+    private int openHitCount;
+
+    /**
+     * Constructor for TargetIndex, every cell untried. Boards create their own, see GameBoard.getTargetIndex.
+     * @param width of the board.
+     * @param height of the board.
+     */
+    TargetIndex(int width, int height) {
+        this.width = width;
+        int cells = width * height;
+        this.untried = new int[cells];
+        this.untriedPosition = new int[cells];
+        this.openHits = new int[cells];
+        this.openHitPosition = new int[cells];
+        reset(true);
+    }
+
+    /**
+     * Function to build the index of a board as it is now. Every HIT cell starts as an open hit,
+     * the board resolves the cells of its sunk ships afterwards.
+     * @param board to index.
+     * @return the index.
+     */
+    static TargetIndex of(GameBoard board) {
+        int width = board.getWidth();
+        TargetIndex index = new TargetIndex(width, board.getHeight());
+        BoardCell.CellState[] row = new BoardCell.CellState[width];
+        for (int y = 0; y < board.getHeight(); y++) {
+            board.getRowStates(y, row);
+            for (int x = 0; x < width; x++) {
+                if (row[x] == BoardCell.CellState.HIT || row[x] == BoardCell.CellState.MISS) {
+                    index.markShot(y * width + x, row[x] == BoardCell.CellState.HIT);
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Function to clear the index after the board was reset.
+     * @param untried true if every cell is untried, false if every cell was already shot.
+     */
+    void reset(boolean untried) {
+        for (int i = 0; i < this.untried.length; i++) {
+            this.untried[i] = i;
+            untriedPosition[i] = untried ? i : -1;
+            openHitPosition[i] = -1;
+        }
+        untriedCount = untried ? this.untried.length : 0;
+        openHitCount = 0;
+    }
+
+    /**
+     * Function to record a cell turning HIT or MISS.
+     * @param cell index y * width + x, untried.
+     * @param hit true if the cell turned HIT.
+     */
+    void markShot(int cell, boolean hit) {
+        int slot = untriedPosition[cell];
+        int last = untried[--untriedCount];
+        untried[slot] = last;
+        untriedPosition[last] = slot;
+        untriedPosition[cell] = -1;
+        if (hit) {
+            openHitPosition[cell] = openHitCount;
+            openHits[openHitCount++] = cell;
+        }
+    }
+
+    /**
+     * Function to resolve every cell of a sunk ship placed on the board.
+     * @param ship sunk, placed on this index's board.
+     */
+    void resolveShip(Ship ship) {
+        int dx = ship.getDirection().getDx();
+        int dy = ship.getDirection().getDy();
+        for (int i = 0; i < ship.getSize(); i++) {
+            resolveHit((ship.getY() + dy * i) * width + ship.getX() + dx * i);
+        }
+    }
+
+    /**
+     * Function to mark a hit as belonging to a sunk ship, so it stops being an open hit.
+     * Cells which are not open hits are ignored.
+     * @param cell index y * width + x.
+     * @throws IndexOutOfBoundsException if the cell is not on the board.
+     */
+    public void resolveHit(int cell) {
+        int slot = openHitPosition[cell];
+        if (slot < 0) {
+            return;
+        }
+        int last = openHits[--openHitCount];
+        openHits[slot] = last;
+        openHitPosition[last] = slot;
+        openHitPosition[cell] = -1;
+    }
+
+    /**
+     * Function to get the number of cells not shot yet.
+     * @return untried cells.
+     */
+    public int getUntriedCount() {
+        return untriedCount;
+    }
+
+    /**
+     * Function to get an untried cell by position. Positions change as cells are shot.
+     * @param i position in [0, getUntriedCount()).
+     * @return cell index y * width + x.
+     * @throws IndexOutOfBoundsException if i is out of range.
+     */
+    public int getUntried(int i) {
+        if (i < 0 || i >= untriedCount) {
+            throw new IndexOutOfBoundsException("Invalid untried cell position: " + i);
+        }
+        return untried[i];
+    }
+
+    /**
+     * Function to pick an untried cell uniformly at random in constant time.
+     * @param random generator to draw from.
+     * @return cell index y * width + x.
+     * @throws IllegalStateException if every cell was shot.
+     */
+    public int sampleUntried(SplittableRandom random) {
+        if (untriedCount == 0) {
+            throw new IllegalStateException("No unknown cell left to shoot at.");
+        }
+        return untried[random.nextInt(untriedCount)];
+    }
+
+    /**
+     * Function to tell whether a cell may still be shot.
+     * @param cell index y * width + x.
+     * @return true if the cell is neither HIT nor MISS.
+     * @throws IndexOutOfBoundsException if the cell is not on the board.
+     */
+    public boolean isUntried(int cell) {
+        return untriedPosition[cell] >= 0;
+    }
+
+    /**
+     * Function to get the number of hits whose ship is not known to be sunk.
+     * @return open hits.
+     */
+    public int getOpenHitCount() {
+        return openHitCount;
+    }
+
+    /**
+     * Function to get an open hit by position. Positions change as hits are resolved.
+     * @param i position in [0, getOpenHitCount()).
+     * @return cell index y * width + x.
+     * @throws IndexOutOfBoundsException if i is out of range.
+     */
+    public int getOpenHit(int i) {
+        if (i < 0 || i >= openHitCount) {
+            throw new IndexOutOfBoundsException("Invalid open hit position: " + i);
+        }
+        return openHits[i];
+    }
+
+    /**
+     * Function to tell whether a cell is a hit whose ship is not known to be sunk.
+     * @param cell index y * width + x.
+     * @return true if the cell is an open hit.
+     * @throws IndexOutOfBoundsException if the cell is not on the board.
+     */
+    public boolean isOpenHit(int cell) {
+        return openHitPosition[cell] >= 0;
+    }
+}
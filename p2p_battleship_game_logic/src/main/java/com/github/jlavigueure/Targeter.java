@@ -0,0 +1,37 @@
+package com.github.jlavigueure;
+
+/**
+ * Targeter interface for opponent AIs. A targeter owns a fog-of-war board of the opponent,
+ * picks where to shoot next and learns from the results of its shots.
+ */
+public interface Targeter {
+    /**
+     * Function to choose the next cell to shoot at. The cell is always UNKNOWN on the fog-of-war board.
+     * @return cell index y * width + x.
+     * @throws IllegalStateException if no UNKNOWN cell is left.
+     */
+    int nextShot();
+
+    /**
+     * Function to record the result of a shot, revealing it on the fog-of-war board.
+     * @param x The x-coordinate of the cell.
+     * @param y The y-coordinate of the cell.
+     * @param result HIT or MISS.
+     */
+    void reveal(int x, int y, BoardCell.CellState result);
+
+    /**
+     * Function to record that the shot at the given cell sank a ship.
+     * @param x The x-coordinate of the shot which sank the ship.
+     * @param y The y-coordinate of the shot which sank the ship.
+     * @param type of the sunk ship.
+     */
+    void shipSunk(int x, int y, Ship.ShipType type);
+
+    /**
+     * Function to start a new game against a fleet of the same composition. Resets the fog-of-war board
+     * to UNKNOWN and reseeds any randomness, so simulations can reuse one targeter for many games.
+     * @param seed for the new game.
+     */
+    void reset(long seed);
+}
@@ -0,0 +1,80 @@
+package com.github.jlavigueure;
+
+import java.lang.reflect.Method;
+
+/**
+ * Enum representing the kind of thread a Connection is served on.
+ * VIRTUAL uses Java 21 virtual threads, so tens of thousands of idle connections cost a few KB each
+ * instead of a platform thread stack each. The build still targets Java 8, virtual threads are looked up
+ * at runtime and VIRTUAL is only available when running on Java 21 or newer.
+ */
+public enum ThreadMode {
+    PLATFORM,
+    VIRTUAL;
+
+    /**
+     * Function which returns true if threads of this mode can be created on the running JVM.
+     * @return true if available.
+     */
+    public boolean isAvailable() {
+        return this == PLATFORM || VirtualThreads.AVAILABLE;
+    }
+
+    /**
+     * Function to create an unstarted thread of this mode.
+     * @param name of the thread.
+     * @param task run by the thread.
+     * @return the unstarted thread.
+     * @throws UnsupportedOperationException if the mode is not available on the running JVM.
+     */
+    public Thread newThread(String name, Runnable task) {
+        if (this == PLATFORM) {
+            Thread thread = new Thread(task, name);
+            thread.setDaemon(true);
+            return thread;
+        }
+        if (!VirtualThreads.AVAILABLE) {
+            throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.");
+        }
+        return VirtualThreads.newThread(name, task);
+    }
+
+    /**
+     * Holder looking up the Java 21 Thread.Builder API once.
+     */
+    private static final class VirtualThreads {
+        private static final Method OF_VIRTUAL;
+        private static final Method NAME;
+        private static final Method UNSTARTED;
+        private static final boolean AVAILABLE;
+        static {
+            Method ofVirtual = null;
+            Method name = null;
+            Method unstarted = null;
+            boolean available = false;
+            try {
+                Class<?> builder = Class.forName("java.lang.Thread$Builder");
+                ofVirtual = Thread.class.getMethod("ofVirtual");
+                name = builder.getMethod("name", String.class);
+                unstarted = builder.getMethod("unstarted", Runnable.class);
+                unstarted.invoke(ofVirtual.invoke(null), (Runnable) () -> { });
+                available = true;
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                // Older JVM, or virtual threads still behind --enable-preview.
+            }
+            OF_VIRTUAL = ofVirtual;
+            NAME = name;
+            UNSTARTED = unstarted;
+            AVAILABLE = available;
+        }
+
+        private static Thread newThread(String threadName, Runnable task) {
+            try {
+                Object builder = NAME.invoke(OF_VIRTUAL.invoke(null), threadName);
+                return (Thread) UNSTARTED.invoke(builder, task);
+            } catch (ReflectiveOperationException e) {
+                throw new UnsupportedOperationException("Failed to create virtual thread.", e);
+            }
+        }
+    }
+}
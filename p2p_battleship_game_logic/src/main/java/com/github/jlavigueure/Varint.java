@@ -0,0 +1,50 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Varint holds the unsigned LEB128 helpers shared by the binary board formats: 7 bits per byte,
+ * low bits first, the high bit set on every byte but the last.
+ */
+final class Varint {
+    private Varint() {
+    }
+
+    static void put(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static int getInt(ByteBuffer in) throws IOException {
+        long value = getLong(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Varint out of range: " + value);
+        }
+        return (int) value;
+    }
+
+    static long getLong(ByteBuffer in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Varint too long.");
+    }
+
+    static int size(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+}
@@ -0,0 +1,191 @@
+package com.github.jlavigueure;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BitBoardTest {
+
+    private BitBoard board;
+    private Ship mockShip;
+
+    @BeforeEach
+    public void setup() {
+        board = new BitBoard(5, 5, BoardCell.CellState.EMPTY);
+        mockShip = new Ship(Ship.ShipType.CRUISER);
+    }
+
+    @Test
+    public void testBoardInitialization() {
+        assertEquals(BoardCell.CellState.EMPTY, board.getState(0, 0));
+        assertEquals(BoardCell.CellState.UNKNOWN, new BitBoard(5, 5, BoardCell.CellState.UNKNOWN).getState(4, 4));
+    }
+
+    @Test
+    public void testPlaceShipSuccessfully() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(0, 0));
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(1, 0));
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(2, 0));
+        assertSame(mockShip, board.getShip(2, 0));
+        assertNull(board.getShip(3, 0));
+    }
+
+    @Test
+    public void testPlaceShipOutOfBoundsThrowsException() {
+        assertThrows(IndexOutOfBoundsException.class, () -> {
+            board.placeShip(4, 4, Board.Direction.RIGHT, mockShip);
+        });
+        assertEquals(BoardCell.CellState.EMPTY, board.getState(4, 4));
+    }
+
+    @Test
+    public void testPlaceShipOverlappingThrowsException() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        Ship other = new Ship(Ship.ShipType.DESTROYER);
+        assertThrows(IllegalArgumentException.class, () -> {
+            board.placeShip(3, 0, Board.Direction.LEFT, other);
+        });
+        assertEquals(BoardCell.CellState.EMPTY, board.getState(3, 0));
+    }
+
+    @Test
+    public void testCannotPlaceSameShipTwice() {
+        board.placeShip(1, 1, Board.Direction.RIGHT, mockShip);
+        assertThrows(IllegalArgumentException.class, () -> {
+            board.placeShip(0, 2, Board.Direction.DOWN, mockShip);
+        });
+    }
+
+    @Test
+    public void testHitOccupiedAndEmptyCells() {
+        board.placeShip(0, 0, Board.Direction.DOWN, mockShip);
+        assertEquals(BoardCell.CellState.HIT, board.hit(0, 1));
+        assertEquals(1, mockShip.getHits());
+        assertEquals(BoardCell.CellState.MISS, board.hit(4, 4));
+    }
+
+    @Test
+    public void testHitAlreadyHitCellThrowsException() {
+        board.hit(4, 4);
+        assertThrows(IllegalStateException.class, () -> board.hit(4, 4));
+    }
+
+    @Test
+    public void testHitUnknownCellThrowsException() {
+        BitBoard fogBoard = new BitBoard(5, 5, BoardCell.CellState.UNKNOWN);
+        assertThrows(IllegalStateException.class, () -> fogBoard.hit(0, 0));
+    }
+
+    @Test
+    public void testReveal() {
+        BitBoard fogBoard = new BitBoard(5, 5, BoardCell.CellState.UNKNOWN);
+        fogBoard.reveal(1, 1, BoardCell.CellState.MISS);
+        fogBoard.reveal(2, 1, BoardCell.CellState.HIT);
+        assertEquals(BoardCell.CellState.MISS, fogBoard.getState(1, 1));
+        assertEquals(BoardCell.CellState.HIT, fogBoard.getState(2, 1));
+        assertThrows(IllegalStateException.class, () -> fogBoard.reveal(1, 1, BoardCell.CellState.HIT));
+        assertThrows(IllegalArgumentException.class, () -> fogBoard.reveal(0, 0, BoardCell.CellState.OCCUPIED));
+        assertThrows(IllegalStateException.class, () -> board.reveal(0, 0, BoardCell.CellState.HIT));
+    }
+
+    @Test
+    public void testAllShipsSunk() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.hit(0, 0);
+        board.hit(1, 0);
+        assertFalse(board.allShipsSunk());
+        board.hit(2, 0);
+        assertTrue(board.allShipsSunk());
+    }
+
+    @Test
+    public void testNonSquareBoard() {
+        BitBoard wide = new BitBoard(12, 3, BoardCell.CellState.EMPTY);
+        wide.placeShip(11, 0, Board.Direction.DOWN, mockShip);
+        assertEquals(BoardCell.CellState.HIT, wide.hit(11, 2));
+        assertThrows(IndexOutOfBoundsException.class, () -> wide.getState(0, 3));
+        assertEquals(wide.toString(), toBoard(wide).toString());
+    }
+
+    @Test
+    public void testToStringMatchesBoard() {
+        Board reference = new Board(5, 5, BoardCell.CellState.EMPTY);
+        reference.placeShip(1, 1, Board.Direction.RIGHT, new Ship(Ship.ShipType.CRUISER));
+        board.placeShip(1, 1, Board.Direction.RIGHT, mockShip);
+        reference.hit(1, 1);
+        board.hit(1, 1);
+        reference.hit(2, 0);
+        board.hit(2, 0);
+        assertEquals(reference.toString(), board.toString());
+    }
+
+    @Test
+    public void testInvalidConstructionThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new BitBoard(0, 5, BoardCell.CellState.EMPTY));
+        assertThrows(IllegalArgumentException.class, () -> new BitBoard(5, 5, BoardCell.CellState.OCCUPIED));
+    }
+
+    @Test
+    public void testLastSunkAndSunkListener() {
+        Ship destroyer = new Ship(Ship.ShipType.DESTROYER);
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.placeShip(0, 1, Board.Direction.RIGHT, destroyer);
+        final Ship[] notified = new Ship[1];
+        board.setSunkListener(ship -> notified[0] = ship);
+        board.hit(0, 1);
+        assertNull(board.getLastSunk());
+        board.hit(1, 1);
+        assertSame(destroyer, board.getLastSunk());
+        assertSame(destroyer, notified[0]);
+        board.hit(3, 3);
+        assertNull(board.getLastSunk());
+        assertFalse(board.allShipsSunk());
+    }
+
+
+    @Test
+    public void testHitAllReturnsPackedResults() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        long[] result = board.hitAll(new int[] {0, 4, 1, 2}, new int[] {0, 4, 0, 0});
+        assertEquals(1, result.length);
+        assertEquals(0b1101L, result[0]);
+        assertEquals(BoardCell.CellState.MISS, board.getState(4, 4));
+        assertSame(mockShip, board.getLastSunk());
+        assertTrue(board.allShipsSunk());
+    }
+
+    @Test
+    public void testHitAllIsAtomic() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.hit(3, 3);
+        assertThrows(IllegalStateException.class, () -> board.hitAll(new int[] {0, 3}, new int[] {0, 3}));
+        assertThrows(IllegalArgumentException.class, () -> board.hitAll(new int[] {0, 1, 0}, new int[] {0, 0, 0}));
+        assertThrows(IndexOutOfBoundsException.class, () -> board.hitAll(new int[] {1, 5}, new int[] {0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> board.hitAll(new int[] {1}, new int[] {}));
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(0, 0));
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(1, 0));
+        assertEquals(0, mockShip.getHits());
+        // The rejected salvos leave nothing behind, so the same cells can still be fired at.
+        assertEquals(0b11L, board.hitAll(new int[] {0, 1}, new int[] {0, 0})[0]);
+    }
+
+    /**
+     * Helper which copies the cell states of a BitBoard onto an object grid Board.
+     */
+    private static Board toBoard(BitBoard source) {
+        Board copy = new Board(source.getWidth(), source.getHeight(), BoardCell.CellState.EMPTY);
+        for (int y = 0; y < source.getHeight(); y++) {
+            for (int x = 0; x < source.getWidth(); x++) {
+                BoardCell.CellState state = source.getState(x, y);
+                if (state == BoardCell.CellState.OCCUPIED || state == BoardCell.CellState.HIT) {
+                    copy.getCell(x, y).setOccupied(new Ship(Ship.ShipType.DESTROYER));
+                }
+                if (state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS) {
+                    copy.getCell(x, y).hit();
+                }
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,140 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardDeltaTest {
+
+    @Test
+    public void testVersionMovesForwardOnEveryVisibleChange() {
+        BitBoard board = new BitBoard(4, 4, BoardCell.CellState.EMPTY);
+        long start = board.getVersion();
+        board.placeShip(0, 0, Board.Direction.RIGHT, new Ship(Ship.ShipType.DESTROYER));
+        assertEquals(start, board.getVersion());
+        board.hit(0, 0);
+        board.hitAll(new int[] {3, 1}, new int[] {3, 0});
+        assertEquals(start + 3, board.getVersion());
+        assertEquals(1 * 4 + 0, board.getChangedCell(start) + 4);
+        assertEquals(3 * 4 + 3, board.getChangedCell(start + 1));
+        board.reset(BoardCell.CellState.UNKNOWN);
+        assertTrue(board.getVersion() > start + 3);
+        assertEquals(board.getVersion(), board.getOldestVersion());
+        assertThrows(IndexOutOfBoundsException.class, () -> board.getChangedCell(start));
+    }
+
+    @Test
+    public void testDeltaCarriesOnlyNewShots() throws IOException {
+        BitBoard own = new BitBoard(1000, 1000, BoardCell.CellState.EMPTY);
+        new FleetPlacer(1000, 1000).place(own, new SplittableRandom(3));
+        BitBoard replica = new BitBoard(1000, 1000, BoardCell.CellState.UNKNOWN);
+        long synced = BoardDelta.apply(ByteBuffer.wrap(BoardDelta.encode(own, 0)), replica, 0);
+        SplittableRandom random = new SplittableRandom(4);
+        for (int i = 0; i < 10; i++) {
+            own.hit(random.nextInt(1000), random.nextInt(1000));
+        }
+        byte[] delta = BoardDelta.encode(own, synced);
+        assertTrue(delta.length < 64, "Delta of 10 shots took " + delta.length + " bytes");
+        synced = BoardDelta.apply(ByteBuffer.wrap(delta), replica, synced);
+        assertEquals(own.getVersion(), synced);
+        assertSameView(own, replica);
+        assertEquals(9, BoardDelta.encode(own, synced).length); // Header only once in sync.
+    }
+
+    @Test
+    public void testFullSyncHidesShipsAndReplacesReplica() throws IOException {
+        Board own = new Board(12, 9, BoardCell.CellState.EMPTY);
+        own.placeShip(2, 2, Board.Direction.DOWN, new Ship(Ship.ShipType.CARRIER));
+        for (int x = 0; x < 12; x++) {
+            own.hit(x, 4);
+        }
+        own.hit(2, 2);
+        Board replica = new Board(12, 9, BoardCell.CellState.UNKNOWN);
+        replica.reveal(11, 8, BoardCell.CellState.HIT); // Stale cell from before a reset, dropped by the full sync.
+        BoardDelta.apply(ByteBuffer.wrap(BoardDelta.encode(own, 0)), replica, 42);
+        assertSameView(own, replica);
+        assertEquals(BoardCell.CellState.UNKNOWN, replica.getState(2, 3));
+    }
+
+    @Test
+    public void testRejectsDeltaFromAnotherVersion() {
+        BitBoard own = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        own.hit(1, 1);
+        long version = own.getVersion();
+        own.hit(2, 2);
+        byte[] delta = BoardDelta.encode(own, version);
+        BitBoard replica = new BitBoard(10, 10, BoardCell.CellState.UNKNOWN);
+        assertThrows(IOException.class, () -> BoardDelta.apply(ByteBuffer.wrap(delta), replica, version - 1));
+        assertThrows(IOException.class, () -> BoardDelta.apply(ByteBuffer.wrap(delta),
+                new BitBoard(10, 11, BoardCell.CellState.UNKNOWN), version));
+        replica.reveal(2, 2, BoardCell.CellState.HIT); // The source board has no ships, so (2, 2) is a MISS.
+        assertThrows(IOException.class, () -> BoardDelta.apply(ByteBuffer.wrap(delta), replica, version));
+    }
+
+    @Test
+    public void testReconnectOverMessages() throws IOException {
+        BitBoard own = new BitBoard(20, 20, BoardCell.CellState.EMPTY);
+        new FleetPlacer(20, 20).place(own, new SplittableRandom(9));
+        BitBoard fog = new BitBoard(20, 20, BoardCell.CellState.UNKNOWN);
+        long synced = 0;
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 7; i++) {
+                int cell = round * 80 + i * 11;
+                own.hit(cell % 20, cell / 20);
+            }
+            Message request = roundTrip(Message.syncRequest(synced));
+            Message answer = roundTrip(Message.sync(BoardDelta.encode(own, request.getVersion())));
+            synced = BoardDelta.apply(ByteBuffer.wrap(answer.getPayload()), fog, synced);
+            assertSameView(own, fog);
+        }
+    }
+
+    @Test
+    public void testSessionAnswersSyncRequest() throws IOException {
+        List<Message> toSeat0 = new ArrayList<>();
+        GameSession session = new GameSession(10, 10, (seat, message) -> {
+            if (seat == 0) toSeat0.add(message);
+        });
+        Ship.ShipType[] types = Ship.ShipType.values();
+        for (int seat = 0; seat < 2; seat++) {
+            for (int i = 0; i < types.length; i++) {
+                assertTrue(session.handle(seat, Message.place(0, i * 2, Board.Direction.RIGHT, types[i])));
+            }
+        }
+        BitBoard fog = new BitBoard(10, 10, BoardCell.CellState.UNKNOWN);
+        long synced = 0;
+        for (int shot = 0; shot < 12; shot++) {
+            int cell = shot / 2 * 7;
+            assertTrue(session.handle(shot % 2, Message.shot(cell % 10, cell / 10)));
+            toSeat0.clear();
+            assertTrue(session.handle(0, roundTrip(Message.syncRequest(synced))));
+            assertEquals(1, toSeat0.size());
+            Message answer = roundTrip(toSeat0.get(0));
+            assertEquals(Message.Type.SYNC, answer.getType());
+            synced = BoardDelta.apply(ByteBuffer.wrap(answer.getPayload()), fog, synced);
+            assertSameView(session.getBoard(1), fog);
+        }
+    }
+
+    private static Message roundTrip(Message message) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.frameSize(message));
+        MessageCodec.encode(message, buffer);
+        buffer.flip();
+        return MessageCodec.decode(buffer);
+    }
+
+    private static void assertSameView(GameBoard own, GameBoard replica) {
+        for (int y = 0; y < own.getHeight(); y++) {
+            for (int x = 0; x < own.getWidth(); x++) {
+                BoardCell.CellState state = own.getState(x, y);
+                BoardCell.CellState seen = state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS
+                        ? state : BoardCell.CellState.UNKNOWN;
+                assertEquals(seen, replica.getState(x, y), "Cell (" + x + ", " + y + ")");
+            }
+        }
+    }
+}
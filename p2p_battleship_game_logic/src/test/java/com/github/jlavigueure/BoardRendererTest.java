@@ -0,0 +1,95 @@
+package com.github.jlavigueure;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks BoardRenderer draws every board kind in the Board.toString format and that incremental updates
+ * re-emit exactly the cells shot since the previous update.
+ */
+public class BoardRendererTest {
+
+    @Test
+    public void testRendersEveryBoardKindAlike() throws Exception {
+        GameBoard[] boards = {
+            new Board(13, 7, BoardCell.CellState.EMPTY),
+            new BitBoard(13, 7, BoardCell.CellState.EMPTY),
+            new SparseBoard(13, 7, BoardCell.CellState.EMPTY),
+            new ConcurrentBoard(13, 7, BoardCell.CellState.EMPTY)
+        };
+        for (GameBoard board : boards) {
+            new FleetPlacer(13, 7).place(board, new SplittableRandom(5));
+            for (int cell = 0; cell < 40; cell += 3) {
+                board.hit(cell % 13, cell / 13);
+            }
+        }
+        String expected = drawCellByCell(boards[0]);
+        for (GameBoard board : boards) {
+            char[] text = new char[BoardRenderer.getTextLength(13, 7) + 2];
+            assertEquals(text.length - 2, BoardRenderer.render(board, text, 1));
+            assertEquals(expected, new String(text, 1, text.length - 2));
+            StringBuilder builder = new StringBuilder();
+            StringWriter writer = new StringWriter();
+            StringBuffer other = new StringBuffer();
+            BoardRenderer.render(board, builder);
+            BoardRenderer.render(board, writer);
+            BoardRenderer.render(board, other);
+            assertEquals(expected, builder.toString());
+            assertEquals(expected, writer.toString());
+            assertEquals(expected, other.toString());
+            assertEquals(expected, board.toString());
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> BoardRenderer.render(boards[0], new char[100], 0));
+        assertEquals("X", new BoardCell(BoardCell.CellState.HIT).toString());
+    }
+
+    @Test
+    public void testUpdateReemitsOnlyChangedCells() {
+        BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        BoardRenderer renderer = new BoardRenderer(board);
+        List<String> emitted = new ArrayList<>();
+        BoardRenderer.CellListener listener = (x, y, glyph) -> emitted.add(x + "," + y + "=" + glyph);
+
+        assertEquals(100, renderer.update(listener));
+        assertEquals(100, emitted.size());
+        assertEquals(board.toString(), renderer.toString());
+        assertEquals(0, renderer.update(listener));
+
+        board.placeShip(2, 3, Board.Direction.RIGHT, new Ship(Ship.ShipType.DESTROYER));
+        assertEquals(100, renderer.update()); // Placements are not versioned, so they redraw everything.
+        emitted.clear();
+        board.hit(2, 3);
+        board.hit(9, 9);
+        board.hitAll(new int[] {0, 1}, new int[] {0, 0});
+        assertEquals(4, renderer.update(listener));
+        assertEquals(4, emitted.size());
+        assertTrue(emitted.contains("2,3=X"));
+        assertTrue(emitted.contains("9,9=O"));
+        assertEquals(board.toString(), new String(renderer.getText()));
+
+        board.reset(BoardCell.CellState.UNKNOWN);
+        board.reveal(5, 5, BoardCell.CellState.HIT);
+        assertEquals(100, renderer.update());
+        board.reveal(6, 5, BoardCell.CellState.MISS);
+        assertEquals(1, renderer.update());
+        assertEquals(board.toString(), renderer.toString());
+    }
+
+    /**
+     * Helper drawing a board the way Board.toString used to, one cell at a time.
+     */
+    private static String drawCellByCell(GameBoard board) {
+        StringBuilder sb = new StringBuilder();
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                sb.append('[').append(new BoardCell(board.getState(x, y)).toString()).append(']');
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+}
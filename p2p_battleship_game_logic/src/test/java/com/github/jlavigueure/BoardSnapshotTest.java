@@ -0,0 +1,131 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoardSnapshotTest {
+
+    @Test
+    public void testRoundTripGameInProgress() throws IOException {
+        BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        new FleetPlacer(10, 10).place(board, new SplittableRandom(5));
+        for (int i = 0; i < 60; i += 3) {
+            board.hit(i % 10, i / 10);
+        }
+        Ship destroyer = board.getPlacedShip(4);
+        for (int i = 0; i < destroyer.getSize(); i++) {
+            int x = destroyer.getX() + destroyer.getDirection().getDx() * i;
+            int y = destroyer.getY() + destroyer.getDirection().getDy() * i;
+            if (board.getState(x, y) == BoardCell.CellState.OCCUPIED) board.hit(x, y);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(BoardSnapshot.size(board));
+        BoardSnapshot.write(board, buffer);
+        assertEquals(50, buffer.position());
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+        BitBoard restored = BoardSnapshot.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(board.toString(), restored.toString());
+        assertEquals(board.getShipCount(), restored.getShipCount());
+        for (int i = 0; i < board.getShipCount(); i++) {
+            Ship original = board.getPlacedShip(i);
+            Ship copy = restored.getPlacedShip(i);
+            assertEquals(original.getType(), copy.getType());
+            assertEquals(original.getHits(), copy.getHits());
+            assertEquals(original.getX(), copy.getX());
+            assertEquals(original.getY(), copy.getY());
+            assertEquals(original.getDirection(), copy.getDirection());
+        }
+        assertTrue(restored.getPlacedShip(4).isSunk());
+    }
+
+    @Test
+    public void testRestoresIntoOtherBoardImplementation() throws IOException {
+        Board board = new Board(7, 5, BoardCell.CellState.EMPTY);
+        board.placeShip(6, 4, Board.Direction.UP, new Ship(Ship.ShipType.CARRIER));
+        board.placeShip(0, 0, Board.Direction.RIGHT, new Ship(Ship.ShipType.DESTROYER));
+        board.hit(0, 0);
+        board.hit(1, 0);
+        board.hit(3, 3);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        BoardSnapshot.write(board, buffer);
+        buffer.flip();
+        BitBoard restored = new BitBoard(7, 5, BoardCell.CellState.MISS);
+        BoardSnapshot.read(buffer, restored);
+        assertEquals(board.toString(), restored.toString());
+        assertTrue(restored.getShip(0, 0).isSunk());
+        assertFalse(restored.allShipsSunk());
+    }
+
+    @Test
+    public void testRoundTripFogOfWarBoard() throws IOException {
+        BitBoard fog = new BitBoard(9, 3, BoardCell.CellState.UNKNOWN);
+        fog.reveal(0, 0, BoardCell.CellState.HIT);
+        fog.reveal(8, 2, BoardCell.CellState.MISS);
+        ByteBuffer buffer = ByteBuffer.allocate(BoardSnapshot.size(fog));
+        BoardSnapshot.write(fog, buffer);
+        buffer.flip();
+        Board restored = new Board(9, 3, BoardCell.CellState.EMPTY);
+        BoardSnapshot.read(buffer, restored);
+        assertEquals(fog.toString(), restored.toString());
+        assertEquals(BoardCell.CellState.UNKNOWN, restored.getState(4, 1));
+    }
+
+    @Test
+    public void testRoundTripFullyRevealedFogOfWarBoard() throws IOException {
+        BitBoard fog = new BitBoard(2, 2, BoardCell.CellState.UNKNOWN);
+        fog.reveal(0, 0, BoardCell.CellState.HIT);
+        fog.reveal(1, 0, BoardCell.CellState.MISS);
+        fog.reveal(0, 1, BoardCell.CellState.MISS);
+        fog.reveal(1, 1, BoardCell.CellState.MISS);
+        ByteBuffer buffer = ByteBuffer.allocate(BoardSnapshot.size(fog));
+        BoardSnapshot.write(fog, buffer);
+        buffer.flip();
+        BitBoard restored = BoardSnapshot.read(buffer);
+        assertEquals(fog.toString(), restored.toString());
+        assertEquals(0, restored.getShipCount());
+    }
+
+    @Test
+    public void testReusesBuffer() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        BitBoard restored = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        for (int seed = 0; seed < 20; seed++) {
+            board.reset(BoardCell.CellState.EMPTY);
+            placer.place(board, new SplittableRandom(seed));
+            board.hit(seed % 10, seed / 10);
+            buffer.clear();
+            BoardSnapshot.write(board, buffer);
+            buffer.flip();
+            BoardSnapshot.read(buffer, restored);
+            assertEquals(board.toString(), restored.toString());
+        }
+    }
+
+    @Test
+    public void testRejectsBadSnapshots() {
+        BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        new FleetPlacer(10, 10).place(board, new SplittableRandom(1));
+        ByteBuffer buffer = ByteBuffer.allocate(BoardSnapshot.size(board));
+        BoardSnapshot.write(board, buffer);
+        byte[] bytes = buffer.array();
+
+        byte[] version = bytes.clone();
+        version[0] = 2;
+        assertThrows(IOException.class, () -> BoardSnapshot.read(ByteBuffer.wrap(version)));
+        assertThrows(IOException.class, () -> BoardSnapshot.read(ByteBuffer.wrap(bytes, 0, bytes.length - 1)));
+        assertThrows(IOException.class, () -> BoardSnapshot.read(ByteBuffer.wrap(bytes),
+                new BitBoard(10, 9, BoardCell.CellState.EMPTY)));
+        byte[] cells = bytes.clone();
+        cells[4] ^= 1; // Flips the first cell between EMPTY and OCCUPIED.
+        assertThrows(IOException.class, () -> BoardSnapshot.read(ByteBuffer.wrap(cells)));
+        byte[] hits = bytes.clone();
+        hits[hits.length - 1] = 1;
+        assertThrows(IOException.class, () -> BoardSnapshot.read(ByteBuffer.wrap(hits)));
+    }
+}
@@ -121,6 +121,39 @@ public class BoardTest {
         });
     }
 
+    @Test
+    public void testCannotPlaceShipOnTwoBoards() {
+        GameBoard[] boards = {
+            board, new BitBoard(5, 5, BoardCell.CellState.EMPTY), new SparseBoard(5, 5, BoardCell.CellState.EMPTY)
+        };
+        for (GameBoard first : boards) {
+            for (GameBoard second : boards) {
+                if (first == second) {
+                    continue;
+                }
+                first.reset(BoardCell.CellState.EMPTY);
+                second.reset(BoardCell.CellState.EMPTY);
+                Ship destroyer = new Ship(Ship.ShipType.DESTROYER);
+                first.placeShip(0, 0, Board.Direction.RIGHT, destroyer);
+                assertThrows(IllegalArgumentException.class, () -> second.placeShip(2, 2, Board.Direction.RIGHT, destroyer));
+                assertEquals(0, second.getShipCount());
+                assertEquals(0, destroyer.getX());
+                first.hit(0, 0);
+                first.hit(1, 0);
+                assertTrue(first.allShipsSunk());
+
+                // Once the first board is reset the ship is free for the second one, which alone tracks it.
+                first.reset(BoardCell.CellState.EMPTY);
+                destroyer.repair();
+                second.placeShip(2, 2, Board.Direction.RIGHT, destroyer);
+                first.reset(BoardCell.CellState.EMPTY);
+                second.hit(2, 2);
+                second.hit(3, 2);
+                assertTrue(second.allShipsSunk());
+            }
+        }
+    }
+
     @Test
     public void testBoardToStringWithHitsAndMisses() {
         // Place cruiser horizontally at (1, 1)
@@ -141,4 +174,67 @@ public class BoardTest {
 
         assertEquals(expected, board.toString(), "Board toString output did not match expected.");
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testLastSunkReportsShipSunkByMostRecentHit() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.hit(0, 0);
+        board.hit(1, 0);
+        assertNull(board.getLastSunk());
+        board.hit(2, 0);
+        assertSame(mockShip, board.getLastSunk());
+        board.hit(4, 4);
+        assertNull(board.getLastSunk());
+    }
+
+    @Test
+    public void testSunkListenerNotifiedOncePerShip() {
+        Ship destroyer = new Ship(Ship.ShipType.DESTROYER);
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.placeShip(0, 1, Board.Direction.RIGHT, destroyer);
+        final java.util.List<Ship> sunk = new java.util.ArrayList<>();
+        board.setSunkListener(sunk::add);
+        board.hit(0, 1);
+        board.hit(1, 1);
+        board.hit(0, 0);
+        assertEquals(1, sunk.size());
+        assertSame(destroyer, sunk.get(0));
+        assertFalse(board.allShipsSunk());
+    }
+
+    @Test
+    public void testFleetHealthTracksDirectCellAndShipHits() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.getCell(0, 0).hit();
+        mockShip.hit();
+        assertFalse(board.allShipsSunk());
+        mockShip.hit();
+        assertTrue(board.allShipsSunk());
+    }
+
+    @Test
+    public void testHitAllReturnsPackedResults() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        long[] result = board.hitAll(new int[] {0, 4, 1, 2}, new int[] {0, 4, 0, 0});
+        assertEquals(1, result.length);
+        assertEquals(0b1101L, result[0]);
+        assertEquals(BoardCell.CellState.MISS, board.getState(4, 4));
+        assertSame(mockShip, board.getLastSunk());
+        assertTrue(board.allShipsSunk());
+    }
+
+    @Test
+    public void testHitAllIsAtomic() {
+        board.placeShip(0, 0, Board.Direction.RIGHT, mockShip);
+        board.hit(3, 3);
+        assertThrows(IllegalStateException.class, () -> board.hitAll(new int[] {0, 3}, new int[] {0, 3}));
+        assertThrows(IllegalArgumentException.class, () -> board.hitAll(new int[] {0, 1, 0}, new int[] {0, 0, 0}));
+        assertThrows(IndexOutOfBoundsException.class, () -> board.hitAll(new int[] {1, 5}, new int[] {0, 0}));
+        assertThrows(IllegalArgumentException.class, () -> board.hitAll(new int[] {1}, new int[] {}));
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(0, 0));
+        assertEquals(BoardCell.CellState.OCCUPIED, board.getState(1, 0));
+        assertEquals(0, mockShip.getHits());
+        // The rejected salvos leave nothing behind, so the same cells can still be fired at.
+        assertEquals(0b11L, board.hitAll(new int[] {0, 1}, new int[] {0, 0})[0]);
+    }
+}
@@ -48,4 +48,239 @@ public class ClientServerTest {
         assertEquals("ping", message[0]);
         assertEquals("pong", message[1]);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testFramesSurviveSplitAndCoalescedWrites() throws Exception {
+        int testPort = 5061;
+        final Message[] received = new Message[4];
+        final Exception[] exception = new Exception[1];
+
+        Thread serverThread = new Thread(() -> {
+            try {
+                Server server = new Server(testPort, testPort);
+                server.connect();
+                for (int i = 0; i < received.length; i++) {
+                    received[i] = server.receiveFrame();
+                }
+                server.sendFrame(Message.gameOver(new byte[2000]));
+                server.close();
+            } catch (Exception e) {
+                exception[0] = e;
+            }
+        });
+        serverThread.start();
+        Thread.sleep(200); // Wait briefly for server to start
+
+        Client client = new Client("localhost", testPort);
+        client.connect();
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(256);
+        MessageCodec.encode(Message.shot(1, 2), buffer);
+        // Split the first frame byte by byte.
+        for (int i = 0; i < buffer.position(); i++) {
+            client.out.write(buffer.array()[i]);
+            client.out.flush();
+            Thread.sleep(2);
+        }
+        // Coalesce the remaining three frames into a single write.
+        buffer.clear();
+        MessageCodec.encode(Message.result(1, 2, BoardCell.CellState.HIT), buffer);
+        MessageCodec.encode(Message.sunk(1, 2, Ship.ShipType.DESTROYER), buffer);
+        MessageCodec.encode(Message.commit(new byte[] {9, 8, 7}), buffer);
+        client.out.write(buffer.array(), 0, buffer.position());
+        client.out.flush();
+        Message reply = client.receiveFrame();
+        client.close();
+
+        serverThread.join(2000);
+        if (exception[0] != null) {
+            fail("Server threw an exception: " + exception[0].getMessage());
+        }
+        assertEquals(Message.shot(1, 2), received[0]);
+        assertEquals(Message.result(1, 2, BoardCell.CellState.HIT), received[1]);
+        assertEquals(Message.sunk(1, 2, Ship.ShipType.DESTROYER), received[2]);
+        assertEquals(Message.commit(new byte[] {9, 8, 7}), received[3]);
+        assertEquals(2000, reply.getPayload().length);
+    }
+
+    @Test
+    public void testBindSkipsPortsInUseWithoutWaiting() throws Exception {
+        int minPort = 5100;
+        int busy = 10;
+        java.net.ServerSocket[] occupied = new java.net.ServerSocket[busy];
+        for (int i = 0; i < busy; i++) {
+            occupied[i] = new java.net.ServerSocket(minPort + i);
+        }
+        Server server = new Server(minPort, minPort + busy + 9);
+        long start = System.nanoTime();
+        int port = server.bind();
+        long bindNanos = System.nanoTime() - start;
+        for (java.net.ServerSocket socket : occupied) {
+            socket.close();
+        }
+        System.out.printf("Server bound port %d past %d ports in use in %d us%n", port, busy, bindNanos / 1000);
+        assertTrue(port >= minPort + busy);
+        assertEquals(port, server.getPort());
+        assertThrows(java.io.IOException.class, server::bind);
+
+        // Bound but not yet accepting: a client connecting now waits in the backlog.
+        Client client = new Client("localhost", port);
+        client.connect();
+        server.connect();
+        client.sendFrame(Message.turn());
+        assertEquals(Message.turn(), server.receiveFrame());
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testTimeoutsHeartbeatsAndDeadPeers() throws Exception {
+        int testPort = 5062;
+        Server server = new Server(testPort, testPort);
+        server.bind();
+        server.setAcceptTimeout(50);
+        assertThrows(java.net.SocketTimeoutException.class, server::accept);
+        Client client = new Client("localhost", testPort);
+        client.setConnectTimeout(1000);
+        client.connect();
+        server.accept(); // Still listening after the timeout.
+
+        server.setReadTimeout(100);
+        assertThrows(java.net.SocketTimeoutException.class, server::receiveFrame);
+        java.nio.ByteBuffer buffer = java.nio.ByteBuffer.allocate(64);
+        MessageCodec.encode(Message.shot(3, 4), buffer);
+        client.out.write(buffer.array(), 0, 3);
+        client.out.flush();
+        assertThrows(java.net.SocketTimeoutException.class, server::receiveFrame);
+        client.out.write(buffer.array(), 3, buffer.position() - 3);
+        client.out.flush();
+        assertEquals(Message.shot(3, 4), server.receiveFrame()); // Resumes the frame cut by the timeout.
+
+        // Heartbeats every 30 ms keep both the read timeout and the tracker from giving up on a quiet peer.
+        LivenessTracker tracker = new LivenessTracker(200, 10);
+        tracker.start();
+        server.watch(tracker);
+        java.util.concurrent.ScheduledExecutorService heartbeats = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
+        client.startHeartbeats(heartbeats, 30);
+        heartbeats.schedule(() -> {
+            client.sendFrame(Message.turn());
+            return null;
+        }, 500, java.util.concurrent.TimeUnit.MILLISECONDS);
+        assertEquals(Message.turn(), server.receiveFrame());
+        assertEquals(0, tracker.getReapedCount());
+
+        // Once the peer goes silent the tracker closes the connection, failing the blocked receive.
+        heartbeats.shutdown(); // Not shutdownNow, interrupting a send would close the channel.
+        server.setReadTimeout(0);
+        long start = System.nanoTime();
+        assertThrows(java.io.IOException.class, server::receiveFrame);
+        long deadMillis = (System.nanoTime() - start) / 1000000;
+        System.out.printf("Silent peer detected after %d ms with a 200 ms timeout%n", deadMillis);
+        assertTrue(deadMillis < 2000);
+        assertEquals(1, tracker.getReapedCount());
+        tracker.close();
+        client.close();
+    }
+
+    @Test
+    public void testCoalescedAndCompressedFrames() throws Exception {
+        int testPort = 5063;
+        Server server = new Server(testPort, testPort);
+        server.bind();
+        Client client = new Client("localhost", testPort);
+        client.connect();
+        server.accept();
+        java.util.concurrent.ScheduledExecutorService flusher = java.util.concurrent.Executors.newSingleThreadScheduledExecutor();
+        server.setReadTimeout(100);
+
+        // A long window: nothing leaves until flush.
+        client.setCoalescing(flusher, 60000, 4096);
+        client.sendFrame(Message.shot(1, 1));
+        client.sendFrame(Message.shot(2, 2));
+        assertThrows(java.net.SocketTimeoutException.class, server::receiveFrame);
+        client.flush();
+        assertEquals(Message.shot(1, 1), server.receiveFrame());
+        assertEquals(Message.shot(2, 2), server.receiveFrame());
+
+        // A short window flushes by itself, a full batch at once, and a receive flushes before it blocks.
+        client.setCoalescing(flusher, 20, 20);
+        client.sendFrame(Message.turn());
+        assertEquals(Message.turn(), server.receiveFrame());
+        client.sendFrame(Message.shot(3, 3));
+        client.sendFrame(Message.shot(4, 4)); // 26 bytes pending, over the batch size.
+        assertEquals(Message.shot(3, 3), server.receiveFrame());
+        assertEquals(Message.shot(4, 4), server.receiveFrame());
+        client.setCoalescing(flusher, 60000, 4096);
+        client.setReadTimeout(50);
+        client.sendFrame(Message.shot(5, 5));
+        assertThrows(java.net.SocketTimeoutException.class, client::receiveFrame);
+        assertEquals(Message.shot(5, 5), server.receiveFrame());
+
+        // Large frames are deflated on the way out and opened on the way in, small ones are sent as they are.
+        client.setCompression(256);
+        byte[] reveal = new byte[20000];
+        Message gameOver = Message.gameOver(reveal);
+        Metrics.reset();
+        client.sendFrame(gameOver);
+        client.sendFrame(Message.shot(6, 6));
+        client.close(); // Writes the pending batch.
+        assertEquals(gameOver, server.receiveFrame());
+        assertEquals(Message.shot(6, 6), server.receiveFrame());
+        if (Metrics.ENABLED) {
+            assertTrue(Metrics.BYTES_SENT.get() < MessageCodec.frameSize(gameOver) / 10);
+        }
+        server.close();
+        flusher.shutdown();
+    }
+
+    @Test
+    public void testViewOutlivesCloseAndIdleConnectionHoldsNoPooledBuffer() throws Exception {
+        int testPort = 5064;
+        Server server = new Server(testPort, testPort);
+        server.bind();
+        Client client = new Client("localhost", testPort);
+        client.connect();
+        server.accept();
+        byte[] payload = new byte[1000];
+        java.util.Arrays.fill(payload, (byte) 7);
+
+        // Small frames are read in the idle buffer, a large one borrows a pooled buffer until it was read.
+        client.sendFrame(Message.shot(1, 2));
+        assertEquals(Message.shot(1, 2), server.receiveFrame());
+        int pooled = BufferPool.SHARED.getPooledCount();
+        client.sendFrame(Message.commit(payload));
+        client.sendFrame(Message.shot(3, 4));
+        assertEquals(Message.commit(payload), server.receiveFrame());
+        assertEquals(Message.shot(3, 4), server.receiveFrame());
+        client.sendFrame(Message.turn());
+        assertEquals(Message.turn(), server.receiveFrame());
+        assertTrue(BufferPool.SHARED.getPooledCount() >= pooled);
+
+        // A view still shows its frame after close, the buffer under it is not handed to another connection.
+        client.sendFrame(Message.commit(payload));
+        MessageView view = server.receiveFrame(new MessageView());
+        server.close();
+        java.nio.ByteBuffer reused = BufferPool.SHARED.acquire();
+        while (reused.hasRemaining()) {
+            reused.put((byte) 1);
+        }
+        BufferPool.SHARED.release(reused);
+        assertEquals(Message.commit(payload), view.toMessage());
+        client.close();
+    }
+
+    @Test
+    public void testOversizedFrameIsRefusedBeforeSending() throws Exception {
+        int testPort = 5065;
+        Server server = new Server(testPort, testPort);
+        server.bind();
+        Client client = new Client("localhost", testPort);
+        client.connect();
+        server.accept();
+        Message tooLarge = Message.gameOver(new byte[MessageCodec.MAX_BODY_SIZE]);
+        assertThrows(IllegalArgumentException.class, () -> client.sendFrame(tooLarge));
+        client.sendFrame(Message.shot(1, 1)); // Nothing of the refused frame reached the peer.
+        assertEquals(Message.shot(1, 1), server.receiveFrame());
+        client.close();
+        server.close();
+    }
+}
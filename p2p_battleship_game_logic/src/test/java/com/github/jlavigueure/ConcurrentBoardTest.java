@@ -0,0 +1,130 @@
+package com.github.jlavigueure;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks ConcurrentBoard against BitBoard, then has one writer play games while readers take snapshots
+ * and check every snapshot is one the writer could have left between two writes.
+ */
+public class ConcurrentBoardTest {
+    private static final int FLEET_CELLS = 17;
+
+    @Test
+    public void testPlaysLikeBitBoard() {
+        BitBoard reference = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        ConcurrentBoard board = new ConcurrentBoard(10, 10, BoardCell.CellState.EMPTY);
+        new FleetPlacer(10, 10).place(reference, new SplittableRandom(3));
+        new FleetPlacer(10, 10).place(board, new SplittableRandom(3));
+        assertThrows(IllegalArgumentException.class,
+                () -> board.placeShip(0, 0, Board.Direction.RIGHT, board.getPlacedShip(0)));
+        for (int cell = 0; cell < 100 && !reference.allShipsSunk(); cell++) {
+            assertEquals(reference.hit(cell % 10, cell / 10), board.hit(cell % 10, cell / 10));
+        }
+        assertTrue(board.allShipsSunk());
+        assertThrows(IllegalStateException.class, () -> board.hit(0, 0));
+        assertEquals(reference.toString(), board.toString());
+        assertEquals(reference.getVersion(), board.getVersion());
+        ConcurrentBoard.Snapshot snapshot = board.snapshot();
+        assertEquals(reference.getVersion(), snapshot.getVersion());
+        assertEquals(reference.getState(9, 9), snapshot.getState(9, 9));
+        board.reset(BoardCell.CellState.UNKNOWN);
+        board.reveal(4, 4, BoardCell.CellState.HIT);
+        assertSame(snapshot, board.snapshot(snapshot));
+        assertEquals(BoardCell.CellState.HIT, snapshot.getState(4, 4));
+        assertEquals(BoardCell.CellState.UNKNOWN, snapshot.getState(5, 4));
+        assertEquals(board.allShipsSunk(), snapshot.allShipsSunk());
+    }
+
+    @Test
+    public void testReadersNeverSeeTornState() throws Exception {
+        ConcurrentBoard board = new ConcurrentBoard(10, 10, BoardCell.CellState.EMPTY);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        AtomicLong snapshots = new AtomicLong();
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 3; r++) {
+            Thread reader = new Thread(() -> {
+                ConcurrentBoard.Snapshot snapshot = null;
+                while (!done.get() && failure.get() == null) {
+                    snapshot = board.snapshot(snapshot);
+                    String problem = check(snapshot);
+                    if (problem != null) {
+                        failure.compareAndSet(null, problem + "\n" + snapshot);
+                    }
+                    snapshots.incrementAndGet();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        SplittableRandom random = new SplittableRandom(7);
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        int[] order = new int[100];
+        for (int game = 0; game < 2000 && failure.get() == null; game++) {
+            board.reset(BoardCell.CellState.EMPTY);
+            placer.place(board, random);
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            for (int i = 0; i < order.length && !board.allShipsSunk(); ) {
+                if (i + 3 <= order.length && (i & 1) == 0) {
+                    int[] xs = {order[i] % 10, order[i + 1] % 10, order[i + 2] % 10};
+                    int[] ys = {order[i] / 10, order[i + 1] / 10, order[i + 2] / 10};
+                    board.hitAll(xs, ys);
+                    i += 3;
+                } else {
+                    board.hit(order[i] % 10, order[i] / 10);
+                    i++;
+                }
+            }
+        }
+        done.set(true);
+        for (Thread reader : readers) {
+            reader.join(5000);
+        }
+        assertNull(failure.get());
+        assertTrue(snapshots.get() > 0);
+    }
+
+    /**
+     * Helper returning what is wrong with a snapshot, or null if the writer could have left the board that way.
+     */
+    private static String check(ConcurrentBoard.Snapshot snapshot) {
+        int shots = 0;
+        int shipCells = 0;
+        int hits = 0;
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                BoardCell.CellState state = snapshot.getState(x, y);
+                if (state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS) {
+                    shots++;
+                }
+                if (state == BoardCell.CellState.HIT) {
+                    hits++;
+                }
+                if (state == BoardCell.CellState.HIT || state == BoardCell.CellState.OCCUPIED) {
+                    shipCells++;
+                }
+            }
+        }
+        if (shots != snapshot.getVersion() - snapshot.getOldestVersion()) {
+            return shots + " cells shot at version " + snapshot.getVersion() + " from " + snapshot.getOldestVersion();
+        }
+        if (shots > 0 && shipCells != FLEET_CELLS) {
+            return shipCells + " ship cells after the first shot";
+        }
+        if (snapshot.allShipsSunk() != (hits == shipCells)) {
+            return hits + " hits but allShipsSunk " + snapshot.allShipsSunk();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,73 @@
+package com.github.jlavigueure;
+
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streams frames over loopback and measures with the JVM's per-thread allocation counters that, once warmed up,
+ * sendFrame of a reused message and receiveFrame into a reused MessageView allocate nothing per message.
+ */
+public class ConnectionAllocationTest {
+    private static final int WARMUP = 50_000;
+    private static final int MEASURED = 100_000;
+    // Allowance for one-off allocations inside the measurement itself, far below one byte per message.
+    private static final long SLACK_BYTES = 4096;
+
+    @Test
+    public void testSteadyStateFramesAllocateNothing() throws Exception {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (!(threads instanceof com.sun.management.ThreadMXBean)
+                || !((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported()) {
+            System.out.println("Per-thread allocation counters are not supported, skipping.");
+            return;
+        }
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        Server server = new Server(5120, 5139);
+        server.bind();
+        final long[] senderBytes = new long[1];
+        final Exception[] exception = new Exception[1];
+        Thread sender = new Thread(() -> {
+            try {
+                server.connect();
+                Message shot = Message.shot(3, 7);
+                Message result = Message.result(3, 7, BoardCell.CellState.HIT);
+                long start = 0;
+                for (int i = 0; i < WARMUP + MEASURED; i++) {
+                    if (i == WARMUP) {
+                        start = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+                    }
+                    server.sendFrame((i & 1) == 0 ? shot : result);
+                }
+                senderBytes[0] = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+            } catch (Exception e) {
+                exception[0] = e;
+            }
+        });
+        sender.start();
+
+        Client client = new Client("localhost", server.getPort());
+        client.connect();
+        MessageView view = new MessageView();
+        long checksum = 0;
+        long start = 0;
+        for (int i = 0; i < WARMUP + MEASURED; i++) {
+            if (i == WARMUP) {
+                start = allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+            client.receiveFrame(view);
+            checksum += view.getX() + view.getY() + (view.getState() == BoardCell.CellState.HIT ? 1 : 0);
+        }
+        long receiverBytes = allocations.getThreadAllocatedBytes(Thread.currentThread().getId()) - start;
+        sender.join(10_000);
+        client.close();
+        server.close();
+
+        System.out.printf("Connection allocation: %d messages, receiver %d bytes, sender %d bytes%n",
+                MEASURED, receiverBytes, senderBytes[0]);
+        assertNull(exception[0]);
+        assertEquals((WARMUP + MEASURED) * 10L + (WARMUP + MEASURED) / 2, checksum);
+        assertTrue(receiverBytes < SLACK_BYTES, receiverBytes + " bytes allocated receiving");
+        assertTrue(senderBytes[0] < SLACK_BYTES, senderBytes[0] + " bytes allocated sending");
+    }
+}
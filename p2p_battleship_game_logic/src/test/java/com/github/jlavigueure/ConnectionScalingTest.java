@@ -0,0 +1,79 @@
+package com.github.jlavigueure;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Opens N loopback connections, each served on its own thread on both ends, and reports the platform thread
+ * and heap footprint. Uses virtual threads when the JVM supports them. Scale with -Dscaling.connections=N (default 200).
+ */
+public class ConnectionScalingTest {
+
+    @Test
+    public void testIdleConnectionFootprint() throws Exception {
+        int connections = Integer.getInteger("scaling.connections", 200);
+        ThreadMode mode = ThreadMode.VIRTUAL.isAvailable() ? ThreadMode.VIRTUAL : ThreadMode.PLATFORM;
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long threadsBefore = threads.getThreadCount();
+        long heapBefore = usedHeap();
+
+        PeerListener listener = new PeerListener(0, mode, connection -> {
+            while (true) {
+                Message shot = connection.receiveFrame();
+                connection.sendFrame(Message.result(shot.getX(), shot.getY(), BoardCell.CellState.MISS));
+            }
+        });
+        listener.start();
+
+        final CountDownLatch answered = new CountDownLatch(connections);
+        List<Client> clients = new ArrayList<>();
+        for (int i = 0; i < connections; i++) {
+            Client client = new Client("localhost", listener.getPort());
+            client.connect();
+            client.start(mode, connection -> {
+                while (true) {
+                    connection.receiveFrame();
+                    answered.countDown();
+                }
+            });
+            clients.add(client);
+        }
+        long deadline = System.currentTimeMillis() + 10000;
+        while (listener.getActiveConnections() < connections && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        long threadsDuring = threads.getThreadCount();
+        long heapDuring = usedHeap();
+
+        for (Client client : clients) {
+            client.sendFrame(Message.shot(1, 1));
+        }
+        assertTrue(answered.await(10, TimeUnit.SECONDS), "Not every connection answered.");
+        assertEquals(connections, listener.getActiveConnections());
+
+        System.out.printf("Connection scaling (%s threads): %d connections, %d extra platform threads, ~%d KB heap per connection%n",
+                mode, connections, threadsDuring - threadsBefore,
+                Math.max(0, heapDuring - heapBefore) / 1024 / (connections * 2));
+
+        listener.close();
+        for (Client client : clients) {
+            client.close();
+        }
+        if (mode == ThreadMode.VIRTUAL) {
+            assertTrue(threadsDuring - threadsBefore < connections, "Virtual threads should not need a platform thread each.");
+        }
+    }
+
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        Thread.sleep(50);
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
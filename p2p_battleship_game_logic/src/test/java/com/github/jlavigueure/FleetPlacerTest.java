@@ -0,0 +1,81 @@
+package com.github.jlavigueure;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FleetPlacerTest {
+
+    @Test
+    public void testCountsEveryLegalPlacement() {
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        // 6 starting columns x 10 rows for each of 4 directions.
+        assertEquals(240, placer.getPlacementCount(Ship.ShipType.CARRIER));
+        assertEquals(360, placer.getPlacementCount(Ship.ShipType.DESTROYER));
+        // Too short for vertical carriers: 3 starting columns x 3 rows, RIGHT and LEFT.
+        assertEquals(18, new FleetPlacer(7, 3, new Ship.ShipType[] {Ship.ShipType.CARRIER}).getPlacementCount(Ship.ShipType.CARRIER));
+    }
+
+    @Test
+    public void testPlacesWholeFleetWithoutOverlap() {
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        for (int seed = 0; seed < 200; seed++) {
+            BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+            Ship[] ships = placer.place(board, new SplittableRandom(seed));
+            assertEquals(Ship.ShipType.values().length, ships.length);
+            assertEquals(17, occupiedCells(board));
+            assertFalse(board.allShipsSunk());
+        }
+    }
+
+    @Test
+    public void testSameSeedGivesSameLayout() {
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        BitBoard first = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        BitBoard second = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        placer.place(first, new SplittableRandom(123));
+        placer.place(second, new SplittableRandom(123));
+        assertEquals(first.toString(), second.toString());
+    }
+
+    @Test
+    public void testCrowdedBoardAlwaysFindsLayout() {
+        FleetPlacer placer = new FleetPlacer(5, 5);
+        for (int seed = 0; seed < 1000; seed++) {
+            Board board = new Board(5, 5, BoardCell.CellState.EMPTY);
+            placer.place(board, new SplittableRandom(seed));
+            assertEquals(17, occupiedCells(board));
+        }
+    }
+
+    @Test
+    public void testReusesShips() {
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        Ship[] ships = placer.place(board, new SplittableRandom(1));
+        board.reset(BoardCell.CellState.EMPTY);
+        placer.place(board, ships, new SplittableRandom(2));
+        assertEquals(17, occupiedCells(board));
+    }
+
+    @Test
+    public void testRejectsInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new FleetPlacer(4, 4));
+        FleetPlacer placer = new FleetPlacer(10, 10);
+        assertThrows(IllegalArgumentException.class,
+                () -> placer.place(new BitBoard(8, 10, BoardCell.CellState.EMPTY), new SplittableRandom(0)));
+        Ship[] wrong = {new Ship(Ship.ShipType.DESTROYER)};
+        assertThrows(IllegalArgumentException.class,
+                () -> placer.place(new BitBoard(10, 10, BoardCell.CellState.EMPTY), wrong, new SplittableRandom(0)));
+    }
+
+    private static int occupiedCells(GameBoard board) {
+        int count = 0;
+        for (int y = 0; y < board.getHeight(); y++) {
+            for (int x = 0; x < board.getWidth(); x++) {
+                if (board.getState(x, y) == BoardCell.CellState.OCCUPIED) count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,82 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks FrameCompressor shrinks large frames and restores them exactly, leaves small or incompressible frames
+ * alone and rejects COMPRESSED frames which are corrupt or announce the wrong size.
+ */
+public class FrameCompressorTest {
+
+    @Test
+    public void testSnapshotRoundTrip() throws IOException {
+        BitBoard board = new BitBoard(64, 64, BoardCell.CellState.UNKNOWN);
+        for (int cell = 0; cell < 64 * 64; cell += 3) {
+            board.reveal(cell % 64, cell / 64, cell % 9 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS);
+        }
+        Message sync = Message.sync(BoardDelta.encode(board, 0));
+        FrameCompressor compressor = new FrameCompressor();
+        Message compressed = compressor.compress(sync);
+        assertEquals(Message.Type.COMPRESSED, compressed.getType());
+        System.out.printf("FrameCompressor: %d byte snapshot sent in %d bytes%n",
+                MessageCodec.frameSize(sync), MessageCodec.frameSize(compressed));
+        assertTrue(MessageCodec.frameSize(compressed) * 2 < MessageCodec.frameSize(sync));
+        assertEquals(sync, new FrameCompressor().decompress(compressed));
+
+        // Through the wire format and a reused send buffer, as Connection does.
+        ByteBuffer out = ByteBuffer.allocate(1 << 16);
+        MessageCodec.encode(Message.turn(), out);
+        int frameStart = out.position();
+        MessageCodec.encode(sync.withSeq(7), out);
+        compressor.compress(out, frameStart);
+        assertTrue(out.position() - frameStart < MessageCodec.frameSize(sync) / 2); // The sequence ID is deflated too.
+        out.flip();
+        MessageView view = new MessageView();
+        assertTrue(view.wrap(out));
+        assertEquals(Message.Type.TURN, view.getType());
+        assertTrue(view.wrap(out));
+        assertEquals(Message.Type.COMPRESSED, view.getType());
+        ByteBuffer frame = compressor.inflate(view, null);
+        assertTrue(view.wrap(frame));
+        assertEquals(sync.withSeq(7), view.toMessage());
+    }
+
+    @Test
+    public void testSmallAndIncompressibleFramesAreLeftAlone() {
+        FrameCompressor compressor = new FrameCompressor(16);
+        Message shot = Message.shot(3, 4);
+        assertSame(shot, compressor.compress(shot));
+        byte[] noise = new byte[4096];
+        new Random(5).nextBytes(noise);
+        Message commit = Message.commit(noise);
+        assertSame(commit, compressor.compress(commit));
+        ByteBuffer out = ByteBuffer.allocate(8192);
+        MessageCodec.encode(commit, out);
+        compressor.compress(out, 0);
+        assertEquals(MessageCodec.frameSize(commit), out.position());
+        assertThrows(IllegalArgumentException.class, () -> new FrameCompressor(0));
+    }
+
+    @Test
+    public void testCorruptFramesAreRejected() {
+        FrameCompressor compressor = new FrameCompressor();
+        byte[] payload = compressor.compress(Message.gameOver(new byte[1000])).getPayload();
+        byte[] wrongSize = payload.clone();
+        wrongSize[0]--; // Announces one byte less than the deflated body holds.
+        byte[] truncated = Arrays.copyOf(payload, payload.length - 3);
+        byte[] garbage = payload.clone();
+        Arrays.fill(garbage, 2, garbage.length, (byte) 0x55);
+        byte[] huge = {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F};
+        for (byte[] bad : new byte[][] {wrongSize, truncated, garbage, huge, {}}) {
+            assertThrows(IOException.class, () -> compressor.decompress(Message.compressed(bad)), Arrays.toString(bad));
+        }
+        Message nested = compressor.compress(Message.compressed(new byte[1000]));
+        assertThrows(IOException.class, () -> compressor.decompress(nested));
+        assertEquals(Message.gameOver(new byte[1000]), assertDoesNotThrow(() -> compressor.decompress(Message.compressed(payload))));
+    }
+}
@@ -0,0 +1,123 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Loopback load test for GameHost. Plays many simultaneous games between scripted clients and reports
+ * games/sec and shot latency percentiles. Scale it up with -Dloadtest.games=N (default 50).
+ */
+public class GameHostLoadTest {
+    private static final int SIZE = 10;
+
+    @Test
+    public void testManyConcurrentGamesOnOneSelector() throws Exception {
+        int games = Integer.getInteger("loadtest.games", 50);
+        GameHost host = new GameHost(0, SIZE, SIZE);
+        host.start();
+
+        int players = games * 2;
+        final long[][] latencies = new long[players][];
+        final AtomicInteger wins = new AtomicInteger();
+        final AtomicInteger failures = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(players);
+        long start = System.nanoTime();
+        for (int i = 0; i < players; i++) {
+            final int id = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    latencies[id] = play(host.getPort(), new Random(id), wins);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            });
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        host.close();
+
+        long[] all = Arrays.stream(latencies).filter(l -> l != null).flatMapToLong(Arrays::stream).sorted().toArray();
+        System.out.printf("GameHost load test: %d games in %.2f s = %.1f games/sec, %d shots, latency p50=%d us p99=%d us max=%d us%n",
+                games, seconds, games / seconds, all.length,
+                percentile(all, 0.50) / 1000, percentile(all, 0.99) / 1000, all[all.length - 1] / 1000);
+
+        assertEquals(0, failures.get());
+        assertEquals(games, wins.get());
+        assertEquals(games, host.getGamesCompleted());
+    }
+
+    @Test
+    public void testProtocolViolationForfeitsGame() throws Exception {
+        GameHost host = new GameHost(0, SIZE, SIZE);
+        host.start();
+        Client first = new Client("localhost", host.getPort());
+        Client second = new Client("localhost", host.getPort());
+        first.connect();
+        second.connect();
+        second.sendFrame(Message.shot(0, 0)); // Shooting before placing the fleet is not allowed.
+        Message message = first.receiveFrame();
+        assertEquals(Message.Type.GAME_OVER, message.getType());
+        assertEquals(1, message.getPayload()[0]);
+        // The finished game is closed by the host once GAME_OVER is written.
+        assertThrows(IOException.class, first::receiveFrame);
+        assertEquals(1, host.getGamesCompleted());
+        first.close();
+        second.close();
+        host.close();
+    }
+
+    /**
+     * Helper which plays one game as a scripted client firing at random untried cells.
+     * @return the latency of every shot in nanoseconds.
+     */
+    private static long[] play(int port, Random random, AtomicInteger wins) throws Exception {
+        Client client = new Client("localhost", port);
+        client.connect();
+        Ship.ShipType[] types = Ship.ShipType.values();
+        for (int i = 0; i < types.length; i++) {
+            client.sendFrame(Message.place(random.nextInt(SIZE - types[i].getSize() + 1), i * 2, Board.Direction.RIGHT, types[i]));
+        }
+        int[] order = new int[SIZE * SIZE];
+        for (int i = 0; i < order.length; i++) {
+            int j = random.nextInt(i + 1);
+            order[i] = order[j];
+            order[j] = i;
+        }
+        long[] latencies = new long[order.length];
+        int shots = 0;
+        long sentAt = 0;
+        boolean awaitingResult = false;
+        while (true) {
+            Message message = client.receiveFrame();
+            if (message.getType() == Message.Type.TURN) {
+                int cell = order[shots];
+                sentAt = System.nanoTime();
+                awaitingResult = true;
+                client.sendFrame(Message.shot(cell % SIZE, cell / SIZE));
+            } else if (message.getType() == Message.Type.RESULT && awaitingResult) {
+                latencies[shots++] = System.nanoTime() - sentAt;
+                awaitingResult = false;
+            } else if (message.getType() == Message.Type.GAME_OVER) {
+                if (message.getPayload()[0] == 1) {
+                    wins.incrementAndGet();
+                }
+                break;
+            }
+        }
+        client.close();
+        return Arrays.copyOf(latencies, shots);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
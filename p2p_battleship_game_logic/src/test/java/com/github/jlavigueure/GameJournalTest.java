@@ -0,0 +1,186 @@
+package com.github.jlavigueure;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class GameJournalTest {
+    private static final int SIZE = 10;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    public void testReplayRebuildsBoards() throws IOException {
+        GameBoard[] expected;
+        try (GameJournal journal = new GameJournal(dir)) {
+            expected = playGame(journal, 3);
+            GameBoard fog = journal.journaled(99, new BitBoard(SIZE, SIZE, BoardCell.CellState.UNKNOWN));
+            fog.reveal(1, 2, BoardCell.CellState.HIT);
+            assertThrows(IllegalStateException.class, () -> fog.reveal(1, 2, BoardCell.CellState.MISS));
+            journal.sync(journal.getWritten());
+            assertEquals(journal.getWritten(), journal.getDurable());
+        }
+        Map<Integer, GameBoard> boards = new HashMap<>();
+        try (GameJournal journal = new GameJournal(dir)) {
+            long records = journal.replay(id -> boards.computeIfAbsent(id, GameJournalTest::newBoard));
+            assertEquals(journal.getWritten(), records);
+        }
+        assertEquals(expected[0].toString(), boards.get(6).toString());
+        assertEquals(expected[1].toString(), boards.get(7).toString());
+        assertTrue(boards.get(7).allShipsSunk());
+        assertEquals(BoardCell.CellState.HIT, boards.get(99).getState(1, 2));
+    }
+
+    @Test
+    public void testRollsSegmentsAndContinuesAfterReopen() throws IOException {
+        try (GameJournal journal = new GameJournal(dir, 8 * GameJournal.RECORD_SIZE, 0)) {
+            for (int i = 0; i < 30; i++) {
+                journal.recordReveal(1, i % SIZE, i / SIZE, BoardCell.CellState.MISS);
+            }
+        }
+        try (GameJournal journal = new GameJournal(dir, 8 * GameJournal.RECORD_SIZE, 0)) {
+            assertEquals(30, journal.getWritten());
+            assertEquals(31, journal.recordReveal(1, 0, 3, BoardCell.CellState.HIT));
+        }
+        assertEquals(4, dir.toFile().list().length);
+        GameBoard fog = new BitBoard(SIZE, SIZE, BoardCell.CellState.UNKNOWN);
+        try (GameJournal journal = new GameJournal(dir, 8 * GameJournal.RECORD_SIZE, 0)) {
+            assertEquals(31, journal.replay(id -> fog));
+        }
+        assertEquals(BoardCell.CellState.MISS, fog.getState(9, 2));
+        assertEquals(BoardCell.CellState.HIT, fog.getState(0, 3));
+    }
+
+    @Test
+    public void testDropsTornTail() throws IOException {
+        try (GameJournal journal = new GameJournal(dir, 1024, 0)) {
+            for (int i = 0; i < 5; i++) {
+                journal.recordHit(0, i, 0);
+            }
+        }
+        File segment = dir.resolve("journal-00000000.seg").toFile();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.seek(4 * GameJournal.RECORD_SIZE + 4);
+            file.writeInt(7); // Half written last record: checksum no longer matches.
+        }
+        try (GameJournal journal = new GameJournal(dir, 1024, 0)) {
+            assertEquals(4, journal.getWritten());
+            journal.recordHit(0, 9, 9);
+        }
+        try (GameJournal journal = new GameJournal(dir, 1024, 0)) {
+            assertEquals(5, journal.getWritten());
+        }
+    }
+
+    @Test
+    public void testConcurrentSyncsShareForces() throws Exception {
+        try (GameJournal journal = new GameJournal(dir, 1 << 20, 1000)) {
+            Thread[] writers = new Thread[4];
+            for (int t = 0; t < writers.length; t++) {
+                int id = t;
+                writers[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 200; i++) {
+                            journal.sync(journal.recordHit(id, i % SIZE, i / SIZE));
+                        }
+                    } catch (IOException e) {
+                        throw new RuntimeException(e);
+                    }
+                });
+                writers[t].start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            assertEquals(800, journal.getDurable());
+        }
+    }
+
+    @Test
+    public void testRecoversAfterKill() throws Exception {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process child = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                GameJournalTest.class.getName(), dir.toString()).redirectErrorStream(true).start();
+        int synced = -1;
+        try (BufferedReader out = new BufferedReader(new InputStreamReader(child.getInputStream()))) {
+            String line;
+            while (synced < 20 && (line = out.readLine()) != null) {
+                if (line.startsWith("SYNCED ")) {
+                    synced = Integer.parseInt(line.substring(7));
+                }
+            }
+            child.destroyForcibly();
+            assertTrue(child.waitFor(30, TimeUnit.SECONDS));
+        }
+        assertTrue(synced >= 20, "Child stopped before syncing 20 games");
+        Map<Integer, GameBoard> boards = new HashMap<>();
+        try (GameJournal journal = new GameJournal(dir)) {
+            journal.replay(id -> boards.computeIfAbsent(id, GameJournalTest::newBoard));
+        }
+        for (int game = 0; game <= synced; game++) {
+            GameBoard[] expected = playGame(null, game);
+            assertEquals(expected[0].toString(), boards.get(2 * game).toString());
+            assertEquals(expected[1].toString(), boards.get(2 * game + 1).toString());
+        }
+    }
+
+    /**
+     * Child process for testRecoversAfterKill: plays journaled games until it is killed,
+     * printing each game number once the game is durable.
+     */
+    public static void main(String[] args) throws IOException {
+        GameJournal journal = new GameJournal(Paths.get(args[0]));
+        for (int game = 0; ; game++) {
+            playGame(journal, game);
+            journal.sync(journal.getWritten());
+            System.out.println("SYNCED " + game);
+            System.out.flush();
+        }
+    }
+
+    /**
+     * Helper which places both fleets of a seeded game and fires at random until the second fleet is sunk.
+     * @param journal to record the boards in as IDs 2 * game and 2 * game + 1, or null.
+     */
+    private static GameBoard[] playGame(GameJournal journal, int game) {
+        GameBoard[] boards = new GameBoard[2];
+        SplittableRandom random = new SplittableRandom(game);
+        FleetPlacer placer = new FleetPlacer(SIZE, SIZE);
+        for (int seat = 0; seat < 2; seat++) {
+            boards[seat] = newBoard(seat);
+            if (journal != null) {
+                boards[seat] = journal.journaled(2 * game + seat, boards[seat]);
+            }
+            placer.place(boards[seat], random);
+        }
+        RandomTargeter targeter = new RandomTargeter(new BitBoard(SIZE, SIZE, BoardCell.CellState.UNKNOWN), game);
+        for (int turn = 0; !boards[1].allShipsSunk(); turn++) {
+            int cell = targeter.nextShot();
+            int x = cell % SIZE;
+            int y = cell / SIZE;
+            targeter.reveal(x, y, boards[1].hit(x, y));
+            if (turn % 2 == 0 && boards[0].getState(x, y) != BoardCell.CellState.HIT
+                    && boards[0].getState(x, y) != BoardCell.CellState.MISS) {
+                boards[0].hit(x, y);
+            }
+        }
+        return boards;
+    }
+
+    private static GameBoard newBoard(int id) {
+        BoardCell.CellState state = id == 99 ? BoardCell.CellState.UNKNOWN : BoardCell.CellState.EMPTY;
+        return new BitBoard(SIZE, SIZE, state);
+    }
+}
@@ -0,0 +1,66 @@
+package com.github.jlavigueure;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Announces hosts on a test discovery port and checks clients find and join them without knowing their port.
+ */
+public class HostDiscoveryTest {
+    private static final int DISCOVERY_PORT = 5159;
+
+    @Test
+    public void testClientFindsAndJoinsAdvertisedServer() throws Exception {
+        long start = System.nanoTime();
+        Server server = new Server(5140, 5149);
+        server.bind();
+        server.advertise(DISCOVERY_PORT, "Alice's game");
+        long bound = System.nanoTime();
+        final Exception[] exception = new Exception[1];
+        Thread serverThread = new Thread(() -> {
+            try {
+                server.connect();
+                server.sendFrame(Message.turn());
+            } catch (Exception e) {
+                exception[0] = e;
+            }
+        });
+        serverThread.start();
+
+        List<HostDiscovery.Host> hosts = HostDiscovery.find(DISCOVERY_PORT, 2000, 1);
+        long found = System.nanoTime();
+        assertEquals(1, hosts.size());
+        HostDiscovery.Host host = hosts.get(0);
+        assertEquals("Alice's game", host.getName());
+        assertEquals(server.getPort(), host.getPort());
+        Client client = new Client(host.getAddress().getHostAddress(), host.getPort());
+        client.connect();
+        assertEquals(Message.turn(), client.receiveFrame());
+        long joined = System.nanoTime();
+        serverThread.join(2000);
+        assertNull(exception[0]);
+        System.out.printf("Host startup: bound and advertised in %d us, found in %d us, joined in %d us%n",
+                (bound - start) / 1000, (found - bound) / 1000, (joined - found) / 1000);
+
+        // The server stops advertising once its one player joined.
+        assertTrue(HostDiscovery.find(DISCOVERY_PORT, 300, 1).isEmpty());
+        client.close();
+        server.close();
+    }
+
+    @Test
+    public void testHostsShareDiscoveryPort() throws Exception {
+        HostDiscovery first = new HostDiscovery(DISCOVERY_PORT, 6001, "first");
+        HostDiscovery second = new HostDiscovery(DISCOVERY_PORT, 6002, "second");
+        first.start();
+        second.start();
+        List<HostDiscovery.Host> hosts = HostDiscovery.find(DISCOVERY_PORT, 2000, 2);
+        first.close();
+        second.close();
+        assertEquals(2, hosts.size());
+        assertEquals(6001 + 6002, hosts.get(0).getPort() + hosts.get(1).getPort());
+        assertTrue(hosts.get(0).getAddress().isLoopbackAddress());
+        assertThrows(IllegalArgumentException.class, () -> new HostDiscovery(DISCOVERY_PORT, 6003, new String(new char[256])));
+    }
+}
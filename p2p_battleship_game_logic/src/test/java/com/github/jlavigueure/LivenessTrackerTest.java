@@ -0,0 +1,101 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks LivenessTracker declares exactly the silent peers dead, stepping its wheel by hand, and that a
+ * GameHost with an idle timeout forfeits the game of a vanished player while a heartbeating one stays.
+ */
+public class LivenessTrackerTest {
+
+    @Test
+    public void testSilentPeersAreReapedAfterTimeout() {
+        LivenessTracker tracker = new LivenessTracker(100, 10);
+        AtomicInteger deaths = new AtomicInteger();
+        LivenessTracker.Watch talking = tracker.watch(deaths::incrementAndGet);
+        LivenessTracker.Watch silent = tracker.watch(deaths::incrementAndGet);
+        LivenessTracker.Watch cancelled = tracker.watch(deaths::incrementAndGet);
+        assertEquals(3, tracker.getWatchedCount());
+        for (int tick = 1; tick < 10; tick++) {
+            assertEquals(0, tracker.advance());
+            talking.touch();
+        }
+        cancelled.cancel();
+        assertEquals(1, tracker.advance());
+        assertTrue(silent.isDead());
+        assertFalse(talking.isDead());
+        assertFalse(cancelled.isDead());
+        assertEquals(1, tracker.getWatchedCount());
+        for (int tick = 11; tick < 19; tick++) {
+            assertEquals(0, tracker.advance());
+        }
+        assertFalse(talking.isDead());
+        assertEquals(1, tracker.advance()); // Last heard at tick 9.
+        assertTrue(talking.isDead());
+        assertEquals(2, deaths.get());
+        assertEquals(2, tracker.getReapedCount());
+        assertEquals(0, tracker.getWatchedCount());
+        for (int tick = 0; tick < 30; tick++) {
+            assertEquals(0, tracker.advance());
+        }
+        assertEquals(2, deaths.get());
+        assertThrows(IllegalArgumentException.class, () -> new LivenessTracker(10, 20));
+    }
+
+    @Test
+    public void testManyWatchesCostOneSlotPerTick() {
+        int peers = 100000;
+        LivenessTracker tracker = new LivenessTracker(1000, 10);
+        LivenessTracker.Watch[] watches = new LivenessTracker.Watch[peers];
+        for (int i = 0; i < peers; i++) {
+            watches[i] = tracker.watch(() -> { });
+        }
+        long start = System.nanoTime();
+        for (int tick = 0; tick < 150; tick++) {
+            tracker.advance();
+            for (int i = 0; i < peers; i += 2) {
+                watches[i].touch();
+            }
+        }
+        long advanceNanos = System.nanoTime() - start;
+        System.out.printf("LivenessTracker: %d peers, 150 ticks incl. touching half of them in %d ms%n",
+                peers, advanceNanos / 1000000);
+        assertEquals(peers / 2, tracker.getReapedCount());
+        assertEquals(peers / 2, tracker.getWatchedCount());
+        for (int i = 0; i < peers; i++) {
+            assertEquals(i % 2 == 1, watches[i].isDead());
+        }
+    }
+
+    @Test
+    public void testGameHostForfeitsGameOfSilentPlayer() throws Exception {
+        GameHost host = new GameHost(0, 10, 10);
+        host.setIdleTimeout(300);
+        host.start();
+        assertThrows(IllegalStateException.class, () -> host.setIdleTimeout(100));
+        ScheduledExecutorService heartbeats = Executors.newSingleThreadScheduledExecutor();
+        Client talking = new Client("localhost", host.getPort());
+        talking.connect();
+        talking.setReadTimeout(200);
+        talking.startHeartbeats(heartbeats, 50);
+        Thread.sleep(400); // Waiting for an opponent, kept alive by the heartbeats the host echoes.
+        Client silent = new Client("localhost", host.getPort());
+        silent.connect();
+        long start = System.nanoTime();
+        assertEquals(Message.gameOver(new byte[] {1}), talking.receiveFrame());
+        long reapMillis = (System.nanoTime() - start) / 1000000;
+        System.out.printf("GameHost: silent player forfeited after %d ms with a 300 ms idle timeout%n", reapMillis);
+        assertTrue(reapMillis >= 250 && reapMillis < 2000, "Reaped after " + reapMillis + " ms");
+        assertThrows(IOException.class, silent::receiveFrame);
+        assertEquals(1, host.getGamesCompleted());
+        talking.close();
+        silent.close();
+        heartbeats.shutdown();
+        host.close();
+    }
+}
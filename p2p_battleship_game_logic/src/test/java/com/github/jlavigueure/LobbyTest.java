@@ -0,0 +1,152 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks Lobby pairs players by board size and ruleset, and reports time-to-match percentiles of many
+ * clients joining over loopback. Scale it with -Dlobbytest.clients=N (default 10000), rounded up to a multiple of 8.
+ */
+public class LobbyTest {
+    private static final int WAVE = 1000; // Clients connected at once, keeps both ends well within the fd limit.
+    private static final int[][] BUCKETS = {{10, 10, 0}, {10, 10, 1}, {12, 12, 0}, {20, 20, 0}};
+
+    @Test
+    public void testMatchesPlayersOfTheSameBucket() throws Exception {
+        Lobby lobby = new Lobby(0, 2);
+        lobby.start();
+        Client first = join(lobby, 10, 10, 0);
+        Client bigger = join(lobby, 12, 12, 0);
+        Client otherRules = join(lobby, 10, 10, 1);
+        Client second = join(lobby, 10, 10, 0);
+        Message firstSeat = first.receiveFrame();
+        Message secondSeat = second.receiveFrame();
+        assertEquals(Message.Type.MATCHED, firstSeat.getType());
+        assertEquals(1 - firstSeat.getSeat(), secondSeat.getSeat());
+        second.sendFrame(Message.shot(0, 0)); // Shooting before placing the fleet is not allowed.
+        assertEquals(1, first.receiveFrame().getPayload()[0]);
+        Thread.sleep(5 * Lobby.DEFAULT_BATCH_MILLIS);
+        assertEquals(4, lobby.getJoinedCount());
+        assertEquals(2, lobby.getMatchedCount());
+
+        Client third = join(lobby, 12, 12, 0);
+        assertEquals(Message.matched(0), bigger.receiveFrame()); // Waiting since before the third client connected.
+        assertEquals(Message.matched(1), third.receiveFrame());
+        assertEquals(4, lobby.getMatchedCount());
+
+        Client rude = new Client("localhost", lobby.getPort());
+        rude.connect();
+        rude.sendFrame(Message.turn());
+        assertThrows(IOException.class, rude::receiveFrame);
+
+        for (Client client : new Client[] {first, second, bigger, third, rude}) {
+            client.close();
+        }
+        lobby.close();
+        assertThrows(IOException.class, otherRules::receiveFrame);
+        otherRules.close();
+    }
+
+    @Test
+    public void testManyClientsTimeToMatch() throws Exception {
+        // Every bucket is joined by the same, even number of clients, so nobody is left waiting for an opponent.
+        int pairs = 2 * BUCKETS.length;
+        int clients = (Integer.getInteger("lobbytest.clients", 10000) + pairs - 1) / pairs * pairs;
+        Lobby lobby = new Lobby(0, 2);
+        lobby.start();
+        InetSocketAddress address = new InetSocketAddress("localhost", lobby.getPort());
+        long[] latencies = new long[clients];
+        long start = System.nanoTime();
+        for (int from = 0; from < clients; from += WAVE) {
+            runWave(address, from, Math.min(WAVE, clients - from), latencies);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        Arrays.sort(latencies);
+        System.out.printf("Lobby: %d clients matched in %.2f s = %.0f joins/sec, time to match p50=%d us p90=%d us p99=%d us max=%d us%n",
+                clients, seconds, clients / seconds, percentile(latencies, 0.50) / 1000,
+                percentile(latencies, 0.90) / 1000, percentile(latencies, 0.99) / 1000, latencies[clients - 1] / 1000);
+        assertEquals(clients, lobby.getJoinedCount());
+        assertEquals(clients, lobby.getMatchedCount());
+        lobby.close();
+    }
+
+    /**
+     * Helper which connects a wave of clients, each joining one of the buckets round robin, and records
+     * the time from sending JOIN to receiving MATCHED. Clients close as soon as they are matched.
+     */
+    private static void runWave(InetSocketAddress address, int from, int count, long[] latencies) throws IOException {
+        try (Selector selector = Selector.open()) {
+            int remaining = count;
+            for (int i = from; i < from + count; i++) {
+                SocketChannel channel = SocketChannel.open(address);
+                channel.socket().setSoLinger(true, 0); // Reset on close, no TIME_WAIT left behind.
+                int[] bucket = BUCKETS[i % BUCKETS.length];
+                ByteBuffer join = ByteBuffer.allocate(MessageCodec.frameSize(Message.join(1, 1, 0)));
+                MessageCodec.encode(Message.join(bucket[0], bucket[1], bucket[2]), join);
+                join.flip();
+                latencies[i] = System.nanoTime();
+                while (join.hasRemaining()) {
+                    channel.write(join);
+                }
+                channel.configureBlocking(false);
+                channel.register(selector, SelectionKey.OP_READ, new int[] {i});
+                selector.selectNow();
+                remaining -= readMatched(selector, latencies);
+            }
+            long deadline = System.currentTimeMillis() + 60000;
+            while (remaining > 0) {
+                assertTrue(System.currentTimeMillis() < deadline, remaining + " clients never matched.");
+                selector.select(1000);
+                remaining -= readMatched(selector, latencies);
+            }
+        }
+    }
+
+    /**
+     * Helper which reads MATCHED from every selected client, records its latency and closes it.
+     * @return number of clients matched.
+     */
+    private static int readMatched(Selector selector, long[] latencies) throws IOException {
+        ByteBuffer matched = ByteBuffer.allocate(MessageCodec.frameSize(Message.matched(0)));
+        int count = 0;
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+            SelectionKey key = keys.next();
+            keys.remove();
+            SocketChannel channel = (SocketChannel) key.channel();
+            // MATCHED is tiny and arrives in one read on loopback.
+            matched.clear();
+            assertEquals(matched.capacity(), channel.read(matched));
+            matched.flip();
+            assertEquals(Message.Type.MATCHED, MessageCodec.decode(matched).getType());
+            int id = ((int[]) key.attachment())[0];
+            latencies[id] = System.nanoTime() - latencies[id];
+            key.cancel();
+            channel.close();
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Helper which connects a client and joins the lobby.
+     */
+    private static Client join(Lobby lobby, int width, int height, int ruleset) throws IOException {
+        Client client = new Client("localhost", lobby.getPort());
+        client.connect();
+        client.sendFrame(Message.join(width, height, ruleset));
+        return client;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+}
@@ -0,0 +1,173 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MessageCodecTest {
+
+    private static final Message[] SAMPLES = {
+        Message.shot(3, 7),
+        Message.result(3, 7, BoardCell.CellState.HIT),
+        Message.result(0, 9, BoardCell.CellState.MISS),
+        Message.sunk(4, 4, Ship.ShipType.SUBMARINE),
+        Message.commit(new byte[] {1, 2, 3, 4, 5}),
+        Message.gameOver(null),
+        Message.place(9, 0, Board.Direction.LEFT, Ship.ShipType.CARRIER),
+        Message.turn(),
+        Message.shot(5, 6).withSeq(42),
+        Message.commit(new byte[] {7}).withSeq(-1),
+        Message.salvo(new int[] {1, 2, 3}, new int[] {4, 5, 6}),
+        Message.salvoResult(70, new long[] {0b101L, 1L << 5}),
+        Message.salvo(new int[0], new int[0]).withSeq(9),
+        Message.syncRequest(1L << 40),
+        Message.sync(new byte[] {1, 0, 10, 10, 0, 3, 0}).withSeq(3),
+        Message.join(40, 30, 255),
+        Message.matched(1).withSeq(5),
+        Message.heartbeat(),
+        Message.compressed(new byte[] {3, 1, 2, 3}),
+    };
+
+    @Test
+    public void testRoundTripEveryType() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (Message message : SAMPLES) {
+            buffer.clear();
+            MessageCodec.encode(message, buffer);
+            assertEquals(MessageCodec.frameSize(message), buffer.position());
+            buffer.flip();
+            assertEquals(message, MessageCodec.decode(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+    }
+
+    @Test
+    public void testViewReadsEveryTypeInPlace() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        for (Message message : SAMPLES) {
+            MessageCodec.encode(message, buffer);
+        }
+        buffer.flip();
+        MessageView view = new MessageView();
+        for (Message message : SAMPLES) {
+            assertTrue(view.wrap(buffer));
+            assertEquals(message.getType(), view.getType());
+            assertEquals(message.getSeq(), view.getSeq());
+            if (message.getType() != Message.Type.SALVO_RESULT && message.getType() != Message.Type.MATCHED) {
+                // Message keeps the salvo count and the seat in x.
+                assertEquals(message.getX(), view.getX());
+                assertEquals(message.getY(), view.getY());
+            }
+            assertEquals(message.getState(), view.getState());
+            assertEquals(message.getShipType(), view.getShipType());
+            assertEquals(message.getDirection(), view.getDirection());
+            assertEquals(message.getCount(), view.getCount());
+            assertEquals(message.getVersion(), view.getVersion());
+            assertEquals(message.getRuleset(), view.getRuleset());
+            assertEquals(message.getSeat(), view.getSeat());
+            assertEquals(message.getPayload().length, view.getPayloadLength());
+            for (int i = 0; i < message.getXs().length; i++) {
+                assertEquals(message.getXs()[i], view.getX(i));
+                assertEquals(message.getYs()[i], view.getY(i));
+            }
+            if (message.getType() == Message.Type.SALVO_RESULT) {
+                for (int i = 0; i < message.getCount(); i++) {
+                    assertEquals((message.getHits()[i >>> 6] & (1L << i)) != 0, view.isHit(i));
+                }
+            }
+            assertEquals(message, view.toMessage());
+        }
+        assertFalse(view.wrap(buffer));
+        assertThrows(IndexOutOfBoundsException.class, () -> view.getX(0));
+    }
+
+    @Test
+    public void testCoalescedFramesDecodeInOrder() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        for (Message message : SAMPLES) {
+            MessageCodec.encode(message, buffer);
+        }
+        buffer.flip();
+        for (Message message : SAMPLES) {
+            assertEquals(message, MessageCodec.decode(buffer));
+        }
+        assertNull(MessageCodec.decode(buffer));
+    }
+
+    @Test
+    public void testTaggedFrameWithSeqZero() throws IOException {
+        // A peer may set the sequence flag with an ID of 0, the view must still skip the ID to find the next frame.
+        ByteBuffer buffer = ByteBuffer.allocateDirect(64);
+        buffer.putInt(13).put((byte) (Message.Type.SHOT.getCode() | 0x80)).putInt(0).putInt(5).putInt(6);
+        MessageCodec.encode(Message.turn(), buffer);
+        buffer.flip();
+        MessageView view = new MessageView();
+        assertTrue(view.wrap(buffer));
+        assertEquals(Message.Type.SHOT, view.getType());
+        assertEquals(0, view.getSeq());
+        assertEquals(5, view.getX());
+        assertEquals(6, view.getY());
+        assertEquals(MessageCodec.HEADER_SIZE + 13, buffer.position());
+        Message shot = view.toMessage();
+        assertEquals(Message.shot(5, 6), shot);
+        assertTrue(view.wrap(buffer));
+        assertEquals(Message.turn(), view.toMessage());
+        assertFalse(view.wrap(buffer));
+
+        ByteBuffer again = ByteBuffer.allocate(64);
+        MessageCodec.encode(shot, again);
+        again.flip();
+        assertEquals(shot, MessageCodec.decode(again));
+    }
+
+    @Test
+    public void testPartialFrameIsNotConsumed() throws IOException {
+        ByteBuffer full = ByteBuffer.allocate(64);
+        MessageCodec.encode(Message.sunk(1, 2, Ship.ShipType.CARRIER), full);
+        full.flip();
+        for (int available = 0; available < full.limit(); available++) {
+            ByteBuffer partial = full.duplicate();
+            partial.limit(available);
+            assertNull(MessageCodec.decode(partial));
+            assertEquals(0, partial.position());
+        }
+        assertEquals(Message.sunk(1, 2, Ship.ShipType.CARRIER), MessageCodec.decode(full));
+    }
+
+    @Test
+    public void testBodiesOverMaxSizeAreRefusedWhenEncoding() throws IOException {
+        Message largest = Message.sync(new byte[MessageCodec.MAX_BODY_SIZE - 1]);
+        ByteBuffer buffer = ByteBuffer.allocate(MessageCodec.frameSize(largest) + 8);
+        MessageCodec.encode(largest, buffer);
+        buffer.flip();
+        assertEquals(largest, MessageCodec.decode(buffer));
+
+        Message tooLarge = Message.sync(new byte[MessageCodec.MAX_BODY_SIZE]);
+        buffer.clear();
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.frameSize(tooLarge));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.encode(tooLarge, buffer));
+        assertThrows(IllegalArgumentException.class, () -> MessageCodec.encode(largest.withSeq(1), buffer));
+        assertEquals(0, buffer.position());
+    }
+
+    @Test
+    public void testMalformedFramesThrow() {
+        ByteBuffer badLength = ByteBuffer.allocate(8).putInt(-5).putInt(0);
+        badLength.flip();
+        assertThrows(IOException.class, () -> MessageCodec.decode(badLength));
+
+        ByteBuffer badType = ByteBuffer.allocate(8).putInt(1).put((byte) 42);
+        badType.flip();
+        assertThrows(IOException.class, () -> MessageCodec.decode(badType));
+
+        ByteBuffer shortShot = ByteBuffer.allocate(8).putInt(2).put(Message.Type.SHOT.getCode()).put((byte) 0);
+        shortShot.flip();
+        assertThrows(IOException.class, () -> MessageCodec.decode(shortShot));
+    }
+
+    @Test
+    public void testResultRejectsNonShotStates() {
+        assertThrows(IllegalArgumentException.class, () -> Message.result(0, 0, BoardCell.CellState.EMPTY));
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.jlavigueure;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+
+    @Test
+    public void testHistogramBucketsStayWithinPrecision() {
+        for (long value = 0; value < 1_000_000; value += 1 + value / 7) {
+            int bucket = Metrics.Histogram.bucket(value);
+            long highest = Metrics.Histogram.highest(bucket);
+            assertTrue(highest >= value, "bucket of " + value + " ends at " + highest);
+            assertTrue(highest - value <= value / 8, "bucket of " + value + " is too wide: " + highest);
+            assertTrue(bucket == 0 || Metrics.Histogram.highest(bucket - 1) < value);
+        }
+        assertEquals(Long.MAX_VALUE, Metrics.Histogram.highest(Metrics.Histogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void testHistogramPercentiles() {
+        Metrics.Histogram histogram = Metrics.histogram("test.latency");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5);
+        assertEquals(1001, histogram.getCount());
+        assertEquals(1_000_000, histogram.getMax());
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 8.0);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 8.0);
+        assertEquals(1_000_000, histogram.getPercentile(100));
+        assertSame(histogram, Metrics.histogram("test.latency"));
+        assertThrows(IllegalArgumentException.class, () -> Metrics.counter("test.latency"));
+    }
+
+    @Test
+    public void testBoardsCountShotsAndPlacements() {
+        long shots = Metrics.SHOTS.get();
+        long placements = Metrics.PLACEMENTS.get();
+        BitBoard board = new BitBoard(10, 10, BoardCell.CellState.EMPTY);
+        board.placeShip(0, 0, Board.Direction.RIGHT, new Ship(Ship.ShipType.DESTROYER));
+        assertThrows(IllegalArgumentException.class,
+                () -> board.placeShip(0, 0, Board.Direction.DOWN, new Ship(Ship.ShipType.DESTROYER)));
+        board.hit(0, 0);
+        board.hitAll(new int[] {1, 2, 3}, new int[] {0, 0, 0});
+        assertThrows(IllegalStateException.class, () -> board.hit(0, 0));
+        assertEquals(Metrics.ENABLED ? 4 : 0, Metrics.SHOTS.get() - shots);
+        assertEquals(Metrics.ENABLED ? 2 : 0, Metrics.PLACEMENTS.get() - placements);
+    }
+
+    @Test
+    public void testSnapshotOverHttp() throws IOException {
+        Metrics.counter("test.requests").add(42);
+        HttpServer server = Metrics.serve(0);
+        try {
+            URL url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/metrics");
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            assertEquals(200, connection.getResponseCode());
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[1024];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+            String text = new String(body.toByteArray(), StandardCharsets.UTF_8);
+            assertTrue(text.contains("test.requests 42\n"), text);
+            assertTrue(text.contains("net.send.nanos count="), text);
+        } finally {
+            server.stop(0);
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.github.jlavigueure;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProbabilityTargeterTest {
+
+    @Test
+    public void testWinsSeededGamesInFewShots() {
+        int games = 50;
+        int totalShots = 0;
+        for (int seed = 0; seed < games; seed++) {
+            BitBoard fleet = randomFleet(10, 10, new Random(seed));
+            int shots = play(fleet, new ProbabilityTargeter(new BitBoard(10, 10, BoardCell.CellState.UNKNOWN), seed));
+            assertTrue(fleet.allShipsSunk());
+            totalShots += shots;
+        }
+        double average = (double) totalShots / games;
+        // Random firing needs about 96 shots on average, density targeting far fewer.
+        assertTrue(average < 65, "Average shots to win was " + average);
+    }
+
+    @Test
+    public void testParallelHeatMapPlaysTheSameGameAsSequential() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        BitBoard fleetA = randomFleet(16, 12, new Random(7));
+        BitBoard fleetB = randomFleet(16, 12, new Random(7));
+        Ship.ShipType[] types = Ship.ShipType.values();
+        ProbabilityTargeter sequential = new ProbabilityTargeter(new BitBoard(16, 12, BoardCell.CellState.UNKNOWN), types, null, 0, 99);
+        ProbabilityTargeter parallel = new ProbabilityTargeter(new BitBoard(16, 12, BoardCell.CellState.UNKNOWN), types, pool, 0, 99);
+        while (!fleetA.allShipsSunk()) {
+            int shot = sequential.nextShot();
+            assertEquals(shot, parallel.nextShot());
+            fire(fleetA, sequential, shot);
+            fire(fleetB, parallel, shot);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testNeverShootsRevealedCells() {
+        BitBoard fog = new BitBoard(5, 5, BoardCell.CellState.UNKNOWN);
+        for (int x = 0; x < 5; x++) {
+            for (int y = 0; y < 5; y++) {
+                if (x != 3 || y != 1) fog.reveal(x, y, BoardCell.CellState.MISS);
+            }
+        }
+        ProbabilityTargeter targeter = new ProbabilityTargeter(fog, 1);
+        assertEquals(1 * 5 + 3, targeter.nextShot());
+        targeter.reveal(3, 1, BoardCell.CellState.MISS);
+        assertThrows(IllegalStateException.class, targeter::nextShot);
+    }
+
+    @Test
+    public void testOpenHitAttractsNeighbours() {
+        ProbabilityTargeter targeter = new ProbabilityTargeter(new BitBoard(10, 10, BoardCell.CellState.UNKNOWN), 3);
+        targeter.reveal(0, 0, BoardCell.CellState.HIT);
+        int shot = targeter.nextShot();
+        assertTrue(shot == 1 || shot == 10, "Expected a neighbour of the hit but got " + shot);
+    }
+
+    /**
+     * Helper which plays the targeter against a fleet until it is sunk.
+     * @return number of shots fired.
+     */
+    static int play(BitBoard fleet, Targeter targeter) {
+        int shots = 0;
+        while (!fleet.allShipsSunk()) {
+            fire(fleet, targeter, targeter.nextShot());
+            shots++;
+        }
+        return shots;
+    }
+
+    private static void fire(BitBoard fleet, Targeter targeter, int shot) {
+        int x = shot % fleet.getWidth();
+        int y = shot / fleet.getWidth();
+        BoardCell.CellState result = fleet.hit(x, y);
+        targeter.reveal(x, y, result);
+        if (fleet.getLastSunk() != null) {
+            targeter.shipSunk(x, y, fleet.getLastSunk().getType());
+        }
+    }
+
+    /**
+     * Helper which places the standard fleet at random by retrying rejected placements.
+     */
+    static BitBoard randomFleet(int width, int height, Random random) {
+        BitBoard board = new BitBoard(width, height, BoardCell.CellState.EMPTY);
+        Board.Direction[] directions = Board.Direction.values();
+        for (Ship.ShipType type : Ship.ShipType.values()) {
+            Ship ship = new Ship(type);
+            while (true) {
+                try {
+                    board.placeShip(random.nextInt(width), random.nextInt(height), directions[random.nextInt(4)], ship);
+                    break;
+                } catch (IndexOutOfBoundsException | IllegalArgumentException e) {
+                    // Collision or off the board, try another spot.
+                }
+            }
+        }
+        return board;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestPipelineTest {
+
+    @Test
+    public void testOutOfOrderResponsesMatchTheirRequests() throws Exception {
+        final int salvo = 5;
+        PeerListener listener = new PeerListener(0, ThreadMode.PLATFORM, connection -> {
+            // Collect the whole salvo, then answer in reverse order with an unsolicited TURN in between.
+            List<Message> shots = new ArrayList<>();
+            for (int i = 0; i < salvo; i++) {
+                shots.add(connection.receiveFrame());
+            }
+            connection.sendFrame(Message.turn());
+            for (int i = salvo - 1; i >= 0; i--) {
+                Message shot = shots.get(i);
+                BoardCell.CellState state = shot.getX() % 2 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS;
+                connection.sendFrame(Message.result(shot.getX(), shot.getY(), state).withSeq(shot.getSeq()));
+            }
+            connection.receiveFrame();
+        });
+        listener.start();
+
+        Client client = new Client("localhost", listener.getPort());
+        client.connect();
+        final List<Message> unsolicited = new CopyOnWriteArrayList<>();
+        RequestPipeline pipeline = new RequestPipeline(client, ThreadMode.PLATFORM, unsolicited::add);
+        pipeline.start();
+
+        List<CompletableFuture<Message>> futures = new ArrayList<>();
+        for (int x = 0; x < salvo; x++) {
+            futures.add(pipeline.request(Message.shot(x, 7)));
+        }
+        for (int x = 0; x < salvo; x++) {
+            Message result = futures.get(x).get(5, TimeUnit.SECONDS);
+            assertEquals(x, result.getX());
+            assertEquals(7, result.getY());
+            assertEquals(x % 2 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS, result.getState());
+        }
+        assertEquals(0, pipeline.getOutstanding());
+        assertEquals(1, unsolicited.size());
+        assertEquals(Message.Type.TURN, unsolicited.get(0).getType());
+
+        pipeline.close();
+        listener.close();
+    }
+
+    @Test
+    public void testOutstandingRequestsFailWhenPeerDisconnects() throws Exception {
+        PeerListener listener = new PeerListener(0, ThreadMode.PLATFORM, connection -> connection.receiveFrame());
+        listener.start();
+        Client client = new Client("localhost", listener.getPort());
+        client.connect();
+        RequestPipeline pipeline = new RequestPipeline(client, ThreadMode.PLATFORM, null);
+        pipeline.start();
+
+        CompletableFuture<Message> future = pipeline.request(Message.shot(0, 0));
+        ExecutionException thrown = assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertTrue(thrown.getCause() instanceof IOException);
+        listener.close();
+    }
+}
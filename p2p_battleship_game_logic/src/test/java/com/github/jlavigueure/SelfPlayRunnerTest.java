@@ -0,0 +1,52 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.ForkJoinPool;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SelfPlayRunnerTest {
+
+    @Test
+    public void testDensityBeatsRandom() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        SelfPlayRunner runner = new SelfPlayRunner(10, 10,
+                fog -> new ProbabilityTargeter(fog, 0), fog -> new RandomTargeter(fog, 0), pool);
+        SelfPlayRunner.Stats stats = runner.run(200, 42);
+        pool.shutdown();
+        assertEquals(200, stats.getGames());
+        assertEquals(200, stats.getWins(0) + stats.getWins(1));
+        assertTrue(stats.getWins(0) > 180, "Density bot won only " + stats.getWins(0));
+        assertTrue(stats.getMeanShotsToWin() < 65, "Mean shots to win was " + stats.getMeanShotsToWin());
+        assertTrue(stats.getShotsToWinPercentile(100) <= 100);
+        assertTrue(stats.getShotsToWinPercentile(50) >= 17);
+    }
+
+    @Test
+    public void testSameSeedPlaysSameGamesOnAnyPoolSize() {
+        SelfPlayRunner.Stats single = tournament(1, 300, 7);
+        SelfPlayRunner.Stats several = tournament(4, 300, 7);
+        assertEquals(single.getWins(0), several.getWins(0));
+        assertEquals(single.getTotalShots(), several.getTotalShots());
+        for (int shots = 0; shots <= 100; shots++) {
+            assertEquals(single.getGamesWonIn(shots), several.getGamesWonIn(shots));
+        }
+    }
+
+    @Test
+    public void testRejectsBoardTooSmallForFleet() {
+        ForkJoinPool pool = new ForkJoinPool(1);
+        assertThrows(IllegalArgumentException.class, () -> new SelfPlayRunner(4, 10,
+                fog -> new RandomTargeter(fog, 0), fog -> new RandomTargeter(fog, 0), pool));
+        pool.shutdown();
+    }
+
+    private static SelfPlayRunner.Stats tournament(int threads, long games, long seed) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            return new SelfPlayRunner(8, 8, fog -> new RandomTargeter(fog, 0),
+                    fog -> new RandomTargeter(fog, 0), pool).run(games, seed);
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
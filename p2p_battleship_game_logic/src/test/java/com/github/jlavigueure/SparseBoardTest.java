@@ -0,0 +1,107 @@
+package com.github.jlavigueure;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SparseBoardTest {
+
+    @Test
+    public void testPlaysLikeBitBoard() {
+        SplittableRandom random = new SplittableRandom(42);
+        for (int game = 0; game < 20; game++) {
+            int width = 5 + random.nextInt(40);
+            int height = 5 + random.nextInt(40);
+            BitBoard reference = new BitBoard(width, height, BoardCell.CellState.EMPTY);
+            SparseBoard board = new SparseBoard(width, height, BoardCell.CellState.EMPTY);
+            long seed = random.nextLong();
+            new FleetPlacer(width, height).place(reference, new SplittableRandom(seed));
+            new FleetPlacer(width, height).place(board, new SplittableRandom(seed));
+            while (!reference.allShipsSunk()) {
+                int x = random.nextInt(width);
+                int y = random.nextInt(height);
+                if (reference.getState(x, y) == BoardCell.CellState.HIT || reference.getState(x, y) == BoardCell.CellState.MISS) {
+                    assertThrows(IllegalStateException.class, () -> board.hit(x, y));
+                    continue;
+                }
+                assertEquals(reference.hit(x, y), board.hit(x, y));
+                assertEquals(reference.getLastSunk() == null, board.getLastSunk() == null);
+                assertEquals(reference.allShipsSunk(), board.allShipsSunk());
+            }
+            assertEquals(reference.toString(), board.toString());
+            assertEquals(reference.getVersion(), board.getVersion());
+        }
+    }
+
+    @Test
+    public void testMegaOceanOnlyAllocatesTouchedTiles() {
+        SparseBoard board = new SparseBoard(10000, 10000, BoardCell.CellState.UNKNOWN);
+        assertEquals(0, board.getTileCount());
+        assertEquals(BoardCell.CellState.UNKNOWN, board.getState(9999, 9999));
+        board.reveal(0, 0, BoardCell.CellState.MISS);
+        board.reveal(1, 0, BoardCell.CellState.HIT);
+        board.reveal(9999, 9999, BoardCell.CellState.MISS);
+        assertEquals(2, board.getTileCount());
+        assertEquals(BoardCell.CellState.HIT, board.getState(1, 0));
+        assertEquals(9999 * 10000 + 9999, board.getChangedCell(board.getVersion() - 1));
+        board.reset(BoardCell.CellState.EMPTY);
+        assertEquals(0, board.getTileCount());
+        assertEquals(BoardCell.CellState.EMPTY, board.getState(1, 0));
+    }
+
+    @Test
+    public void testShipAcrossTiles() {
+        SparseBoard board = new SparseBoard(100, 100, BoardCell.CellState.EMPTY);
+        Ship carrier = new Ship(Ship.ShipType.CARRIER);
+        board.placeShip(SparseBoard.TILE - 2, SparseBoard.TILE - 1, Board.Direction.RIGHT, carrier);
+        assertEquals(2, board.getTileCount());
+        assertSame(carrier, board.getShip(SparseBoard.TILE + 2, SparseBoard.TILE - 1));
+        assertNull(board.getShip(50, 50));
+        assertThrows(IllegalArgumentException.class,
+                () -> board.placeShip(SparseBoard.TILE, SparseBoard.TILE - 3, Board.Direction.DOWN, new Ship(Ship.ShipType.CRUISER)));
+        assertThrows(IndexOutOfBoundsException.class, () -> board.placeShip(98, 0, Board.Direction.RIGHT, new Ship(Ship.ShipType.CRUISER)));
+        for (int i = 0; i < carrier.getSize(); i++) {
+            board.hit(SparseBoard.TILE - 2 + i, SparseBoard.TILE - 1);
+        }
+        assertSame(carrier, board.getLastSunk());
+        assertTrue(board.allShipsSunk());
+    }
+
+    @Test
+    public void testHitAllValidatesLikeBoard() {
+        SparseBoard board = new SparseBoard(40, 40, BoardCell.CellState.EMPTY);
+        Ship destroyer = new Ship(Ship.ShipType.DESTROYER);
+        board.placeShip(20, 20, Board.Direction.DOWN, destroyer);
+        board.hit(0, 0);
+        assertThrows(IllegalArgumentException.class, () -> board.hitAll(new int[] {5, 6, 5, 0}, new int[] {5, 6, 5, 0}));
+        assertThrows(IllegalStateException.class, () -> board.hitAll(new int[] {5, 0, 5}, new int[] {5, 0, 5}));
+        assertThrows(IndexOutOfBoundsException.class, () -> board.hitAll(new int[] {5, 40}, new int[] {5, 0}));
+        assertEquals(BoardCell.CellState.EMPTY, board.getState(5, 5));
+        long[] result = board.hitAll(new int[] {20, 5, 20}, new int[] {20, 5, 21});
+        assertEquals(0b101L, result[0]);
+        assertSame(destroyer, board.getLastSunk());
+    }
+
+    @Test
+    public void testWriteToStreamsBoardText() throws IOException {
+        Board reference = new Board(37, 21, BoardCell.CellState.UNKNOWN);
+        SparseBoard board = new SparseBoard(37, 21, BoardCell.CellState.UNKNOWN);
+        reference.reveal(36, 20, BoardCell.CellState.HIT);
+        board.reveal(36, 20, BoardCell.CellState.HIT);
+        reference.reveal(3, 17, BoardCell.CellState.MISS);
+        board.reveal(3, 17, BoardCell.CellState.MISS);
+        StringWriter out = new StringWriter();
+        board.writeTo(out);
+        assertEquals(reference.toString(), out.toString());
+        assertEquals(reference.toString(), board.toString());
+    }
+
+    @Test
+    public void testInvalidConstructionThrowsException() {
+        assertThrows(IllegalArgumentException.class, () -> new SparseBoard(0, 5, BoardCell.CellState.EMPTY));
+        assertThrows(IllegalArgumentException.class, () -> new SparseBoard(100000, 100000, BoardCell.CellState.EMPTY));
+        assertThrows(IllegalArgumentException.class, () -> new SparseBoard(5, 5, BoardCell.CellState.OCCUPIED));
+    }
+}
@@ -0,0 +1,194 @@
+package com.github.jlavigueure;
+
+import java.io.DataInputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Streams games through a SpectatorHub and checks every spectator ends up seeing the game as played,
+ * including one that stops reading long enough to be dropped to a snapshot.
+ */
+public class SpectatorHubTest {
+
+    @Test
+    public void testSpectatorsFollowHostedGame() throws Exception {
+        SpectatorHub hub = new SpectatorHub(0, 10, 10);
+        hub.start();
+        Client[] clients = {new Client("localhost", hub.getPort()), new Client("localhost", hub.getPort())};
+        for (Client client : clients) {
+            client.connect();
+        }
+        awaitSpectators(hub, 2);
+
+        GameSession session = new GameSession(10, 10, (seat, message) -> { });
+        session.setSpectators(hub);
+        Ship.ShipType[] types = Ship.ShipType.values();
+        for (int seat = 0; seat < 2; seat++) {
+            for (int i = 0; i < types.length; i++) {
+                assertTrue(session.handle(seat, Message.place(0, i * 2, Board.Direction.RIGHT, types[i])));
+            }
+        }
+        for (int shot = 0; !session.isOver(); shot++) {
+            int cell = shot / 2; // Both seats shoot the same cells and seat 0 shoots first, so seat 0 wins.
+            assertTrue(session.handle(shot % 2, Message.shot(cell % 10, cell / 10)));
+        }
+
+        for (Client client : clients) {
+            SpectatorHub.View view = new SpectatorHub.View(10, 10);
+            Message message;
+            do {
+                message = client.receiveFrame();
+                view.apply(message);
+            } while (message.getType() != Message.Type.GAME_OVER);
+            assertEquals(0, message.getPayload()[0]);
+            for (int seat = 0; seat < 2; seat++) {
+                assertSeen(session.getBoard(1 - seat), view.getBoard(seat));
+            }
+            client.close();
+        }
+        assertEquals(0, hub.getResyncCount());
+        hub.close();
+    }
+
+    @Test
+    public void testStalledSpectatorIsResyncedWithoutBlockingGame() throws Exception {
+        int size = 512;
+        SpectatorHub hub = new SpectatorHub(0, size, size, 4096);
+        hub.start();
+        Client fast = new Client("localhost", hub.getPort());
+        fast.connect();
+        Socket stalled = new Socket();
+        stalled.setReceiveBufferSize(4096);
+        stalled.connect(new InetSocketAddress("localhost", hub.getPort()));
+        awaitSpectators(hub, 2);
+
+        // Far more bytes than the socket buffers hold, published without waiting on anybody.
+        int shots = size * size * 2;
+        long start = System.nanoTime();
+        for (int shot = 0; shot < shots; shot++) {
+            int cell = shot / 2;
+            BoardCell.CellState state = cell % 7 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS;
+            hub.publish(Message.result(cell % size, cell / size, state));
+        }
+        long publishNanos = System.nanoTime() - start;
+
+        SpectatorHub.View fastView = new SpectatorHub.View(size, size);
+        while (fastView.getShots(0) + fastView.getShots(1) < shots) {
+            fastView.apply(fast.receiveFrame());
+        }
+        assertTrue(hub.getResyncCount() > 0, "the stalled spectator should have fallen a ring behind");
+
+        SpectatorHub.View stalledView = new SpectatorHub.View(size, size);
+        DataInputStream in = new DataInputStream(stalled.getInputStream());
+        while (stalledView.getShots(0) + stalledView.getShots(1) < shots) {
+            byte[] frame = new byte[MessageCodec.HEADER_SIZE + in.readInt()];
+            ByteBuffer.wrap(frame).putInt(frame.length - MessageCodec.HEADER_SIZE);
+            in.readFully(frame, MessageCodec.HEADER_SIZE, frame.length - MessageCodec.HEADER_SIZE);
+            stalledView.apply(MessageCodec.decode(ByteBuffer.wrap(frame)));
+        }
+        System.out.printf("Spectator hub: %d shots published in %d ms, %d resyncs%n",
+                shots, publishNanos / 1_000_000, hub.getResyncCount());
+        for (int seat = 0; seat < 2; seat++) {
+            assertEquals(fastView.getBoard(seat).toString(), stalledView.getBoard(seat).toString());
+        }
+        assertEquals(2, hub.getSpectatorCount());
+        fast.close();
+        stalled.close();
+        hub.close();
+    }
+
+    @Test
+    public void testLateSpectatorGetsCompressedSnapshot() throws Exception {
+        int size = 64;
+        SpectatorHub hub = new SpectatorHub(0, size, size);
+        hub.setCompression(FrameCompressor.DEFAULT_THRESHOLD);
+        hub.start();
+        assertThrows(IllegalStateException.class, () -> hub.setCompression(0));
+        SpectatorHub.View played = new SpectatorHub.View(size, size);
+        for (int shot = 0; shot < 2000; shot++) {
+            int cell = shot / 2 * 3;
+            Message result = Message.result(cell % size, cell / size,
+                    cell % 5 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS);
+            played.apply(result);
+            hub.publish(result);
+        }
+        Thread.sleep(100); // Let the hub apply every result before the spectator's snapshot is taken.
+        Socket late = new Socket("localhost", hub.getPort());
+        DataInputStream in = new DataInputStream(late.getInputStream());
+        byte[] frame = new byte[MessageCodec.HEADER_SIZE + in.readInt()];
+        ByteBuffer.wrap(frame).putInt(frame.length - MessageCodec.HEADER_SIZE);
+        in.readFully(frame, MessageCodec.HEADER_SIZE, frame.length - MessageCodec.HEADER_SIZE);
+        Message snapshot = MessageCodec.decode(ByteBuffer.wrap(frame));
+        assertEquals(Message.Type.COMPRESSED, snapshot.getType());
+        System.out.printf("Spectator hub: %d byte snapshot sent in %d bytes%n",
+                MessageCodec.frameSize(played.snapshot()), frame.length);
+        SpectatorHub.View view = new SpectatorHub.View(size, size);
+        view.apply(snapshot);
+        for (int seat = 0; seat < 2; seat++) {
+            assertEquals(played.getBoard(seat).toString(), view.getBoard(seat).toString());
+        }
+        late.close();
+        hub.close();
+    }
+
+    @Test
+    public void testFrameLargerThanRingIsSentAsSnapshot() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> new SpectatorHub(0, 8, 8, 2 * SpectatorHub.MAX_RING_SIZE));
+        int size = 64;
+        SpectatorHub hub = new SpectatorHub(0, size, size, 256);
+        hub.start();
+        Client client = new Client("localhost", hub.getPort());
+        client.connect();
+        awaitSpectators(hub, 1);
+
+        SpectatorHub.View played = new SpectatorHub.View(size, size);
+        for (int shot = 0; shot < 1000; shot++) {
+            int cell = shot / 2 * 3;
+            played.apply(Message.result(cell % size, cell / size,
+                    cell % 5 == 0 ? BoardCell.CellState.HIT : BoardCell.CellState.MISS));
+        }
+        Message sync = played.snapshot();
+        assertTrue(MessageCodec.frameSize(sync) > 256);
+        hub.publish(sync);
+        hub.publish(Message.result(size, 0, BoardCell.CellState.MISS)); // Off the board, dropped.
+        Message last = Message.result(size - 1, size - 1, BoardCell.CellState.HIT);
+        played.apply(last);
+        hub.publish(last);
+
+        SpectatorHub.View view = new SpectatorHub.View(size, size);
+        while (view.getShots(0) + view.getShots(1) < 1001) {
+            view.apply(client.receiveFrame());
+        }
+        for (int seat = 0; seat < 2; seat++) {
+            assertEquals(played.getBoard(seat).toString(), view.getBoard(seat).toString());
+        }
+        assertEquals(1, hub.getDroppedCount());
+        assertEquals(1, hub.getSpectatorCount());
+        client.close();
+        hub.close();
+    }
+
+    /**
+     * Helper asserting a spectator board shows exactly the shots fired at a player's board.
+     */
+    private static void assertSeen(GameBoard target, GameBoard seen) {
+        for (int y = 0; y < target.getHeight(); y++) {
+            for (int x = 0; x < target.getWidth(); x++) {
+                BoardCell.CellState state = target.getState(x, y);
+                boolean shot = state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS;
+                assertEquals(shot ? state : BoardCell.CellState.UNKNOWN, seen.getState(x, y), "(" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    private static void awaitSpectators(SpectatorHub hub, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (hub.getSpectatorCount() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(count, hub.getSpectatorCount());
+    }
+}
@@ -0,0 +1,98 @@
+package com.github.jlavigueure;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the TargetIndex boards keep matches their cells through reveals, shots, salvos and resets,
+ * and that the hits of sunk ships stop being open hits.
+ */
+public class TargetIndexTest {
+
+    @Test
+    public void testRevealsKeepUntriedAndOpenHits() {
+        for (GameBoard fog : new GameBoard[] {
+                new Board(6, 5, BoardCell.CellState.UNKNOWN), new BitBoard(6, 5, BoardCell.CellState.UNKNOWN),
+                new SparseBoard(6, 5, BoardCell.CellState.UNKNOWN), new ConcurrentBoard(6, 5, BoardCell.CellState.UNKNOWN)}) {
+            TargetIndex targets = fog.getTargetIndex();
+            assertSame(targets, fog.getTargetIndex());
+            assertEquals(30, targets.getUntriedCount());
+            fog.reveal(2, 1, BoardCell.CellState.HIT);
+            fog.reveal(3, 1, BoardCell.CellState.MISS);
+            assertEquals(28, targets.getUntriedCount());
+            assertFalse(targets.isUntried(8));
+            assertFalse(targets.isUntried(9));
+            assertEquals(1, targets.getOpenHitCount());
+            assertEquals(8, targets.getOpenHit(0));
+            assertTrue(targets.isOpenHit(8));
+            assertFalse(targets.isOpenHit(9));
+            targets.resolveHit(8);
+            targets.resolveHit(9);
+            assertEquals(0, targets.getOpenHitCount());
+            assertThrows(IndexOutOfBoundsException.class, () -> targets.getOpenHit(0));
+            Set<Integer> sampled = new HashSet<>();
+            SplittableRandom random = new SplittableRandom(1);
+            while (targets.getUntriedCount() > 0) {
+                int cell = targets.sampleUntried(random);
+                assertTrue(sampled.add(cell));
+                fog.reveal(cell % 6, cell / 6, BoardCell.CellState.MISS);
+            }
+            assertEquals(28, sampled.size());
+            assertThrows(IllegalStateException.class, () -> targets.sampleUntried(random));
+            fog.reset(BoardCell.CellState.UNKNOWN);
+            assertEquals(30, targets.getUntriedCount());
+            assertTrue(targets.isUntried(8));
+        }
+    }
+
+    @Test
+    public void testSunkShipsAreResolved() {
+        for (GameBoard board : new GameBoard[] {
+                new Board(8, 8, BoardCell.CellState.EMPTY), new BitBoard(8, 8, BoardCell.CellState.EMPTY),
+                new SparseBoard(8, 8, BoardCell.CellState.EMPTY), new ConcurrentBoard(8, 8, BoardCell.CellState.EMPTY)}) {
+            board.placeShip(0, 0, Board.Direction.RIGHT, new Ship(Ship.ShipType.DESTROYER));
+            board.placeShip(7, 7, Board.Direction.UP, new Ship(Ship.ShipType.SUBMARINE));
+            board.hit(0, 0);
+            TargetIndex targets = board.getTargetIndex();
+            assertEquals(63, targets.getUntriedCount());
+            assertTrue(targets.isOpenHit(0));
+            board.hit(1, 0);
+            assertEquals(0, targets.getOpenHitCount());
+            board.hit(7, 7);
+            assertTrue(targets.isOpenHit(63));
+            long[] hits = board.hitAll(new int[] {7, 5, 7}, new int[] {6, 5, 5});
+            assertEquals(0b101L, hits[0]);
+            assertEquals(0, targets.getOpenHitCount());
+            assertEquals(58, targets.getUntriedCount());
+            assertFalse(targets.isUntried(5 * 8 + 5));
+            board.reset(BoardCell.CellState.MISS);
+            assertEquals(0, targets.getUntriedCount());
+        }
+    }
+
+    @Test
+    public void testLateIndexMatchesPlayedBoard() {
+        BitBoard board = new BitBoard(12, 9, BoardCell.CellState.EMPTY);
+        new FleetPlacer(12, 9).place(board, new SplittableRandom(3));
+        for (int cell = 0; cell < 108; cell += 2) {
+            board.hit(cell % 12, cell / 12);
+        }
+        TargetIndex targets = board.getTargetIndex();
+        int untried = 0;
+        int open = 0;
+        for (int cell = 0; cell < 108; cell++) {
+            BoardCell.CellState state = board.getState(cell % 12, cell / 12);
+            boolean shot = state == BoardCell.CellState.HIT || state == BoardCell.CellState.MISS;
+            assertEquals(!shot, targets.isUntried(cell));
+            boolean sunk = state == BoardCell.CellState.HIT && board.getShip(cell % 12, cell / 12).isSunk();
+            assertEquals(state == BoardCell.CellState.HIT && !sunk, targets.isOpenHit(cell));
+            untried += shot ? 0 : 1;
+            open += targets.isOpenHit(cell) ? 1 : 0;
+        }
+        assertEquals(untried, targets.getUntriedCount());
+        assertEquals(open, targets.getOpenHitCount());
+    }
+}
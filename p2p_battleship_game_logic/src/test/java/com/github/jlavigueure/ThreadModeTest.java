@@ -0,0 +1,63 @@
+package com.github.jlavigueure;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks both thread modes create named, unstarted threads running their task, and that VIRTUAL is available
+ * exactly on Java 21 or newer and refuses to create threads elsewhere.
+ */
+public class ThreadModeTest {
+
+    @Test
+    public void testPlatformThreadsAreNamedDaemons() throws Exception {
+        assertTrue(ThreadMode.PLATFORM.isAvailable());
+        assertRunsNamedThread(ThreadMode.PLATFORM);
+        assertFalse(isVirtual(ThreadMode.PLATFORM.newThread("platform", () -> { })));
+    }
+
+    @Test
+    public void testVirtualThreadsOnlyOnJava21() throws Exception {
+        String version = System.getProperty("java.specification.version");
+        int feature = version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+        assertEquals(feature >= 21, ThreadMode.VIRTUAL.isAvailable());
+        if (!ThreadMode.VIRTUAL.isAvailable()) {
+            assertThrows(UnsupportedOperationException.class, () -> ThreadMode.VIRTUAL.newThread("virtual", () -> { }));
+            return;
+        }
+        assertRunsNamedThread(ThreadMode.VIRTUAL);
+        assertTrue(isVirtual(ThreadMode.VIRTUAL.newThread("virtual", () -> { })));
+    }
+
+    /**
+     * Helper asserting a mode's thread starts unstarted, daemon and named, and runs its task on itself.
+     */
+    private static void assertRunsNamedThread(ThreadMode mode) throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        String[] runningName = new String[1];
+        Thread thread = mode.newThread("connection-" + mode, () -> {
+            runningName[0] = Thread.currentThread().getName();
+            ran.countDown();
+        });
+        assertEquals(Thread.State.NEW, thread.getState());
+        assertEquals("connection-" + mode, thread.getName());
+        assertTrue(thread.isDaemon());
+        thread.start();
+        assertTrue(ran.await(5, TimeUnit.SECONDS));
+        thread.join(5000);
+        assertEquals("connection-" + mode, runningName[0]);
+    }
+
+    /**
+     * Helper calling Thread.isVirtual, which only exists on Java 21 or newer.
+     */
+    private static boolean isVirtual(Thread thread) {
+        try {
+            return (Boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+}